@@ -0,0 +1,463 @@
+package jetoze.tzudoku;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import jetoze.tzudoku.model.CanonicalForm;
+import jetoze.tzudoku.model.DifficultyRating;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.PuzzleInfo;
+import jetoze.tzudoku.model.PuzzleState;
+
+/**
+ * The index of a {@link PuzzleInventory}: the name, state, last update, rating, canonical
+ * form, solution and file of each puzzle, stored in a single append-only file.
+ * <p>
+ * Every change appends a record with the complete new state of the puzzle (or a removal
+ * marker) to the end of the file, so that a change costs the same no matter how many puzzles
+ * there are. Loading the index is a single sequential read, where the last record of each
+ * puzzle wins. When the file has grown to hold a lot more records than puzzles, it is
+ * compacted in the background, by writing the current state to a temporary file that then
+ * replaces the index.
+ * <p>
+ * Each record is one line of tab separated fields. A record that was cut short, for example
+ * because the application crashed while writing it, is recognized by its missing line
+ * terminator or its malformed fields. It is ignored when the index is loaded, and the index
+ * is compacted right away, so that the next record is not appended to the damaged line.
+ * Records written before the solution field was added are read as if the solution has not
+ * been computed.
+ * <p>
+ * The index is updated both from the UI thread and from the background threads that rate
+ * the puzzles, so access is synchronized. I/O errors are reported but otherwise ignored, in
+ * the same way as for the properties files the index replaces.
+ */
+final class InventoryIndex {
+
+    static final String FILE_NAME = "inventory.index";
+
+    /**
+     * We don't bother compacting the index until it holds at least this many records.
+     */
+    private static final int MIN_RECORDS_TO_COMPACT = 64;
+
+    private static final String PUT = "+";
+    private static final String REMOVE = "-";
+    private static final String SEPARATOR = "\t";
+    private static final String UNKNOWN_CANONICAL_FORM = "?";
+    private static final String UNKNOWN_SOLUTION = "?";
+
+    /**
+     * Compacts the indexes of all inventories. Compaction is rare and quick, so one
+     * thread is enough.
+     */
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("inventory-index-compactor-%d")
+            .setDaemon(true)
+            .build());
+
+    private final Path file;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    /**
+     * The number of records in the file.
+     */
+    private int numberOfRecords;
+    private boolean compactionPending;
+    @Nullable
+    private Writer appender;
+
+    private InventoryIndex(Path file) {
+        this.file = requireNonNull(file);
+    }
+
+    /**
+     * Loads the index stored in the given file. The file does not have to exist.
+     */
+    public static InventoryIndex load(Path file) {
+        InventoryIndex index = new InventoryIndex(file);
+        if (Files.exists(file)) {
+            index.read();
+        }
+        return index;
+    }
+
+    private synchronized void read() {
+        boolean damaged = false;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            // Every record we write ends with a line terminator, so if the last line does
+            // not, it is a record that was cut short. Such a record can still look valid, 
+            // e.g. if it was cut short in the file name of a record written before the
+            // solution field was added.
+            boolean lastRecordComplete = endsWithLineTerminator(file);
+            String line = reader.readLine();
+            while (line != null) {
+                String nextLine = reader.readLine();
+                if (nextLine == null && !lastRecordComplete) {
+                    damaged = true;
+                    break;
+                }
+                ++numberOfRecords;
+                String[] fields = line.split(SEPARATOR, -1);
+                if (fields.length == 2 && fields[0].equals(REMOVE)) {
+                    entries.remove(fields[1]);
+                } else {
+                    Optional<Entry> entry = fields[0].equals(PUT)
+                            ? Entry.fromRecord(fields)
+                            : Optional.empty();
+                    entry.ifPresent(e -> entries.put(e.getId(), e));
+                    damaged |= entry.isEmpty();
+                }
+                line = nextLine;
+            }
+        } catch (IOException e) {
+            // TODO: Log the exception somewhere.
+            e.printStackTrace();
+            return;
+        }
+        if (damaged) {
+            // Get rid of the damaged records right away, so that a record that was cut
+            // short does not swallow the next record we append.
+            compact();
+        }
+    }
+
+    private static boolean endsWithLineTerminator(Path file) throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            long size = channel.size();
+            if (size == 0L) {
+                return true;
+            }
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            channel.position(size - 1).read(lastByte);
+            return lastByte.get(0) == '\n';
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public synchronized ImmutableList<Entry> getEntries() {
+        return ImmutableList.copyOf(entries.values());
+    }
+
+    public synchronized Optional<Entry> get(String id) {
+        return Optional.ofNullable(entries.get(id));
+    }
+
+    /**
+     * Adds an entry, or replaces the existing entry with the same id.
+     */
+    public synchronized void put(Entry entry) {
+        entries.put(entry.getId(), entry);
+        append(entry.toRecord());
+    }
+
+    /**
+     * Adds several entries at once, appending all their records to the index file in a
+     * single write.
+     */
+    public synchronized void putAll(Collection<Entry> entriesToAdd) {
+        entriesToAdd.forEach(e -> entries.put(e.getId(), e));
+        append(entriesToAdd.stream()
+                .map(Entry::toRecord)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Replaces the entry with the given id with the result of applying the given function
+     * to it. Does nothing if there is no entry with that id.
+     */
+    public synchronized void update(String id, UnaryOperator<Entry> function) {
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            put(function.apply(entry));
+        }
+    }
+
+    public synchronized void remove(String id) {
+        if (entries.remove(id) != null) {
+            append(REMOVE + SEPARATOR + id);
+        }
+    }
+
+    private void append(String record) {
+        append(List.of(record));
+    }
+
+    private void append(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            if (appender == null) {
+                appender = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (String record : records) {
+                appender.write(record);
+                appender.write('\n');
+            }
+            appender.flush();
+            numberOfRecords += records.size();
+        } catch (IOException e) {
+            // TODO: Log the exception somewhere.
+            e.printStackTrace();
+        }
+        if (!compactionPending && numberOfRecords >= Math.max(MIN_RECORDS_TO_COMPACT, 2 * entries.size())) {
+            compactionPending = true;
+            COMPACTOR.execute(this::compact);
+        }
+    }
+
+    /**
+     * Rewrites the index file with a single record per entry.
+     */
+    synchronized void compact() {
+        compactionPending = false;
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            closeAppender();
+            try (Writer writer = Files.newBufferedWriter(tempFile)) {
+                for (Entry e : entries.values()) {
+                    writer.write(e.toRecord());
+                    writer.write('\n');
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            numberOfRecords = entries.size();
+        } catch (IOException e) {
+            // TODO: Log the exception somewhere.
+            e.printStackTrace();
+        }
+    }
+
+    private void closeAppender() throws IOException {
+        if (appender != null) {
+            appender.close();
+            appender = null;
+        }
+    }
+
+    /**
+     * Returns the number of records in the index file. Exposed for testing.
+     */
+    synchronized int getNumberOfRecords() {
+        return numberOfRecords;
+    }
+
+
+    /**
+     * The indexed information about a single puzzle.
+     */
+    public static final class Entry {
+        private final String id;
+        private final String name;
+        private final PuzzleState state;
+        @Nullable
+        private final ZonedDateTime lastUpdated;
+        @Nullable
+        private final DifficultyRating rating;
+        /**
+         * The canonical form of the puzzle, an empty string for a puzzle that is not
+         * a classic sudoku, or {@code null} if the canonical form has not been computed.
+         */
+        @Nullable
+        private final String canonicalForm;
+        /**
+         * The name of the puzzle file, relative to the inventory directory.
+         */
+        private final String fileName;
+        /**
+         * The digits of the solution of the puzzle, row by row, an empty string for a puzzle
+         * that does not have a unique solution, or {@code null} if the solution has not been
+         * computed.
+         */
+        @Nullable
+        private final String solution;
+
+        private Entry(String id, String name, PuzzleState state, @Nullable ZonedDateTime lastUpdated,
+                @Nullable DifficultyRating rating, @Nullable String canonicalForm, String fileName,
+                @Nullable String solution) {
+            this.id = requireNonNull(id);
+            this.name = requireNonNull(name);
+            this.state = requireNonNull(state);
+            this.lastUpdated = lastUpdated;
+            this.rating = rating;
+            this.canonicalForm = canonicalForm;
+            this.fileName = requireNonNull(fileName);
+            this.solution = solution;
+        }
+
+        /**
+         * Creates the entry of a puzzle whose canonical form and solution have not been 
+         * computed yet.
+         */
+        public static Entry of(String id, String name, PuzzleState state, @Nullable ZonedDateTime lastUpdated,
+                @Nullable DifficultyRating rating, String fileName) {
+            return new Entry(id, name, state, lastUpdated, rating, null, fileName, null);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public PuzzleInfo toPuzzleInfo() {
+            return new PuzzleInfo(name, state, lastUpdated, rating);
+        }
+
+        public boolean hasCanonicalForm() {
+            return canonicalForm != null;
+        }
+
+        /**
+         * Returns the canonical form of the puzzle, or an empty Optional if the puzzle is
+         * not a classic sudoku or if the canonical form has not been computed.
+         */
+        public Optional<CanonicalForm> getCanonicalForm() {
+            if (canonicalForm == null || canonicalForm.isEmpty()) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(CanonicalForm.fromString(canonicalForm));
+            } catch (IllegalArgumentException e) {
+                e.printStackTrace();
+                return Optional.empty();
+            }
+        }
+
+        public boolean hasComputedSolution() {
+            return solution != null;
+        }
+
+        /**
+         * Returns the solution of the puzzle, or an empty Optional if the puzzle does not
+         * have a unique solution or if the solution has not been computed. All the cells of
+         * the returned grid are given.
+         */
+        public Optional<Grid> getSolution() {
+            if (solution == null || solution.isEmpty()) {
+                return Optional.empty();
+            }
+            String[] rows = new String[9];
+            for (int r = 0; r < 9; ++r) {
+                rows[r] = solution.substring(9 * r, 9 * (r + 1));
+            }
+            return Optional.of(new Grid(rows));
+        }
+
+        public Entry withState(PuzzleState state, ZonedDateTime lastUpdated) {
+            return new Entry(id, name, state, lastUpdated, rating, canonicalForm, fileName, solution);
+        }
+
+        public Entry withRating(DifficultyRating rating) {
+            return new Entry(id, name, state, lastUpdated, requireNonNull(rating), canonicalForm, fileName, solution);
+        }
+
+        public Entry withCanonicalForm(Optional<CanonicalForm> canonicalForm) {
+            return new Entry(id, name, state, lastUpdated, rating,
+                    canonicalForm.map(CanonicalForm::toString).orElse(""), fileName, solution);
+        }
+
+        /**
+         * Returns a copy of this entry with the given solution, where an empty Optional
+         * means that the puzzle does not have a unique solution.
+         */
+        public Entry withSolution(Optional<Grid> solution) {
+            return new Entry(id, name, state, lastUpdated, rating, canonicalForm, fileName,
+                    solution.map(Entry::toDigits).orElse(""));
+        }
+
+        private static String toDigits(Grid grid) {
+            checkArgument(grid.isSolved(), "Not a solved grid");
+            StringBuilder digits = new StringBuilder(81);
+            for (int r = 1; r <= 9; ++r) {
+                for (int c = 1; c <= 9; ++c) {
+                    digits.append(grid.cellAt(new Position(r, c)).getValue().orElseThrow().toInt());
+                }
+            }
+            return digits.toString();
+        }
+
+        private String toRecord() {
+            return String.join(SEPARATOR,
+                    PUT,
+                    id,
+                    name,
+                    state.name(),
+                    (lastUpdated == null) ? "" : DateTimeFormatter.ISO_DATE_TIME.format(lastUpdated),
+                    (rating == null) ? "" : rating.toStorageString(),
+                    (canonicalForm == null) ? UNKNOWN_CANONICAL_FORM : canonicalForm,
+                    fileName,
+                    (solution == null) ? UNKNOWN_SOLUTION : solution);
+        }
+
+        private static Optional<Entry> fromRecord(String[] fields) {
+            if (fields.length != 8 && fields.length != 9) {
+                return Optional.empty();
+            }
+            try {
+                String id = fields[1];
+                String name = fields[2];
+                PuzzleState state = PuzzleState.valueOf(fields[3]);
+                ZonedDateTime lastUpdated = fields[4].isEmpty()
+                        ? null
+                        : ZonedDateTime.parse(fields[4], DateTimeFormatter.ISO_DATE_TIME);
+                DifficultyRating rating = fields[5].isEmpty()
+                        ? null
+                        : DifficultyRating.fromStorageString(fields[5]);
+                String canonicalForm = fields[6].equals(UNKNOWN_CANONICAL_FORM)
+                        ? null
+                        : fields[6];
+                String fileName = fields[7];
+                String solution = (fields.length == 8 || fields[8].equals(UNKNOWN_SOLUTION))
+                        ? null
+                        : fields[8];
+                if (id.isEmpty() || name.isBlank() || fileName.isEmpty()) {
+                    return Optional.empty();
+                }
+                if (solution != null && !solution.isEmpty() && !solution.matches("[1-9]{81}")) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Entry(id, name, state, lastUpdated, rating, canonicalForm, fileName, solution));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                // A damaged record.
+                return Optional.empty();
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package jetoze.tzudoku;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import com.google.common.collect.Comparators;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.model.DifficultyRating;
+import jetoze.tzudoku.model.PuzzleInfo;
+import jetoze.tzudoku.model.PuzzleState;
+
+/**
+ * A query for the puzzles in a {@link PuzzleInventory}, see {@link PuzzleInventory#query(InventoryQuery)}.
+ * <p>
+ * A query selects the puzzles that match all of its criteria, and returns them in the
+ * given sort order. Criteria that have not been set match all puzzles. Puzzles that have
+ * not been rated yet are never excluded by the difficulty criterion, but they are excluded
+ * by the technique criterion, since we don't know which techniques they require.
+ */
+public final class InventoryQuery {
+
+    /**
+     * A query that returns all the puzzles, most recently updated first.
+     */
+    public static final InventoryQuery ALL = builder().build();
+
+    private final ImmutableSet<PuzzleState> states;
+    private final String namePrefix;
+    private final double maxDifficulty;
+    private final ImmutableSet<SolvingTechnique> techniques;
+    private final SortOrder sortOrder;
+    private final int limit;
+
+    private InventoryQuery(Builder builder) {
+        this.states = Sets.immutableEnumSet(builder.states);
+        this.namePrefix = builder.namePrefix;
+        this.maxDifficulty = builder.maxDifficulty;
+        this.techniques = Sets.immutableEnumSet(builder.techniques);
+        this.sortOrder = builder.sortOrder;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a builder that is initialized with the criteria of this query.
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .states(states)
+                .namePrefix(namePrefix)
+                .maxDifficulty(maxDifficulty)
+                .techniques(techniques)
+                .sortOrder(sortOrder)
+                .limit(limit);
+    }
+
+    public ImmutableSet<PuzzleState> getStates() {
+        return states;
+    }
+
+    /**
+     * Checks if this query only selects puzzles in some of the states.
+     */
+    boolean isRestrictedByState() {
+        return states.size() < PuzzleState.values().length;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public double getMaxDifficulty() {
+        return maxDifficulty;
+    }
+
+    boolean isRestrictedByDifficulty() {
+        return maxDifficulty < Double.MAX_VALUE;
+    }
+
+    /**
+     * Returns the techniques of this query. A puzzle matches if the hardest technique
+     * required to solve it is one of these techniques. An empty set matches all puzzles.
+     */
+    public ImmutableSet<SolvingTechnique> getTechniques() {
+        return techniques;
+    }
+
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Returns the maximum number of puzzles returned by this query.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks if the given puzzle matches all the criteria of this query.
+     */
+    public boolean matches(PuzzleInfo info) {
+        if (!states.contains(info.getState())) {
+            return false;
+        }
+        if (!info.getName().startsWith(namePrefix)) {
+            return false;
+        }
+        if (isRestrictedByDifficulty() && info.getRating()
+                .map(r -> r.getValue() > maxDifficulty)
+                .orElse(false)) {
+            return false;
+        }
+        return techniques.isEmpty() || info.getRating()
+                .flatMap(DifficultyRating::getHardestTechnique)
+                .map(techniques::contains)
+                .orElse(false);
+    }
+
+    /**
+     * Returns this query as a predicate.
+     */
+    public Predicate<PuzzleInfo> asPredicate() {
+        return this::matches;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("states=%s, namePrefix=\"%s\", maxDifficulty=%s, techniques=%s, sortOrder=%s, limit=%d",
+                states, namePrefix, maxDifficulty, techniques, sortOrder, limit);
+    }
+
+
+    public static enum SortOrder {
+        ALPHABETICAL(Comparator.comparing(PuzzleInfo::getName)),
+        LAST_UPDATED(Comparator.comparing(PuzzleInfo::lastUpdated,
+                Comparators.emptiesLast(Comparator.reverseOrder()))),
+        DIFFICULTY(Comparator.comparing(PuzzleInfo::getRating,
+                Comparators.emptiesLast(Comparator.<DifficultyRating>naturalOrder())));
+
+        private final Comparator<PuzzleInfo> comparator;
+
+        private SortOrder(Comparator<PuzzleInfo> comparator) {
+            // Puzzle names are unique, so breaking ties by name gives a total order.
+            this.comparator = comparator.thenComparing(PuzzleInfo::getName);
+        }
+
+        public Comparator<PuzzleInfo> getComparator() {
+            return comparator;
+        }
+    }
+
+
+    public static final class Builder {
+        private EnumSet<PuzzleState> states = EnumSet.allOf(PuzzleState.class);
+        private String namePrefix = "";
+        private double maxDifficulty = Double.MAX_VALUE;
+        private EnumSet<SolvingTechnique> techniques = EnumSet.noneOf(SolvingTechnique.class);
+        private SortOrder sortOrder = SortOrder.LAST_UPDATED;
+        private int limit = Integer.MAX_VALUE;
+
+        private Builder() {/**/}
+
+        public Builder states(Set<PuzzleState> states) {
+            checkArgument(!states.isEmpty(), "At least one state must be given");
+            this.states = EnumSet.copyOf(states);
+            return this;
+        }
+
+        public Builder states(PuzzleState first, PuzzleState... rest) {
+            return states(EnumSet.of(first, rest));
+        }
+
+        /**
+         * Excludes the solved puzzles.
+         */
+        public Builder unsolved() {
+            return states(PuzzleState.NEW, PuzzleState.PROGRESS);
+        }
+
+        /**
+         * Selects the puzzles whose names start with the given prefix. The match is case
+         * sensitive.
+         */
+        public Builder namePrefix(String namePrefix) {
+            this.namePrefix = requireNonNull(namePrefix);
+            return this;
+        }
+
+        /**
+         * Selects the puzzles whose rating is at most the given value, and all puzzles that
+         * have not been rated yet.
+         */
+        public Builder maxDifficulty(double maxDifficulty) {
+            checkArgument(maxDifficulty >= 0.0, "maxDifficulty must be >= 0 (was %s)", maxDifficulty);
+            this.maxDifficulty = maxDifficulty;
+            return this;
+        }
+
+        /**
+         * Selects the puzzles that require one of the given techniques as their hardest
+         * technique. An empty set selects all puzzles.
+         */
+        public Builder techniques(Set<SolvingTechnique> techniques) {
+            this.techniques = EnumSet.noneOf(SolvingTechnique.class);
+            this.techniques.addAll(techniques);
+            return this;
+        }
+
+        public Builder techniques(SolvingTechnique... techniques) {
+            this.techniques = EnumSet.noneOf(SolvingTechnique.class);
+            Stream.of(techniques).forEach(this.techniques::add);
+            return this;
+        }
+
+        public Builder sortOrder(SortOrder sortOrder) {
+            this.sortOrder = requireNonNull(sortOrder);
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            checkArgument(limit > 0, "limit must be > 0 (was %s)", limit);
+            this.limit = limit;
+            return this;
+        }
+
+        public InventoryQuery build() {
+            return new InventoryQuery(this);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package jetoze.tzudoku;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import jetoze.tzudoku.model.Cell;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.PuzzleBinaryCodec;
+import jetoze.tzudoku.model.Value;
+import jetoze.tzudoku.solver.CompleteSolver;
+
+/**
+ * A bounded cache of the puzzles loaded by a {@link PuzzleInventory}, keyed by the file
+ * the puzzle was loaded from, together with the solution of each puzzle once it has been
+ * computed.
+ * <p>
+ * Puzzles are mutable, so the cache holds the {@link PuzzleBinaryCodec binary form} of
+ * each puzzle, which is compact and cheap to decode, and hands out a fresh puzzle on every
+ * hit. The size of the cache is bounded by the total number of bytes held, and the least
+ * recently used puzzles are evicted first. Room for the solution is reserved up front,
+ * since the weight of an entry is fixed when it is added.
+ * <p>
+ * The inventory must invalidate the entry of a file whenever it writes, moves or deletes
+ * the file. The cache is thread-safe.
+ */
+final class PuzzleCache {
+
+    /**
+     * A solution is stored as one byte per cell, holding the value of the cell, with the 
+     * GIVEN bit set for the given cells.
+     */
+    private static final int SOLUTION_SIZE = 81;
+    private static final int GIVEN = 0x10;
+    /**
+     * Marks a puzzle that does not have a unique solution.
+     */
+    private static final byte[] NO_SOLUTION = new byte[0];
+
+    private final Cache<File, Entry> cache;
+
+    /**
+     * Creates a cache that holds at most the given number of bytes.
+     */
+    public PuzzleCache(long maximumBytes) {
+        checkArgument(maximumBytes > 0, "maximumBytes must be > 0 (was %s)", maximumBytes);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((File file, Entry entry) -> entry.puzzle.length + SOLUTION_SIZE)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the puzzle stored in the given file, loading it with the given loader if it
+     * is not in the cache.
+     */
+    public Puzzle getPuzzle(File file, String name, Callable<Puzzle> loader) throws IOException {
+        return PuzzleBinaryCodec.fromBytes(getEntry(file, loader).puzzle, name);
+    }
+
+    /**
+     * Returns the solution of the puzzle stored in the given file, loading the puzzle with
+     * the given loader if it is not in the cache, and solving it if it has not been solved
+     * before. If the puzzle cannot be solved within the given time limit nothing is cached,
+     * so that a later call can try again.
+     *
+     * @return the solution, or an empty Optional if the puzzle does not have a unique
+     *         solution
+     * @throws TimeoutException
+     *             if the puzzle could not be solved within the time limit
+     */
+    public Optional<Grid> getSolution(File file, String name, Callable<Puzzle> loader, Duration timeLimit) 
+            throws IOException, TimeoutException {
+        Entry entry = getEntry(file, loader);
+        byte[] solution = entry.solution;
+        if (solution == null) {
+            // Two threads may end up solving the same puzzle, which is harmless.
+            Puzzle puzzle = PuzzleBinaryCodec.fromBytes(entry.puzzle, name);
+            solution = new CompleteSolver(puzzle).solveUniquely(timeLimit)
+                    .map(PuzzleCache::toValues)
+                    .orElse(NO_SOLUTION);
+            entry.solution = solution;
+        }
+        return (solution == NO_SOLUTION)
+                ? Optional.empty()
+                : Optional.of(fromValues(solution));
+    }
+
+    private Entry getEntry(File file, Callable<Puzzle> loader) throws IOException {
+        requireNonNull(loader);
+        try {
+            return cache.get(file, () -> new Entry(PuzzleBinaryCodec.toBytes(loader.call())));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new IOException(cause);
+        }
+    }
+
+    private static byte[] toValues(Grid grid) {
+        byte[] values = new byte[SOLUTION_SIZE];
+        int i = 0;
+        for (int r = 1; r <= 9; ++r) {
+            for (int c = 1; c <= 9; ++c) {
+                Cell cell = grid.cellAt(new Position(r, c));
+                int value = cell.getValue().map(Value::toInt).orElse(0);
+                values[i++] = (byte) (cell.isGiven() ? (value | GIVEN) : value);
+            }
+        }
+        return values;
+    }
+
+    private static Grid fromValues(byte[] values) {
+        List<Cell> cells = new ArrayList<>(SOLUTION_SIZE);
+        for (byte b : values) {
+            Value value = Value.of(b & 0x0F);
+            cells.add(((b & GIVEN) != 0) ? Cell.given(value) : Cell.unknownWithValue(value));
+        }
+        return new Grid(cells);
+    }
+
+    /**
+     * Removes the puzzle stored in the given file from the cache.
+     */
+    public void invalidate(File file) {
+        cache.invalidate(file);
+    }
+
+    /**
+     * Returns the hit and miss counts of this cache.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+
+    private static class Entry {
+        private final byte[] puzzle;
+        @Nullable
+        private volatile byte[] solution;
+
+        public Entry(byte[] puzzle) {
+            this.puzzle = puzzle;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package jetoze.tzudoku;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import jetoze.tzudoku.model.CanonicalForm;
+import jetoze.tzudoku.model.Cell;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.Value;
+import jetoze.tzudoku.solver.CompleteSolver;
+
+/**
+ * Imports collections of classic puzzles from plain text files into a {@link PuzzleInventory}.
+ * <p>
+ * The format is recognized line by line, so the following formats are all supported:
+ * <ul>
+ * <li>One puzzle per line, as 81 characters, row by row, where the digits 1-9 are the given
+ * digits and any of <code>0.-*_</code> marks an empty cell. Anything after the 81 characters,
+ * such as a rating or a comment, is ignored. This includes the .sdm format.</li>
+ * <li>CSV, where the first field that holds 81 such characters is the puzzle. Any other
+ * fields, for example the solution, are ignored, and so is a header line.</li>
+ * </ul>
+ * Blank lines and lines starting with # are skipped.
+ * <p>
+ * The file is read in chunks of lines that are parsed, solved and canonicalized in parallel.
+ * Puzzles that do not have a unique solution are rejected, and so are puzzles that are
+ * equivalent to a puzzle that is already in the inventory or that appears earlier in the
+ * file. The accepted puzzles of each chunk are added to the inventory as one batch, in the
+ * order of the file, and are named after the file and their line number.
+ */
+public class PuzzleImporter {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final String EMPTY_CELL_CHARS = "0.-*_";
+
+    private final PuzzleInventory inventory;
+    private final int numberOfThreads;
+    private Consumer<? super Report> progressListener = r -> {/**/};
+
+    public PuzzleImporter(PuzzleInventory inventory, int numberOfThreads) {
+        checkArgument(numberOfThreads > 0, "numberOfThreads must be > 0 (was %s)", numberOfThreads);
+        this.inventory = requireNonNull(inventory);
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Sets a listener that is notified of the progress of the import, on the importing
+     * thread, after each chunk of lines has been imported.
+     */
+    public PuzzleImporter setProgressListener(Consumer<? super Report> progressListener) {
+        this.progressListener = requireNonNull(progressListener);
+        return this;
+    }
+
+    /**
+     * Imports the puzzles in the given file. The puzzles are named after the file.
+     */
+    public Report importPuzzles(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            return importPuzzles(reader, collectionName(file));
+        }
+    }
+
+    private static String collectionName(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String name = (dot > 0)
+                ? fileName.substring(0, dot)
+                : fileName;
+        // Keep the name usable as part of a puzzle name.
+        return name.replaceAll("[^a-zA-Z0-9 _\\-.]", "_");
+    }
+
+    /**
+     * Imports the puzzles read from the given reader.
+     *
+     * @param collectionName
+     *            the name of the collection, which is used for naming the puzzles
+     */
+    public Report importPuzzles(Reader reader, String collectionName) throws IOException {
+        checkArgument(!collectionName.isBlank(), "The collection name cannot be blank");
+        BufferedReader lines = (reader instanceof BufferedReader)
+                ? (BufferedReader) reader
+                : new BufferedReader(reader);
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactoryBuilder()
+                .setNameFormat("puzzle-importer-%d")
+                .setDaemon(true)
+                .build());
+        try {
+            return new ImportRun(lines, collectionName, executor).run();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parses a single line, returning the grid of given digits, or an empty Optional if
+     * the line does not hold a puzzle.
+     */
+    static Optional<Grid> parseLine(String line) {
+        for (String field : line.split(",")) {
+            Optional<Grid> grid = parseField(field.trim());
+            if (grid.isPresent()) {
+                return grid;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Grid> parseField(String field) {
+        if (field.length() < 81 || (field.length() > 81 && !Character.isWhitespace(field.charAt(81)))) {
+            return Optional.empty();
+        }
+        List<Cell> cells = new ArrayList<>(81);
+        for (int i = 0; i < 81; ++i) {
+            char c = field.charAt(i);
+            if (c >= '1' && c <= '9') {
+                cells.add(Cell.given(Value.of(c - '0')));
+            } else if (EMPTY_CELL_CHARS.indexOf(c) >= 0) {
+                cells.add(Cell.empty());
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new Grid(cells));
+    }
+
+    private static boolean isSkipped(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith("#");
+    }
+
+
+    /**
+     * The state of a single import.
+     */
+    private class ImportRun {
+        private final BufferedReader reader;
+        private final String collectionName;
+        private final ExecutorService executor;
+        private final Stopwatch stopwatch = Stopwatch.createStarted();
+        private int linesRead;
+        private int linesProcessed;
+        private int imported;
+        private int duplicates;
+        private int invalid;
+        private int unsolvable;
+
+        public ImportRun(BufferedReader reader, String collectionName, ExecutorService executor) {
+            this.reader = reader;
+            this.collectionName = collectionName;
+            this.executor = executor;
+        }
+
+        public Report run() throws IOException {
+            // Keep a bounded number of chunks in flight, so that we don't read the whole
+            // file into memory if the workers can't keep up.
+            Deque<Future<ProcessedChunk>> inFlight = new ArrayDeque<>();
+            List<String> chunk;
+            while (!(chunk = readChunk()).isEmpty()) {
+                int firstLineNumber = linesRead - chunk.size() + 1;
+                List<String> lines = chunk;
+                inFlight.add(executor.submit(() -> process(lines, firstLineNumber)));
+                if (inFlight.size() >= 2 * numberOfThreads) {
+                    addToInventory(inFlight.remove());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                addToInventory(inFlight.remove());
+            }
+            return createReport();
+        }
+
+        private List<String> readChunk() throws IOException {
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while (chunk.size() < CHUNK_SIZE && (line = reader.readLine()) != null) {
+                chunk.add(line);
+                ++linesRead;
+            }
+            return chunk;
+        }
+
+        private ProcessedChunk process(List<String> lines, int firstLineNumber) {
+            ProcessedChunk result = new ProcessedChunk(lines.size());
+            for (int n = 0; n < lines.size(); ++n) {
+                String line = lines.get(n);
+                if (isSkipped(line)) {
+                    continue;
+                }
+                Optional<Grid> grid = parseLine(line);
+                if (grid.isEmpty()) {
+                    ++result.invalid;
+                    continue;
+                }
+                String name = String.format("%s (%d)", collectionName, firstLineNumber + n);
+                Puzzle puzzle = new Puzzle(name, grid.get());
+                Optional<Grid> solution = new CompleteSolver(puzzle).solveUniquely();
+                if (solution.isEmpty()) {
+                    ++result.unsolvable;
+                    continue;
+                }
+                result.puzzles.add(new ImportedPuzzle(puzzle, CanonicalForm.of(puzzle.getGrid()), solution.get()));
+            }
+            return result;
+        }
+
+        private void addToInventory(Future<ProcessedChunk> future) throws IOException {
+            ProcessedChunk chunk = getResult(future);
+            int added = inventory.addNewPuzzles(chunk.puzzles);
+            linesProcessed += chunk.numberOfLines;
+            imported += added;
+            duplicates += chunk.puzzles.size() - added;
+            invalid += chunk.invalid;
+            unsolvable += chunk.unsolvable;
+            progressListener.accept(createReport());
+        }
+
+        private ProcessedChunk getResult(Future<ProcessedChunk> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("The import was interrupted", e);
+            } catch (ExecutionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw new IOException(e.getCause());
+            }
+        }
+
+        private Report createReport() {
+            return new Report(linesProcessed, imported, duplicates, invalid, unsolvable, stopwatch.elapsed());
+        }
+    }
+
+
+    private static class ProcessedChunk {
+        public final int numberOfLines;
+        public final List<ImportedPuzzle> puzzles = new ArrayList<>();
+        public int invalid;
+        public int unsolvable;
+
+        public ProcessedChunk(int numberOfLines) {
+            this.numberOfLines = numberOfLines;
+        }
+    }
+
+
+    /**
+     * A puzzle that is ready to be added to the inventory.
+     */
+    static final class ImportedPuzzle {
+        private final Puzzle puzzle;
+        private final CanonicalForm canonicalForm;
+        private final Grid solution;
+
+        public ImportedPuzzle(Puzzle puzzle, CanonicalForm canonicalForm, Grid solution) {
+            this.puzzle = requireNonNull(puzzle);
+            this.canonicalForm = requireNonNull(canonicalForm);
+            this.solution = requireNonNull(solution);
+        }
+
+        public Puzzle getPuzzle() {
+            return puzzle;
+        }
+
+        public CanonicalForm getCanonicalForm() {
+            return canonicalForm;
+        }
+
+        public Grid getSolution() {
+            return solution;
+        }
+    }
+
+
+    /**
+     * Reports the progress of an import, or its outcome once it has finished.
+     */
+    public static final class Report {
+        private final int linesRead;
+        private final int imported;
+        private final int duplicates;
+        private final int invalid;
+        private final int unsolvable;
+        private final Duration duration;
+
+        private Report(int linesRead, int imported, int duplicates, int invalid, int unsolvable, Duration duration) {
+            this.linesRead = linesRead;
+            this.imported = imported;
+            this.duplicates = duplicates;
+            this.invalid = invalid;
+            this.unsolvable = unsolvable;
+            this.duration = duration;
+        }
+
+        /**
+         * Returns the number of lines that have been processed.
+         */
+        public int getLinesRead() {
+            return linesRead;
+        }
+
+        /**
+         * Returns the number of puzzles that were added to the inventory.
+         */
+        public int getImported() {
+            return imported;
+        }
+
+        /**
+         * Returns the number of puzzles that were rejected because they are equivalent to
+         * a puzzle in the inventory, or to a puzzle earlier in the file.
+         */
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * Returns the number of lines that did not hold a puzzle, not counting blank lines
+         * and comments.
+         */
+        public int getInvalid() {
+            return invalid;
+        }
+
+        /**
+         * Returns the number of puzzles that were rejected because they do not have a
+         * unique solution.
+         */
+        public int getUnsolvable() {
+            return unsolvable;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        /**
+         * Returns the number of lines processed per second.
+         */
+        public double getThroughput() {
+            double seconds = duration.toNanos() / 1e9;
+            return (seconds > 0.0)
+                    ? linesRead / seconds
+                    : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines read, %d puzzles imported, %d duplicates, %d invalid, %d unsolvable (%.0f lines/s)",
+                    linesRead, imported, duplicates, invalid, unsolvable, getThroughput());
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package jetoze.tzudoku;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.model.DifficultyRating;
+import jetoze.tzudoku.model.PuzzleInfo;
+import jetoze.tzudoku.model.PuzzleState;
+
+/**
+ * Holds the {@link PuzzleInfo}s of a {@link PuzzleInventory}, keyed by name, together with
+ * secondary indexes by state, last updated, name prefix, difficulty and hardest technique,
+ * so that {@link InventoryQuery queries} don't have to go through all the puzzles and sort
+ * the result.
+ * <p>
+ * A query is answered in one of two ways. If one of its criteria is selective, i.e. its
+ * index holds only a small share of the puzzles, the puzzles of that index are filtered
+ * by the remaining criteria and sorted. Otherwise we walk the puzzles in the order that
+ * was asked for, which the index keeps sorted, and stop once the limit has been reached.
+ * <p>
+ * The index is thread-safe.
+ */
+final class PuzzleInfoIndex {
+
+    /**
+     * A criterion is selective if its index holds at most this share of the puzzles. Below
+     * that it is cheaper to sort the matching puzzles than to walk all of the puzzles in
+     * sorted order.
+     */
+    private static final int SELECTIVITY = 8;
+
+    /**
+     * The puzzles by name. This is also the alphabetical order, and the index of name prefixes.
+     */
+    private final NavigableMap<String, PuzzleInfo> byName = new TreeMap<>();
+    private final NavigableSet<PuzzleInfo> byLastUpdated = new TreeSet<>(
+            InventoryQuery.SortOrder.LAST_UPDATED.getComparator());
+    private final NavigableSet<PuzzleInfo> byDifficulty = new TreeSet<>(
+            InventoryQuery.SortOrder.DIFFICULTY.getComparator());
+    private final Map<PuzzleState, Set<PuzzleInfo>> byState = new EnumMap<>(PuzzleState.class);
+    /**
+     * The rated puzzles by the value of their rating. There are only as many distinct values
+     * as there are solving techniques.
+     */
+    private final NavigableMap<Double, Set<PuzzleInfo>> byRatingValue = new TreeMap<>();
+    private final Set<PuzzleInfo> unrated = new HashSet<>();
+    private final Map<SolvingTechnique, Set<PuzzleInfo>> byTechnique = new EnumMap<>(SolvingTechnique.class);
+
+    public synchronized int size() {
+        return byName.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return byName.isEmpty();
+    }
+
+    public synchronized boolean contains(String name) {
+        return byName.containsKey(name);
+    }
+
+    public synchronized Optional<PuzzleInfo> get(String name) {
+        return Optional.ofNullable(byName.get(name));
+    }
+
+    public synchronized ImmutableList<PuzzleInfo> getAll() {
+        return ImmutableList.copyOf(byName.values());
+    }
+
+    /**
+     * Adds the given puzzle, replacing any puzzle with the same name.
+     */
+    public synchronized void put(PuzzleInfo info) {
+        requireNonNull(info);
+        remove(info.getName());
+        byName.put(info.getName(), info);
+        byLastUpdated.add(info);
+        byDifficulty.add(info);
+        byState.computeIfAbsent(info.getState(), s -> new HashSet<>()).add(info);
+        Optional<DifficultyRating> rating = info.getRating();
+        if (rating.isPresent()) {
+            byRatingValue.computeIfAbsent(rating.get().getValue(), v -> new HashSet<>()).add(info);
+            rating.get().getHardestTechnique().ifPresent(t ->
+                byTechnique.computeIfAbsent(t, k -> new HashSet<>()).add(info));
+        } else {
+            unrated.add(info);
+        }
+    }
+
+    /**
+     * Replaces the puzzle with the given name with the result of the given function, which
+     * is passed the current puzzle, or {@code null} if there is no puzzle with that name.
+     */
+    public synchronized void compute(String name, UnaryOperator<PuzzleInfo> function) {
+        PuzzleInfo info = function.apply(byName.get(name));
+        put(info);
+    }
+
+    /**
+     * Replaces the puzzle with the given name with the result of the given function, if
+     * there is a puzzle with that name.
+     */
+    public synchronized void computeIfPresent(String name, UnaryOperator<PuzzleInfo> function) {
+        PuzzleInfo info = byName.get(name);
+        if (info != null) {
+            put(function.apply(info));
+        }
+    }
+
+    public synchronized void remove(String name) {
+        PuzzleInfo info = byName.remove(name);
+        if (info == null) {
+            return;
+        }
+        byLastUpdated.remove(info);
+        byDifficulty.remove(info);
+        removeFrom(byState, info.getState(), info);
+        Optional<DifficultyRating> rating = info.getRating();
+        if (rating.isPresent()) {
+            removeFrom(byRatingValue, rating.get().getValue(), info);
+            rating.get().getHardestTechnique().ifPresent(t -> removeFrom(byTechnique, t, info));
+        } else {
+            unrated.remove(info);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, Set<PuzzleInfo>> index, K key, PuzzleInfo info) {
+        Set<PuzzleInfo> infos = index.get(key);
+        infos.remove(info);
+        if (infos.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Returns the puzzles that match the given query, in the order of the query.
+     */
+    public synchronized ImmutableList<PuzzleInfo> query(InventoryQuery query) {
+        requireNonNull(query);
+        Candidates candidates = getMostSelectiveCandidates(query);
+        if (candidates.size <= byName.size() / SELECTIVITY) {
+            List<PuzzleInfo> matches = new ArrayList<>(candidates.size);
+            for (PuzzleInfo info : candidates.puzzles) {
+                if (query.matches(info)) {
+                    matches.add(info);
+                }
+            }
+            matches.sort(query.getSortOrder().getComparator());
+            return ImmutableList.copyOf(matches.subList(0, Math.min(matches.size(), query.getLimit())));
+        }
+        ImmutableList.Builder<PuzzleInfo> result = ImmutableList.builder();
+        int count = 0;
+        for (PuzzleInfo info : getSorted(query.getSortOrder())) {
+            if (query.matches(info)) {
+                result.add(info);
+                if (++count == query.getLimit()) {
+                    break;
+                }
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Returns the puzzles of the index of the most selective criterion of the given query,
+     * or all the puzzles if the query does not restrict the puzzles at all.
+     */
+    private Candidates getMostSelectiveCandidates(InventoryQuery query) {
+        Candidates candidates = new Candidates(List.of(byName.values()));
+        if (!query.getNamePrefix().isEmpty()) {
+            String prefix = query.getNamePrefix();
+            candidates = candidates.orIfSmaller(List.of(
+                    byName.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()));
+        }
+        if (query.isRestrictedByState()) {
+            candidates = candidates.orIfSmaller(getParts(byState, query.getStates()));
+        }
+        if (!query.getTechniques().isEmpty()) {
+            candidates = candidates.orIfSmaller(getParts(byTechnique, query.getTechniques()));
+        }
+        if (query.isRestrictedByDifficulty()) {
+            List<Collection<PuzzleInfo>> parts = new ArrayList<>();
+            parts.add(unrated);
+            parts.addAll(byRatingValue.headMap(query.getMaxDifficulty(), true).values());
+            candidates = candidates.orIfSmaller(parts);
+        }
+        return candidates;
+    }
+
+    private static <K> List<Collection<PuzzleInfo>> getParts(Map<K, Set<PuzzleInfo>> index, Set<K> keys) {
+        List<Collection<PuzzleInfo>> parts = new ArrayList<>();
+        for (K key : keys) {
+            Set<PuzzleInfo> infos = index.get(key);
+            if (infos != null) {
+                parts.add(infos);
+            }
+        }
+        return parts;
+    }
+
+    private Collection<PuzzleInfo> getSorted(InventoryQuery.SortOrder sortOrder) {
+        switch (sortOrder) {
+        case ALPHABETICAL:
+            return byName.values();
+        case LAST_UPDATED:
+            return byLastUpdated;
+        case DIFFICULTY:
+            return byDifficulty;
+        default:
+            throw new RuntimeException("Unknown sort order: " + sortOrder);
+        }
+    }
+
+
+    /**
+     * The puzzles held by one of the indexes, as the disjoint parts that make up the
+     * puzzles, so that we can tell the number of puzzles without copying them.
+     */
+    private static class Candidates {
+        private final Iterable<PuzzleInfo> puzzles;
+        private final int size;
+
+        public Candidates(List<Collection<PuzzleInfo>> parts) {
+            this.puzzles = Iterables.concat(parts);
+            this.size = parts.stream()
+                    .mapToInt(Collection::size)
+                    .sum();
+        }
+
+        public Candidates orIfSmaller(List<Collection<PuzzleInfo>> parts) {
+            Candidates other = new Candidates(parts);
+            return (other.size < this.size)
+                    ? other
+                    : this;
+        }
+    }
+}
@@ -1,96 +1,296 @@
 package jetoze.tzudoku;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static java.util.Objects.requireNonNull;
 
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import jetoze.tzudoku.hint.TechniqueScheduler;
+import jetoze.tzudoku.model.CanonicalForm;
+import jetoze.tzudoku.model.Cell;
+import jetoze.tzudoku.model.DifficultyRater;
+import jetoze.tzudoku.model.DifficultyRating;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.ProgressHistory;
 import jetoze.tzudoku.model.Puzzle;
 import jetoze.tzudoku.model.PuzzleInfo;
+import jetoze.tzudoku.model.PuzzleFileFormat;
 import jetoze.tzudoku.model.PuzzleState;
-import jetoze.tzudoku.model.PuzzleStorageRepresentation;
+import jetoze.tzudoku.solver.CompleteSolver;
 
 public class PuzzleInventory {
     // TODO: Add utilities for cleaning up old progress files.
     // TODO: I've become messy. I need some cleanup.
     
-    private static final String FILE_EXTENSION = ".json";
+    // The files that held the puzzle properties and ratings before the inventory index.
     private static final String PROPERTIES_FILE = "puzzles.properties";
+    private static final String RATINGS_FILE = "ratings.properties";
     private static final String PROGRESS_FOLDER = "progress";
     private static final String ARCHIVE_FOLDER = "archive";
+    /**
+     * The maximum time we spend on rating a single puzzle.
+     */
+    private static final Duration RATING_TIME_LIMIT = Duration.ofSeconds(30L);
+    /**
+     * The maximum time we spend on solving a puzzle, either before adding it or when its
+     * solution is asked for.
+     */
+    private static final Duration SOLVING_TIME_LIMIT = Duration.ofSeconds(5L);
+    /**
+     * The maximum number of bytes held by the cache of loaded puzzles. A puzzle takes up
+     * a couple of hundred bytes in the cache, so this is room for thousands of puzzles.
+     */
+    private static final long PUZZLE_CACHE_SIZE = 1024L * 1024L;
     
     private final File directory;
-    private final Map<String, PuzzleInfo> puzzleInfos;
-    private final PuzzleProperties puzzleProperties;
+    /**
+     * The format in which new puzzles and progress are saved. Puzzles stored in the other
+     * formats can still be read.
+     */
+    private final PuzzleFileFormat format;
+    private final PuzzleInfoIndex puzzleInfos;
+    private final InventoryIndex index;
+    /**
+     * Maps the canonical forms of the classic puzzles in the inventory to the names of
+     * the puzzles. This is loaded lazily, since it may require us to read all the puzzle
+     * files.
+     */
+    @Nullable
+    private Map<CanonicalForm, String> canonicalForms;
+    /**
+     * The progress histories that have been opened, by puzzle id. A history keeps the
+     * state of its last save in memory, which saves us from reading it back from disk
+     * on every save.
+     */
+    private final Map<String, ProgressHistory> progressHistories = new HashMap<>();
+    private final PuzzleCache puzzleCache = new PuzzleCache(PUZZLE_CACHE_SIZE);
     
     public PuzzleInventory(File directory) {
+        this(directory, PuzzleFileFormat.JSON);
+    }
+    
+    public PuzzleInventory(File directory, PuzzleFileFormat format) {
         this.directory = requireNonNull(directory);
+        this.format = requireNonNull(format);
         checkArgument(directory.isDirectory(), "Not a directory: " + directory.toPath());
         checkArgument(directory.exists(), "Directory does not exist: " + directory.toPath());
-        puzzleProperties = new PuzzleProperties(new File(directory, PROPERTIES_FILE));
-        puzzleProperties.load();
+        File indexFile = new File(directory, InventoryIndex.FILE_NAME);
+        boolean indexExists = indexFile.exists();
+        index = InventoryIndex.load(indexFile.toPath());
+        if (!indexExists) {
+            index.putAll(LegacyProperties.load(directory));
+        }
         this.puzzleInfos = load();
     }
 
-    private Map<String, PuzzleInfo> load() {
-        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
-        if (files == null) {
-            return new HashMap<>();
-        }
-        return Stream.of(files)
-                .map(this::getPuzzleId)
-                .map(this::toPuzzleInfo)
-                .collect(Collectors.toMap(PuzzleInfo::getName, i -> i));
-
+    private PuzzleInfoIndex load() {
+        // The puzzle infos are updated from the background threads that rate the puzzles,
+        // which is fine since the PuzzleInfoIndex is thread-safe.
+        PuzzleInfoIndex infos = new PuzzleInfoIndex();
+        index.getEntries().stream()
+            .map(InventoryIndex.Entry::toPuzzleInfo)
+            .forEach(infos::put);
+        return infos;
     }
     
-    private String getPuzzleId(File file) {
-        String name = file.getName();
-        assert name.endsWith(FILE_EXTENSION);
-        return name.substring(0, name.length() - FILE_EXTENSION.length());
+    /**
+     * Updates the info of an existing puzzle, keeping its rating.
+     */
+    private void updatePuzzleInfo(String name, PuzzleState state, ZonedDateTime lastUpdated) {
+        puzzleInfos.compute(name, info -> new PuzzleInfo(name, state, lastUpdated, 
+                (info == null) ? null : info.getRating().orElse(null)));
     }
     
-    private PuzzleInfo toPuzzleInfo(String id) {
-        String name = puzzleProperties.getName(id);
-        PuzzleState state = puzzleProperties.getState(id);
-        ZonedDateTime lastUpdated = puzzleProperties.getLastUpdated(id);
-        return new PuzzleInfo(name, state, lastUpdated);
+    public ImmutableList<PuzzleInfo> listPuzzles() {
+        return puzzleInfos.getAll();
     }
     
-    public ImmutableList<PuzzleInfo> listPuzzles() {
-        return ImmutableList.copyOf(puzzleInfos.values());
+    /**
+     * Returns the puzzles that match the given query, in the order of the query. The
+     * puzzles are indexed in memory, so this is cheap enough to call whenever the criteria
+     * change, also for large inventories.
+     */
+    public ImmutableList<PuzzleInfo> query(InventoryQuery query) {
+        return puzzleInfos.query(query);
+    }
+    
+    public boolean isEmpty() {
+        return puzzleInfos.isEmpty();
     }
 
     public void addNewPuzzle(Puzzle puzzle) throws IOException {
-        checkArgument(!puzzleInfos.containsKey(puzzle.getName()),
+        addNewPuzzle(puzzle, solve(puzzle));
+    }
+    
+    /**
+     * Adds a new classic puzzle with the given grid, unless an equivalent puzzle is already 
+     * in the inventory. The puzzle is given the first available name based on the given
+     * template. Picking the name, checking for an equivalent puzzle and adding the puzzle
+     * is done under the lock of the inventory, so that a puzzle added by another thread in
+     * the meantime cannot make this fail.
+     * 
+     * @return the name of the added puzzle, or an empty Optional if the puzzle was skipped 
+     *         since an equivalent puzzle is already in the inventory
+     */
+    public Optional<String> addNewPuzzleUnlessDuplicate(String nameTemplate, Grid grid) throws IOException {
+        Puzzle puzzle = new Puzzle(nameTemplate, grid);
+        UnaryOperator<InventoryIndex.Entry> solutionSetter = solve(puzzle);
+        synchronized (this) {
+            if (findEquivalentPuzzle(puzzle).isPresent()) {
+                return Optional.empty();
+            }
+            String name = getAvailablePuzzleName(nameTemplate);
+            addNewPuzzle(new Puzzle(name, grid), solutionSetter);
+            return Optional.of(name);
+        }
+    }
+    
+    /**
+     * Solves a new puzzle once and for all, so that it can be validated against its solution.
+     * This is done before we take the lock, and is given a time limit, since a puzzle with
+     * very few givens can take a while to solve. If we run out of time, the solution is 
+     * computed on demand instead, by getSolution.
+     * 
+     * @return a function that stores the solution in the index entry of the puzzle
+     */
+    private static UnaryOperator<InventoryIndex.Entry> solve(Puzzle puzzle) {
+        try {
+            Optional<Grid> solution = new CompleteSolver(puzzle).solveUniquely(SOLVING_TIME_LIMIT);
+            return e -> e.withSolution(solution);
+        } catch (TimeoutException e) {
+            return UnaryOperator.identity();
+        }
+    }
+    
+    private synchronized void addNewPuzzle(Puzzle puzzle, UnaryOperator<InventoryIndex.Entry> solutionSetter) 
+            throws IOException {
+        checkArgument(!puzzleInfos.contains(puzzle.getName()),
                 "A puzzle with the same name already exists: %s", puzzle.getName());
+        Optional<CanonicalForm> canonicalForm = getCanonicalForm(puzzle);
+        Optional<String> equivalentPuzzle = canonicalForm.map(getCanonicalForms()::get);
+        checkArgument(equivalentPuzzle.isEmpty(), 
+                "An equivalent puzzle already exists: %s", equivalentPuzzle.orElse(null));
         String id = getPuzzleId(puzzle.getName());
-        File file = getPuzzleFile(id);
+        File file = getFile(directory, id, format);
         savePuzzleToDisk(puzzle, file);
         ZonedDateTime now = now();
-        puzzleInfos.put(puzzle.getName(), new PuzzleInfo(puzzle.getName(), PuzzleState.NEW, now));
-        puzzleProperties.addPuzzle(puzzle, id, now);
-        puzzleProperties.save();
+        puzzleInfos.put(new PuzzleInfo(puzzle.getName(), PuzzleState.NEW, now));
+        InventoryIndex.Entry entry = InventoryIndex.Entry.of(id, puzzle.getName(), PuzzleState.NEW, now, null, file.getName())
+                .withCanonicalForm(canonicalForm);
+        index.put(solutionSetter.apply(entry));
+        canonicalForm.ifPresent(f -> getCanonicalForms().put(f, puzzle.getName()));
+    }
+    
+    /**
+     * Adds a batch of new classic puzzles, whose canonical forms and solutions have already
+     * been computed by the {@link PuzzleImporter}. The index records of the whole batch are
+     * appended in a single write, after the puzzle files have been written. Puzzles that
+     * are equivalent to a puzzle in the inventory, including an earlier puzzle in the same
+     * batch, are skipped. A puzzle whose name is taken is given an available name.
+     * 
+     * @return the number of puzzles that were added
+     */
+    synchronized int addNewPuzzles(List<PuzzleImporter.ImportedPuzzle> puzzles) throws IOException {
+        Map<CanonicalForm, String> forms = getCanonicalForms();
+        ZonedDateTime now = now();
+        List<InventoryIndex.Entry> entries = new ArrayList<>(puzzles.size());
+        try {
+            for (PuzzleImporter.ImportedPuzzle p : puzzles) {
+                if (forms.containsKey(p.getCanonicalForm())) {
+                    continue;
+                }
+                String name = getAvailablePuzzleName(p.getPuzzle().getName());
+                Puzzle puzzle = new Puzzle(name, p.getPuzzle().getGrid());
+                String id = getPuzzleId(name);
+                File file = getFile(directory, id, format);
+                savePuzzleToDisk(puzzle, file);
+                puzzleInfos.put(new PuzzleInfo(name, PuzzleState.NEW, now));
+                forms.put(p.getCanonicalForm(), name);
+                entries.add(InventoryIndex.Entry.of(id, name, PuzzleState.NEW, now, null, file.getName())
+                        .withCanonicalForm(Optional.of(p.getCanonicalForm()))
+                        .withSolution(Optional.of(p.getSolution())));
+            }
+        } finally {
+            // Index the puzzles that were written before any failure.
+            index.putAll(entries);
+        }
+        return entries.size();
+    }
+    
+    /**
+     * Looks for a puzzle in the inventory that is equivalent to the given puzzle, i.e. 
+     * that can be transformed into the given puzzle by the symmetries of the sudoku grid
+     * (transposition, band and stack permutations, digit relabeling, etc).
+     * <p>
+     * Only classic puzzles are considered, since the symmetries do not apply to puzzles
+     * with additional constraints. An equivalent puzzle has the same solve path and 
+     * difficulty, so any results computed for it can be reused for the given puzzle.
+     */
+    public synchronized Optional<PuzzleInfo> findEquivalentPuzzle(Puzzle puzzle) {
+        return getCanonicalForm(puzzle)
+                .map(getCanonicalForms()::get)
+                .flatMap(puzzleInfos::get);
+    }
+    
+    private static Optional<CanonicalForm> getCanonicalForm(Puzzle puzzle) {
+        return puzzle.isClassic()
+                ? Optional.of(CanonicalForm.of(puzzle.getGrid()))
+                : Optional.empty();
+    }
+    
+    private Map<CanonicalForm, String> getCanonicalForms() {
+        if (canonicalForms == null) {
+            canonicalForms = new HashMap<>();
+            for (InventoryIndex.Entry entry : index.getEntries()) {
+                if (!entry.hasCanonicalForm()) {
+                    try {
+                        // Use the original puzzle file rather than any saved progress, 
+                        // since we only care about the given digits.
+                        Puzzle puzzle = loadPuzzle(getPuzzleFile(entry.getId()), entry.getName());
+                        entry = entry.withCanonicalForm(getCanonicalForm(puzzle));
+                        index.put(entry);
+                    } catch (IOException e) {
+                        // TODO: Log the exception somewhere.
+                        e.printStackTrace();
+                        continue;
+                    }
+                }
+                String name = entry.getName();
+                entry.getCanonicalForm().ifPresent(f -> canonicalForms.put(f, name));
+            }
+        }
+        return canonicalForms;
     }
     
     private String getPuzzleId(String puzzleName) {
@@ -98,16 +298,71 @@ public class PuzzleInventory {
     }
 
     private void savePuzzleToDisk(Puzzle puzzle, File target) throws IOException {
-        PuzzleStorageRepresentation gridState = new PuzzleStorageRepresentation(puzzle);
-        String json = gridState.toJson();
-        Files.writeString(target.toPath(), json);
+        // Write to a temporary file first, so that a crash in the middle of the write 
+        // does not leave us with a truncated puzzle file.
+        Path targetPath = target.toPath();
+        Path tempPath = targetPath.resolveSibling(target.getName() + ".tmp");
+        Files.createDirectories(targetPath.getParent());
+        format.write(puzzle, tempPath);
+        Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        puzzleCache.invalidate(target);
     }
     
     public Puzzle loadPuzzle(PuzzleInfo info) throws IOException {
         File file = getPuzzleFile(info);
-        String json = Files.readString(file.toPath());
-        PuzzleStorageRepresentation p = PuzzleStorageRepresentation.fromJson(json);
-        return p.restorePuzzle(info.getName());
+        return puzzleCache.getPuzzle(file, info.getName(), () -> loadPuzzle(file, info.getName()));
+    }
+    
+    /**
+     * Returns the solution of the given puzzle, solving the puzzle if the solution has not
+     * been stored in the inventory already. The solving is given a time limit, so this never
+     * blocks for long. A puzzle that runs out of time is treated as having no solution
+     * available, in which case the caller should fall back on validating the grid by the 
+     * rules. Unlike a puzzle without a unique solution, this is not stored in the inventory,
+     * so that a later call can try again.
+     * 
+     * @return the solution, or an empty Optional if the puzzle does not have a unique solution,
+     *         or could not be solved in time
+     */
+    public Optional<Grid> getSolution(PuzzleInfo info) throws IOException {
+        String id = getPuzzleId(info.getName());
+        Optional<InventoryIndex.Entry> entry = index.get(id);
+        if (entry.isPresent() && entry.get().hasComputedSolution()) {
+            return entry.get().getSolution();
+        }
+        // The solution only depends on the given digits, so use the original puzzle file,
+        // which unlike the progress file does not change as the puzzle is being solved.
+        File file = getPuzzleFile(id);
+        try {
+            Optional<Grid> solution = puzzleCache.getSolution(file, info.getName(), 
+                    () -> loadPuzzle(file, info.getName()), SOLVING_TIME_LIMIT);
+            index.update(id, e -> e.withSolution(solution));
+            return solution;
+        } catch (TimeoutException e) {
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Returns the solution of the puzzle with the given name, if it has been stored in the
+     * inventory. Unlike {@link #getSolution(PuzzleInfo)} this never solves the puzzle, so
+     * it is cheap enough to call whenever the puzzle is validated.
+     */
+    public Optional<Grid> getStoredSolution(String puzzleName) {
+        return index.get(getPuzzleId(puzzleName)).flatMap(InventoryIndex.Entry::getSolution);
+    }
+    
+    /**
+     * Returns the hit and miss counts of the cache of loaded puzzles and solutions.
+     */
+    public CacheStats getCacheStats() {
+        return puzzleCache.getStats();
+    }
+    
+    private static Puzzle loadPuzzle(File file, String name) throws IOException {
+        PuzzleFileFormat fileFormat = PuzzleFileFormat.of(file.getName())
+                .orElseThrow(() -> new IOException("Unknown file format: " + file));
+        return fileFormat.read(file.toPath(), name);
     }
     
     private File getPuzzleFile(PuzzleInfo info) {
@@ -121,15 +376,37 @@ public class PuzzleInventory {
         return getPuzzleFile(id);
     }
 
+    /**
+     * Returns the file of the given puzzle, as recorded in the index. For a puzzle that is
+     * not in the index we look for an existing file, preferring the format of this inventory
+     * if the puzzle is stored in more than one format.
+     */
     private File getPuzzleFile(String id) {
-        return new File(directory, id + FILE_EXTENSION);
+        return index.get(id)
+                .map(e -> new File(directory, e.getFileName()))
+                .or(() -> findExistingFile(directory, id))
+                .orElseGet(() -> getFile(directory, id, format));
+    }
+    
+    private Optional<File> findExistingFile(File folder, String baseName) {
+        File preferred = getFile(folder, baseName, format);
+        if (preferred.exists()) {
+            return Optional.of(preferred);
+        }
+        return Stream.of(PuzzleFileFormat.values())
+                .map(f -> getFile(folder, baseName, f))
+                .filter(File::exists)
+                .findFirst();
+    }
+    
+    private static File getFile(File folder, String baseName, PuzzleFileFormat fileFormat) {
+        return new File(folder, baseName + fileFormat.getFileExtension());
     }
 
-    public void markAsCompleted(Puzzle puzzle) {
+    public synchronized void markAsCompleted(Puzzle puzzle) throws IOException {
         ZonedDateTime now = now();
-        String id = getPuzzleId(puzzle.getName());
-        updatePuzzleState(id, PuzzleState.SOLVED, now);
-        puzzleInfos.put(puzzle.getName(), new PuzzleInfo(puzzle.getName(), PuzzleState.SOLVED, now));
+        updatePuzzleState(puzzle, PuzzleState.SOLVED, now);
+        updatePuzzleInfo(puzzle.getName(), PuzzleState.SOLVED, now);
         // TODO: Delete progress file, if one exists?
     }
 
@@ -137,39 +414,150 @@ public class PuzzleInventory {
         return ZonedDateTime.now(ZoneId.of("UTC")).truncatedTo(ChronoUnit.SECONDS);
     }
     
-    public void saveProgress(Puzzle puzzle) throws IOException {
+    public synchronized void saveProgress(Puzzle puzzle) throws IOException {
         if (puzzle.isSolved()) {
             markAsCompleted(puzzle);
         } else {
-            // TODO: Do not overwrite previous saves. For example, append timestamp to
-            // the file name. Then add utilities for loading an earlier save.
             ZonedDateTime now = now();
             String id = getPuzzleId(puzzle.getName());
-            File progressFile = getProgressFile(id);
-            savePuzzleToDisk(puzzle, progressFile);
-            updatePuzzleState(id, PuzzleState.PROGRESS, now);
-            puzzleInfos.put(puzzle.getName(), new PuzzleInfo(puzzle.getName(), PuzzleState.PROGRESS, now));
+            File progressFolder = new File(directory, PROGRESS_FOLDER);
+            String progressName = getProgressFileBaseName(id);
+            savePuzzleToDisk(puzzle, getFile(progressFolder, progressName, format));
+            // Remove progress saved in other formats, so that it does not shadow this save.
+            for (PuzzleFileFormat f : PuzzleFileFormat.values()) {
+                if (f != format) {
+                    File otherFile = getFile(progressFolder, progressName, f);
+                    Files.deleteIfExists(otherFile.toPath());
+                    puzzleCache.invalidate(otherFile);
+                }
+            }
+            getProgressHistory(id).append(puzzle, now);
+            updatePuzzleState(puzzle, PuzzleState.PROGRESS, now);
+            updatePuzzleInfo(puzzle.getName(), PuzzleState.PROGRESS, now);
         }
     }
+    
+    /**
+     * Returns all the saved progress of the given puzzle, oldest first.
+     */
+    public synchronized ImmutableList<ProgressHistory.Entry> getProgressHistory(PuzzleInfo info) throws IOException {
+        return getProgressHistory(getPuzzleId(info.getName())).getEntries();
+    }
+    
+    /**
+     * Restores the given puzzle as it was at an earlier save.
+     */
+    public synchronized Puzzle restoreProgress(PuzzleInfo info, ProgressHistory.Entry save) throws IOException {
+        return getProgressHistory(getPuzzleId(info.getName())).restore(save.getIndex(), info.getName());
+    }
+    
+    private ProgressHistory getProgressHistory(String id) throws IOException {
+        ProgressHistory history = progressHistories.get(id);
+        if (history == null) {
+            File file = new File(new File(directory, PROGRESS_FOLDER), id + "_history" + ProgressHistory.FILE_EXTENSION);
+            history = ProgressHistory.open(file.toPath());
+            progressHistories.put(id, history);
+        }
+        return history;
+    }
 
     private File getProgressFile(String id) {
         File progressFolder = new File(directory, PROGRESS_FOLDER);
-        return new File(progressFolder, id + "_progress" + FILE_EXTENSION);
+        String progressName = getProgressFileBaseName(id);
+        return findExistingFile(progressFolder, progressName)
+                .orElseGet(() -> getFile(progressFolder, progressName, format));
+    }
+    
+    private static String getProgressFileBaseName(String id) {
+        return id + "_progress";
     }
 
-    private void updatePuzzleState(String id, PuzzleState state, ZonedDateTime lastUpdated) {
-        puzzleProperties.setState(id, state);
-        puzzleProperties.setLastUpdated(id, lastUpdated);
-        puzzleProperties.save();
+    private void updatePuzzleState(Puzzle puzzle, PuzzleState state, ZonedDateTime lastUpdated) throws IOException {
+        String id = getPuzzleId(puzzle.getName());
+        if (index.get(id).isPresent()) {
+            index.update(id, e -> e.withState(state, lastUpdated));
+        } else {
+            // A puzzle that was not loaded from this inventory, i.e. from a puzzle bank. Store 
+            // its given digits first, so that the entry refers to a puzzle file like any other
+            // entry, and the puzzle can be loaded, rated and archived.
+            File file = getFile(directory, id, format);
+            savePuzzleToDisk(givensOf(puzzle), file);
+            Optional<CanonicalForm> canonicalForm = getCanonicalForm(puzzle);
+            index.put(InventoryIndex.Entry.of(id, puzzle.getName(), state, lastUpdated, null, file.getName())
+                    .withCanonicalForm(canonicalForm));
+            if (canonicalForms != null) {
+                canonicalForm.ifPresent(f -> canonicalForms.putIfAbsent(f, puzzle.getName()));
+            }
+        }
+    }
+    
+    private static Puzzle givensOf(Puzzle puzzle) {
+        Grid grid = new Grid(puzzle.getGrid().getCells().entrySet().stream().collect(toImmutableMap(
+                e -> e.getKey(),
+                e -> e.getValue().isGiven()
+                        ? Cell.given(e.getValue().getValue().get())
+                        : Cell.empty())));
+        return new Puzzle(puzzle.getName(), grid, puzzle.getSandwiches(), puzzle.getKillerCages(), 
+                puzzle.getChessConstraints(), puzzle.getThermometers());
     }
     
-    public void archive(PuzzleInfo puzzleInfo) throws IOException {
-        Path source = new File(directory, puzzleInfo.getName() + FILE_EXTENSION).toPath();
+    public synchronized void archive(PuzzleInfo puzzleInfo) throws IOException {
+        String id = getPuzzleId(puzzleInfo.getName());
+        Path source = getPuzzleFile(id).toPath();
         Path archiveFolder = new File(directory, ARCHIVE_FOLDER).toPath();
+        Files.createDirectories(archiveFolder);
         Files.move(source, archiveFolder.resolve(source.getFileName()), StandardCopyOption.REPLACE_EXISTING);
-        String id = getPuzzleId(puzzleInfo.getName());
-        puzzleProperties.remove(id);
-        puzzleProperties.save();
+        puzzleCache.invalidate(source.toFile());
+        puzzleCache.invalidate(getProgressFile(id));
+        if (canonicalForms != null) {
+            index.get(id).flatMap(InventoryIndex.Entry::getCanonicalForm)
+                .ifPresent(f -> canonicalForms.remove(f, puzzleInfo.getName()));
+        }
+        index.remove(id);
+        puzzleInfos.remove(puzzleInfo.getName());
+    }
+    
+    /**
+     * Rates the difficulty of all the puzzles in the inventory that have not been rated
+     * yet. The ratings are computed in the background, on a pool with the given number of
+     * threads, and are stored in the inventory as they become available.
+     * 
+     * @return a future that completes when all the puzzles have been rated.
+     */
+    public CompletableFuture<Void> rateUnratedPuzzles(int numberOfThreads) {
+        checkArgument(numberOfThreads > 0, "numberOfThreads must be > 0 (was %s)", numberOfThreads);
+        ImmutableList<PuzzleInfo> unratedPuzzles = puzzleInfos.getAll().stream()
+                .filter(i -> i.getRating().isEmpty())
+                .collect(ImmutableList.toImmutableList());
+        if (unratedPuzzles.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactoryBuilder()
+                .setNameFormat("puzzle-rater-%d")
+                .setDaemon(true)
+                .build());
+        // The rating order of the techniques does not matter, so let the scheduler 
+        // optimize for throughput.
+        DifficultyRater rater = new DifficultyRater(RATING_TIME_LIMIT, TechniqueScheduler.adaptive());
+        CompletableFuture<?>[] ratings = unratedPuzzles.stream()
+                .map(info -> CompletableFuture.runAsync(() -> ratePuzzle(info, rater), executor))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(ratings).whenComplete((v, e) -> executor.shutdown());
+    }
+    
+    private void ratePuzzle(PuzzleInfo info, DifficultyRater rater) {
+        String id = getPuzzleId(info.getName());
+        try {
+            // Use the original puzzle file rather than any saved progress. The rater
+            // only looks at the given digits anyway.
+            Puzzle puzzle = loadPuzzle(getPuzzleFile(id), info.getName());
+            DifficultyRating rating = rater.rate(puzzle);
+            index.update(id, entry -> entry.withRating(rating));
+            puzzleInfos.computeIfPresent(info.getName(), i -> i.withRating(rating));
+        } catch (IOException e) {
+            // TODO: Log the exception somewhere.
+            e.printStackTrace();
+        }
     }
     
     public String getAvailablePuzzleName(String template) {
@@ -185,97 +573,71 @@ public class PuzzleInventory {
     }
     
     public boolean containsPuzzle(String name) {
-        return puzzleInfos.containsKey(name);
+        return puzzleInfos.contains(name);
     }
     
     
-    private static class PuzzleProperties {
+    /**
+     * Reads the puzzles.properties and ratings.properties files that were used before
+     * the inventory got its index, so that an existing inventory can be migrated.
+     */
+    private static class LegacyProperties {
         private static final String NAME_PROPERTY = ".name";
         private static final String STATE_PROPERTY = ".state";
         private static final String LAST_UPDATED_PROPERTY = ".lastUpdated";
+        private static final String CANONICAL_FORM_PROPERTY = ".canonicalForm";
         
-        private final File storageFile;
-        private final Properties properties = new Properties();
-        
-        public PuzzleProperties(File storageFile) {
-            this.storageFile = storageFile;
-        }
-        
-        public String getName(String id) {
-            return properties.getProperty(id + NAME_PROPERTY, id);
-        }
-        
-        public void addPuzzle(Puzzle puzzle, String id, ZonedDateTime dt) {
-            properties.setProperty(id + NAME_PROPERTY, puzzle.getName());
-            properties.setProperty(id + STATE_PROPERTY, PuzzleState.NEW.name());
-            setLastUpdated(id, dt);
-        }
-        
-        public void setState(String id, PuzzleState state) {
-            properties.setProperty(id + STATE_PROPERTY, state.name());
-        }
-        
-        public void setLastUpdated(String id, ZonedDateTime dt) {
-            properties.setProperty(id + LAST_UPDATED_PROPERTY, 
-                    DateTimeFormatter.ISO_DATE_TIME.format(dt));
-        }
-        
-        public PuzzleState getState(String id) {
-            String key = id + STATE_PROPERTY;
-            try {
-                return properties.containsKey(key)
-                        ? PuzzleState.valueOf(properties.getProperty(key))
-                        : PuzzleState.NEW;
-            } catch (Exception e) {
-                e.printStackTrace();
-                return PuzzleState.NEW;
+        public static List<InventoryIndex.Entry> load(File directory) {
+            Properties properties = loadProperties(new File(directory, PROPERTIES_FILE));
+            Properties ratings = loadProperties(new File(directory, RATINGS_FILE));
+            List<InventoryIndex.Entry> entries = new ArrayList<>();
+            File[] files = directory.listFiles((dir, name) -> PuzzleFileFormat.of(name).isPresent());
+            if (files == null) {
+                return entries;
             }
-        }
-        
-        @Nullable
-        public ZonedDateTime getLastUpdated(String id) {
-            String key = id + LAST_UPDATED_PROPERTY;
-            if (properties.containsKey(key)) {
-                try {
-                    String value = properties.getProperty(key);
-                    return ZonedDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME);
-                } catch (DateTimeParseException e) {
-                    e.printStackTrace();
+            for (File file : files) {
+                String fileName = file.getName();
+                String extension = PuzzleFileFormat.of(fileName).orElseThrow().getFileExtension();
+                String id = fileName.substring(0, fileName.length() - extension.length());
+                String name = properties.getProperty(id + NAME_PROPERTY, id);
+                PuzzleState state = parse(properties.getProperty(id + STATE_PROPERTY), PuzzleState::valueOf)
+                        .orElse(PuzzleState.NEW);
+                ZonedDateTime lastUpdated = parse(properties.getProperty(id + LAST_UPDATED_PROPERTY), 
+                        s -> ZonedDateTime.parse(s, DateTimeFormatter.ISO_DATE_TIME)).orElse(null);
+                DifficultyRating rating = parse(ratings.getProperty(id), DifficultyRating::fromStorageString)
+                        .orElse(null);
+                InventoryIndex.Entry entry = InventoryIndex.Entry.of(id, name, state, lastUpdated, rating, fileName);
+                String canonicalForm = properties.getProperty(id + CANONICAL_FORM_PROPERTY);
+                if (canonicalForm != null) {
+                    entry = entry.withCanonicalForm(parse(canonicalForm, CanonicalForm::fromString));
                 }
+                entries.add(entry);
             }
-            return null;
+            return entries;
         }
         
-        public void remove(String id) {
-            properties.remove(id + NAME_PROPERTY);
-            properties.remove(id + STATE_PROPERTY);
-            properties.remove(id + LAST_UPDATED_PROPERTY);
-        }
-        
-        public void load() {
-            if (!storageFile.canRead()) {
-                return;
+        private static <T> Optional<T> parse(@Nullable String value, Function<String, T> parser) {
+            if (value == null || value.isEmpty()) {
+                return Optional.empty();
             }
             try {
-                try (FileReader fr = new FileReader(storageFile)) {
-                    properties.load(fr);
-                }
-            } catch (IOException e) {
+                return Optional.of(parser.apply(value));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
                 e.printStackTrace();
+                return Optional.empty();
             }
         }
         
-        public void save() {
-            if (!storageFile.canWrite()) {
-                return;
-            }
-            try {
-                try (FileWriter fw = new FileWriter(storageFile)) {
-                    properties.store(fw, "");
+        private static Properties loadProperties(File file) {
+            Properties properties = new Properties();
+            if (file.canRead()) {
+                try (FileReader fr = new FileReader(file)) {
+                    properties.load(fr);
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
             }
+            return properties;
         }
     }
     
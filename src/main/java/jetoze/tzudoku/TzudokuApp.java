@@ -3,8 +3,11 @@ package jetoze.tzudoku;
 import static java.util.Objects.requireNonNull;
 
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 
 import javax.annotation.Nullable;
 import javax.swing.Action;
@@ -20,6 +23,7 @@ import jetoze.gunga.KeyStrokes;
 import jetoze.gunga.UiThread;
 import jetoze.gunga.layout.Layouts;
 import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.ui.AutosaveService;
 import jetoze.tzudoku.ui.CellInputController;
 import jetoze.tzudoku.ui.ControlPanel;
 import jetoze.tzudoku.ui.GameBoard;
@@ -33,12 +37,21 @@ import jetoze.tzudoku.ui.hint.HintUiFactory;
 
 public class TzudokuApp {
 
+    private static final int RATING_THREADS = 2;
+    
+    /**
+     * How often, at most, we save the progress of the puzzle while the user is solving it.
+     */
+    private static final Duration AUTOSAVE_INTERVAL = Duration.ofSeconds(5L);
+
     public static void main(String[] args) throws IOException {
         System.setProperty("awt.useSystemAAFontSettings", "on");
         System.setProperty("swing.aatext", "true");
         System.setProperty("apple.laf.useScreenMenuBar", "true");
         System.setProperty("com.apple.mrj.application.apple.menu.about.name", "WikiTeX");
         PuzzleInventory inventory = new PuzzleInventory(new File("/Users/torgil/coding/data/tzudoku"));
+        // Rate any new puzzles in the background, so that the inventory can be sorted by difficulty.
+        inventory.rateUnratedPuzzles(RATING_THREADS);
         TzudokuApp app = new TzudokuApp(inventory);
         UiThread.run(app::start);
     }
@@ -65,10 +78,19 @@ public class TzudokuApp {
         appFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         StatusPanel statusPanel = new StatusPanel();
         PuzzleUiController controller = new PuzzleUiController(appFrame, model, statusPanel);
+        AutosaveService autosaveService = new AutosaveService(model, statusPanel, AUTOSAVE_INTERVAL);
+        appFrame.addWindowListener(new WindowAdapter() {
+
+            @Override
+            public void windowClosing(WindowEvent e) {
+                autosaveService.shutdown();
+            }
+        });
         
         GridUi gridUi = new GridUi(model.getGridModel());
         CellInputController cellInputController = CellInputController.forSolving(model.getGridModel());
-        HintController hintController = new HintController(appFrame, model.getGridModel(), new HintUiFactory());
+        HintController hintController = new HintController(appFrame, model.getGridModel(), new HintUiFactory(),
+                model::getSolverConfig);
         ControlPanel controlPanel = new ControlPanel(model.getGridModel(), controller, cellInputController, hintController);
         GameBoard gameBoard = new GameBoard(gridUi, controlPanel);
         
@@ -105,17 +127,26 @@ public class TzudokuApp {
         Action openAction = Actions.toAction("Open...", controller::selectPuzzle);
         openAction.putValue(Action.ACCELERATOR_KEY, KeyStrokes.commandDown(KeyEvent.VK_O));
         Action newAction = Actions.toAction("New...", controller::buildNewPuzzle);
+        Action generateAction = Actions.toAction("Generate", controller::generatePuzzles);
+        Action openBankAction = Actions.toAction("Open From Puzzle Bank...", controller::openPuzzleBank);
+        Action importAction = Actions.toAction("Import Puzzles...", controller::importPuzzles);
         Action restartAction = Actions.toAction("Restart", controller::restart);
+        Action solverSettingsAction = Actions.toAction("Solver Settings...", controller::editSolverSettings);
         restartAction.putValue(Action.ACCELERATOR_KEY, KeyStrokes.commandDown(KeyEvent.VK_R));
         newAction.putValue(Action.ACCELERATOR_KEY, KeyStrokes.commandDown(KeyEvent.VK_N));
         Action saveAction = Actions.toAction("Save", controller::saveProgress);
         saveAction.putValue(Action.ACCELERATOR_KEY,  KeyStrokes.commandDown(KeyEvent.VK_S));
         puzzleMenu.add(new JMenuItem(openAction));
         puzzleMenu.add(new JMenuItem(newAction));
+        puzzleMenu.add(new JMenuItem(generateAction));
+        puzzleMenu.add(new JMenuItem(openBankAction));
+        puzzleMenu.add(new JMenuItem(importAction));
         puzzleMenu.add(new JSeparator());
         puzzleMenu.add(new JMenuItem(saveAction));
         puzzleMenu.add(new JSeparator());
         puzzleMenu.add(new JMenuItem(restartAction));
+        puzzleMenu.add(new JSeparator());
+        puzzleMenu.add(new JMenuItem(solverSettingsAction));
         menuBar.add(puzzleMenu);
         return menuBar;
     }
@@ -1,6 +1,7 @@
 package jetoze.tzudoku.constraint;
 
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.util.Objects.requireNonNull;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -108,6 +109,14 @@ public enum ChessConstraint implements Constraint {
                 .filter(p -> grid.cellAt(p).hasValue(digit));
     }
 
+    /**
+     * Returns the positions that are a chess move away from the given position, and therefore 
+     * cannot contain the same digit as that position.
+     */
+    public final ImmutableSet<Position> getPositionsReachableFrom(Position p) {
+        return reachableFrom(requireNonNull(p));
+    }
+    
     // TODO: I'd like this to return a Stream. Is that going to be convenient for the Knights move constraint?
     protected abstract ImmutableSet<Position> reachableFrom(Position p);
     
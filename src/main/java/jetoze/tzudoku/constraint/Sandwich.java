@@ -52,8 +52,9 @@ public class Sandwich implements Constraint {
             if (oneAndNine.size() == 2) {
                 break;
             }
-            if (!foundStart && oneAndNine.size() == 1) {
-                foundStart = true;
+            if (!foundStart) {
+                // The cells before the first of the 1 and the 9 are not part of the sandwich.
+                foundStart = (oneAndNine.size() == 1);
                 continue;
             }
             sandwichedCells.put(p, cell);
@@ -5,15 +5,28 @@ import static com.google.common.base.Preconditions.checkArgument;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
+import jetoze.tzudoku.model.Cell;
+import jetoze.tzudoku.model.Grid;
 import jetoze.tzudoku.model.Position;
 
-public class Thermometer {
+/**
+ * A thermometer constraint: the digits must strictly increase from the bulb to the tip.
+ */
+public class Thermometer implements Constraint {
 
     private final ImmutableList<Position> positions;
     
+    /**
+     * Creates a Thermometer.
+     * 
+     * @param positions
+     *            the positions of the thermometer, ordered from the bulb to the tip.
+     */
     public Thermometer(List<Position> positions) {
         validateInput(positions);
         this.positions = ImmutableList.copyOf(positions);
@@ -40,8 +53,103 @@ public class Thermometer {
         }
     }
     
+    /**
+     * Returns the positions of this thermometer, ordered from the bulb to the tip.
+     */
     public ImmutableList<Position> getPositions() {
         return positions;
     }
     
+    /**
+     * Returns the position of the bulb.
+     */
+    public Position getBulb() {
+        return positions.get(0);
+    }
+    
+    /**
+     * Returns the position of the tip.
+     */
+    public Position getTip() {
+        return positions.get(positions.size() - 1);
+    }
+    
+    public int size() {
+        return positions.size();
+    }
+    
+    /**
+     * Returns the smallest digit that can be placed at the given index of this thermometer,
+     * based on the length of the thermometer alone. The bulb can be at least 1, the next
+     * position at least 2, and so on.
+     */
+    public int getMinimumValue(int index) {
+        checkIndex(index);
+        return index + 1;
+    }
+    
+    /**
+     * Returns the largest digit that can be placed at the given index of this thermometer,
+     * based on the length of the thermometer alone. The tip can be at most 9, the position 
+     * before it at most 8, and so on.
+     */
+    public int getMaximumValue(int index) {
+        checkIndex(index);
+        return 9 - (positions.size() - 1 - index);
+    }
+    
+    private void checkIndex(int index) {
+        checkArgument(index >= 0 && index < positions.size(), "Invalid index: %s", index);
+    }
+    
+    /**
+     * Validates the digits along this thermometer in a single pass from the bulb to the tip.
+     * <p>
+     * A digit is invalid if it is out of range for its position on the thermometer, or if it 
+     * does not leave enough room for the empty cells between it and the closest preceding digit.
+     * In the latter case both digits are flagged, since we can't tell which of them is wrong.
+     */
+    @Override
+    public ImmutableSet<Position> validate(Grid grid) {
+        Set<Position> invalid = new HashSet<>();
+        int lastIndex = -1;
+        int lastValue = 0;
+        for (int n = 0; n < positions.size(); ++n) {
+            Position p = positions.get(n);
+            Cell cell = grid.cellAt(p);
+            if (!cell.hasValue()) {
+                continue;
+            }
+            int value = cell.getValue().get().toInt();
+            if (value < getMinimumValue(n) || value > getMaximumValue(n)) {
+                invalid.add(p);
+            }
+            if (lastIndex >= 0 && (value - lastValue) < (n - lastIndex)) {
+                invalid.add(p);
+                invalid.add(positions.get(lastIndex));
+            }
+            lastIndex = n;
+            lastValue = value;
+        }
+        return ImmutableSet.copyOf(invalid);
+    }
+
+    @Override
+    public int hashCode() {
+        return positions.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        return (obj instanceof Thermometer) && this.positions.equals(((Thermometer) obj).positions);
+    }
+
+    @Override
+    public String toString() {
+        return "Thermometer" + positions;
+    }
+    
 }
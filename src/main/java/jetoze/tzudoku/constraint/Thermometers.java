@@ -0,0 +1,118 @@
+package jetoze.tzudoku.constraint;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+
+/**
+ * The collection of Thermometers in a puzzle. Thermometers may share cells, e.g. 
+ * two thermometers can branch off from the same bulb.
+ */
+public class Thermometers implements Constraint {
+
+    public static final Thermometers EMPTY = new Thermometers(ImmutableList.of());
+    
+    private final ImmutableList<Thermometer> thermometers;
+    
+    public Thermometers(Collection<Thermometer> thermometers) {
+        checkArgument(thermometers.stream().allMatch(Objects::nonNull));
+        this.thermometers = ImmutableList.copyOf(thermometers);
+    }
+    
+    public boolean isEmpty() {
+        return thermometers.isEmpty();
+    }
+    
+    public ImmutableList<Thermometer> getThermometers() {
+        return thermometers;
+    }
+    
+    public boolean contains(Thermometer thermometer) {
+        return thermometers.contains(requireNonNull(thermometer));
+    }
+
+    @Override
+    public ImmutableSet<Position> validate(Grid grid) {
+        return Constraint.validateAll(grid, thermometers);
+    }
+
+    /**
+     * Creates and returns a new Thermometers instance containing all the thermometers of
+     * this instance plus the new thermometer that is added. This instance is not modified.
+     */
+    public Thermometers add(Thermometer thermometer) {
+        checkArgument(!contains(thermometer));
+        return builder().addAll(thermometers).add(thermometer).build();
+    }
+    
+    /**
+     * Creates and returns a new Thermometers instance containing all the thermometers of
+     * this instance minus the thermometer that is removed. This instance is not modified.
+     */
+    public Thermometers remove(Thermometer thermometer) {
+        checkArgument(contains(thermometer));
+        List<Thermometer> remaining = new ArrayList<>(thermometers);
+        remaining.remove(thermometer);
+        return remaining.isEmpty()
+                ? EMPTY
+                : new Thermometers(remaining);
+    }
+    
+    @Override
+    public int hashCode() {
+        return ImmutableSet.copyOf(thermometers).hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        // The order of the thermometers is not significant.
+        return (obj instanceof Thermometers) && 
+                ImmutableSet.copyOf(this.thermometers).equals(ImmutableSet.copyOf(((Thermometers) obj).thermometers));
+    }
+
+    @Override
+    public String toString() {
+        return thermometers.toString();
+    }
+    
+
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    
+    public static class Builder {
+        private final List<Thermometer> thermometers = new ArrayList<>();
+        
+        public Builder add(Thermometer thermometer) {
+            requireNonNull(thermometer);
+            checkArgument(!thermometers.contains(thermometer));
+            thermometers.add(thermometer);
+            return this;
+        }
+        
+        public Builder addAll(Collection<Thermometer> thermometers) {
+            thermometers.forEach(this::add);
+            return this;
+        }
+        
+        public Thermometers build() {
+            return thermometers.isEmpty()
+                    ? EMPTY
+                    : new Thermometers(thermometers);
+        }
+    }
+}
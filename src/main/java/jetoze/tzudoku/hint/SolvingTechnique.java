@@ -1,8 +1,10 @@
 package jetoze.tzudoku.hint;
 
 import java.util.Optional;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
+import jetoze.tzudoku.constraint.Thermometers;
 import jetoze.tzudoku.model.Grid;
 
 /**
@@ -13,45 +15,55 @@ import jetoze.tzudoku.model.Grid;
  */
 public enum SolvingTechnique {
     
-    NAKED_SINGLE("Naked Single", Single::findNextNaked),
+    NAKED_SINGLE("Naked Single", 2.3, Single::findNextNaked),
     
-    HIDDEN_SINGLE("Hidden Single", Single::findNextHidden),
+    HIDDEN_SINGLE("Hidden Single", 1.5, Single::findNextHidden),
     
-    NAKED_PAIR("Naked Pair", NakedMultiple::findNakedPair),
+    THERMOMETER("Thermometer", 2.0, ThermometerBounds::analyze),
     
-    POINTING_PAIR("Pointing Pair", PointingPair::analyze),
+    NAKED_PAIR("Naked Pair", 3.0, NakedMultiple::findNakedPair),
     
-    BOX_LINE_REDUCTION("Box Line Reduction", BoxLineReduction::analyze),
+    POINTING_PAIR("Pointing Pair", 2.6, PointingPair::analyze),
     
-    NAKED_TRIPLE("Naked Triple", NakedMultiple::findNakedTriple),
+    BOX_LINE_REDUCTION("Box Line Reduction", 2.8, BoxLineReduction::analyze),
     
-    NAKED_QUADRUPLE("Naked Quadruple", NakedMultiple::findNakedQuadruple),
+    NAKED_TRIPLE("Naked Triple", 3.6, NakedMultiple::findNakedTriple),
     
-    HIDDEN_PAIR("Hidden Pair", HiddenMultiple::findHiddenPair),
+    NAKED_QUADRUPLE("Naked Quadruple", 5.0, NakedMultiple::findNakedQuadruple),
     
-    HIDDEN_TRIPLE("Hidden Triple", HiddenMultiple::findHiddenTriple),
+    HIDDEN_PAIR("Hidden Pair", 3.4, HiddenMultiple::findHiddenPair),
     
-    HIDDEN_QUADRUPLE("Hidden Triple", HiddenMultiple::findHiddenQuadruple),
+    HIDDEN_TRIPLE("Hidden Triple", 4.0, HiddenMultiple::findHiddenTriple),
     
-    X_WING("X-Wing", XWing::analyze),
+    HIDDEN_QUADRUPLE("Hidden Triple", 5.4, HiddenMultiple::findHiddenQuadruple),
     
-    Y_WING("Y-Wing", YWing::analyze),
+    X_WING("X-Wing", 3.2, XWing::analyze),
     
-    XYZ_WING("XYZ-Wing", XyzWing::analyze),
+    Y_WING("Y-Wing", 4.2, YWing::analyze),
     
-    SIMPLE_COLORING("Simple Coloring", SimpleColoring::analyze),
+    XYZ_WING("XYZ-Wing", 4.4, XyzWing::analyze),
     
-    SWORDFISH("Swordfish", Swordfish::analyze);
+    SIMPLE_COLORING("Simple Coloring", 4.5, SimpleColoring::analyze),
+    
+    SWORDFISH("Swordfish", 3.8, Swordfish::analyze);
     
     // TODO: W-Wing
     // TODO: Two String Kite. Example: "Random Reddit Puzzle" (https://www.reddit.com/r/sudoku/comments/igkqhf/crashed_out_early_in_this_one_and_not_seeing_any/)
     // TODO: X-Cycle. See puzzle "SudokuWiki.org 2020-08-13" for an example.
 
     private final String name;
-    private final Function<Grid, Optional<? extends Hint>> analyzer;
+    private final double difficulty;
+    private final BiFunction<Grid, Thermometers, Optional<? extends Hint>> analyzer;
+    
+    private SolvingTechnique(String name, double difficulty, Function<Grid, Optional<? extends Hint>> analyzer) {
+        this.name = name;
+        this.difficulty = difficulty;
+        this.analyzer = (grid, thermometers) -> analyzer.apply(grid);
+    }
     
-    private SolvingTechnique(String name, Function<Grid, Optional<? extends Hint>> analyzer) {
+    private SolvingTechnique(String name, double difficulty, BiFunction<Grid, Thermometers, Optional<? extends Hint>> analyzer) {
         this.name = name;
+        this.difficulty = difficulty;
         this.analyzer = analyzer;
     }
     
@@ -62,6 +74,15 @@ public enum SolvingTechnique {
         return name;
     }
     
+    /**
+     * Returns the difficulty of this technique, on a scale modeled after the ratings used
+     * by Sudoku Explainer, where a puzzle that can be solved with hidden singles alone rates
+     * 1.5 and the basic fish and wing patterns rate somewhere between 3 and 4.5.
+     */
+    public double getDifficulty() {
+        return difficulty;
+    }
+    
     /**
      * Does this solving technique require candidates to have been filled into all empty cells
      * in the grid?
@@ -85,7 +106,18 @@ public enum SolvingTechnique {
      *         empty Optional if this technique is not applicable to the Grid.
      */
     public Optional<? extends Hint> analyze(Grid grid) {
-        return analyzer.apply(grid);
+        return analyze(grid, Thermometers.EMPTY);
+    }
+
+    /**
+     * Applies this technique to the given grid, taking the given thermometers into account.
+     * Techniques that only deal with the classic sudoku rules ignore the thermometers.
+     * 
+     * @return an Optional containing a Hint that can be applied to the Grid, or an
+     *         empty Optional if this technique is not applicable to the Grid.
+     */
+    public Optional<? extends Hint> analyze(Grid grid, Thermometers thermometers) {
+        return analyzer.apply(grid, thermometers);
     }
 
     @Override
@@ -0,0 +1,156 @@
+package jetoze.tzudoku.hint;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Decides in which order a solver tries the {@link SolvingTechnique}s.
+ * <p>
+ * In {@link Mode#PEDAGOGICAL pedagogical} mode the techniques are always tried in the order
+ * they are declared in, which is the order a human solver would typically use. This is the
+ * mode to use for hints that are shown to the user.
+ * <p>
+ * In {@link Mode#EASIEST_FIRST easiest first} mode the techniques are always tried in order
+ * of increasing difficulty, so the solver only falls back on a harder technique when none
+ * of the easier ones apply. This is the mode to use for rating a single puzzle, since the
+ * rating is given by the hardest technique used.
+ * <p>
+ * In {@link Mode#ADAPTIVE adaptive} mode the scheduler measures the cost and hit rate of each
+ * technique as the solver runs, and tries the techniques that find the most hints per unit
+ * of time first. This is the mode to use when throughput matters more than the order in which
+ * the hints are found, such as when rating puzzles in bulk. An adaptive scheduler can be
+ * shared between solvers, also across threads, which lets it learn from all of them.
+ * <p>
+ * Since the difficulty of a puzzle is given by the hardest technique used, the adaptive mode
+ * only reorders the techniques that are no harder than the hardest technique used so far. The
+ * remaining techniques follow in order of increasing difficulty, as in easiest first mode.
+ * Using a technique below that difficulty ceiling can never make the puzzle look harder than
+ * it is.
+ */
+public final class TechniqueScheduler {
+
+    public static enum Mode {
+        /**
+         * The techniques are tried in their declared order.
+         */
+        PEDAGOGICAL,
+        /**
+         * The techniques are tried in order of increasing difficulty.
+         */
+        EASIEST_FIRST,
+        /**
+         * The techniques are ordered based on their measured cost and hit rate.
+         */
+        ADAPTIVE
+    }
+
+    private static final ImmutableList<SolvingTechnique> DECLARED_ORDER = ImmutableList.copyOf(SolvingTechnique.values());
+    
+    private static final Comparator<SolvingTechnique> BY_DIFFICULTY = Comparator.comparingDouble(SolvingTechnique::getDifficulty);
+    
+    private static final ImmutableList<SolvingTechnique> DIFFICULTY_ORDER = DECLARED_ORDER.stream()
+            .sorted(BY_DIFFICULTY)
+            .collect(ImmutableList.toImmutableList());
+
+    /**
+     * The cost we assume for a technique that has not been tried yet, in nanoseconds.
+     * Together with the assumed single hit this makes untried techniques look reasonably
+     * attractive, so that they are tried early on.
+     */
+    private static final long ASSUMED_COST_IN_NANOS = 10_000L;
+
+    private final Mode mode;
+    // Indexed by the ordinal of the technique.
+    private final AtomicLongArray attempts = new AtomicLongArray(DECLARED_ORDER.size());
+    private final AtomicLongArray hits = new AtomicLongArray(DECLARED_ORDER.size());
+    private final AtomicLongArray nanos = new AtomicLongArray(DECLARED_ORDER.size());
+
+    private TechniqueScheduler(Mode mode) {
+        this.mode = requireNonNull(mode);
+    }
+
+    public static TechniqueScheduler pedagogical() {
+        return new TechniqueScheduler(Mode.PEDAGOGICAL);
+    }
+
+    public static TechniqueScheduler easiestFirst() {
+        return new TechniqueScheduler(Mode.EASIEST_FIRST);
+    }
+
+    public static TechniqueScheduler adaptive() {
+        return new TechniqueScheduler(Mode.ADAPTIVE);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the order in which the techniques should be tried in the next step.
+     *
+     * @param difficultyCeiling
+     *            the difficulty of the hardest technique used so far, or 0 if no technique
+     *            has been used yet.
+     */
+    public List<SolvingTechnique> getOrder(double difficultyCeiling) {
+        if (mode == Mode.PEDAGOGICAL) {
+            return DECLARED_ORDER;
+        }
+        if (mode == Mode.EASIEST_FIRST) {
+            return DIFFICULTY_ORDER;
+        }
+        List<SolvingTechnique> belowCeiling = new ArrayList<>();
+        List<SolvingTechnique> aboveCeiling = new ArrayList<>();
+        for (SolvingTechnique t : DIFFICULTY_ORDER) {
+            if (t.getDifficulty() <= difficultyCeiling) {
+                belowCeiling.add(t);
+            } else {
+                aboveCeiling.add(t);
+            }
+        }
+        belowCeiling.sort(Comparator.comparingDouble(this::getYield).reversed());
+        // The techniques above the ceiling are already sorted by difficulty.
+        belowCeiling.addAll(aboveCeiling);
+        return belowCeiling;
+    }
+
+    /**
+     * Records the outcome of trying a technique. This is a no-op unless in adaptive mode.
+     *
+     * @param technique
+     *            the technique that was tried
+     * @param durationInNanos
+     *            the time it took to try the technique
+     * @param successful
+     *            {@code true} if the technique produced a hint
+     */
+    public void record(SolvingTechnique technique, long durationInNanos, boolean successful) {
+        if (mode != Mode.ADAPTIVE) {
+            return;
+        }
+        int n = technique.ordinal();
+        attempts.incrementAndGet(n);
+        nanos.addAndGet(n, durationInNanos);
+        if (successful) {
+            hits.incrementAndGet(n);
+        }
+    }
+
+    /**
+     * Returns the number of hints found per nanosecond spent on the given technique. We
+     * pretend that each technique has had one successful attempt at an assumed cost, so
+     * that techniques that have not been tried yet are given a chance.
+     */
+    double getYield(SolvingTechnique technique) {
+        int n = technique.ordinal();
+        double hitRate = (hits.get(n) + 1.0) / (attempts.get(n) + 1.0);
+        double averageCost = (nanos.get(n) + ASSUMED_COST_IN_NANOS) / (attempts.get(n) + 1.0);
+        return hitRate / averageCost;
+    }
+}
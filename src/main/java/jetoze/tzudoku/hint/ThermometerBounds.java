@@ -0,0 +1,168 @@
+package jetoze.tzudoku.hint;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.constraint.Thermometer;
+import jetoze.tzudoku.constraint.Thermometers;
+import jetoze.tzudoku.model.Cell;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Value;
+
+/**
+ * Eliminates candidates from a cell on a thermometer that are out of range given the 
+ * digits and candidates of the other cells on the same thermometer.
+ * <p>
+ * The range of each cell is found by propagating bounds along the thermometer: walking from
+ * the bulb to the tip, each cell must be larger than the smallest possible digit of the cell 
+ * before it; walking from the tip to the bulb, each cell must be smaller than the largest 
+ * possible digit of the cell after it. 
+ * <p>
+ * For example, if the bulb of a thermometer has the candidates 4 and 6, the next cell on the 
+ * thermometer must be at least 5, and every candidate smaller than that can be eliminated.
+ * <p>
+ * A cell without a value or candidates is treated as if any digit can go there. This technique
+ * is therefore safe to use on a grid where not all cells have candidates filled in, but it may
+ * find fewer eliminations.
+ */
+public class ThermometerBounds extends EliminatingHint {
+
+    private final Thermometer thermometer;
+    private final Position target;
+    private final Value lowerBound;
+    private final Value upperBound;
+    
+    public ThermometerBounds(Grid grid, 
+                             Thermometer thermometer, 
+                             Position target, 
+                             Value lowerBound, 
+                             Value upperBound, 
+                             Set<Value> values) {
+        super(SolvingTechnique.THERMOMETER, grid, ImmutableSet.copyOf(thermometer.getPositions()), 
+                values, ImmutableSet.of(target));
+        checkArgument(thermometer.getPositions().contains(target), "%s is not on the thermometer", target);
+        checkArgument(lowerBound.compareTo(upperBound) <= 0);
+        checkArgument(values.stream().noneMatch(v -> v.compareTo(lowerBound) >= 0 && v.compareTo(upperBound) <= 0), 
+                "Cannot eliminate values in the range [%s, %s]", lowerBound, upperBound);
+        this.thermometer = thermometer;
+        this.target = target;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+
+    /**
+     * Returns the thermometer the target cell is on.
+     */
+    public Thermometer getThermometer() {
+        return thermometer;
+    }
+
+    /**
+     * Returns the position of the cell from which candidates can be eliminated.
+     */
+    public Position getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the smallest digit that can go into the target cell.
+     */
+    public Value getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Returns the largest digit that can go into the target cell.
+     */
+    public Value getUpperBound() {
+        return upperBound;
+    }
+
+    public static Optional<ThermometerBounds> analyze(Grid grid, Thermometers thermometers) {
+        requireNonNull(grid);
+        requireNonNull(thermometers);
+        for (Thermometer t : thermometers.getThermometers()) {
+            Optional<ThermometerBounds> hint = analyzeThermometer(grid, t);
+            if (hint.isPresent()) {
+                return hint;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<ThermometerBounds> analyzeThermometer(Grid grid, Thermometer thermometer) {
+        int size = thermometer.size();
+        // Bit masks of the possible digits in each cell, bit n representing digit n.
+        int[] possible = new int[size];
+        for (int n = 0; n < size; ++n) {
+            possible[n] = possibleDigits(grid.cellAt(thermometer.getPositions().get(n)));
+        }
+        // Walk from the bulb to the tip: each cell must be larger than the smallest 
+        // possible digit of the cell before it.
+        int[] lower = new int[size];
+        int previous = 0;
+        for (int n = 0; n < size; ++n) {
+            int candidates = possible[n] & ~((1 << (previous + 1)) - 1);
+            if (candidates == 0) {
+                // The grid is in an invalid state. Nothing we can do.
+                return Optional.empty();
+            }
+            lower[n] = Integer.numberOfTrailingZeros(candidates);
+            previous = lower[n];
+        }
+        // Walk from the tip to the bulb: each cell must be smaller than the largest 
+        // possible digit of the cell after it.
+        int[] upper = new int[size];
+        int next = 10;
+        for (int n = size - 1; n >= 0; --n) {
+            int candidates = possible[n] & ((1 << next) - 1);
+            if (candidates == 0) {
+                return Optional.empty();
+            }
+            upper[n] = 31 - Integer.numberOfLeadingZeros(candidates);
+            next = upper[n];
+        }
+        for (int n = 0; n < size; ++n) {
+            Position p = thermometer.getPositions().get(n);
+            Cell cell = grid.cellAt(p);
+            if (cell.hasValue() || cell.getCenterMarks().isEmpty()) {
+                continue;
+            }
+            EnumSet<Value> outOfRange = EnumSet.noneOf(Value.class);
+            for (Value v : cell.getCenterMarks().getValues()) {
+                if (v.toInt() < lower[n] || v.toInt() > upper[n]) {
+                    outOfRange.add(v);
+                }
+            }
+            if (!outOfRange.isEmpty()) {
+                return Optional.of(new ThermometerBounds(grid, thermometer, p, 
+                        Value.of(lower[n]), Value.of(upper[n]), outOfRange));
+            }
+        }
+        return Optional.empty();
+    }
+    
+    private static int possibleDigits(Cell cell) {
+        if (cell.hasValue()) {
+            return 1 << cell.getValue().get().toInt();
+        }
+        Set<Value> candidates = cell.getCenterMarks().getValues();
+        if (candidates.isEmpty()) {
+            // No information about this cell. Any digit is possible.
+            return 0x3FE;
+        }
+        int mask = 0;
+        for (Value v : candidates) {
+            mask |= (1 << v.toInt());
+        }
+        return mask;
+    }
+    
+}
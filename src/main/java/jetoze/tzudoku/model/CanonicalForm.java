@@ -0,0 +1,339 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The canonical form of the given digits of a classic sudoku grid, under the sudoku
+ * symmetry group: transposition, permutations of bands and stacks, permutations of rows
+ * within a band and columns within a stack, and relabeling of the digits.
+ * <p>
+ * Two grids have the same canonical form if and only if one can be transformed into the
+ * other by those symmetries. The canonical form is the lexicographically smallest of all
+ * the equivalent grids, read row by row, with empty cells written as 0 and the digits
+ * relabeled in order of first appearance.
+ * <p>
+ * Only the given cells take part. Variant constraints such as killer cages or sandwiches
+ * are not invariant under these symmetries, so the canonical form is only meaningful for
+ * classic puzzles.
+ */
+public final class CanonicalForm {
+
+    private static final int[][] PERMUTATIONS_OF_THREE = {
+            {0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}
+    };
+    /**
+     * The filled-cell pattern of the three columns of a stack, indexed by the permutation of
+     * the columns (an index into PERMUTATIONS_OF_THREE) and the pattern before the permutation.
+     * The first column is the most significant bit.
+     */
+    private static final int[][] PERMUTED_STACK_MASKS = createPermutedStackMasks();
+    /**
+     * All the ways of permuting the columns of a grid while keeping the sudoku structure,
+     * i.e. permutations of the stacks combined with permutations of the columns within
+     * each stack.
+     */
+    private static final int[][] COLUMN_PERMUTATIONS = createColumnPermutations();
+
+    private final String form;
+
+    private CanonicalForm(String form) {
+        this.form = form;
+    }
+
+    /**
+     * Computes the canonical form of the given cells of the grid.
+     */
+    public static CanonicalForm of(Grid grid) {
+        requireNonNull(grid);
+        int[] digits = Position.all()
+                .map(grid::cellAt)
+                .mapToInt(c -> c.isGiven() ? c.getValue().get().toInt() : 0)
+                .toArray();
+        return new CanonicalForm(new Canonicalizer(digits).run());
+    }
+
+    /**
+     * Recreates a CanonicalForm from its string representation, as given by {@link #toString()}.
+     */
+    public static CanonicalForm fromString(String s) {
+        checkArgument(s.length() == 81 && s.chars().allMatch(Character::isDigit),
+                "Not a valid canonical form: %s", s);
+        return new CanonicalForm(s);
+    }
+
+    private static int[][] createPermutedStackMasks() {
+        int[][] masks = new int[6][8];
+        for (int p = 0; p < 6; ++p) {
+            for (int mask = 0; mask < 8; ++mask) {
+                int permuted = 0;
+                for (int c = 0; c < 3; ++c) {
+                    permuted = (permuted << 1) | ((mask >> (2 - PERMUTATIONS_OF_THREE[p][c])) & 1);
+                }
+                masks[p][mask] = permuted;
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * Creates the column permutations. The permutation at index {@code ((s * 6 + a) * 6 + b) * 6 + c}
+     * uses the stack permutation {@code s}, and the column permutations {@code a}, {@code b} and 
+     * {@code c} within the first, second, and third stack, where all four are indices into 
+     * PERMUTATIONS_OF_THREE.
+     */
+    private static int[][] createColumnPermutations() {
+        List<int[]> permutations = new ArrayList<>(1296);
+        for (int[] stacks : PERMUTATIONS_OF_THREE) {
+            for (int[] first : PERMUTATIONS_OF_THREE) {
+                for (int[] second : PERMUTATIONS_OF_THREE) {
+                    for (int[] third : PERMUTATIONS_OF_THREE) {
+                        int[][] withinStacks = {first, second, third};
+                        int[] permutation = new int[9];
+                        for (int s = 0; s < 3; ++s) {
+                            for (int c = 0; c < 3; ++c) {
+                                permutation[3 * s + c] = 3 * stacks[s] + withinStacks[s][c];
+                            }
+                        }
+                        permutations.add(permutation);
+                    }
+                }
+            }
+        }
+        return permutations.toArray(new int[0][]);
+    }
+
+    @Override
+    public String toString() {
+        return form;
+    }
+
+    @Override
+    public int hashCode() {
+        return form.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof CanonicalForm) {
+            return this.form.equals(((CanonicalForm) obj).form);
+        }
+        return false;
+    }
+
+
+    /**
+     * Searches for the smallest equivalent grid, one row at a time.
+     * <p>
+     * The search starts with one partial transformation for each combination of orientation
+     * and column permutation. At each step every partial transformation is extended with
+     * each of the rows that may come next, the digits of the new row are relabeled, and
+     * only the extensions that produce the smallest row are kept. Since the grids are compared
+     * lexicographically row by row, an extension that produces a larger row can never lead
+     * to the canonical form, so after the first couple of rows only a handful of candidates
+     * remain.
+     */
+    private static class Canonicalizer {
+        private final int[][] orientations;
+
+        public Canonicalizer(int[] digits) {
+            int[] transposed = new int[81];
+            for (int r = 0; r < 9; ++r) {
+                for (int c = 0; c < 9; ++c) {
+                    transposed[9 * c + r] = digits[9 * r + c];
+                }
+            }
+            this.orientations = new int[][] {digits, transposed};
+        }
+
+        public String run() {
+            if (Arrays.stream(orientations[0]).allMatch(d -> d == 0)) {
+                return "0".repeat(81);
+            }
+            StringBuilder form = new StringBuilder(81);
+            Collection<Candidate> candidates = firstRowCandidates(form);
+            int[] smallestRow = new int[9];
+            int[] row = new int[9];
+            int[] labels = new int[10];
+            for (int outputRow = 1; outputRow < 9; ++outputRow) {
+                Arrays.fill(smallestRow, Integer.MAX_VALUE);
+                // Different candidates can lead to the same extension, e.g. when there are 
+                // empty rows that can be used in any order. We only need to keep one of them.
+                Set<Candidate> extensions = new LinkedHashSet<>();
+                for (Candidate candidate : candidates) {
+                    for (int inputRow = 0; inputRow < 9; ++inputRow) {
+                        if (!candidate.canUse(inputRow, outputRow)) {
+                            continue;
+                        }
+                        int nextLabel = candidate.relabel(inputRow, labels, row);
+                        int comparison = Arrays.compare(row, smallestRow);
+                        if (comparison < 0) {
+                            System.arraycopy(row, 0, smallestRow, 0, 9);
+                            extensions.clear();
+                        }
+                        if (comparison <= 0) {
+                            extensions.add(candidate.extend(inputRow, labels.clone(), nextLabel));
+                        }
+                    }
+                }
+                for (int d : smallestRow) {
+                    form.append(d);
+                }
+                candidates = extensions;
+            }
+            return form.toString();
+        }
+
+        /**
+         * Finds the candidates for the first row, and appends the first row to the form.
+         * <p>
+         * All the digits of the first row get new labels, in order, so as long as the digits
+         * in the row are distinct, the relabeled first row is determined by which of its cells
+         * are empty. We therefore start by finding the combinations of orientation, column
+         * permutation and row that leave the most leading empty cells, using the filled-cell 
+         * pattern of each stack, and only relabel those.
+         */
+        private List<Candidate> firstRowCandidates(StringBuilder form) {
+            int smallestPattern = Integer.MAX_VALUE;
+            List<int[]> starts = new ArrayList<>();
+            int[] stackMasks = new int[3];
+            for (int o = 0; o < 2; ++o) {
+                int[] grid = orientations[o];
+                for (int r = 0; r < 9; ++r) {
+                    for (int s = 0; s < 3; ++s) {
+                        int start = 9 * r + 3 * s;
+                        stackMasks[s] = (grid[start] != 0 ? 4 : 0) | (grid[start + 1] != 0 ? 2 : 0) | 
+                                (grid[start + 2] != 0 ? 1 : 0);
+                    }
+                    for (int p = 0; p < COLUMN_PERMUTATIONS.length; ++p) {
+                        int[] stacks = PERMUTATIONS_OF_THREE[p / 216];
+                        int pattern = (PERMUTED_STACK_MASKS[(p / 36) % 6][stackMasks[stacks[0]]] << 6) |
+                                (PERMUTED_STACK_MASKS[(p / 6) % 6][stackMasks[stacks[1]]] << 3) |
+                                PERMUTED_STACK_MASKS[p % 6][stackMasks[stacks[2]]];
+                        if (pattern < smallestPattern) {
+                            smallestPattern = pattern;
+                            starts.clear();
+                        }
+                        if (pattern == smallestPattern) {
+                            starts.add(new int[] {o, p, r});
+                        }
+                    }
+                }
+            }
+            int[] smallestRow = new int[9];
+            Arrays.fill(smallestRow, Integer.MAX_VALUE);
+            int[] row = new int[9];
+            int[] labels = new int[10];
+            List<Candidate> candidates = new ArrayList<>();
+            for (int[] start : starts) {
+                Candidate empty = new Candidate(orientations[start[0]], COLUMN_PERMUTATIONS[start[1]], 0, -1, new int[10], 1);
+                int nextLabel = empty.relabel(start[2], labels, row);
+                int comparison = Arrays.compare(row, smallestRow);
+                if (comparison < 0) {
+                    System.arraycopy(row, 0, smallestRow, 0, 9);
+                    candidates.clear();
+                }
+                if (comparison <= 0) {
+                    candidates.add(empty.extend(start[2], labels.clone(), nextLabel));
+                }
+            }
+            for (int d : smallestRow) {
+                form.append(d);
+            }
+            return candidates;
+        }
+    }
+
+
+    /**
+     * A partial transformation of the grid: an orientation and a column permutation, the
+     * input rows that have been used for the first output rows, and the digit relabeling
+     * implied by those rows.
+     */
+    private static class Candidate {
+        private final int[] grid;
+        private final int[] columns;
+        private final int usedRows;
+        private final int band;
+        private final int[] labels;
+        private final int nextLabel;
+
+        public Candidate(int[] grid, int[] columns, int usedRows, int band, int[] labels, int nextLabel) {
+            this.grid = grid;
+            this.columns = columns;
+            this.usedRows = usedRows;
+            this.band = band;
+            this.labels = labels;
+            this.nextLabel = nextLabel;
+        }
+
+        /**
+         * Checks if the given input row can be used as the given output row.
+         */
+        public boolean canUse(int inputRow, int outputRow) {
+            if ((usedRows & (1 << inputRow)) != 0) {
+                return false;
+            }
+            // The bands are filled one at a time, so at the start of a band any
+            // unused row belongs to an unused band.
+            return (outputRow % 3 == 0) || (inputRow / 3 == band);
+        }
+
+        /**
+         * Writes the relabeled digits of the given input row to {@code output}, assigning
+         * new labels to digits that have not been seen before. The labeling, including
+         * the new labels, is written to {@code newLabels}.
+         *
+         * @return the next free label.
+         */
+        public int relabel(int inputRow, int[] newLabels, int[] output) {
+            System.arraycopy(labels, 0, newLabels, 0, 10);
+            int[] labels = newLabels;
+            int next = nextLabel;
+            for (int c = 0; c < 9; ++c) {
+                int digit = grid[9 * inputRow + columns[c]];
+                if (digit != 0 && labels[digit] == 0) {
+                    labels[digit] = next++;
+                }
+                output[c] = (digit == 0) ? 0 : labels[digit];
+            }
+            return next;
+        }
+
+        public Candidate extend(int inputRow, int[] newLabels, int newNextLabel) {
+            return new Candidate(grid, columns, usedRows | (1 << inputRow), inputRow / 3, newLabels, newNextLabel);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(grid), System.identityHashCode(columns), usedRows, band, 
+                    Arrays.hashCode(labels));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof Candidate) {
+                // The grids and column permutations are shared between all candidates,
+                // so we can compare them by identity.
+                Candidate that = (Candidate) obj;
+                return this.grid == that.grid && this.columns == that.columns && this.usedRows == that.usedRows &&
+                        this.band == that.band && Arrays.equals(this.labels, that.labels);
+            }
+            return false;
+        }
+    }
+}
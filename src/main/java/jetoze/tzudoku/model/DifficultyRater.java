@@ -0,0 +1,59 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import jetoze.tzudoku.hint.TechniqueScheduler;
+
+/**
+ * Rates the difficulty of puzzles by solving them with the {@link GridSolver}, and
+ * taking the hardest technique that was needed.
+ */
+public final class DifficultyRater {
+
+    private final Duration timeLimit;
+    private final TechniqueScheduler scheduler;
+
+    /**
+     * Creates a rater that gives up on a puzzle after the given amount of time. A puzzle
+     * that could not be solved in time gets an incomplete rating.
+     * <p>
+     * The techniques are tried in order of increasing difficulty, so that a harder technique
+     * is only used when none of the easier ones apply. Rating with the declared order of the
+     * techniques, which is not sorted by difficulty, can make a puzzle look harder than it is.
+     */
+    public DifficultyRater(Duration timeLimit) {
+        this(timeLimit, TechniqueScheduler.easiestFirst());
+    }
+
+    /**
+     * Creates a rater that uses the given scheduler for ordering the techniques. Passing
+     * in the same {@link TechniqueScheduler#adaptive() adaptive} scheduler to all raters
+     * that are used for rating a batch of puzzles lets the scheduler learn from all of them.
+     */
+    public DifficultyRater(Duration timeLimit, TechniqueScheduler scheduler) {
+        checkArgument(!timeLimit.isNegative() && !timeLimit.isZero(), "The time limit must be positive");
+        this.timeLimit = timeLimit;
+        this.scheduler = requireNonNull(scheduler);
+    }
+
+    /**
+     * Rates the given puzzle. Only the given digits of the puzzle are taken into account,
+     * so it doesn't matter if the puzzle has been partially solved.
+     */
+    public DifficultyRating rate(Puzzle puzzle) {
+        requireNonNull(puzzle);
+        Map<Position, Cell> givens = puzzle.getGrid().getCells().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().isGiven()
+                        ? Cell.given(e.getValue().getValue().get())
+                        : Cell.empty()));
+        GridSolver solver = new GridSolver(new Grid(givens), puzzle.getThermometers())
+                .setTimeLimit(timeLimit)
+                .setScheduler(scheduler);
+        return DifficultyRating.of(solver.solve());
+    }
+}
@@ -0,0 +1,133 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import jetoze.tzudoku.hint.Hint;
+import jetoze.tzudoku.hint.SolvingTechnique;
+
+/**
+ * The difficulty of a puzzle, given by the hardest technique that was needed to solve it.
+ * <p>
+ * The numeric value of the rating is the {@link SolvingTechnique#getDifficulty() difficulty}
+ * of the hardest technique. If the solver could not solve the puzzle with the available
+ * techniques the rating is incomplete, and its value is only a lower bound.
+ */
+public final class DifficultyRating implements Comparable<DifficultyRating> {
+
+    /**
+     * The rating of a grid that is already solved.
+     */
+    public static final DifficultyRating TRIVIAL = new DifficultyRating(null, true);
+
+    private static final Comparator<DifficultyRating> COMPARATOR = Comparator
+            .comparingDouble(DifficultyRating::getValue)
+            .thenComparing(DifficultyRating::isComplete, Comparator.reverseOrder());
+
+    private static final String INCOMPLETE_SUFFIX = "+";
+
+    @Nullable
+    private final SolvingTechnique hardestTechnique;
+    private final boolean complete;
+
+    private DifficultyRating(@Nullable SolvingTechnique hardestTechnique, boolean complete) {
+        this.hardestTechnique = hardestTechnique;
+        this.complete = complete;
+    }
+
+    /**
+     * Rates a puzzle based on the steps the solver took.
+     */
+    public static DifficultyRating of(GridSolver.Result result) {
+        requireNonNull(result);
+        SolvingTechnique hardest = result.getHintsApplied().stream()
+                .map(Hint::getTechnique)
+                .max(Comparator.comparingDouble(SolvingTechnique::getDifficulty))
+                .orElse(null);
+        return new DifficultyRating(hardest, result.isSolved());
+    }
+
+    /**
+     * Parses a rating from the string representation returned by {@link #toStorageString()}.
+     */
+    public static DifficultyRating fromStorageString(String s) {
+        requireNonNull(s);
+        boolean complete = !s.endsWith(INCOMPLETE_SUFFIX);
+        String techniqueName = complete
+                ? s
+                : s.substring(0, s.length() - INCOMPLETE_SUFFIX.length());
+        checkArgument(!techniqueName.isBlank(), "Invalid rating: %s", s);
+        SolvingTechnique technique = techniqueName.equals("NONE")
+                ? null
+                : SolvingTechnique.valueOf(techniqueName);
+        return new DifficultyRating(technique, complete);
+    }
+
+    /**
+     * Returns a string representation of this rating, suitable for storage. The string
+     * holds the hardest technique rather than the numeric value, so that stored ratings
+     * follow along if the difficulty of a technique is adjusted.
+     */
+    public String toStorageString() {
+        String technique = (hardestTechnique == null)
+                ? "NONE"
+                : hardestTechnique.name();
+        return complete
+                ? technique
+                : technique + INCOMPLETE_SUFFIX;
+    }
+
+    public double getValue() {
+        return (hardestTechnique == null)
+                ? 0.0
+                : hardestTechnique.getDifficulty();
+    }
+
+    public Optional<SolvingTechnique> getHardestTechnique() {
+        return Optional.ofNullable(hardestTechnique);
+    }
+
+    /**
+     * Checks if the solver was able to solve the puzzle. If not, the value of this rating
+     * is a lower bound of the difficulty of the puzzle.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public int compareTo(DifficultyRating o) {
+        return COMPARATOR.compare(this, o);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hardestTechnique, complete);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof DifficultyRating) {
+            DifficultyRating that = (DifficultyRating) obj;
+            return this.hardestTechnique == that.hardestTechnique && this.complete == that.complete;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        String value = String.format("%.1f", getValue());
+        return complete
+                ? value
+                : value + INCOMPLETE_SUFFIX;
+    }
+}
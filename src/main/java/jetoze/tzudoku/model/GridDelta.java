@@ -0,0 +1,114 @@
+package jetoze.tzudoku.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A log of the cell changes that took a grid from one {@link GridSnapshot} to another.
+ * <p>
+ * Only the cells that actually changed are recorded, so a delta is typically much
+ * smaller than a full snapshot. A delta can be {@link #revert(Grid) reverted} and
+ * {@link #apply(Grid) re-applied} any number of times, which makes it suitable for
+ * undo/redo and for backtracking.
+ */
+public final class GridDelta {
+
+    public static final GridDelta EMPTY = new GridDelta(new int[0], new short[0], new short[0], new short[0], new short[0]);
+
+    /**
+     * The snapshot indices of the cells that changed.
+     */
+    private final int[] indices;
+    private final short[] contentsBefore;
+    private final short[] decorationsBefore;
+    private final short[] contentsAfter;
+    private final short[] decorationsAfter;
+
+    private GridDelta(int[] indices, short[] contentsBefore, short[] decorationsBefore, short[] contentsAfter,
+            short[] decorationsAfter) {
+        this.indices = indices;
+        this.contentsBefore = contentsBefore;
+        this.decorationsBefore = decorationsBefore;
+        this.contentsAfter = contentsAfter;
+        this.decorationsAfter = decorationsAfter;
+    }
+
+    /**
+     * Creates the delta that takes a grid from the {@code before} snapshot to the
+     * {@code after} snapshot.
+     */
+    public static GridDelta between(GridSnapshot before, GridSnapshot after) {
+        requireNonNull(before);
+        requireNonNull(after);
+        int[] indices = new int[81];
+        int size = 0;
+        for (int i = 0; i < 81; ++i) {
+            if (before.contentsAt(i) != after.contentsAt(i) || before.decorationsAt(i) != after.decorationsAt(i)) {
+                indices[size++] = i;
+            }
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        indices = Arrays.copyOf(indices, size);
+        short[] contentsBefore = new short[size];
+        short[] decorationsBefore = new short[size];
+        short[] contentsAfter = new short[size];
+        short[] decorationsAfter = new short[size];
+        for (int n = 0; n < size; ++n) {
+            int i = indices[n];
+            contentsBefore[n] = before.contentsAt(i);
+            decorationsBefore[n] = before.decorationsAt(i);
+            contentsAfter[n] = after.contentsAt(i);
+            decorationsAfter[n] = after.decorationsAt(i);
+        }
+        return new GridDelta(indices, contentsBefore, decorationsBefore, contentsAfter, decorationsAfter);
+    }
+
+    /**
+     * Performs the given change on the grid, and returns a delta of the cells that
+     * were modified by it.
+     */
+    public static GridDelta record(Grid grid, Runnable change) {
+        requireNonNull(change);
+        GridSnapshot before = GridSnapshot.of(grid);
+        change.run();
+        return between(before, GridSnapshot.of(grid));
+    }
+
+    public boolean isEmpty() {
+        return indices.length == 0;
+    }
+
+    /**
+     * Returns the positions of the cells that were changed.
+     */
+    public ImmutableSet<Position> getPositions() {
+        return Arrays.stream(indices)
+                .mapToObj(GridSnapshot::positionAt)
+                .collect(ImmutableSet.toImmutableSet());
+    }
+
+    /**
+     * Applies the changes in this delta to the given grid, which is expected to be in
+     * the state that the changes were originally recorded from.
+     */
+    public void apply(Grid grid) {
+        for (int n = 0; n < indices.length; ++n) {
+            GridSnapshot.restoreCell(grid.cellAt(GridSnapshot.positionAt(indices[n])), contentsAfter[n], decorationsAfter[n]);
+        }
+    }
+
+    /**
+     * Reverts the changes in this delta, restoring the affected cells of the given grid
+     * to the state they were in before the changes were made.
+     */
+    public void revert(Grid grid) {
+        for (int n = 0; n < indices.length; ++n) {
+            GridSnapshot.restoreCell(grid.cellAt(GridSnapshot.positionAt(indices[n])), contentsBefore[n], decorationsBefore[n]);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A compact, immutable snapshot of the state of all the cells in a {@link Grid}.
+ * <p>
+ * The state of each cell is packed into two shorts: one holding the value, the given
+ * flag and the center marks (the candidates), and one holding the corner marks and
+ * the color. Taking a snapshot and restoring it is therefore a lot cheaper than
+ * creating a deep copy of the grid with {@link Grid#copyOf(Grid)}, and since the snapshot
+ * is immutable it can safely be handed over to a background thread.
+ *
+ * @see GridDelta
+ */
+public final class GridSnapshot {
+
+    /**
+     * The positions of the grid, in the order in which the cells are stored in the snapshot.
+     */
+    private static final ImmutableList<Position> POSITIONS = Position.all().collect(ImmutableList.toImmutableList());
+
+    private static final int VALUE_MASK = 0x0F;
+    private static final int GIVEN_FLAG = 1 << 4;
+    private static final int CENTER_MARKS_SHIFT = 5;
+    private static final int MARKS_MASK = 0x1FF;
+    private static final int COLOR_SHIFT = 9;
+
+    /**
+     * Value, given flag, and center marks of each cell.
+     */
+    private final short[] contents;
+    /**
+     * Corner marks and color of each cell.
+     */
+    private final short[] decorations;
+
+    private GridSnapshot(short[] contents, short[] decorations) {
+        this.contents = contents;
+        this.decorations = decorations;
+    }
+
+    /**
+     * Takes a snapshot of the current state of the given grid.
+     */
+    public static GridSnapshot of(Grid grid) {
+        requireNonNull(grid);
+        short[] contents = new short[81];
+        short[] decorations = new short[81];
+        for (int i = 0; i < 81; ++i) {
+            Cell cell = grid.cellAt(POSITIONS.get(i));
+            contents[i] = contentsOf(cell);
+            decorations[i] = decorationsOf(cell);
+        }
+        return new GridSnapshot(contents, decorations);
+    }
+
+    /**
+     * Creates a new Grid, independent of any other grid, with the cell state
+     * captured by this snapshot.
+     */
+    public Grid toGrid() {
+        List<Cell> cells = new ArrayList<>(81);
+        for (int i = 0; i < 81; ++i) {
+            cells.add(toCell(contents[i], decorations[i]));
+        }
+        return new Grid(cells);
+    }
+
+    /**
+     * Restores the given grid to the state captured by this snapshot.
+     *
+     * @throws IllegalArgumentException if the given cells in the grid do not match
+     *             the given cells in this snapshot.
+     */
+    public void restore(Grid grid) {
+        requireNonNull(grid);
+        for (int i = 0; i < 81; ++i) {
+            restoreCell(grid.cellAt(POSITIONS.get(i)), contents[i], decorations[i]);
+        }
+    }
+
+    /**
+     * Returns the position of the cell stored at the given index of a snapshot.
+     */
+    static Position positionAt(int index) {
+        return POSITIONS.get(index);
+    }
+
+    short contentsAt(int index) {
+        return contents[index];
+    }
+
+    short decorationsAt(int index) {
+        return decorations[index];
+    }
+
+    static short contentsOf(Cell cell) {
+        int bits = cell.getValue().map(Value::toInt).orElse(0);
+        if (cell.isGiven()) {
+            bits |= GIVEN_FLAG;
+        }
+        bits |= toMask(cell.getCenterMarks()) << CENTER_MARKS_SHIFT;
+        return (short) bits;
+    }
+
+    static short decorationsOf(Cell cell) {
+        int bits = toMask(cell.getCornerMarks());
+        bits |= cell.getColor().ordinal() << COLOR_SHIFT;
+        return (short) bits;
+    }
+
+    private static int toMask(PencilMarks marks) {
+        if (marks.isEmpty()) {
+            return 0;
+        }
+        int mask = 0;
+        for (Value v : Value.values()) {
+            if (marks.contains(v)) {
+                mask |= 1 << v.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    static Set<Value> fromMask(int mask) {
+        EnumSet<Value> values = EnumSet.noneOf(Value.class);
+        for (Value v : Value.values()) {
+            if ((mask & (1 << v.ordinal())) != 0) {
+                values.add(v);
+            }
+        }
+        return values;
+    }
+
+    @Nullable
+    static Value valueOf(short contents) {
+        int intValue = contents & VALUE_MASK;
+        return (intValue == 0)
+                ? null
+                : Value.of(intValue);
+    }
+
+    static boolean isGiven(short contents) {
+        return (contents & GIVEN_FLAG) != 0;
+    }
+
+    static int centerMarksOf(short contents) {
+        return (contents >> CENTER_MARKS_SHIFT) & MARKS_MASK;
+    }
+
+    static short withValue(short contents, @Nullable Value value) {
+        int intValue = (value == null) ? 0 : value.toInt();
+        return (short) ((contents & ~VALUE_MASK) | intValue);
+    }
+
+    static short withCenterMarks(short contents, int mask) {
+        return (short) ((contents & ~(MARKS_MASK << CENTER_MARKS_SHIFT)) | (mask << CENTER_MARKS_SHIFT));
+    }
+
+    private static CellColor colorOf(short decorations) {
+        return CellColor.values()[decorations >> COLOR_SHIFT];
+    }
+
+    static Cell toCell(short contents, short decorations) {
+        Value value = valueOf(contents);
+        Cell cell;
+        if (isGiven(contents)) {
+            cell = Cell.given(value);
+        } else {
+            cell = (value == null)
+                    ? Cell.empty()
+                    : Cell.unknownWithValue(value);
+            cell.getCenterMarks().setValues(fromMask(centerMarksOf(contents)));
+            cell.getCornerMarks().setValues(fromMask(decorations & MARKS_MASK));
+        }
+        cell.setColor(colorOf(decorations));
+        return cell;
+    }
+
+    static void restoreCell(Cell cell, short contents, short decorations) {
+        checkArgument(cell.isGiven() == isGiven(contents), "The snapshot does not match the given cells of the grid");
+        if (!cell.isGiven()) {
+            Value value = valueOf(contents);
+            if (value != null) {
+                cell.setValue(value);
+            } else if (cell.hasValue()) {
+                // Clearing the content of a cell that has a value only removes the value.
+                cell.clearContent();
+            }
+            cell.getCenterMarks().setValues(fromMask(centerMarksOf(contents)));
+            cell.getCornerMarks().setValues(fromMask(decorations & MARKS_MASK));
+        }
+        cell.setColor(colorOf(decorations));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(contents) + Arrays.hashCode(decorations);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof GridSnapshot) {
+            GridSnapshot that = (GridSnapshot) obj;
+            return Arrays.equals(this.contents, that.contents) && Arrays.equals(this.decorations, that.decorations);
+        }
+        return false;
+    }
+}
@@ -1,73 +1,248 @@
 package jetoze.tzudoku.model;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
 
 import com.google.common.collect.ImmutableList;
 
+import jetoze.tzudoku.constraint.Thermometers;
 import jetoze.tzudoku.hint.Hint;
 import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.hint.TechniqueScheduler;
 
 /**
  * A GridSolver tries to solve a sudoku grid by using a set of known solving techniques.
  * Current limitations:
  * <ul>
- * <li>Supports only classic sudoku puzzles;</li>
+ * <li>Supports only classic sudoku puzzles, and classic sudoku puzzles with thermometers;</li>
  * <li>The number of techniques used by the solver is currently somewhat limited, and 
  * will not be able to solve puzzles that require more advanced techniques.
  * </li>
  * </ul>
  * <p>
  * See {@link SolvingTechnique} for the techniques that are supported by this solver.
+ * <p>
+ * The solving process can be cancelled, and time boxed. If the solver is interrupted, the 
+ * {@link Result} will contain the hints that were applied up to that point.
  */
 public class GridSolver {
     
     private final Grid grid;
+    private final Thermometers thermometers;
     private final List<Hint> hints = new ArrayList<>();
     // Boolean flag that tells us if all techniques have been exhausted, meaning there
     // is no point continuing.
     private boolean allTechniquesExhausted;
+    @Nullable
+    private Duration timeLimit;
+    private BooleanSupplier cancellationToken = () -> false;
+    private ProgressListener progressListener = (steps, filledCells) -> {/**/};
+    private Consumer<? super Hint> hintConsumer = h -> {/**/};
+    private TechniqueScheduler scheduler = TechniqueScheduler.pedagogical();
+    private SolverConfig config = SolverConfig.DEFAULT;
+    /**
+     * The time spent on each technique, indexed by ordinal, for keeping track of the
+     * technique budgets.
+     */
+    private final long[] nanosSpent = new long[SolvingTechnique.values().length];
+    /**
+     * The difficulty of the hardest technique applied so far.
+     */
+    private double hardestDifficulty;
+    private long deadlineInNanos;
+    @Nullable
+    private Interruption interruption;
     
     public GridSolver(Grid grid) {
+        this(grid, Thermometers.EMPTY);
+    }
+    
+    public GridSolver(Grid grid, Thermometers thermometers) {
         this.grid = requireNonNull(grid);
+        this.thermometers = requireNonNull(thermometers);
+    }
+
+    /**
+     * Limits the time the solver is allowed to run. The solver gives up, and returns a
+     * partial result, if it has not finished within this time.
+     */
+    public GridSolver setTimeLimit(Duration timeLimit) {
+        checkArgument(!timeLimit.isNegative() && !timeLimit.isZero(), "The time limit must be positive");
+        this.timeLimit = timeLimit;
+        return this;
+    }
+    
+    /**
+     * Sets the cancellation token of this solver. The solver checks the token before
+     * each technique it tries, and stops if the token returns {@code true}. The token will
+     * be called from the thread running the solver.
+     */
+    public GridSolver setCancellationToken(BooleanSupplier cancellationToken) {
+        this.cancellationToken = requireNonNull(cancellationToken);
+        return this;
+    }
+    
+    /**
+     * Sets the listener that is notified after each step the solver takes. The listener
+     * will be called from the thread running the solver.
+     */
+    public GridSolver setProgressListener(ProgressListener progressListener) {
+        this.progressListener = requireNonNull(progressListener);
+        return this;
+    }
+
+    /**
+     * Sets the consumer to which the solver publishes each hint as soon as it has been
+     * applied, which allows the caller to act on the hints while the solver is still 
+     * running. The consumer will be called from the thread running the solver.
+     */
+    public GridSolver setHintConsumer(Consumer<? super Hint> hintConsumer) {
+        this.hintConsumer = requireNonNull(hintConsumer);
+        return this;
+    }
+
+    /**
+     * Sets the scheduler that decides in which order the techniques are tried. The default
+     * is a {@link TechniqueScheduler#pedagogical() pedagogical} scheduler.
+     */
+    public GridSolver setScheduler(TechniqueScheduler scheduler) {
+        this.scheduler = requireNonNull(scheduler);
+        return this;
+    }
+
+    /**
+     * Sets the configuration of this solver, i.e. which techniques it may use and how much
+     * time it may spend on them. If the config has a deadline it replaces any time limit
+     * set previously.
+     */
+    public GridSolver setConfig(SolverConfig config) {
+        this.config = requireNonNull(config);
+        config.getDeadline().ifPresent(this::setTimeLimit);
+        return this;
     }
 
     public Result solve() {
         long startTimeInNanos = System.nanoTime();
+        deadlineInNanos = (timeLimit != null)
+                ? startTimeInNanos + timeLimit.toNanos()
+                : Long.MAX_VALUE;
+        interruption = null;
+        hardestDifficulty = 0.0;
+        Arrays.fill(nanosSpent, 0L);
         grid.showRemainingCandidates();
         allTechniquesExhausted = false;
-        while (!grid.isSolved() && !allTechniquesExhausted) {
+        while (!grid.isSolved() && !allTechniquesExhausted && !checkForInterruption()) {
             applyTechniques().ifPresentOrElse(
                     this::applyHint, 
-                    () -> allTechniquesExhausted = true);
+                    () -> allTechniquesExhausted = (interruption == null));
         }
         Duration duration = Duration.ofNanos(System.nanoTime() - startTimeInNanos);
-        return new Result(grid, hints, duration);
+        return new Result(grid, hints, duration, interruption);
     }
     
     /**
-     * Goes through the techniques in order, until it finds a technique that could
-     * be applied successfully.
+     * Checks if the solver has been cancelled, or has run out of time.
+     */
+    private boolean checkForInterruption() {
+        if (interruption == null) {
+            if (cancellationToken.getAsBoolean()) {
+                interruption = Interruption.CANCELLED;
+            } else if (System.nanoTime() - deadlineInNanos > 0) {
+                interruption = Interruption.TIMED_OUT;
+            }
+        }
+        return interruption != null;
+    }
+    
+    /**
+     * Goes through the techniques in the order given by the scheduler, until it finds a 
+     * technique that could be applied successfully.
      * 
      * @return an Optional containing a Hint that can be applied to the Grid, or an
      *         empty Optional if we exhausted the available techniques without
-     *         finding a Hint.
+     *         finding a Hint, or if the solver was interrupted.
      */
     private Optional<? extends Hint> applyTechniques() {
-        return Stream.of(SolvingTechnique.values())
-                .map(t -> t.analyze(grid))
-                .flatMap(Optional::stream)
-                .findFirst();
+        for (SolvingTechnique technique : scheduler.getOrder(hardestDifficulty)) {
+            if (checkForInterruption()) {
+                break;
+            }
+            if (!isAvailable(technique)) {
+                continue;
+            }
+            long startTimeInNanos = System.nanoTime();
+            Optional<? extends Hint> hint = technique.analyze(grid, thermometers);
+            long duration = System.nanoTime() - startTimeInNanos;
+            nanosSpent[technique.ordinal()] += duration;
+            scheduler.record(technique, duration, hint.isPresent());
+            if (hint.isPresent()) {
+                return hint;
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Checks if the technique is enabled, and has not used up its time budget.
+     */
+    private boolean isAvailable(SolvingTechnique technique) {
+        return config.isEnabled(technique) && config.getBudget(technique)
+                .map(b -> nanosSpent[technique.ordinal()] < b.toNanos())
+                .orElse(true);
     }
     
     private void applyHint(Hint hint) {
         hint.apply();
         hints.add(hint);
+        hardestDifficulty = Math.max(hardestDifficulty, hint.getTechnique().getDifficulty());
+        hintConsumer.accept(hint);
+        int filledCells = (int) grid.getCells().values().stream()
+                .filter(Cell::hasValue)
+                .count();
+        progressListener.onProgress(hints.size(), filledCells);
+    }
+    
+    
+    /**
+     * Listener that is notified of the progress of the solver.
+     */
+    @FunctionalInterface
+    public static interface ProgressListener {
+        
+        /**
+         * Called after each step the solver takes.
+         * 
+         * @param steps
+         *            the number of steps (i.e. hints) applied so far
+         * @param filledCells
+         *            the number of cells in the grid that have a value
+         */
+        void onProgress(int steps, int filledCells);
+    }
+    
+    
+    /**
+     * The reason the solver stopped before it was done.
+     */
+    public static enum Interruption {
+        /**
+         * The solver was cancelled via its cancellation token.
+         */
+        CANCELLED,
+        /**
+         * The solver ran out of time.
+         */
+        TIMED_OUT
     }
     
     
@@ -82,11 +257,18 @@ public class GridSolver {
          */
         private final ImmutableList<Hint> hintsApplied;
         private final Duration duration;
+        @Nullable
+        private final Interruption interruption;
         
         public Result(Grid grid, List<Hint> hintsApplied, Duration duration) {
+            this(grid, hintsApplied, duration, null);
+        }
+        
+        public Result(Grid grid, List<Hint> hintsApplied, Duration duration, @Nullable Interruption interruption) {
             this.grid = grid;
             this.hintsApplied = ImmutableList.copyOf(hintsApplied);
             this.duration = requireNonNull(duration);
+            this.interruption = interruption;
         }
         
         /**
@@ -103,6 +285,21 @@ public class GridSolver {
             return grid.isSolved();
         }
         
+        /**
+         * Checks if the solver was interrupted, i.e. cancelled or timed out, before it
+         * was done. In that case this result is partial.
+         */
+        public boolean isInterrupted() {
+            return interruption != null;
+        }
+        
+        /**
+         * Returns the reason the solver was interrupted, if it was.
+         */
+        public Optional<Interruption> getInterruption() {
+            return Optional.ofNullable(interruption);
+        }
+        
         /**
          * Returns the Hints that were applied, in order. 
          */
@@ -0,0 +1,240 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * An immutable grid, intended for search-based solving, where modifying a cell
+ * creates a new grid that shares most of its structure with the original.
+ * <p>
+ * The cell contents (value, given flag and candidates) are stored in nine row chunks,
+ * packed the same way as in a {@link GridSnapshot}. Modifying a cell copies only the
+ * chunk of the affected row, so creating a branch in a search costs a handful of array
+ * writes rather than a deep copy of the grid. The corner marks and colors are never
+ * modified by a search, and are shared by all the grids derived from the same original.
+ * <p>
+ * The solving techniques work on mutable {@link Grid}s. {@link #toGrid()} converts a
+ * persistent grid into a new Grid, which is a full copy. A search that visits many grids
+ * should use a {@link PersistentGridAdapter} instead, which keeps a single Grid in sync
+ * with the persistent grids by rewriting only the rows that differ.
+ */
+public final class PersistentGrid {
+
+    private final short[][] rows;
+    /**
+     * The corner marks and colors of the cells, in the same format as GridSnapshot.
+     */
+    private final short[] decorations;
+    /**
+     * The Zobrist hash of this grid, updated incrementally as cells are modified.
+     */
+    private final long zobristHash;
+
+    private PersistentGrid(short[][] rows, short[] decorations, long zobristHash) {
+        this.rows = rows;
+        this.decorations = decorations;
+        this.zobristHash = zobristHash;
+    }
+
+    /**
+     * Creates a PersistentGrid with the current state of the given grid.
+     */
+    public static PersistentGrid of(Grid grid) {
+        requireNonNull(grid);
+        short[][] rows = new short[9][9];
+        short[] decorations = new short[81];
+        long zobristHash = 0L;
+        for (int r = 0; r < 9; ++r) {
+            for (int c = 0; c < 9; ++c) {
+                Cell cell = grid.cellAt(new Position(r + 1, c + 1));
+                rows[r][c] = GridSnapshot.contentsOf(cell);
+                decorations[9 * r + c] = GridSnapshot.decorationsOf(cell);
+                zobristHash ^= ZobristHash.ofCell(9 * r + c, rows[r][c]);
+            }
+        }
+        return new PersistentGrid(rows, decorations, zobristHash);
+    }
+
+    private short contentsAt(Position p) {
+        return rows[p.getRow() - 1][p.getColumn() - 1];
+    }
+
+    public Optional<Value> getValue(Position p) {
+        return Optional.ofNullable(GridSnapshot.valueOf(contentsAt(p)));
+    }
+
+    public boolean hasValue(Position p) {
+        return GridSnapshot.valueOf(contentsAt(p)) != null;
+    }
+
+    public boolean isGiven(Position p) {
+        return GridSnapshot.isGiven(contentsAt(p));
+    }
+
+    /**
+     * Returns the candidates, i.e. the center pencil marks, of the cell at the
+     * given position.
+     */
+    public ImmutableSet<Value> getCandidates(Position p) {
+        return Sets.immutableEnumSet(GridSnapshot.fromMask(GridSnapshot.centerMarksOf(contentsAt(p))));
+    }
+
+    /**
+     * Checks if all the cells in this grid have a value. Note that this does not
+     * check if the values are valid.
+     */
+    public boolean isFilled() {
+        for (short[] row : rows) {
+            for (short contents : row) {
+                if (GridSnapshot.valueOf(contents) == null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a grid where the cell at the given position has the given value.
+     *
+     * @throws IllegalArgumentException if the cell at the given position is a given cell.
+     */
+    public PersistentGrid withValue(Position p, Value value) {
+        requireNonNull(value);
+        checkArgument(!isGiven(p), "Cannot change the value of a given cell: %s", p);
+        return with(p, GridSnapshot.withValue(contentsAt(p), value));
+    }
+
+    /**
+     * Returns a grid where the cell at the given position has no value.
+     *
+     * @throws IllegalArgumentException if the cell at the given position is a given cell.
+     */
+    public PersistentGrid withoutValue(Position p) {
+        checkArgument(!isGiven(p), "Cannot change the value of a given cell: %s", p);
+        return with(p, GridSnapshot.withValue(contentsAt(p), null));
+    }
+
+    /**
+     * Returns a grid where the cell at the given position has the given candidates.
+     *
+     * @throws IllegalArgumentException if the cell at the given position is a given cell.
+     */
+    public PersistentGrid withCandidates(Position p, Set<Value> candidates) {
+        requireNonNull(candidates);
+        checkArgument(!isGiven(p), "Cannot set candidates in a given cell: %s", p);
+        int mask = 0;
+        for (Value v : candidates) {
+            mask |= 1 << v.ordinal();
+        }
+        return with(p, GridSnapshot.withCenterMarks(contentsAt(p), mask));
+    }
+
+    /**
+     * Returns a grid where the given value has been removed as a candidate from the
+     * cell at the given position. Returns this grid if the value was not a candidate.
+     */
+    public PersistentGrid withoutCandidate(Position p, Value value) {
+        requireNonNull(value);
+        short contents = contentsAt(p);
+        int mask = GridSnapshot.centerMarksOf(contents);
+        int newMask = mask & ~(1 << value.ordinal());
+        return (newMask == mask)
+                ? this
+                : with(p, GridSnapshot.withCenterMarks(contents, newMask));
+    }
+
+    private PersistentGrid with(Position p, short contents) {
+        int r = p.getRow() - 1;
+        int c = p.getColumn() - 1;
+        if (rows[r][c] == contents) {
+            return this;
+        }
+        short[][] newRows = rows.clone();
+        newRows[r] = rows[r].clone();
+        newRows[r][c] = contents;
+        long newHash = ZobristHash.update(zobristHash, 9 * r + c, rows[r][c], contents);
+        return new PersistentGrid(newRows, decorations, newHash);
+    }
+
+    /**
+     * Returns the Zobrist hash of the values and candidates of this grid. This is 
+     * maintained incrementally, so calling this method is cheap.
+     * 
+     * @see ZobristHash
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    /**
+     * Writes the cells of this grid into the given Grid, which must hold the state of the
+     * given previous grid. Rows that this grid shares with the previous grid are skipped,
+     * and so are the cells that are the same in both grids.
+     */
+    void writeChanges(PersistentGrid previous, Grid target) {
+        for (int r = 0; r < 9; ++r) {
+            if (rows[r] == previous.rows[r]) {
+                continue;
+            }
+            for (int c = 0; c < 9; ++c) {
+                if (rows[r][c] != previous.rows[r][c]) {
+                    Cell cell = target.cellAt(new Position(r + 1, c + 1));
+                    GridSnapshot.restoreCell(cell, rows[r][c], decorations[9 * r + c]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a grid with the values and candidates of the given Grid, sharing the rows
+     * that have not changed with this grid. The corner marks and colors of the Grid are
+     * ignored.
+     */
+    PersistentGrid withChangesFrom(Grid source) {
+        short[][] newRows = null;
+        long newHash = zobristHash;
+        for (int r = 0; r < 9; ++r) {
+            for (int c = 0; c < 9; ++c) {
+                short contents = GridSnapshot.contentsOf(source.cellAt(new Position(r + 1, c + 1)));
+                if (contents == rows[r][c]) {
+                    continue;
+                }
+                if (newRows == null) {
+                    newRows = rows.clone();
+                }
+                if (newRows[r] == rows[r]) {
+                    newRows[r] = rows[r].clone();
+                }
+                newRows[r][c] = contents;
+                newHash = ZobristHash.update(newHash, 9 * r + c, rows[r][c], contents);
+            }
+        }
+        return (newRows == null)
+                ? this
+                : new PersistentGrid(newRows, decorations, newHash);
+    }
+
+    /**
+     * Creates a new, mutable, Grid with the same cell state as this grid. This is a full
+     * copy of the grid, see {@link PersistentGridAdapter} for running the solving techniques
+     * on many related grids.
+     */
+    public Grid toGrid() {
+        List<Cell> cells = new ArrayList<>(81);
+        for (int r = 0; r < 9; ++r) {
+            for (int c = 0; c < 9; ++c) {
+                cells.add(GridSnapshot.toCell(rows[r][c], decorations[9 * r + c]));
+            }
+        }
+        return new Grid(cells);
+    }
+}
@@ -0,0 +1,55 @@
+package jetoze.tzudoku.model;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lets the existing solving techniques, which work on a mutable {@link Grid}, run on
+ * {@link PersistentGrid}s.
+ * <p>
+ * The adapter owns a single Grid, which holds the state of the persistent grid that was
+ * loaded last. Loading another persistent grid only rewrites the rows that are not shared
+ * between the two grids, which for neighboring grids in a search tree is a row or two,
+ * rather than building a new Grid of 81 cells. Changes made to the Grid, for example by
+ * applying hints, are turned back into a persistent grid with {@link #capture()}, which
+ * copies only the rows that changed.
+ * <p>
+ * Changes made to the Grid must be captured before another persistent grid is loaded,
+ * since the adapter assumes that the Grid holds the state of the last loaded or captured
+ * grid. An adapter is not thread-safe.
+ */
+public final class PersistentGridAdapter {
+
+    private final Grid grid;
+    private PersistentGrid current;
+
+    public PersistentGridAdapter(PersistentGrid initial) {
+        this.current = requireNonNull(initial);
+        this.grid = initial.toGrid();
+    }
+
+    /**
+     * Returns the Grid that holds the state of the current persistent grid.
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Updates the Grid of this adapter to hold the state of the given persistent grid.
+     */
+    public void load(PersistentGrid persistentGrid) {
+        requireNonNull(persistentGrid);
+        if (persistentGrid != current) {
+            persistentGrid.writeChanges(current, grid);
+            current = persistentGrid;
+        }
+    }
+
+    /**
+     * Returns a persistent grid with the current state of the Grid of this adapter.
+     */
+    public PersistentGrid capture() {
+        current = current.withChangesFrom(grid);
+        return current;
+    }
+}
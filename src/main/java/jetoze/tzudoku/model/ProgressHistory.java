@@ -0,0 +1,378 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The history of the saved progress of a single puzzle, stored in a single file.
+ * <p>
+ * Each save is appended to the file as a delta against the previous save, holding only the
+ * cells that have changed, with a full snapshot of the puzzle every so often. Restoring a
+ * save means reading the nearest snapshot at or before it, and applying the deltas that
+ * follow it, so the cost of restoring any save is bounded by the snapshot interval rather
+ * than by the length of the history.
+ * <p>
+ * Each record in the file starts with a 13 byte header: the kind of record (0 for a
+ * snapshot, 1 for a delta), the time of the save as a 64-bit count of epoch seconds, and
+ * the size of the payload as a 32-bit int. The payload of a snapshot is the puzzle in the
+ * {@link PuzzleBinaryCodec binary format}. The payload of a delta is the number of changed
+ * cells, as one byte, followed by the index (0-80, in row-major order) and the new state
+ * of each changed cell, as one byte and a 32-bit int respectively.
+ * <p>
+ * The constraints of a puzzle do not change while it is being solved, so the deltas only
+ * record the cells. A record that was cut short, for example because the application
+ * crashed while writing it, is ignored, and overwritten by the next save.
+ */
+public final class ProgressHistory {
+
+    /**
+     * The file extension of progress history files.
+     */
+    public static final String FILE_EXTENSION = ".tzh";
+
+    /**
+     * The default number of saves between two full snapshots.
+     */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 16;
+
+    private static final byte SNAPSHOT = 0;
+    private static final byte DELTA = 1;
+    private static final int HEADER_SIZE = 13;
+    private static final int NUMBER_OF_CELLS = 81;
+    private static final int DELTA_CELL_SIZE = 5;
+
+    // The bit layout of the state of a cell in a delta.
+    private static final int GIVEN = 0x10;
+    private static final int CORNER_MARKS_SHIFT = 5;
+    private static final int CENTER_MARKS_SHIFT = 14;
+    private static final int COLOR_SHIFT = 23;
+    private static final int MASK_BITS = 0x1FF;
+    private static final CellColor[] COLORS = CellColor.values();
+
+    private final Path file;
+    private final int snapshotInterval;
+    private final List<Entry> entries = new ArrayList<>();
+    /**
+     * The size of the file, not counting any damaged record at the end.
+     */
+    private long validSize;
+    /**
+     * The state of the cells of the last save, or {@code null} if it has not been
+     * restored yet.
+     */
+    @Nullable
+    private int[] lastState;
+
+    private ProgressHistory(Path file, int snapshotInterval) {
+        this.file = requireNonNull(file);
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Opens the history stored in the given file, with the default snapshot interval. The
+     * file does not have to exist.
+     */
+    public static ProgressHistory open(Path file) throws IOException {
+        return open(file, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Opens the history stored in the given file, writing a full snapshot every
+     * {@code snapshotInterval} saves. The file does not have to exist.
+     */
+    public static ProgressHistory open(Path file, int snapshotInterval) throws IOException {
+        checkArgument(snapshotInterval > 0, "snapshotInterval must be > 0 (was %s)", snapshotInterval);
+        ProgressHistory history = new ProgressHistory(file, snapshotInterval);
+        if (Files.exists(file)) {
+            history.readEntries();
+        }
+        return history;
+    }
+
+    private void readEntries() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            long offset = 0L;
+            while (offset + HEADER_SIZE <= fileSize) {
+                header.clear();
+                readFully(channel, header, offset);
+                byte kind = header.get(0);
+                long epochSecond = header.getLong(1);
+                int payloadSize = header.getInt(9);
+                long end = offset + HEADER_SIZE + payloadSize;
+                boolean valid = (kind == SNAPSHOT || (kind == DELTA && !entries.isEmpty()))
+                        && payloadSize >= 0
+                        && end <= fileSize;
+                if (!valid) {
+                    break;
+                }
+                entries.add(new Entry(entries.size(), epochSecond, kind == SNAPSHOT, offset));
+                offset = end;
+            }
+            validSize = offset;
+        }
+    }
+
+    /**
+     * Returns the saves in this history, oldest first.
+     */
+    public synchronized ImmutableList<Entry> getEntries() {
+        return ImmutableList.copyOf(entries);
+    }
+
+    /**
+     * Returns the number of saves in this history.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Appends a save of the given puzzle to this history.
+     */
+    public synchronized void append(Puzzle puzzle, ZonedDateTime savedAt) throws IOException {
+        requireNonNull(puzzle);
+        int[] state = encode(puzzle.getGrid());
+        int[] previousState = getLastState();
+        boolean snapshot = (previousState == null) || isSnapshotDue();
+        ByteBuffer payload = snapshot
+                ? ByteBuffer.wrap(PuzzleBinaryCodec.toBytes(puzzle))
+                : delta(previousState, state);
+        long epochSecond = savedAt.toEpochSecond();
+        int payloadSize = payload.remaining();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .put(snapshot ? SNAPSHOT : DELTA)
+                .putLong(epochSecond)
+                .putInt(payloadSize)
+                .flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Get rid of any damaged record at the end of the file.
+            channel.truncate(validSize);
+            channel.position(validSize);
+            writeFully(channel, header);
+            writeFully(channel, payload);
+        }
+        entries.add(new Entry(entries.size(), epochSecond, snapshot, validSize));
+        validSize += HEADER_SIZE + payloadSize;
+        lastState = state;
+    }
+
+    @Nullable
+    private int[] getLastState() throws IOException {
+        if (lastState == null && !entries.isEmpty()) {
+            // Only the cells are needed, so the name does not matter.
+            lastState = restoreState(entries.size() - 1, "Progress").state;
+        }
+        return lastState;
+    }
+
+    private boolean isSnapshotDue() {
+        int savesSinceSnapshot = 0;
+        for (int n = entries.size() - 1; n >= 0 && !entries.get(n).isSnapshot(); --n) {
+            ++savesSinceSnapshot;
+        }
+        return savesSinceSnapshot + 1 >= snapshotInterval;
+    }
+
+    private static ByteBuffer delta(int[] previousState, int[] state) {
+        int changes = 0;
+        for (int i = 0; i < NUMBER_OF_CELLS; ++i) {
+            if (state[i] != previousState[i]) {
+                ++changes;
+            }
+        }
+        ByteBuffer delta = ByteBuffer.allocate(1 + changes * DELTA_CELL_SIZE);
+        delta.put((byte) changes);
+        for (int i = 0; i < NUMBER_OF_CELLS; ++i) {
+            if (state[i] != previousState[i]) {
+                delta.put((byte) i).putInt(state[i]);
+            }
+        }
+        return delta.flip();
+    }
+
+    /**
+     * Restores the puzzle as it was at the given save.
+     *
+     * @param index
+     *            the index of the save, counting from 0 for the oldest save
+     * @param name
+     *            the name to give the restored puzzle
+     */
+    public synchronized Puzzle restore(int index, String name) throws IOException {
+        checkElementIndex(index, entries.size());
+        requireNonNull(name);
+        RestoredState restored = restoreState(index, name);
+        Cell[] cells = new Cell[NUMBER_OF_CELLS];
+        for (int i = 0; i < NUMBER_OF_CELLS; ++i) {
+            cells[i] = decode(restored.state[i]);
+        }
+        Puzzle constraints = restored.snapshot;
+        return new Puzzle(constraints.getName(),
+                new Grid(List.of(cells)),
+                constraints.getSandwiches(),
+                constraints.getKillerCages(),
+                constraints.getChessConstraints(),
+                constraints.getThermometers());
+    }
+
+    private RestoredState restoreState(int index, String name) throws IOException {
+        int snapshotIndex = index;
+        while (!entries.get(snapshotIndex).isSnapshot()) {
+            --snapshotIndex;
+        }
+        long start = entries.get(snapshotIndex).offset;
+        long end = (index + 1 < entries.size())
+                ? entries.get(index + 1).offset
+                : validSize;
+        ByteBuffer records = ByteBuffer.allocate(Math.toIntExact(end - start));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readFully(channel, records, start);
+        }
+        records.flip();
+        try {
+            records.position(HEADER_SIZE);
+            Puzzle snapshot = PuzzleBinaryCodec.read(records, name);
+            int[] state = encode(snapshot.getGrid());
+            while (records.hasRemaining()) {
+                records.position(records.position() + HEADER_SIZE);
+                int changes = Byte.toUnsignedInt(records.get());
+                for (int n = 0; n < changes; ++n) {
+                    int i = Byte.toUnsignedInt(records.get());
+                    checkArgument(i < NUMBER_OF_CELLS, "Invalid cell index: %s", i);
+                    state[i] = records.getInt();
+                }
+            }
+            return new RestoredState(snapshot, state);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt progress history: " + file, e);
+        }
+    }
+
+    private static int[] encode(Grid grid) {
+        Cell[] cells = PuzzleBinaryCodec.cellsOf(grid);
+        int[] state = new int[NUMBER_OF_CELLS];
+        for (int i = 0; i < NUMBER_OF_CELLS; ++i) {
+            Cell cell = cells[i];
+            int s = cell.getValue().map(Value::toInt).orElse(0);
+            if (cell.isGiven()) {
+                s |= GIVEN;
+            }
+            s |= PuzzleBinaryCodec.toMask(cell.getCornerMarks()) << CORNER_MARKS_SHIFT;
+            s |= PuzzleBinaryCodec.toMask(cell.getCenterMarks()) << CENTER_MARKS_SHIFT;
+            s |= cell.getColor().ordinal() << COLOR_SHIFT;
+            state[i] = s;
+        }
+        return state;
+    }
+
+    private static Cell decode(int state) {
+        int value = state & 0x0F;
+        checkArgument(value <= 9, "Invalid value: %s", value);
+        Cell cell;
+        if (value == 0) {
+            cell = Cell.empty();
+        } else if ((state & GIVEN) != 0) {
+            cell = Cell.given(Value.of(value));
+        } else {
+            cell = Cell.unknownWithValue(Value.of(value));
+        }
+        if (!cell.isGiven()) {
+            PuzzleBinaryCodec.applyMask(cell.getCornerMarks(), (state >>> CORNER_MARKS_SHIFT) & MASK_BITS);
+            PuzzleBinaryCodec.applyMask(cell.getCenterMarks(), (state >>> CENTER_MARKS_SHIFT) & MASK_BITS);
+        }
+        int color = state >>> COLOR_SHIFT;
+        checkArgument(color < COLORS.length, "Invalid color: %s", color);
+        cell.setColor(COLORS[color]);
+        return cell;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+
+    /**
+     * A single save in a progress history.
+     */
+    public static final class Entry {
+        private final int index;
+        private final long epochSecond;
+        private final boolean snapshot;
+        /**
+         * The position of the record in the history file.
+         */
+        private final long offset;
+
+        private Entry(int index, long epochSecond, boolean snapshot, long offset) {
+            this.index = index;
+            this.epochSecond = epochSecond;
+            this.snapshot = snapshot;
+            this.offset = offset;
+        }
+
+        /**
+         * Returns the index of this save, counting from 0 for the oldest save.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public ZonedDateTime getSavedAt() {
+            return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.of("UTC"));
+        }
+
+        /**
+         * Checks if this save is stored as a full snapshot, rather than as a delta against
+         * the previous save.
+         */
+        public boolean isSnapshot() {
+            return snapshot;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s%s", index, getSavedAt(), snapshot ? " (snapshot)" : "");
+        }
+    }
+
+
+    private static class RestoredState {
+        public final Puzzle snapshot;
+        public final int[] state;
+
+        public RestoredState(Puzzle snapshot, int[] state) {
+            this.snapshot = snapshot;
+            this.state = state;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.google.common.base.CharMatcher;
 import com.google.common.collect.ImmutableSet;
@@ -11,6 +13,7 @@ import com.google.common.collect.ImmutableSet;
 import jetoze.tzudoku.constraint.ChessConstraint;
 import jetoze.tzudoku.constraint.KillerCages;
 import jetoze.tzudoku.constraint.Sandwiches;
+import jetoze.tzudoku.constraint.Thermometers;
 
 public class Puzzle {
     
@@ -18,6 +21,12 @@ public class Puzzle {
         .or(CharMatcher.inRange('A', 'Z'))
         .or(CharMatcher.inRange('0', '9'))
         .or(CharMatcher.anyOf(" _-()."));
+    /**
+     * The form of the names of the puzzles in a puzzle bank, e.g. "top95 #12". The '#' is
+     * not a valid character in any other name, so a puzzle from a bank can never collide with
+     * a puzzle that was built, imported or generated, whatever name it was given.
+     */
+    private static final Pattern BANK_PUZZLE_NAME = Pattern.compile("(.+) #[0-9]+");
 
     public static final Puzzle EMPTY = new Puzzle("(Empty)", Grid.emptyGrid());
     
@@ -27,26 +36,56 @@ public class Puzzle {
     private final KillerCages killerCages;
     // TODO: Some indication in the UI if the puzzle is using chess constraints.
     private final ImmutableSet<ChessConstraint> chessConstraints;
-    // TODO: Thermos, when we have them.
+    private final Thermometers thermometers;
     
     public Puzzle(String name, Grid grid) {
         this(name, grid, Sandwiches.EMPTY, KillerCages.EMPTY, ImmutableSet.of());
     }
     
     public Puzzle(String name, Grid grid, Sandwiches sandwiches, KillerCages killerCages, Set<ChessConstraint> chessConstraints) {
+        this(name, grid, sandwiches, killerCages, chessConstraints, Thermometers.EMPTY);
+    }
+    
+    public Puzzle(String name, 
+                  Grid grid, 
+                  Sandwiches sandwiches, 
+                  KillerCages killerCages, 
+                  Set<ChessConstraint> chessConstraints, 
+                  Thermometers thermometers) {
         this.name = validateName(name);
         this.grid = requireNonNull(grid);
         this.sandwiches = requireNonNull(sandwiches);
         this.killerCages = requireNonNull(killerCages);
         this.chessConstraints = ImmutableSet.copyOf(chessConstraints);
+        this.thermometers = requireNonNull(thermometers);
     }
     
     private static String validateName(String name) {
         checkArgument(!name.isBlank(), "Name cannot be blank");
+        Matcher bankPuzzleName = BANK_PUZZLE_NAME.matcher(name);
+        String nameToCheck = bankPuzzleName.matches()
+                ? bankPuzzleName.group(1)
+                : name;
         // TODO: Error message should say what characters are valid
-        checkArgument(NAME_CHAR_MATCHER.matchesAllOf(name), "Invalid puzzle name character: %s", name);
+        checkArgument(NAME_CHAR_MATCHER.matchesAllOf(nameToCheck), "Invalid puzzle name character: %s", name);
         return name;
     }
+    
+    /**
+     * Checks if the given name can be given to a new puzzle by the user. This is any name
+     * of valid characters, except the names reserved for the puzzles in a puzzle bank.
+     */
+    public static boolean isValidName(String name) {
+        return !name.isBlank() && NAME_CHAR_MATCHER.matchesAllOf(name);
+    }
+    
+    /**
+     * Returns the name of the puzzle with the given number in the puzzle bank with the
+     * given name.
+     */
+    static String bankPuzzleName(String bankName, int number) {
+        return String.format("%s #%d", bankName, number);
+    }
 
     public String getName() {
         return name;
@@ -67,13 +106,25 @@ public class Puzzle {
     public ImmutableSet<ChessConstraint> getChessConstraints() {
         return chessConstraints;
     }
+    
+    public Thermometers getThermometers() {
+        return thermometers;
+    }
 
     public boolean isSolved() {
         return grid.isSolved();
     }
     
+    /**
+     * Checks if this is a classic sudoku, i.e. a puzzle without any constraints
+     * in addition to the given digits.
+     */
+    public boolean isClassic() {
+        return sandwiches.isEmpty() && killerCages.isEmpty() && chessConstraints.isEmpty() && thermometers.isEmpty();
+    }
+    
     public boolean isEmpty() {
-        // TODO: Thermos, when we have them.
-        return grid.isEmpty() && sandwiches.isEmpty() && killerCages.isEmpty() && chessConstraints.isEmpty();
+        return grid.isEmpty() && sandwiches.isEmpty() && killerCages.isEmpty() && chessConstraints.isEmpty() &&
+                thermometers.isEmpty();
     }
 }
@@ -0,0 +1,259 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A read-only bank of classic puzzles, stored in a single file of fixed size records. The
+ * file is memory mapped, which gives constant time random access to any puzzle in the bank,
+ * regardless of its size, and lets the operating system decide how much of the file to keep
+ * in memory.
+ * <p>
+ * The file starts with a 16 byte header: the magic bytes "TZPB", followed by the version of
+ * the format, the size of each record and the number of records, as 32-bit ints. Each record
+ * holds the given digits of one puzzle, packed as one 4-bit value per cell in row-major order,
+ * high nibble first, with 0 for an empty cell.
+ * <p>
+ * The grids are decoded directly from the mapped file, without copying the records first.
+ * A PuzzleBank is immutable and can be read from any number of threads concurrently; the
+ * {@link #grids() stream of grids} splits evenly for parallel processing.
+ */
+public final class PuzzleBank {
+
+    /**
+     * The file extension of puzzle bank files.
+     */
+    public static final String FILE_EXTENSION = ".tzpb";
+
+    private static final int MAGIC = 0x545A5042; // "TZPB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 41;
+
+    private final String name;
+    private final ByteBuffer records;
+    private final int size;
+
+    private PuzzleBank(String name, ByteBuffer records, int size) {
+        this.name = name;
+        this.records = records;
+        this.size = size;
+    }
+
+    /**
+     * Opens an existing puzzle bank.
+     */
+    public static PuzzleBank open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not a puzzle bank: " + file);
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("The puzzle bank is too large: " + file);
+            }
+            // The mapping stays valid after the channel has been closed.
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, fileSize);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a puzzle bank: " + file);
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported puzzle bank version: " + version);
+            }
+            int recordSize = buffer.getInt(8);
+            int size = buffer.getInt(12);
+            if (recordSize != RECORD_SIZE || size < 0 || HEADER_SIZE + (long) size * RECORD_SIZE > fileSize) {
+                throw new IOException("Corrupt puzzle bank: " + file);
+            }
+            ByteBuffer records = buffer.position(HEADER_SIZE).slice().asReadOnlyBuffer();
+            return new PuzzleBank(bankName(file), records, size);
+        }
+    }
+
+    /**
+     * Writes the given grids to a new puzzle bank file, replacing the file if it already
+     * exists. Only the values of the given cells are stored.
+     *
+     * @return the number of puzzles written
+     */
+    public static int write(Path file, Iterable<Grid> grids) throws IOException {
+        requireNonNull(grids);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+            int count = 0;
+            for (Grid grid : grids) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    writeFully(channel, buffer.flip());
+                    buffer.clear();
+                }
+                encode(grid, buffer);
+                ++count;
+            }
+            writeFully(channel, buffer.flip());
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(RECORD_SIZE)
+                    .putInt(count)
+                    .flip();
+            channel.position(0L);
+            writeFully(channel, header);
+            return count;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void encode(Grid grid, ByteBuffer buffer) {
+        int packed = 0;
+        int index = 0;
+        for (int r = 1; r <= 9; ++r) {
+            for (int c = 1; c <= 9; ++c) {
+                Cell cell = grid.cellAt(new Position(r, c));
+                int value = cell.isGiven()
+                        ? cell.getValue().map(Value::toInt).orElse(0)
+                        : 0;
+                if (index % 2 == 0) {
+                    packed = value << 4;
+                } else {
+                    buffer.put((byte) (packed | value));
+                }
+                ++index;
+            }
+        }
+        // 81 is odd, so the last value is still pending.
+        buffer.put((byte) packed);
+    }
+
+    private static String bankName(Path file) {
+        String fileName = file.getFileName().toString();
+        String name = fileName.endsWith(FILE_EXTENSION)
+                ? fileName.substring(0, fileName.length() - FILE_EXTENSION.length())
+                : fileName;
+        // Keep the name usable as part of a puzzle name.
+        return name.replaceAll("[^a-zA-Z0-9 _\\-.]", "_");
+    }
+
+    /**
+     * Returns the name of this bank, which is derived from the name of its file.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of puzzles in this bank.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the grid of the puzzle at the given index, counting from 0.
+     */
+    public Grid getGrid(int index) {
+        checkElementIndex(index, size);
+        int offset = index * RECORD_SIZE;
+        List<Cell> cells = new ArrayList<>(81);
+        for (int i = 0; i < 81; ++i) {
+            // Absolute gets do not touch the position of the buffer, which is what makes
+            // it safe to decode grids from several threads at once.
+            int b = records.get(offset + i / 2);
+            int value = (i % 2 == 0)
+                    ? (b >> 4) & 0x0F
+                    : b & 0x0F;
+            cells.add(value == 0
+                    ? Cell.empty()
+                    : Cell.given(Value.of(value)));
+        }
+        return new Grid(cells);
+    }
+
+    /**
+     * Returns the puzzle at the given index, counting from 0. The puzzle is named after
+     * the bank and its position in the bank, counting from 1, e.g. "top95 #12". A puzzle
+     * from a bank is added to the inventory the first time its progress is saved, and the
+     * '#' keeps its name, and therefore its id, apart from those of all other puzzles.
+     */
+    public Puzzle getPuzzle(int index) {
+        Grid grid = getGrid(index);
+        return new Puzzle(Puzzle.bankPuzzleName(name, index + 1), grid);
+    }
+
+    /**
+     * Returns a stream of all the grids in this bank, in order. The stream can be turned
+     * into a parallel stream, in which case the bank is split evenly between the threads.
+     */
+    public Stream<Grid> grids() {
+        return StreamSupport.stream(new GridSpliterator(0, size), false);
+    }
+
+
+    private class GridSpliterator implements Spliterator<Grid> {
+        private int index;
+        private final int fence;
+
+        public GridSpliterator(int origin, int fence) {
+            checkArgument(origin <= fence);
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Grid> action) {
+            if (index < fence) {
+                action.accept(getGrid(index++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Grid> action) {
+            while (index < fence) {
+                action.accept(getGrid(index++));
+            }
+        }
+
+        @Override
+        public Spliterator<Grid> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            GridSpliterator prefix = new GridSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
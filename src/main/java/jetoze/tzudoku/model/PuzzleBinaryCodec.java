@@ -0,0 +1,371 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.constraint.ChessConstraint;
+import jetoze.tzudoku.constraint.KillerCage;
+import jetoze.tzudoku.constraint.KillerCages;
+import jetoze.tzudoku.constraint.Sandwich;
+import jetoze.tzudoku.constraint.Sandwiches;
+import jetoze.tzudoku.constraint.Thermometer;
+import jetoze.tzudoku.constraint.Thermometers;
+
+/**
+ * Reads and writes puzzles in a compact, versioned binary format. The binary format holds
+ * exactly the same information as the {@link PuzzleJsonCodec JSON format}, at a fraction of
+ * the size and cost.
+ * <p>
+ * The cells are indexed 0-80 in row-major order. Version 1 of the format is laid out as
+ * follows, where all varints are unsigned LEB128:
+ *
+ * <pre>
+ * magic            3 bytes    "TZB"
+ * version          1 byte     1
+ * values           41 bytes   one 4-bit value per cell, high nibble first, 0 for no value
+ * given bitmap     11 bytes   bit i set if cell i is given, least significant bit first
+ * flags            1 byte     bit 0: pencil marks follow, bit 1: colors follow
+ * [pencil marks]   11 bytes   bitmap of the cells that have pencil marks, followed by
+ *                             two 16-bit candidate masks (corner, center) per such cell
+ * [colors]         41 bytes   one 4-bit CellColor ordinal per cell, high nibble first
+ * sandwiches       varint count, then per sandwich a house byte (0-8 rows, 9-17 columns)
+ *                  and a varint sum
+ * killer cages     varint count, then per cage a varint size, one byte per cell index,
+ *                  and a varint holding the sum + 1, or 0 if the cage has no sum
+ * chess            varint bitmask of ChessConstraint ordinals
+ * thermometers     varint count, then per thermometer a varint length and one byte per
+ *                  cell index, from bulb to tip
+ * </pre>
+ *
+ * Like the JSON format, the binary format does not include the name of the puzzle.
+ * <p>
+ * The reading methods work directly on a {@link ByteBuffer}, which can be a slice of a
+ * larger buffer, for example a memory mapped file, so that the puzzle can be read in place
+ * without copying the bytes first. All methods are static and the codec has no state, so
+ * it is safe to use from any thread.
+ */
+public final class PuzzleBinaryCodec {
+
+    /**
+     * The current version of the format.
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = { 'T', 'Z', 'B' };
+    private static final int NUMBER_OF_CELLS = 81;
+    private static final int NIBBLE_BYTES = (NUMBER_OF_CELLS + 1) / 2;
+    private static final int BITMAP_BYTES = (NUMBER_OF_CELLS + 7) / 8;
+    private static final int HAS_PENCIL_MARKS = 0x01;
+    private static final int HAS_COLORS = 0x02;
+    private static final CellColor[] COLORS = CellColor.values();
+    private static final ChessConstraint[] CHESS_CONSTRAINTS = ChessConstraint.values();
+
+    /**
+     * Returns the binary representation of the given puzzle.
+     */
+    public static byte[] toBytes(Puzzle puzzle) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try {
+            write(puzzle, out);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw IOExceptions.
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Restores a puzzle from its binary representation.
+     *
+     * @throws IllegalArgumentException
+     *             if the bytes are not a valid binary puzzle
+     */
+    public static Puzzle fromBytes(byte[] bytes, String name) {
+        return read(ByteBuffer.wrap(bytes), name);
+    }
+
+    /**
+     * Writes the binary representation of the given puzzle to a stream.
+     */
+    public static void write(Puzzle puzzle, OutputStream out) throws IOException {
+        requireNonNull(puzzle);
+        Grid grid = puzzle.getGrid();
+        Cell[] cells = cellsOf(grid);
+        out.write(MAGIC);
+        out.write(VERSION);
+        byte[] values = new byte[NIBBLE_BYTES];
+        byte[] givens = new byte[BITMAP_BYTES];
+        byte[] marked = new byte[BITMAP_BYTES];
+        byte[] colors = new byte[NIBBLE_BYTES];
+        int flags = 0;
+        for (int i = 0; i < NUMBER_OF_CELLS; ++i) {
+            Cell cell = cells[i];
+            setNibble(values, i, cell.getValue().map(Value::toInt).orElse(0));
+            if (cell.isGiven()) {
+                setBit(givens, i);
+            }
+            if (cell.hasPencilMarks()) {
+                setBit(marked, i);
+                flags |= HAS_PENCIL_MARKS;
+            }
+            if (cell.getColor() != CellColor.WHITE) {
+                flags |= HAS_COLORS;
+            }
+            setNibble(colors, i, cell.getColor().ordinal());
+        }
+        out.write(values);
+        out.write(givens);
+        out.write(flags);
+        if ((flags & HAS_PENCIL_MARKS) != 0) {
+            out.write(marked);
+            for (int i = 0; i < NUMBER_OF_CELLS; ++i) {
+                if (isBitSet(marked, i)) {
+                    writeShort(out, toMask(cells[i].getCornerMarks()));
+                    writeShort(out, toMask(cells[i].getCenterMarks()));
+                }
+            }
+        }
+        if ((flags & HAS_COLORS) != 0) {
+            out.write(colors);
+        }
+        Sandwiches sandwiches = puzzle.getSandwiches();
+        writeVarint(out, sandwiches.getRows().size() + sandwiches.getColumns().size());
+        for (Sandwich s : sandwiches.getRows()) {
+            out.write(s.getHouse().getNumber() - 1);
+            writeVarint(out, s.getSum());
+        }
+        for (Sandwich s : sandwiches.getColumns()) {
+            out.write(9 + s.getHouse().getNumber() - 1);
+            writeVarint(out, s.getSum());
+        }
+        Collection<KillerCage> cages = puzzle.getKillerCages().getCages();
+        writeVarint(out, cages.size());
+        for (KillerCage cage : cages) {
+            writePositions(out, cage.getPositions());
+            writeVarint(out, cage.getSum().map(sum -> sum + 1).orElse(0));
+        }
+        int chessFlags = 0;
+        for (ChessConstraint c : puzzle.getChessConstraints()) {
+            chessFlags |= (1 << c.ordinal());
+        }
+        writeVarint(out, chessFlags);
+        List<Thermometer> thermometers = puzzle.getThermometers().getThermometers();
+        writeVarint(out, thermometers.size());
+        for (Thermometer t : thermometers) {
+            writePositions(out, t.getPositions());
+        }
+    }
+
+    /**
+     * Reads a puzzle from the current position of the given buffer. On return the position
+     * of the buffer is right after the puzzle.
+     *
+     * @throws IllegalArgumentException
+     *             if the buffer does not contain a valid binary puzzle
+     */
+    public static Puzzle read(ByteBuffer buffer, String name) {
+        requireNonNull(name);
+        try {
+            for (byte b : MAGIC) {
+                checkArgument(buffer.get() == b, "Not a binary puzzle");
+            }
+            int version = Byte.toUnsignedInt(buffer.get());
+            checkArgument(version == VERSION, "Unsupported version: %s", version);
+            int valuesStart = buffer.position();
+            int givensStart = valuesStart + NIBBLE_BYTES;
+            buffer.position(givensStart + BITMAP_BYTES);
+            int flags = buffer.get();
+            List<Cell> cells = new ArrayList<>(NUMBER_OF_CELLS);
+            for (int i = 0; i < NUMBER_OF_CELLS; ++i) {
+                int value = getNibble(buffer, valuesStart, i);
+                if (value == 0) {
+                    cells.add(Cell.empty());
+                } else if (isBitSet(buffer, givensStart, i)) {
+                    cells.add(Cell.given(Value.of(value)));
+                } else {
+                    cells.add(Cell.unknownWithValue(Value.of(value)));
+                }
+            }
+            if ((flags & HAS_PENCIL_MARKS) != 0) {
+                int markedStart = buffer.position();
+                buffer.position(markedStart + BITMAP_BYTES);
+                for (int i = 0; i < NUMBER_OF_CELLS; ++i) {
+                    if (isBitSet(buffer, markedStart, i)) {
+                        int corner = Short.toUnsignedInt(buffer.getShort());
+                        int center = Short.toUnsignedInt(buffer.getShort());
+                        Cell cell = cells.get(i);
+                        if (!cell.isGiven()) {
+                            applyMask(cell.getCornerMarks(), corner);
+                            applyMask(cell.getCenterMarks(), center);
+                        }
+                    }
+                }
+            }
+            if ((flags & HAS_COLORS) != 0) {
+                int colorsStart = buffer.position();
+                buffer.position(colorsStart + NIBBLE_BYTES);
+                for (int i = 0; i < NUMBER_OF_CELLS; ++i) {
+                    int color = getNibble(buffer, colorsStart, i);
+                    checkArgument(color < COLORS.length, "Invalid color: %s", color);
+                    cells.get(i).setColor(COLORS[color]);
+                }
+            }
+            List<Sandwich> rowSandwiches = new ArrayList<>();
+            List<Sandwich> columnSandwiches = new ArrayList<>();
+            for (int n = readVarint(buffer); n > 0; --n) {
+                int house = Byte.toUnsignedInt(buffer.get());
+                checkArgument(house < 18, "Invalid sandwich house: %s", house);
+                int sum = readVarint(buffer);
+                if (house < 9) {
+                    rowSandwiches.add(new Sandwich(House.Type.ROW.createHouse(house + 1), sum));
+                } else {
+                    columnSandwiches.add(new Sandwich(House.Type.COLUMN.createHouse(house - 8), sum));
+                }
+            }
+            List<KillerCage> cages = new ArrayList<>();
+            for (int n = readVarint(buffer); n > 0; --n) {
+                ImmutableSet<Position> positions = ImmutableSet.copyOf(readPositions(buffer));
+                int sum = readVarint(buffer);
+                cages.add(sum > 0
+                        ? new KillerCage(positions, sum - 1)
+                        : new KillerCage(positions));
+            }
+            Set<ChessConstraint> chessConstraints = EnumSet.noneOf(ChessConstraint.class);
+            int chessFlags = readVarint(buffer);
+            for (ChessConstraint c : CHESS_CONSTRAINTS) {
+                if ((chessFlags & (1 << c.ordinal())) != 0) {
+                    chessConstraints.add(c);
+                }
+            }
+            List<Thermometer> thermometers = new ArrayList<>();
+            for (int n = readVarint(buffer); n > 0; --n) {
+                thermometers.add(new Thermometer(readPositions(buffer)));
+            }
+            return new Puzzle(name,
+                    new Grid(cells),
+                    new Sandwiches(rowSandwiches, columnSandwiches),
+                    cages.isEmpty() ? KillerCages.EMPTY : new KillerCages(cages),
+                    chessConstraints,
+                    thermometers.isEmpty() ? Thermometers.EMPTY : new Thermometers(thermometers));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated binary puzzle", e);
+        }
+    }
+
+    static Cell[] cellsOf(Grid grid) {
+        Cell[] cells = new Cell[NUMBER_OF_CELLS];
+        for (int r = 1; r <= 9; ++r) {
+            for (int c = 1; c <= 9; ++c) {
+                cells[index(r, c)] = grid.cellAt(new Position(r, c));
+            }
+        }
+        return cells;
+    }
+
+    private static int index(int row, int col) {
+        return 9 * (row - 1) + (col - 1);
+    }
+
+    private static Position position(int index) {
+        checkArgument(index >= 0 && index < NUMBER_OF_CELLS, "Invalid cell index: %s", index);
+        return new Position(index / 9 + 1, index % 9 + 1);
+    }
+
+    private static void setNibble(byte[] bytes, int index, int value) {
+        int shift = (index % 2 == 0) ? 4 : 0;
+        bytes[index / 2] |= (value & 0x0F) << shift;
+    }
+
+    private static int getNibble(ByteBuffer buffer, int start, int index) {
+        int b = buffer.get(start + index / 2);
+        return (index % 2 == 0)
+                ? (b >> 4) & 0x0F
+                : b & 0x0F;
+    }
+
+    private static void setBit(byte[] bitmap, int index) {
+        bitmap[index / 8] |= 1 << (index % 8);
+    }
+
+    private static boolean isBitSet(byte[] bitmap, int index) {
+        return (bitmap[index / 8] & (1 << (index % 8))) != 0;
+    }
+
+    private static boolean isBitSet(ByteBuffer buffer, int start, int index) {
+        return (buffer.get(start + index / 8) & (1 << (index % 8))) != 0;
+    }
+
+    static int toMask(PencilMarks marks) {
+        int mask = 0;
+        for (Value v : marks.getValues()) {
+            mask |= 1 << (v.toInt() - 1);
+        }
+        return mask;
+    }
+
+    static void applyMask(PencilMarks marks, int mask) {
+        for (Value v : Value.values()) {
+            if ((mask & (1 << (v.toInt() - 1))) != 0) {
+                marks.toggle(v);
+            }
+        }
+    }
+
+    private static void writeShort(OutputStream out, int value) throws IOException {
+        out.write((value >>> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private static void writePositions(OutputStream out, Collection<Position> positions) throws IOException {
+        writeVarint(out, positions.size());
+        for (Position p : positions) {
+            out.write(index(p.getRow(), p.getColumn()));
+        }
+    }
+
+    private static List<Position> readPositions(ByteBuffer buffer) {
+        int size = readVarint(buffer);
+        checkArgument(size <= NUMBER_OF_CELLS, "Invalid number of positions: %s", size);
+        List<Position> positions = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            positions.add(position(Byte.toUnsignedInt(buffer.get())));
+        }
+        return positions;
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        checkArgument(value >= 0, "Negative values are not supported: %s", value);
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private PuzzleBinaryCodec() {/**/}
+}
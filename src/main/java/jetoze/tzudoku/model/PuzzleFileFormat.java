@@ -0,0 +1,84 @@
+package jetoze.tzudoku.model;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * The formats in which a puzzle can be stored on disk.
+ */
+public enum PuzzleFileFormat {
+
+    /**
+     * Human readable, pretty printed JSON. See {@link PuzzleJsonCodec}.
+     */
+    JSON(".json") {
+
+        @Override
+        public void write(Puzzle puzzle, Path file) throws IOException {
+            try (JsonWriter out = new JsonWriter(Files.newBufferedWriter(file))) {
+                out.setIndent("  ");
+                PuzzleJsonCodec.write(puzzle, out);
+            }
+        }
+
+        @Override
+        public Puzzle read(Path file, String name) throws IOException {
+            try (JsonReader in = new JsonReader(Files.newBufferedReader(file))) {
+                return PuzzleJsonCodec.read(in, name);
+            }
+        }
+    },
+
+    /**
+     * The compact binary format. See {@link PuzzleBinaryCodec}.
+     */
+    BINARY(".tzb") {
+
+        @Override
+        public void write(Puzzle puzzle, Path file) throws IOException {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                PuzzleBinaryCodec.write(puzzle, out);
+            }
+        }
+
+        @Override
+        public Puzzle read(Path file, String name) throws IOException {
+            return PuzzleBinaryCodec.read(ByteBuffer.wrap(Files.readAllBytes(file)), name);
+        }
+    };
+
+    private final String fileExtension;
+
+    private PuzzleFileFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * Returns the extension, including the leading dot, of files in this format.
+     */
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public abstract void write(Puzzle puzzle, Path file) throws IOException;
+
+    public abstract Puzzle read(Path file, String name) throws IOException;
+
+    /**
+     * Returns the format of the given file, based on its extension.
+     */
+    public static Optional<PuzzleFileFormat> of(String fileName) {
+        return Stream.of(values())
+                .filter(f -> fileName.endsWith(f.fileExtension))
+                .findFirst();
+    }
+}
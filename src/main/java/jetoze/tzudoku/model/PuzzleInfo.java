@@ -13,11 +13,19 @@ public class PuzzleInfo {
     private final PuzzleState state;
     @Nullable
     private final ZonedDateTime lastUpdated;
+    @Nullable
+    private final DifficultyRating rating;
     
     public PuzzleInfo(String name, PuzzleState state, @Nullable ZonedDateTime lastUpdated) {
+        this(name, state, lastUpdated, null);
+    }
+    
+    public PuzzleInfo(String name, PuzzleState state, @Nullable ZonedDateTime lastUpdated, 
+            @Nullable DifficultyRating rating) {
         this.name = checkNotBlank(name);
         this.state = requireNonNull(state);
         this.lastUpdated = lastUpdated;
+        this.rating = rating;
     }
 
     public String getName() {
@@ -32,6 +40,17 @@ public class PuzzleInfo {
         return Optional.ofNullable(lastUpdated);
     }
     
+    /**
+     * Returns the difficulty rating of the puzzle, if it has been rated.
+     */
+    public Optional<DifficultyRating> getRating() {
+        return Optional.ofNullable(rating);
+    }
+    
+    public PuzzleInfo withRating(DifficultyRating rating) {
+        return new PuzzleInfo(name, state, lastUpdated, requireNonNull(rating));
+    }
+    
     public String toString() {
         return String.format("%s [%s]", name, state);
     }
@@ -0,0 +1,567 @@
+package jetoze.tzudoku.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import jetoze.tzudoku.constraint.ChessConstraint;
+import jetoze.tzudoku.constraint.KillerCage;
+import jetoze.tzudoku.constraint.KillerCages;
+import jetoze.tzudoku.constraint.Sandwich;
+import jetoze.tzudoku.constraint.Sandwiches;
+import jetoze.tzudoku.constraint.Thermometer;
+import jetoze.tzudoku.constraint.Thermometers;
+
+/**
+ * Reads and writes puzzles as JSON, streaming directly between a {@link JsonReader} or
+ * {@link JsonWriter} and the puzzle, without going through an intermediate object graph
+ * and without any reflection.
+ * <p>
+ * A single puzzle is stored as a JSON object on the following form, where every field
+ * except {@code given} is optional when reading:
+ *
+ * <pre>
+ * {
+ *   "given": ["x5xx3xxxx", ...],       // one string per row, 'x' for a cell without a given
+ *   "entered": ["1xxxxxxxx", ...],     // the values entered by the user, same format
+ *   "pencilMarks": [{"row": 1, "col": 2, "corner": "12", "center": "345"}, ...],
+ *   "colors": [{"row": 1, "col": 2, "color": "BLUE"}, ...],
+ *   "sandwiches": [["r1", 12], ["c5", 19], ...],
+ *   "killerCages": ["r2c2 r2c3 r2c4: 17", ...],
+ *   "chessConstraints": ["ki", "kn"],
+ *   "thermometers": ["r9c1 r8c2 r8c3", ...]   // from bulb to tip
+ * }
+ * </pre>
+ *
+ * The single puzzle format does not include the name of the puzzle; the name is given by
+ * the caller. For bulk export, several puzzles can be written to and read from a single
+ * stream, as a JSON array of puzzle objects that also have a {@code "name"} field.
+ * <p>
+ * All methods are static and the codec has no state, so it is safe to use from any thread.
+ */
+public final class PuzzleJsonCodec {
+
+    private static final String NAME = "name";
+    private static final String GIVEN = "given";
+    private static final String ENTERED = "entered";
+    private static final String PENCIL_MARKS = "pencilMarks";
+    private static final String COLORS = "colors";
+    private static final String SANDWICHES = "sandwiches";
+    private static final String KILLER_CAGES = "killerCages";
+    private static final String CHESS_CONSTRAINTS = "chessConstraints";
+    private static final String THERMOMETERS = "thermometers";
+    private static final String ROW = "row";
+    private static final String COL = "col";
+    private static final String CORNER = "corner";
+    private static final String CENTER = "center";
+    private static final String COLOR = "color";
+
+    private static final char NO_VALUE = 'x';
+
+    private static final Comparator<Sandwich> SANDWICH_ORDER = Comparator.comparing(PuzzleJsonCodec::houseRepresentation);
+
+    /**
+     * The chess constraints are stored under the names given by their {@link SerializedName}
+     * annotations, for compatibility with files written by earlier, Gson based versions.
+     */
+    private static final ImmutableBiMap<ChessConstraint, String> CHESS_CONSTRAINT_NAMES = chessConstraintNames();
+
+    /**
+     * Returns the pretty printed JSON representation of the given puzzle.
+     */
+    public static String toJson(Puzzle puzzle) {
+        StringWriter sw = new StringWriter();
+        try (JsonWriter out = createWriter(sw)) {
+            write(puzzle, out);
+        } catch (IOException e) {
+            // StringWriter does not throw IOExceptions.
+            throw new AssertionError(e);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * Restores a puzzle from its JSON representation.
+     *
+     * @throws JsonSyntaxException
+     *             if the JSON is malformed
+     */
+    public static Puzzle fromJson(String json, String name) {
+        try (JsonReader in = new JsonReader(new StringReader(json))) {
+            return read(in, name);
+        } catch (IOException e) {
+            // StringReader does not throw IOExceptions, so this is malformed input.
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Writes the given puzzles to a stream, as a JSON array.
+     */
+    public static void writeAll(Iterable<Puzzle> puzzles, Writer writer) throws IOException {
+        requireNonNull(puzzles);
+        JsonWriter out = createWriter(writer);
+        out.beginArray();
+        for (Puzzle puzzle : puzzles) {
+            writeObject(puzzle, true, out);
+        }
+        out.endArray();
+        out.flush();
+    }
+
+    /**
+     * Reads puzzles that have been written with {@link #writeAll(Iterable, Writer)}, and
+     * passes them on to the given consumer one at a time, as soon as they have been read.
+     *
+     * @return the number of puzzles read
+     */
+    public static int readAll(Reader reader, Consumer<? super Puzzle> consumer) throws IOException {
+        requireNonNull(consumer);
+        JsonReader in = new JsonReader(reader);
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            consumer.accept(readObject(in, null));
+            ++count;
+        }
+        in.endArray();
+        return count;
+    }
+
+    /**
+     * Writes a single puzzle, without its name, as a JSON object.
+     */
+    public static void write(Puzzle puzzle, JsonWriter out) throws IOException {
+        writeObject(puzzle, false, out);
+    }
+
+    /**
+     * Reads a single puzzle, written as a JSON object.
+     *
+     * @param name
+     *            the name to give the puzzle, unless the JSON object has a name of its own.
+     */
+    public static Puzzle read(JsonReader in, String name) throws IOException {
+        return readObject(in, requireNonNull(name));
+    }
+
+    private static JsonWriter createWriter(Writer writer) {
+        JsonWriter out = new JsonWriter(writer);
+        out.setIndent("  ");
+        return out;
+    }
+
+    private static void writeObject(Puzzle puzzle, boolean includeName, JsonWriter out) throws IOException {
+        out.beginObject();
+        if (includeName) {
+            out.name(NAME).value(puzzle.getName());
+        }
+        Grid grid = puzzle.getGrid();
+        writeRows(grid, true, out.name(GIVEN));
+        writeRows(grid, false, out.name(ENTERED));
+        writePencilMarks(grid, out.name(PENCIL_MARKS));
+        writeColors(grid, out.name(COLORS));
+        out.name(SANDWICHES).beginArray();
+        List<Sandwich> sandwiches = new ArrayList<>(puzzle.getSandwiches().getRows());
+        sandwiches.addAll(puzzle.getSandwiches().getColumns());
+        sandwiches.sort(SANDWICH_ORDER);
+        for (Sandwich s : sandwiches) {
+            out.beginArray()
+                .value(houseRepresentation(s))
+                .value(s.getSum())
+                .endArray();
+        }
+        out.endArray();
+        out.name(KILLER_CAGES).beginArray();
+        for (KillerCage cage : puzzle.getKillerCages().getCages()) {
+            out.value(encode(cage));
+        }
+        out.endArray();
+        out.name(CHESS_CONSTRAINTS).beginArray();
+        for (ChessConstraint c : puzzle.getChessConstraints()) {
+            out.value(CHESS_CONSTRAINT_NAMES.get(c));
+        }
+        out.endArray();
+        out.name(THERMOMETERS).beginArray();
+        for (Thermometer thermo : puzzle.getThermometers().getThermometers()) {
+            out.value(encodePositions(thermo.getPositions()));
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private static void writeRows(Grid grid, boolean givenValues, JsonWriter out) throws IOException {
+        out.beginArray();
+        char[] row = new char[9];
+        for (int r = 1; r <= 9; ++r) {
+            for (int c = 1; c <= 9; ++c) {
+                Cell cell = grid.cellAt(new Position(r, c));
+                row[c - 1] = (cell.isGiven() == givenValues)
+                        ? cell.getValue().map(v -> (char) ('0' + v.toInt())).orElse(NO_VALUE)
+                        : NO_VALUE;
+            }
+            out.value(new String(row));
+        }
+        out.endArray();
+    }
+
+    private static void writePencilMarks(Grid grid, JsonWriter out) throws IOException {
+        out.beginArray();
+        for (Position p : (Iterable<Position>) Position.all()::iterator) {
+            Cell cell = grid.cellAt(p);
+            if (cell.hasPencilMarks()) {
+                out.beginObject()
+                    .name(ROW).value(p.getRow())
+                    .name(COL).value(p.getColumn())
+                    .name(CORNER).value(PencilMarks.valuesAsString(cell.getCornerMarks()))
+                    .name(CENTER).value(PencilMarks.valuesAsString(cell.getCenterMarks()))
+                    .endObject();
+            }
+        }
+        out.endArray();
+    }
+
+    private static void writeColors(Grid grid, JsonWriter out) throws IOException {
+        out.beginArray();
+        for (Position p : (Iterable<Position>) Position.all()::iterator) {
+            CellColor color = grid.cellAt(p).getColor();
+            if (color != CellColor.WHITE) {
+                out.beginObject()
+                    .name(ROW).value(p.getRow())
+                    .name(COL).value(p.getColumn())
+                    .name(COLOR).value(color.name())
+                    .endObject();
+            }
+        }
+        out.endArray();
+    }
+
+    /**
+     * Reads a puzzle object.
+     *
+     * @param defaultName
+     *            the name to use if the object does not have a name, or {@code null} if the
+     *            object must have a name.
+     */
+    private static Puzzle readObject(JsonReader in, @Nullable String defaultName) throws IOException {
+        String name = defaultName;
+        // The cells are restored in a second step, once all of the fields have been read,
+        // since the fields can appear in any order.
+        CellStates cells = new CellStates();
+        List<Sandwich> rowSandwiches = new ArrayList<>();
+        List<Sandwich> columnSandwiches = new ArrayList<>();
+        List<KillerCage> killerCages = new ArrayList<>();
+        Set<ChessConstraint> chessConstraints = EnumSet.noneOf(ChessConstraint.class);
+        Set<Thermometer> thermometers = new LinkedHashSet<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+            case NAME:
+                name = in.nextString();
+                break;
+            case GIVEN:
+                readRows(in, cells.given);
+                cells.hasGiven = true;
+                break;
+            case ENTERED:
+                readRows(in, cells.entered);
+                break;
+            case PENCIL_MARKS:
+                readPencilMarks(in, cells);
+                break;
+            case COLORS:
+                readColors(in, cells);
+                break;
+            case SANDWICHES:
+                in.beginArray();
+                while (in.hasNext()) {
+                    in.beginArray();
+                    House house = toHouse(in.nextString());
+                    Sandwich sandwich = new Sandwich(house, in.nextInt());
+                    in.endArray();
+                    (house.getType() == House.Type.ROW ? rowSandwiches : columnSandwiches).add(sandwich);
+                }
+                in.endArray();
+                break;
+            case KILLER_CAGES:
+                in.beginArray();
+                while (in.hasNext()) {
+                    killerCages.add(decodeKillerCage(in.nextString()));
+                }
+                in.endArray();
+                break;
+            case CHESS_CONSTRAINTS:
+                in.beginArray();
+                while (in.hasNext()) {
+                    chessConstraints.add(decodeChessConstraint(in.nextString()));
+                }
+                in.endArray();
+                break;
+            case THERMOMETERS:
+                in.beginArray();
+                while (in.hasNext()) {
+                    thermometers.add(new Thermometer(decodePositions(in.nextString())));
+                }
+                in.endArray();
+                break;
+            default:
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (name == null) {
+            throw new JsonSyntaxException("Missing puzzle name");
+        }
+        if (!cells.hasGiven) {
+            throw new JsonSyntaxException("Missing given values");
+        }
+        return new Puzzle(name,
+                cells.restoreGrid(),
+                new Sandwiches(rowSandwiches, columnSandwiches),
+                killerCages.isEmpty() ? KillerCages.EMPTY : new KillerCages(killerCages),
+                chessConstraints,
+                thermometers.isEmpty() ? Thermometers.EMPTY : new Thermometers(thermometers));
+    }
+
+    private static void readRows(JsonReader in, char[] values) throws IOException {
+        in.beginArray();
+        int row = 0;
+        while (in.hasNext()) {
+            String s = in.nextString();
+            if (row >= 9 || s.length() != 9) {
+                throw new JsonSyntaxException("Invalid row: " + s);
+            }
+            s.getChars(0, 9, values, 9 * row);
+            ++row;
+        }
+        in.endArray();
+        if (row != 9) {
+            throw new JsonSyntaxException("Expected 9 rows, got " + row);
+        }
+    }
+
+    private static void readPencilMarks(JsonReader in, CellStates cells) throws IOException {
+        in.beginArray();
+        while (in.hasNext()) {
+            int row = 0;
+            int col = 0;
+            String corner = "";
+            String center = "";
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case ROW:
+                    row = in.nextInt();
+                    break;
+                case COL:
+                    col = in.nextInt();
+                    break;
+                case CORNER:
+                    corner = nextNullableString(in);
+                    break;
+                case CENTER:
+                    center = nextNullableString(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            int index = index(row, col);
+            cells.cornerMarks[index] = corner;
+            cells.centerMarks[index] = center;
+        }
+        in.endArray();
+    }
+
+    private static void readColors(JsonReader in, CellStates cells) throws IOException {
+        in.beginArray();
+        while (in.hasNext()) {
+            int row = 0;
+            int col = 0;
+            String color = "";
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                case ROW:
+                    row = in.nextInt();
+                    break;
+                case COL:
+                    col = in.nextInt();
+                    break;
+                case COLOR:
+                    color = nextNullableString(in);
+                    break;
+                default:
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            if (!color.isEmpty()) {
+                cells.colors[index(row, col)] = CellColor.valueOf(color);
+            }
+        }
+        in.endArray();
+    }
+
+    private static String nextNullableString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return "";
+        }
+        return in.nextString();
+    }
+
+    private static int index(int row, int col) {
+        if (row < 1 || row > 9 || col < 1 || col > 9) {
+            throw new JsonSyntaxException(String.format("Invalid position: row %d, col %d", row, col));
+        }
+        return 9 * (row - 1) + (col - 1);
+    }
+
+    private static String houseRepresentation(Sandwich s) {
+        House.Type houseType = s.getHouse().getType();
+        return (houseType == House.Type.ROW ? "r" : "c") + s.getHouse().getNumber();
+    }
+
+    private static House toHouse(String s) {
+        House.Type houseType = s.charAt(0) == 'r'
+                ? House.Type.ROW
+                : House.Type.COLUMN;
+        int number = s.charAt(1) - '0';
+        return houseType.createHouse(number);
+    }
+
+    private static ImmutableBiMap<ChessConstraint, String> chessConstraintNames() {
+        ImmutableBiMap.Builder<ChessConstraint, String> builder = ImmutableBiMap.builder();
+        for (ChessConstraint c : ChessConstraint.values()) {
+            try {
+                SerializedName serializedName = ChessConstraint.class.getField(c.name()).getAnnotation(SerializedName.class);
+                builder.put(c, (serializedName != null) ? serializedName.value() : c.name());
+            } catch (NoSuchFieldException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return builder.build();
+    }
+
+    private static ChessConstraint decodeChessConstraint(String s) {
+        ChessConstraint c = CHESS_CONSTRAINT_NAMES.inverse().get(s);
+        return (c != null)
+                ? c
+                : ChessConstraint.valueOf(s);
+    }
+
+    private static String encode(KillerCage cage) {
+        StringBuilder s = new StringBuilder(encodePositions(cage.getPositions()));
+        cage.getSum().ifPresent(sum -> s.append(": ").append(sum));
+        return s.toString();
+    }
+
+    private static KillerCage decodeKillerCage(String s) {
+        int sumMarkerIndex = s.indexOf(':');
+        if (sumMarkerIndex > 0) {
+            int sum = Integer.parseInt(s.substring(sumMarkerIndex + 1).trim());
+            return new KillerCage(ImmutableSet.copyOf(decodePositions(s.substring(0, sumMarkerIndex))), sum);
+        }
+        return new KillerCage(ImmutableSet.copyOf(decodePositions(s)));
+    }
+
+    private static String encodePositions(Iterable<Position> positions) {
+        StringBuilder s = new StringBuilder();
+        for (Position p : positions) {
+            if (s.length() > 0) {
+                s.append(' ');
+            }
+            s.append(p);
+        }
+        return s.toString();
+    }
+
+    private static List<Position> decodePositions(String s) {
+        return Stream.of(s.trim().split("\\s+"))
+                .map(Position::fromString)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * The state of the 81 cells of a grid, indexed in row-major order, as it is being read.
+     */
+    private static final class CellStates {
+        private final char[] given = new char[81];
+        private final char[] entered = new char[81];
+        private final String[] cornerMarks = new String[81];
+        private final String[] centerMarks = new String[81];
+        private final CellColor[] colors = new CellColor[81];
+        private boolean hasGiven;
+
+        public CellStates() {
+            // The entered values are optional.
+            Arrays.fill(entered, NO_VALUE);
+        }
+
+        public Grid restoreGrid() {
+            List<Cell> cells = new ArrayList<>(81);
+            for (int i = 0; i < 81; ++i) {
+                Cell cell = restoreCell(i);
+                if (!cell.isGiven()) {
+                    toggle(cell.getCornerMarks(), cornerMarks[i]);
+                    toggle(cell.getCenterMarks(), centerMarks[i]);
+                }
+                if (colors[i] != null) {
+                    cell.setColor(colors[i]);
+                }
+                cells.add(cell);
+            }
+            return new Grid(cells);
+        }
+
+        private Cell restoreCell(int index) {
+            char c = given[index];
+            if (c != NO_VALUE) {
+                return Cell.given(Value.of(c - '0'));
+            }
+            c = entered[index];
+            if (c != NO_VALUE) {
+                return Cell.unknownWithValue(Value.of(c - '0'));
+            }
+            return Cell.empty();
+        }
+
+        private static void toggle(PencilMarks marks, @Nullable String values) {
+            if (values == null) {
+                return;
+            }
+            for (int i = 0; i < values.length(); ++i) {
+                marks.toggle(Value.of(values.charAt(i) - '0'));
+            }
+        }
+    }
+
+    private PuzzleJsonCodec() {/**/}
+}
@@ -0,0 +1,222 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.prefs.Preferences;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import jetoze.tzudoku.hint.SolvingTechnique;
+
+/**
+ * Configures which techniques the {@link GridSolver} may use, and how much time it may
+ * spend on them.
+ * <p>
+ * Each technique can be given a time budget, which is the total time the solver may spend
+ * on that technique while solving a grid. Once the budget is used up the technique is no
+ * longer tried. The deadline limits the time the solver may spend in total.
+ * <p>
+ * A SolverConfig can be stored as user preferences, see {@link #load(Preferences)} and
+ * {@link #save(Preferences)}.
+ */
+public final class SolverConfig {
+
+    /**
+     * All techniques enabled, without any time limits.
+     */
+    public static final SolverConfig DEFAULT = builder().build();
+
+    private static final String ENABLED_TECHNIQUES_KEY = "enabledTechniques";
+    private static final String BUDGET_KEY_PREFIX = "budget.";
+    private static final String DEADLINE_KEY = "deadline";
+
+    private final ImmutableSet<SolvingTechnique> enabledTechniques;
+    private final ImmutableMap<SolvingTechnique, Duration> budgets;
+    @Nullable
+    private final Duration deadline;
+
+    private SolverConfig(Builder builder) {
+        this.enabledTechniques = Sets.immutableEnumSet(builder.enabledTechniques);
+        this.budgets = Maps.immutableEnumMap(builder.budgets);
+        this.deadline = builder.deadline;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a builder that is initialized with the settings of this config.
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.enabledTechniques(enabledTechniques);
+        builder.budgets.putAll(budgets);
+        builder.deadline = deadline;
+        return builder;
+    }
+
+    public ImmutableSet<SolvingTechnique> getEnabledTechniques() {
+        return enabledTechniques;
+    }
+
+    public boolean isEnabled(SolvingTechnique technique) {
+        return enabledTechniques.contains(technique);
+    }
+
+    /**
+     * Returns the total time the solver may spend on the given technique when solving
+     * a grid, or an empty Optional if the technique is not time limited.
+     */
+    public Optional<Duration> getBudget(SolvingTechnique technique) {
+        return Optional.ofNullable(budgets.get(technique));
+    }
+
+    /**
+     * Returns the maximum time the solver may run, or an empty Optional if the solver
+     * is not time limited.
+     */
+    public Optional<Duration> getDeadline() {
+        return Optional.ofNullable(deadline);
+    }
+
+    /**
+     * Loads a SolverConfig from the given preferences. Settings that are missing from the
+     * preferences get their default values.
+     */
+    public static SolverConfig load(Preferences preferences) {
+        requireNonNull(preferences);
+        Builder builder = builder();
+        String enabled = preferences.get(ENABLED_TECHNIQUES_KEY, null);
+        if (enabled != null) {
+            Set<SolvingTechnique> techniques = EnumSet.noneOf(SolvingTechnique.class);
+            for (String name : Splitter.on(',').omitEmptyStrings().trimResults().split(enabled)) {
+                try {
+                    techniques.add(SolvingTechnique.valueOf(name));
+                } catch (IllegalArgumentException e) {
+                    // A technique that has been removed or renamed. Ignore it.
+                }
+            }
+            builder.enabledTechniques(techniques);
+        }
+        for (SolvingTechnique t : SolvingTechnique.values()) {
+            long budget = preferences.getLong(BUDGET_KEY_PREFIX + t.name(), 0L);
+            if (budget > 0L) {
+                builder.budget(t, Duration.ofMillis(budget));
+            }
+        }
+        long deadline = preferences.getLong(DEADLINE_KEY, 0L);
+        if (deadline > 0L) {
+            builder.deadline(Duration.ofMillis(deadline));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Stores this config in the given preferences.
+     */
+    public void save(Preferences preferences) {
+        requireNonNull(preferences);
+        preferences.put(ENABLED_TECHNIQUES_KEY, enabledTechniques.stream()
+                .map(SolvingTechnique::name)
+                .collect(Collectors.joining(",")));
+        for (SolvingTechnique t : SolvingTechnique.values()) {
+            if (budgets.containsKey(t)) {
+                preferences.putLong(BUDGET_KEY_PREFIX + t.name(), budgets.get(t).toMillis());
+            } else {
+                preferences.remove(BUDGET_KEY_PREFIX + t.name());
+            }
+        }
+        if (deadline != null) {
+            preferences.putLong(DEADLINE_KEY, deadline.toMillis());
+        } else {
+            preferences.remove(DEADLINE_KEY);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(enabledTechniques, budgets, deadline);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof SolverConfig) {
+            SolverConfig that = (SolverConfig) obj;
+            return this.enabledTechniques.equals(that.enabledTechniques) && this.budgets.equals(that.budgets) &&
+                    Objects.equals(this.deadline, that.deadline);
+        }
+        return false;
+    }
+
+
+    public static final class Builder {
+        private EnumSet<SolvingTechnique> enabledTechniques = EnumSet.allOf(SolvingTechnique.class);
+        private final Map<SolvingTechnique, Duration> budgets = new EnumMap<>(SolvingTechnique.class);
+        @Nullable
+        private Duration deadline;
+
+        private Builder() {/**/}
+
+        public Builder enabledTechniques(Set<SolvingTechnique> techniques) {
+            this.enabledTechniques = EnumSet.noneOf(SolvingTechnique.class);
+            this.enabledTechniques.addAll(techniques);
+            return this;
+        }
+
+        public Builder enable(SolvingTechnique... techniques) {
+            Stream.of(techniques).forEach(enabledTechniques::add);
+            return this;
+        }
+
+        public Builder disable(SolvingTechnique... techniques) {
+            Stream.of(techniques).forEach(enabledTechniques::remove);
+            return this;
+        }
+
+        public Builder budget(SolvingTechnique technique, Duration budget) {
+            requireNonNull(technique);
+            checkArgument(!budget.isNegative() && !budget.isZero(), "The budget must be positive");
+            budgets.put(technique, budget);
+            return this;
+        }
+
+        public Builder noBudget(SolvingTechnique technique) {
+            budgets.remove(requireNonNull(technique));
+            return this;
+        }
+
+        /**
+         * Sets the maximum time the solver may run. Pass in {@code null} for no limit.
+         */
+        public Builder deadline(@Nullable Duration deadline) {
+            checkArgument(deadline == null || (!deadline.isNegative() && !deadline.isZero()),
+                    "The deadline must be positive");
+            this.deadline = deadline;
+            return this;
+        }
+
+        public SolverConfig build() {
+            return new SolverConfig(this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package jetoze.tzudoku.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A bounded, thread-safe cache of results computed for grid states, keyed by
+ * the {@link ZobristHash} of the grid state.
+ * <p>
+ * If the result depends on more than the values and candidates of the grid, for
+ * example on the constraints of the puzzle, the caller must fold that into the key,
+ * using {@link #key(long, Object)}.
+ *
+ * @param <V> the type of the cached results.
+ */
+public final class TranspositionCache<V> {
+
+    private final Cache<Long, V> cache;
+
+    /**
+     * Creates a cache that holds at most the given number of results. The least
+     * recently used results are evicted first.
+     */
+    public TranspositionCache(int maximumSize) {
+        checkArgument(maximumSize > 0, "maximumSize must be > 0 (was %s)", maximumSize);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Combines a grid hash with an object that the cached result also depends on.
+     */
+    public static long key(long gridHash, Object context) {
+        // Spread the context hash over all 64 bits, so that it does not only flip
+        // the low bits of the grid hash.
+        return gridHash ^ (requireNonNull(context).hashCode() * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Returns the cached result for the given key, if any.
+     */
+    public Optional<V> get(long key) {
+        return Optional.ofNullable(cache.getIfPresent(key));
+    }
+
+    /**
+     * Returns the cached result for the given key, computing and caching it with the
+     * given supplier if it is not present.
+     */
+    public V get(long key, Supplier<? extends V> supplier) {
+        requireNonNull(supplier);
+        return cache.asMap().computeIfAbsent(key, k -> supplier.get());
+    }
+
+    public void put(long key, V value) {
+        cache.put(key, requireNonNull(value));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
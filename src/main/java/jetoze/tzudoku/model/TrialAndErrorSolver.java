@@ -0,0 +1,135 @@
+package jetoze.tzudoku.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.Set;
+
+import jetoze.tzudoku.constraint.Thermometers;
+
+/**
+ * Solves a grid with the solving techniques of the {@link GridSolver}, and falls back on
+ * trial and error when the techniques get stuck: a value is guessed for the cell with the
+ * fewest candidates, and the guess is undone if it leads to a contradiction.
+ * <p>
+ * The states of the search are held as {@link PersistentGrid}s, so a guess costs a few
+ * array writes rather than a copy of the grid, and the techniques are run on the states
+ * through a single {@link PersistentGridAdapter}.
+ */
+public class TrialAndErrorSolver {
+
+    private final Grid grid;
+    private final Thermometers thermometers;
+    private SolverConfig config = SolverConfig.DEFAULT;
+    private int numberOfGuesses;
+
+    /**
+     * Creates a solver for the given grid. The grid itself is not modified.
+     */
+    public TrialAndErrorSolver(Grid grid, Thermometers thermometers) {
+        this.grid = requireNonNull(grid);
+        this.thermometers = requireNonNull(thermometers);
+    }
+
+    /**
+     * Sets the configuration of the GridSolver that is run on each state of the search.
+     */
+    public TrialAndErrorSolver setConfig(SolverConfig config) {
+        this.config = requireNonNull(config);
+        return this;
+    }
+
+    /**
+     * Solves the grid.
+     *
+     * @return the solved grid, or an empty Optional if the grid does not have a solution
+     */
+    public Optional<Grid> solve() {
+        numberOfGuesses = 0;
+        Grid start = Grid.copyOf(grid);
+        start.showRemainingCandidates();
+        PersistentGridAdapter adapter = new PersistentGridAdapter(PersistentGrid.of(start));
+        Deque<PersistentGrid> states = new ArrayDeque<>();
+        states.push(adapter.capture());
+        while (!states.isEmpty()) {
+            PersistentGrid state = states.pop();
+            if (hasContradiction(state)) {
+                continue;
+            }
+            adapter.load(state);
+            if (!applyTechniques(adapter.getGrid())) {
+                // Capture the changes anyway, so that the adapter stays in sync.
+                adapter.capture();
+                continue;
+            }
+            state = adapter.capture();
+            if (adapter.getGrid().isSolved()) {
+                return Optional.of(Grid.copyOf(adapter.getGrid()));
+            }
+            if (hasContradiction(state) || !adapter.getGrid().getCellsWithDuplicateValues().isEmpty()) {
+                continue;
+            }
+            guess(state, states);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Applies the solving techniques to the given grid, for as long as they make progress.
+     *
+     * @return false if the techniques ran into a contradiction.
+     */
+    private boolean applyTechniques(Grid grid) {
+        try {
+            new GridSolver(grid, thermometers)
+                .setConfig(config)
+                .solve();
+            return true;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // A wrong guess can leave the grid in a state that the techniques are not
+            // prepared for, such as a cell whose only candidate is already taken in its
+            // row. That is a contradiction like any other.
+            return false;
+        }
+    }
+
+    private static boolean hasContradiction(PersistentGrid state) {
+        return Position.all().anyMatch(p -> !state.hasValue(p) && state.getCandidates(p).isEmpty());
+    }
+
+    /**
+     * Pushes one state for each candidate of the unsolved cell with the fewest candidates,
+     * so that the smallest candidate is tried first.
+     */
+    private void guess(PersistentGrid state, Deque<PersistentGrid> states) {
+        Position cell = Position.all()
+                .filter(p -> !state.hasValue(p))
+                .min((p1, p2) -> Integer.compare(state.getCandidates(p1).size(), state.getCandidates(p2).size()))
+                .orElseThrow();
+        Set<Value> candidates = state.getCandidates(cell);
+        Value[] values = candidates.toArray(new Value[0]);
+        for (int n = values.length - 1; n >= 0; --n) {
+            states.push(withValue(state, cell, values[n]));
+            ++numberOfGuesses;
+        }
+    }
+
+    private static PersistentGrid withValue(PersistentGrid state, Position cell, Value value) {
+        PersistentGrid result = state.withValue(cell, value).withCandidates(cell, Set.of());
+        for (Position p : (Iterable<Position>) cell.seenBy()::iterator) {
+            if (!result.hasValue(p)) {
+                result = result.withoutCandidate(p, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of guesses made by the last call to {@link #solve()}.
+     */
+    public int getNumberOfGuesses() {
+        return numberOfGuesses;
+    }
+}
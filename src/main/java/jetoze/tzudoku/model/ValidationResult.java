@@ -5,6 +5,7 @@ import static java.util.Objects.*;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 public class ValidationResult {
 
@@ -14,6 +15,14 @@ public class ValidationResult {
         this.invalidPositions = ImmutableSet.copyOf(invalidPositions);
     }
     
+    /**
+     * Returns a ValidationResult that contains the invalid positions of this result, 
+     * plus the additional invalid positions.
+     */
+    public ValidationResult plus(Set<Position> moreInvalidPositions) {
+        return new ValidationResult(Sets.union(invalidPositions, moreInvalidPositions));
+    }
+    
     public boolean isSolved() {
         return invalidPositions.isEmpty();
     }
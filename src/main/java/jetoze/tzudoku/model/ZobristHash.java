@@ -0,0 +1,88 @@
+package jetoze.tzudoku.model;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.SplittableRandom;
+
+/**
+ * 64-bit Zobrist hashing of the values and candidates of a grid.
+ * <p>
+ * Every (cell, value) and (cell, candidate) pair is assigned a random 64-bit key, and
+ * the hash of a grid is the XOR of the keys of all the values and candidates it contains.
+ * This means that the hash can be updated incrementally when a single cell changes,
+ * by XOR-ing out the keys of the old cell state and XOR-ing in the keys of the new one.
+ * <p>
+ * The given flags, corner marks and colors do not take part in the hash, since they have
+ * no bearing on the logical state of the grid.
+ */
+public final class ZobristHash {
+
+    /**
+     * The seed is fixed so that hashes are stable across runs.
+     */
+    private static final long SEED = 0x7A75646F6B75L;
+
+    private static final long[][] VALUE_KEYS = new long[81][9];
+    private static final long[][] CANDIDATE_KEYS = new long[81][9];
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < 81; ++i) {
+            for (int v = 0; v < 9; ++v) {
+                VALUE_KEYS[i][v] = random.nextLong();
+                CANDIDATE_KEYS[i][v] = random.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Computes the hash of the current state of the given grid.
+     */
+    public static long of(Grid grid) {
+        return of(GridSnapshot.of(grid));
+    }
+
+    /**
+     * Computes the hash of the grid state captured by the given snapshot.
+     */
+    public static long of(GridSnapshot snapshot) {
+        requireNonNull(snapshot);
+        long hash = 0L;
+        for (int i = 0; i < 81; ++i) {
+            hash ^= ofCell(i, snapshot.contentsAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the hash contribution of a single cell.
+     *
+     * @param index
+     *            the index of the cell, in the order used by GridSnapshot.
+     * @param contents
+     *            the packed contents of the cell, as produced by GridSnapshot.
+     */
+    static long ofCell(int index, short contents) {
+        long hash = 0L;
+        Value value = GridSnapshot.valueOf(contents);
+        if (value != null) {
+            hash ^= VALUE_KEYS[index][value.ordinal()];
+        }
+        int candidates = GridSnapshot.centerMarksOf(contents);
+        while (candidates != 0) {
+            int bit = Integer.numberOfTrailingZeros(candidates);
+            hash ^= CANDIDATE_KEYS[index][bit];
+            candidates &= candidates - 1;
+        }
+        return hash;
+    }
+
+    /**
+     * Updates a hash to reflect that the contents of a single cell have changed.
+     */
+    static long update(long hash, int index, short oldContents, short newContents) {
+        return hash ^ ofCell(index, oldContents) ^ ofCell(index, newContents);
+    }
+
+    private ZobristHash() {/**/}
+}
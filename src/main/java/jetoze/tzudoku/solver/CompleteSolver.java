@@ -0,0 +1,365 @@
+package jetoze.tzudoku.solver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Streams;
+
+import jetoze.tzudoku.constraint.ChessConstraint;
+import jetoze.tzudoku.constraint.KillerCage;
+import jetoze.tzudoku.constraint.Sandwich;
+import jetoze.tzudoku.constraint.Thermometer;
+import jetoze.tzudoku.model.Cell;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.House;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.Value;
+
+/**
+ * A complete solver, that finds the solution(s) to a puzzle by a backtracking search.
+ * <p>
+ * Unlike the {@link jetoze.tzudoku.model.GridSolver GridSolver}, which mimics how a human 
+ * would solve a puzzle, this solver will always find the solution if there is one. It
+ * supports all the constraints a {@link Puzzle} can have: the classic sudoku rules, killer 
+ * cages, sandwiches, chess constraints and thermometers. Each constraint is pushed into the 
+ * search as a propagator that prunes the candidates of the cells, which are represented as 
+ * bit masks, before the search branches.
+ * <p>
+ * Only the given digits of the puzzle are taken into account. Digits entered by the user,
+ * as well as pencil marks, are ignored.
+ */
+public class CompleteSolver {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final Grid grid;
+    private final int[][] peers;
+    private final ImmutableList<int[]> houses;
+    private final ImmutableList<Propagator> propagators;
+    
+    public CompleteSolver(Puzzle puzzle) {
+        requireNonNull(puzzle);
+        this.grid = puzzle.getGrid();
+        this.peers = collectPeers(puzzle);
+        this.houses = House.ALL.stream()
+                .map(h -> toCells(h.toList()))
+                .collect(ImmutableList.toImmutableList());
+        this.propagators = createPropagators(puzzle);
+    }
+    
+    private static int[][] collectPeers(Puzzle puzzle) {
+        int[][] peers = new int[81][];
+        Position.all().forEach(p -> {
+            Set<Position> seen = new LinkedHashSet<>();
+            p.seenBy().forEach(seen::add);
+            for (ChessConstraint chess : puzzle.getChessConstraints()) {
+                seen.addAll(chess.getPositionsReachableFrom(p));
+            }
+            peers[index(p)] = toCells(seen);
+        });
+        return peers;
+    }
+    
+    private static ImmutableList<Propagator> createPropagators(Puzzle puzzle) {
+        ImmutableList.Builder<Propagator> builder = ImmutableList.builder();
+        for (KillerCage cage : puzzle.getKillerCages().getCages()) {
+            builder.add(new KillerCagePropagator(toCells(cage.getPositions()), cage.getSum().orElse(null)));
+        }
+        for (Sandwich sandwich : puzzle.getSandwiches().getRows()) {
+            builder.add(new SandwichPropagator(toCells(sandwich.getHouse().toList()), sandwich.getSum()));
+        }
+        for (Sandwich sandwich : puzzle.getSandwiches().getColumns()) {
+            builder.add(new SandwichPropagator(toCells(sandwich.getHouse().toList()), sandwich.getSum()));
+        }
+        for (Thermometer thermo : puzzle.getThermometers().getThermometers()) {
+            builder.add(new ThermometerPropagator(toCells(thermo.getPositions())));
+        }
+        return builder.build();
+    }
+    
+    static int index(Position p) {
+        return 9 * (p.getRow() - 1) + (p.getColumn() - 1);
+    }
+    
+    private static int[] toCells(Iterable<Position> positions) {
+        List<Integer> cells = new ArrayList<>();
+        positions.forEach(p -> cells.add(index(p)));
+        return cells.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    /**
+     * Solves the puzzle.
+     * 
+     * @return an Optional containing the solved grid, or an empty Optional if the puzzle
+     *         has no solution. If the puzzle has more than one solution, the first solution
+     *         that was found is returned.
+     */
+    public Optional<Grid> solve() {
+        List<int[]> solutions = search(givensOf(grid), 1, null);
+        return solutions.isEmpty()
+                ? Optional.empty()
+                : Optional.of(toGrid(solutions.get(0)));
+    }
+    
+    /**
+     * Solves the puzzle, if it has a unique solution.
+     * 
+     * @return an Optional containing the solved grid, or an empty Optional if the puzzle
+     *         has no solution or more than one solution.
+     */
+    public Optional<Grid> solveUniquely() {
+        List<int[]> solutions = search(givensOf(grid), 2, null);
+        return (solutions.size() == 1)
+                ? Optional.of(toGrid(solutions.get(0)))
+                : Optional.empty();
+    }
+    
+    /**
+     * Solves the puzzle, if it has a unique solution, giving up if that takes longer than 
+     * the given time limit. Most puzzles are solved in a fraction of a millisecond, but a 
+     * puzzle with very few givens, and no constraints to narrow down the search, can take 
+     * a lot longer.
+     * 
+     * @return an Optional containing the solved grid, or an empty Optional if the puzzle
+     *         has no solution or more than one solution.
+     * @throws TimeoutException
+     *             if the search ran out of time.
+     */
+    public Optional<Grid> solveUniquely(Duration timeLimit) throws TimeoutException {
+        checkArgument(!timeLimit.isNegative() && !timeLimit.isZero(), "The time limit must be positive");
+        List<int[]> solutions = new ArrayList<>();
+        long deadlineInNanos = System.nanoTime() + timeLimit.toNanos();
+        try {
+            createInitialState(givensOf(grid)).ifPresent(s -> search(s, 2, null, deadlineInNanos, solutions));
+        } catch (SearchTimedOut e) {
+            throw new TimeoutException("The puzzle could not be solved within " + timeLimit);
+        }
+        return (solutions.size() == 1)
+                ? Optional.of(toGrid(solutions.get(0)))
+                : Optional.empty();
+    }
+    
+    /**
+     * Solves the puzzle, trying the candidates of each cell in random order. If the puzzle 
+     * has more than one solution, repeated calls will typically return different solutions.
+     * Solving an empty grid gives a random full grid.
+     * 
+     * @return an Optional containing the solved grid, or an empty Optional if the puzzle
+     *         has no solution.
+     */
+    public Optional<Grid> solveRandomly(Random random) {
+        requireNonNull(random);
+        return solveRandomly(givensOf(grid), random).map(this::toGrid);
+    }
+    
+    Optional<int[]> solveRandomly(int[] givens, Random random) {
+        List<int[]> solutions = search(givens, 1, random);
+        return solutions.isEmpty()
+                ? Optional.empty()
+                : Optional.of(solutions.get(0));
+    }
+    
+    /**
+     * Counts the number of solutions of the puzzle, stopping at the given limit.
+     * 
+     * @param limit
+     *            the maximum number of solutions to look for. A limit of 2 is enough to 
+     *            tell if a puzzle has a unique solution.
+     * @return the number of solutions, which is never more than {@code limit}.
+     */
+    public int countSolutions(int limit) {
+        return countSolutions(givensOf(grid), limit);
+    }
+    
+    /**
+     * Counts the solutions when the given digits are replaced by {@code givens}, a digit
+     * (or 0) for each cell, row by row. This lets the same solver, with its constraints,
+     * be used for many different sets of givens.
+     */
+    int countSolutions(int[] givens, int limit) {
+        checkArgument(limit > 0, "limit must be positive (was %s)", limit);
+        return search(givens, limit, null).size();
+    }
+    
+    /**
+     * Returns a lazy stream of all the solutions of the puzzle. The solutions are found one 
+     * at a time as the stream is consumed, so it is fine to ask for the solutions of a grid
+     * with millions of them, as long as the stream is limited.
+     */
+    public Stream<Grid> solutions() {
+        return Streams.stream(solutionIterator(givensOf(grid))).map(this::toGrid);
+    }
+    
+    Iterator<int[]> solutionIterator(int[] givens) {
+        return new SolutionIterator(createInitialState(givens).orElse(null), this::propagate);
+    }
+    
+    /**
+     * Checks if the puzzle has exactly one solution.
+     */
+    public boolean hasUniqueSolution() {
+        return countSolutions(2) == 1;
+    }
+    
+    static int[] givensOf(Grid grid) {
+        int[] givens = new int[81];
+        grid.getCells().forEach((p, c) -> {
+            if (c.isGiven()) {
+                givens[index(p)] = c.getValue().get().toInt();
+            }
+        });
+        return givens;
+    }
+    
+    private List<int[]> search(int[] givens, int limit, @Nullable Random random) {
+        List<int[]> solutions = new ArrayList<>();
+        createInitialState(givens).ifPresent(s -> search(s, limit, random, NO_DEADLINE, solutions));
+        return solutions;
+    }
+    
+    private Optional<SearchState> createInitialState(int[] givens) {
+        SearchState state = new SearchState(peers);
+        for (int cell = 0; cell < 81; ++cell) {
+            if (givens[cell] != 0 && !state.assign(cell, givens[cell])) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(state);
+    }
+    
+    private void search(SearchState state, int limit, @Nullable Random random, long deadlineInNanos,
+            List<int[]> solutions) {
+        if (deadlineInNanos != NO_DEADLINE && System.nanoTime() - deadlineInNanos > 0) {
+            throw new SearchTimedOut();
+        }
+        if (!propagate(state)) {
+            return;
+        }
+        int cell = state.selectCell();
+        if (cell < 0) {
+            solutions.add(state.getValues());
+            return;
+        }
+        int candidates = state.candidates(cell);
+        while (candidates != 0 && solutions.size() < limit) {
+            int digit = (random == null)
+                    ? Digits.lowest(candidates)
+                    : Digits.random(candidates, random);
+            candidates &= ~Digits.bit(digit);
+            SearchState next = state.copy();
+            if (next.assign(cell, digit)) {
+                search(next, limit, random, deadlineInNanos, solutions);
+            }
+        }
+    }
+    
+    /**
+     * Runs naked singles, hidden singles and the constraint propagators until nothing
+     * more can be eliminated.
+     * 
+     * @return {@code false} if a contradiction was found, {@code true} otherwise.
+     */
+    private boolean propagate(SearchState state) {
+        int modifications;
+        do {
+            modifications = state.getModifications();
+            if (!assignNakedSingles(state) || !assignHiddenSingles(state)) {
+                return false;
+            }
+            for (Propagator p : propagators) {
+                if (!p.propagate(state)) {
+                    return false;
+                }
+            }
+        } while (modifications != state.getModifications());
+        return true;
+    }
+    
+    private static boolean assignNakedSingles(SearchState state) {
+        for (int cell = 0; cell < 81; ++cell) {
+            if (!state.isAssigned(cell) && Digits.isSingle(state.candidates(cell))) {
+                if (!state.assign(cell, Digits.digit(state.candidates(cell)))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private boolean assignHiddenSingles(SearchState state) {
+        for (int[] house : houses) {
+            int atLeastOnce = 0;
+            int moreThanOnce = 0;
+            int placed = 0;
+            for (int cell : house) {
+                if (state.isAssigned(cell)) {
+                    placed |= Digits.bit(state.value(cell));
+                } else {
+                    moreThanOnce |= (atLeastOnce & state.candidates(cell));
+                    atLeastOnce |= state.candidates(cell);
+                }
+            }
+            if ((atLeastOnce | placed) != Digits.ALL) {
+                // At least one digit can't go anywhere in this house.
+                return false;
+            }
+            int singles = atLeastOnce & ~moreThanOnce & ~placed;
+            while (singles != 0) {
+                int digit = Digits.lowest(singles);
+                singles &= ~Digits.bit(digit);
+                if (!assignHiddenSingle(state, house, digit)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static boolean assignHiddenSingle(SearchState state, int[] house, int digit) {
+        for (int cell : house) {
+            if (!state.isAssigned(cell) && (state.candidates(cell) & Digits.bit(digit)) != 0) {
+                return state.assign(cell, digit);
+            }
+        }
+        // The digit was eliminated by an assignment made for another hidden single in 
+        // the same house.
+        return false;
+    }
+    
+    private Grid toGrid(int[] values) {
+        List<Cell> cells = new ArrayList<>();
+        for (int n = 0; n < 81; ++n) {
+            Value value = Value.of(values[n]);
+            Position p = new Position(1 + n / 9, 1 + n % 9);
+            cells.add(grid.cellAt(p).isGiven() ? Cell.given(value) : Cell.unknownWithValue(value));
+        }
+        return new Grid(cells);
+    }
+    
+    
+    /**
+     * Unwinds the recursive search when it has run out of time.
+     */
+    private static class SearchTimedOut extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        public SearchTimedOut() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package jetoze.tzudoku.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bit mask utilities used by the complete solver. The digit {@code d} is represented by
+ * bit {@code d - 1}, so the mask {@code 0x1FF} represents all nine digits.
+ */
+final class Digits {
+
+    static final int ALL = 0x1FF;
+    
+    /**
+     * Precomputed digit combinations, indexed by [number of digits][sum]. Each 
+     * combination is a mask of distinct digits.
+     */
+    private static final int[][][] COMBINATIONS = computeCombinations();
+    
+    static int bit(int digit) {
+        return 1 << (digit - 1);
+    }
+    
+    /**
+     * Returns the single digit represented by the given mask, which must have exactly one bit set.
+     */
+    static int digit(int mask) {
+        return Integer.numberOfTrailingZeros(mask) + 1;
+    }
+    
+    static int lowest(int mask) {
+        return Integer.numberOfTrailingZeros(mask) + 1;
+    }
+    
+    static int highest(int mask) {
+        return 32 - Integer.numberOfLeadingZeros(mask);
+    }
+    
+    /**
+     * Returns a randomly selected digit of the given mask, which must not be empty.
+     */
+    static int random(int mask, Random random) {
+        for (int n = random.nextInt(count(mask)); n > 0; --n) {
+            mask &= mask - 1;
+        }
+        return lowest(mask);
+    }
+    
+    static boolean isSingle(int mask) {
+        return mask != 0 && (mask & (mask - 1)) == 0;
+    }
+    
+    static int count(int mask) {
+        return Integer.bitCount(mask);
+    }
+    
+    /**
+     * Returns a mask of all digits strictly greater than the given digit (which can be 0).
+     */
+    static int above(int digit) {
+        return ALL & ~((1 << digit) - 1);
+    }
+    
+    /**
+     * Returns a mask of all digits strictly smaller than the given digit (which can be 10).
+     */
+    static int below(int digit) {
+        return (1 << (digit - 1)) - 1;
+    }
+    
+    /**
+     * Returns all combinations of {@code size} distinct digits that add up to {@code sum}.
+     */
+    static int[] combinations(int size, int sum) {
+        if (size < 0 || size > 9 || sum < 0 || sum > 45) {
+            return new int[0];
+        }
+        return COMBINATIONS[size][sum];
+    }
+    
+    private static int[][][] computeCombinations() {
+        List<List<List<Integer>>> table = new ArrayList<>();
+        for (int size = 0; size <= 9; ++size) {
+            List<List<Integer>> bySum = new ArrayList<>();
+            for (int sum = 0; sum <= 45; ++sum) {
+                bySum.add(new ArrayList<>());
+            }
+            table.add(bySum);
+        }
+        for (int mask = 0; mask <= ALL; ++mask) {
+            int sum = 0;
+            for (int d = 1; d <= 9; ++d) {
+                if ((mask & bit(d)) != 0) {
+                    sum += d;
+                }
+            }
+            table.get(count(mask)).get(sum).add(mask);
+        }
+        int[][][] result = new int[10][46][];
+        for (int size = 0; size <= 9; ++size) {
+            for (int sum = 0; sum <= 45; ++sum) {
+                result[size][sum] = table.get(size).get(sum).stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        return result;
+    }
+    
+    private Digits() {/**/}
+    
+}
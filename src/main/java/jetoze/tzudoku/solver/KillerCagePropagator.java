@@ -0,0 +1,65 @@
+package jetoze.tzudoku.solver;
+
+/**
+ * Propagator for a killer cage: digits cannot repeat in the cage, and they must add up
+ * to the cage sum, if there is one. The candidates of each cell are restricted to the union
+ * of the digit combinations that are still possible for the cage.
+ */
+final class KillerCagePropagator implements Propagator {
+
+    private final int[] cells;
+    /**
+     * The combinations of digits that add up to the cage sum, or {@code null} if the
+     * cage has no sum.
+     */
+    private final int[] combinations;
+    
+    KillerCagePropagator(int[] cells, Integer sum) {
+        this.cells = cells;
+        this.combinations = (sum != null)
+                ? Digits.combinations(cells.length, sum)
+                : null;
+    }
+
+    @Override
+    public boolean propagate(SearchState state) {
+        int placed = 0;
+        for (int cell : cells) {
+            if (state.isAssigned(cell)) {
+                int bit = Digits.bit(state.value(cell));
+                if ((placed & bit) != 0) {
+                    return false;
+                }
+                placed |= bit;
+            }
+        }
+        int allowed = Digits.ALL;
+        if (combinations != null) {
+            allowed = 0;
+            for (int combination : combinations) {
+                if ((combination & placed) == placed && coversAllCells(state, combination)) {
+                    allowed |= combination;
+                }
+            }
+            if (allowed == 0) {
+                return false;
+            }
+        }
+        for (int cell : cells) {
+            if (!state.isAssigned(cell) && !state.restrict(cell, allowed & ~placed)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean coversAllCells(SearchState state, int combination) {
+        for (int cell : cells) {
+            if ((state.candidates(cell) & combination) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,16 @@
+package jetoze.tzudoku.solver;
+
+/**
+ * Pushes a constraint into the search of the {@link CompleteSolver} by eliminating candidates
+ * that would violate the constraint.
+ */
+interface Propagator {
+    
+    /**
+     * Eliminates candidates from the given state.
+     * 
+     * @return {@code false} if the state violates the constraint, {@code true} otherwise.
+     */
+    boolean propagate(SearchState state);
+    
+}
@@ -0,0 +1,320 @@
+package jetoze.tzudoku.solver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import jetoze.tzudoku.hint.TechniqueScheduler;
+import jetoze.tzudoku.model.Cell;
+import jetoze.tzudoku.model.DifficultyRater;
+import jetoze.tzudoku.model.DifficultyRating;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.Value;
+
+/**
+ * Generates random classic puzzles with a unique solution.
+ * <p>
+ * A puzzle is generated by first filling an empty grid with a randomized {@link CompleteSolver}
+ * search, and then removing givens in random order for as long as the solution stays unique.
+ * The givens are removed in groups that respect the requested {@link Symmetry}. Finally the
+ * puzzle is rated with a {@link DifficultyRater}, and puzzles outside of the requested
+ * difficulty range are thrown away.
+ */
+public final class PuzzleGenerator {
+
+    /**
+     * The symmetry of the givens in the generated puzzles.
+     */
+    public static enum Symmetry {
+
+        NONE {
+
+            @Override
+            int mirror(int cell) {
+                return cell;
+            }
+        },
+
+        /**
+         * The givens are symmetric under a 180 degree rotation around the center cell.
+         */
+        ROTATIONAL {
+
+            @Override
+            int mirror(int cell) {
+                return 80 - cell;
+            }
+        },
+
+        /**
+         * The givens are symmetric around the main diagonal.
+         */
+        DIAGONAL {
+
+            @Override
+            int mirror(int cell) {
+                return 9 * (cell % 9) + cell / 9;
+            }
+        },
+
+        /**
+         * The givens are symmetric around the middle column.
+         */
+        MIRROR {
+
+            @Override
+            int mirror(int cell) {
+                return 9 * (cell / 9) + 8 - cell % 9;
+            }
+        };
+
+        /**
+         * Returns the cell that must have a given if the given cell has one.
+         */
+        abstract int mirror(int cell);
+    }
+
+    private static final Duration RATING_TIME_LIMIT = Duration.ofSeconds(10L);
+
+    private final Symmetry symmetry;
+    private final int targetGivens;
+    private final double minDifficulty;
+    private final double maxDifficulty;
+    private final int maxAttempts;
+    private final int parallelism;
+    /**
+     * Used for filling the grid and checking uniqueness. The solver is stateless, so it
+     * can be shared between the threads.
+     */
+    private final CompleteSolver solver = new CompleteSolver(Puzzle.EMPTY);
+    private final DifficultyRater rater = new DifficultyRater(RATING_TIME_LIMIT, TechniqueScheduler.adaptive());
+
+    private PuzzleGenerator(Builder builder) {
+        this.symmetry = builder.symmetry;
+        this.targetGivens = builder.targetGivens;
+        this.minDifficulty = builder.minDifficulty;
+        this.maxDifficulty = builder.maxDifficulty;
+        this.maxAttempts = builder.maxAttempts;
+        this.parallelism = builder.parallelism;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Generates a single puzzle on the calling thread.
+     *
+     * @return an Optional containing a grid with the givens of the puzzle, or an empty
+     *         Optional if no puzzle within the requested difficulty range was found in
+     *         the allowed number of attempts.
+     */
+    public Optional<Grid> generate(Random random) {
+        requireNonNull(random);
+        for (int attempt = 0; attempt < maxAttempts; ++attempt) {
+            Optional<Grid> grid = attempt(random);
+            if (grid.isPresent()) {
+                return grid;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Generates puzzles in parallel on a ForkJoinPool, and hands each puzzle to the consumer
+     * as soon as it is ready. The consumer is called on a single thread of its own, in the
+     * order in which the puzzles are generated, so that a slow consumer, e.g. one that writes
+     * the puzzles to disk, does not hold up the threads that generate the puzzles.
+     *
+     * @return a future that completes when all puzzles have been generated and consumed. 
+     *         Fewer than {@code count} puzzles are generated if the requested difficulty range
+     *         could not be met in the allowed number of attempts. If the consumer throws an
+     *         exception, the remaining puzzles are still consumed, and the future completes
+     *         with the first exception.
+     */
+    public CompletableFuture<Void> generate(int count, Consumer<? super Grid> consumer) {
+        checkArgument(count > 0, "count must be positive (was %s)", count);
+        requireNonNull(consumer);
+        ExecutorService consumerThread = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("puzzle-consumer-%d")
+                .setDaemon(true)
+                .build());
+        AtomicReference<RuntimeException> consumerFailure = new AtomicReference<>();
+        Consumer<Grid> handOver = grid -> consumerThread.execute(() -> {
+            try {
+                consumer.accept(grid);
+            } catch (RuntimeException e) {
+                consumerFailure.compareAndSet(null, e);
+            }
+        });
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        return CompletableFuture.runAsync(() -> new GenerateTask(this, count, handOver).invoke(), pool)
+                .whenComplete((v, e) -> pool.shutdown())
+                // This runs after the consumer is done with the puzzles that were handed over.
+                .thenRunAsync(() -> {
+                    if (consumerFailure.get() != null) {
+                        throw consumerFailure.get();
+                    }
+                }, consumerThread)
+                .whenComplete((v, e) -> consumerThread.shutdown());
+    }
+
+    private Optional<Grid> attempt(Random random) {
+        int[] givens = solver.solveRandomly(new int[81], random)
+                .orElseThrow(() -> new AssertionError("Failed to fill an empty grid"));
+        removeGivens(givens, random);
+        Grid grid = toGrid(givens);
+        DifficultyRating rating = rater.rate(new Puzzle("Generated", grid));
+        boolean accepted = rating.isComplete() &&
+                rating.getValue() >= minDifficulty &&
+                rating.getValue() <= maxDifficulty;
+        return accepted
+                ? Optional.of(grid)
+                : Optional.empty();
+    }
+
+    private void removeGivens(int[] givens, Random random) {
+        List<Integer> cells = new ArrayList<>(81);
+        for (int cell = 0; cell < 81; ++cell) {
+            cells.add(cell);
+        }
+        Collections.shuffle(cells, random);
+        int numberOfGivens = 81;
+        for (int cell : cells) {
+            if (numberOfGivens <= targetGivens) {
+                return;
+            }
+            int mirror = symmetry.mirror(cell);
+            if (givens[cell] == 0) {
+                // Already removed as the mirror of another cell.
+                continue;
+            }
+            int digit = givens[cell];
+            int mirrorDigit = givens[mirror];
+            givens[cell] = 0;
+            givens[mirror] = 0;
+            if (solver.countSolutions(givens, 2) == 1) {
+                numberOfGivens -= (cell == mirror) ? 1 : 2;
+            } else {
+                givens[cell] = digit;
+                givens[mirror] = mirrorDigit;
+            }
+        }
+    }
+
+    private static Grid toGrid(int[] givens) {
+        List<Cell> cells = new ArrayList<>(81);
+        for (int digit : givens) {
+            cells.add(digit == 0
+                    ? Cell.empty()
+                    : Cell.given(Value.of(digit)));
+        }
+        return new Grid(cells);
+    }
+
+
+    /**
+     * Splits the requested number of puzzles in halves until each task generates a single
+     * puzzle, so that the work is spread over all the threads of the pool.
+     */
+    private static class GenerateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PuzzleGenerator generator;
+        private final int count;
+        private final Consumer<Grid> consumer;
+
+        public GenerateTask(PuzzleGenerator generator, int count, Consumer<Grid> consumer) {
+            this.generator = generator;
+            this.count = count;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (count == 1) {
+                generator.generate(ThreadLocalRandom.current()).ifPresent(consumer);
+            } else {
+                int half = count / 2;
+                invokeAll(new GenerateTask(generator, half, consumer),
+                        new GenerateTask(generator, count - half, consumer));
+            }
+        }
+    }
+
+
+    public static final class Builder {
+        private Symmetry symmetry = Symmetry.NONE;
+        private int targetGivens = 0;
+        private double minDifficulty = 0.0;
+        private double maxDifficulty = Double.MAX_VALUE;
+        private int maxAttempts = 100;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        private Builder() {/**/}
+
+        public Builder symmetry(Symmetry symmetry) {
+            this.symmetry = requireNonNull(symmetry);
+            return this;
+        }
+
+        /**
+         * Sets the number of givens at which the generator stops removing givens. The
+         * generated puzzles can have more givens than this, if no more givens can be removed
+         * without losing the uniqueness of the solution.
+         */
+        public Builder targetGivens(int targetGivens) {
+            checkArgument(targetGivens >= 0 && targetGivens <= 81, "targetGivens must be in [0, 81] (was %s)", targetGivens);
+            this.targetGivens = targetGivens;
+            return this;
+        }
+
+        /**
+         * Sets the range of {@link DifficultyRating#getValue() difficulty ratings} of the
+         * generated puzzles.
+         */
+        public Builder difficulty(double minDifficulty, double maxDifficulty) {
+            checkArgument(minDifficulty <= maxDifficulty, "minDifficulty must not be greater than maxDifficulty");
+            this.minDifficulty = minDifficulty;
+            this.maxDifficulty = maxDifficulty;
+            return this;
+        }
+
+        /**
+         * Sets the number of grids we generate for each puzzle before giving up on finding
+         * one within the requested difficulty range.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            checkArgument(maxAttempts > 0, "maxAttempts must be positive (was %s)", maxAttempts);
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            checkArgument(parallelism > 0, "parallelism must be positive (was %s)", parallelism);
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public PuzzleGenerator build() {
+            return new PuzzleGenerator(this);
+        }
+    }
+}
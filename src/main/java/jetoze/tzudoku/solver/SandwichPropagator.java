@@ -0,0 +1,97 @@
+package jetoze.tzudoku.solver;
+
+/**
+ * Propagator for a sandwich sum in a row or column. Every possible placement of the 1 and
+ * the 9 is tried, and the candidates of each cell are restricted to the union of the digits 
+ * it can take in the placements that are still possible.
+ */
+final class SandwichPropagator implements Propagator {
+
+    private static final int CRUSTS = Digits.bit(1) | Digits.bit(9);
+    
+    private static final int FILLING = Digits.ALL & ~CRUSTS;
+    
+    /**
+     * The cells of the row or column, in order.
+     */
+    private final int[] cells;
+    private final int sum;
+    
+    SandwichPropagator(int[] cells, int sum) {
+        this.cells = cells;
+        this.sum = sum;
+    }
+
+    @Override
+    public boolean propagate(SearchState state) {
+        int[] allowed = new int[9];
+        boolean possible = false;
+        for (int one = 0; one < 9; ++one) {
+            if ((state.candidates(cells[one]) & Digits.bit(1)) == 0) {
+                continue;
+            }
+            for (int nine = 0; nine < 9; ++nine) {
+                if (one == nine || (state.candidates(cells[nine]) & Digits.bit(9)) == 0) {
+                    continue;
+                }
+                int from = Math.min(one, nine) + 1;
+                int to = Math.max(one, nine);
+                int filling = possibleFilling(state, from, to);
+                if (filling < 0) {
+                    continue;
+                }
+                possible = true;
+                for (int n = 0; n < 9; ++n) {
+                    if (n == one) {
+                        allowed[n] |= Digits.bit(1);
+                    } else if (n == nine) {
+                        allowed[n] |= Digits.bit(9);
+                    } else if (n >= from && n < to) {
+                        allowed[n] |= filling;
+                    } else {
+                        allowed[n] |= FILLING;
+                    }
+                }
+            }
+        }
+        if (!possible) {
+            return false;
+        }
+        for (int n = 0; n < 9; ++n) {
+            if (!state.restrict(cells[n], allowed[n])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the union of the digit combinations that can go into the cells in the range
+     * [from, to), or -1 if no combination is possible.
+     */
+    private int possibleFilling(SearchState state, int from, int to) {
+        int placed = 0;
+        for (int n = from; n < to; ++n) {
+            if (state.isAssigned(cells[n])) {
+                placed |= Digits.bit(state.value(cells[n]));
+            }
+        }
+        int union = 0;
+        boolean found = false;
+        for (int combination : Digits.combinations(to - from, sum)) {
+            if ((combination & CRUSTS) != 0 || (combination & placed) != placed) {
+                continue;
+            }
+            boolean coversAllCells = true;
+            for (int n = from; n < to && coversAllCells; ++n) {
+                coversAllCells = (state.candidates(cells[n]) & combination) != 0;
+            }
+            if (coversAllCells) {
+                union |= combination;
+                found = true;
+            }
+        }
+        return found ? union : -1;
+    }
+
+}
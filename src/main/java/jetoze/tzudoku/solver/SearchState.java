@@ -0,0 +1,128 @@
+package jetoze.tzudoku.solver;
+
+import java.util.Arrays;
+
+/**
+ * The state of a node in the search tree of the {@link CompleteSolver}: the digit of each
+ * cell (0 if not yet decided), and the remaining candidates of each cell, as bit masks. 
+ * Cells are indexed 0-80, row by row.
+ * <p>
+ * Narrowing operations return {@code false} if they lead to a contradiction, in which case 
+ * the state must be abandoned.
+ */
+final class SearchState {
+
+    private final int[][] peers;
+    private final int[] values;
+    private final int[] candidates;
+    /**
+     * Incremented every time the state is modified. Used for detecting when propagation
+     * has reached a fixpoint.
+     */
+    private int modifications;
+    
+    SearchState(int[][] peers) {
+        this.peers = peers;
+        this.values = new int[81];
+        this.candidates = new int[81];
+        Arrays.fill(candidates, Digits.ALL);
+    }
+    
+    private SearchState(SearchState original) {
+        this.peers = original.peers;
+        this.values = original.values.clone();
+        this.candidates = original.candidates.clone();
+    }
+    
+    SearchState copy() {
+        return new SearchState(this);
+    }
+    
+    int value(int cell) {
+        return values[cell];
+    }
+    
+    boolean isAssigned(int cell) {
+        return values[cell] != 0;
+    }
+    
+    int candidates(int cell) {
+        return candidates[cell];
+    }
+    
+    int getModifications() {
+        return modifications;
+    }
+    
+    /**
+     * Places the digit in the cell, and removes it as a candidate from all cells that see
+     * this cell.
+     */
+    boolean assign(int cell, int digit) {
+        int bit = Digits.bit(digit);
+        if (values[cell] != 0) {
+            return values[cell] == digit;
+        }
+        if ((candidates[cell] & bit) == 0) {
+            return false;
+        }
+        values[cell] = digit;
+        candidates[cell] = bit;
+        ++modifications;
+        for (int peer : peers[cell]) {
+            if (values[peer] == digit) {
+                return false;
+            }
+            if ((candidates[peer] & bit) != 0) {
+                candidates[peer] &= ~bit;
+                if (candidates[peer] == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Restricts the candidates of the cell to the digits in the given mask.
+     */
+    boolean restrict(int cell, int mask) {
+        int restricted = candidates[cell] & mask;
+        if (restricted == candidates[cell]) {
+            return true;
+        }
+        if (restricted == 0) {
+            return false;
+        }
+        candidates[cell] = restricted;
+        ++modifications;
+        return true;
+    }
+    
+    /**
+     * Returns the unassigned cell with the fewest candidates, or -1 if all cells have been
+     * assigned.
+     */
+    int selectCell() {
+        int best = -1;
+        int fewest = 10;
+        for (int cell = 0; cell < 81; ++cell) {
+            if (values[cell] == 0) {
+                int count = Digits.count(candidates[cell]);
+                if (count < fewest) {
+                    best = cell;
+                    fewest = count;
+                    if (count == 2) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+    
+    int[] getValues() {
+        return values.clone();
+    }
+    
+}
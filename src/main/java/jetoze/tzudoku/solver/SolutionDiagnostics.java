@@ -0,0 +1,148 @@
+package jetoze.tzudoku.solver;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.Value;
+
+/**
+ * Diagnoses the solutions of a puzzle that is being built, by enumerating up to a given
+ * number of its solutions.
+ * <p>
+ * If the puzzle has more than one solution, the diagnostics tell which cells the solutions
+ * disagree on, and suggest a given to add. The solutions are consumed one at a time from
+ * a {@link SolutionIterator} and only tallied per cell and digit, so no solution grids are
+ * kept around.
+ */
+public final class SolutionDiagnostics {
+
+    private final int numberOfSolutions;
+    private final boolean limitReached;
+    private final ImmutableSet<Position> ambiguousCells;
+    @Nullable
+    private final Given suggestedGiven;
+
+    private SolutionDiagnostics(int numberOfSolutions, boolean limitReached, ImmutableSet<Position> ambiguousCells,
+            @Nullable Given suggestedGiven) {
+        this.numberOfSolutions = numberOfSolutions;
+        this.limitReached = limitReached;
+        this.ambiguousCells = ambiguousCells;
+        this.suggestedGiven = suggestedGiven;
+    }
+
+    /**
+     * Diagnoses the given puzzle.
+     *
+     * @param limit
+     *            the maximum number of solutions to look at.
+     */
+    public static SolutionDiagnostics of(Puzzle puzzle, int limit) {
+        requireNonNull(puzzle);
+        checkArgument(limit > 0, "limit must be positive (was %s)", limit);
+        CompleteSolver solver = new CompleteSolver(puzzle);
+        Iterator<int[]> solutions = solver.solutionIterator(CompleteSolver.givensOf(puzzle.getGrid()));
+        // The number of solutions that have each digit in each cell.
+        int[][] counts = new int[81][10];
+        int numberOfSolutions = 0;
+        while (numberOfSolutions < limit && solutions.hasNext()) {
+            int[] solution = solutions.next();
+            for (int cell = 0; cell < 81; ++cell) {
+                ++counts[cell][solution[cell]];
+            }
+            ++numberOfSolutions;
+        }
+        boolean limitReached = solutions.hasNext();
+        ImmutableSet.Builder<Position> ambiguousCells = ImmutableSet.builder();
+        Given suggestedGiven = null;
+        int fewestSolutions = Integer.MAX_VALUE;
+        for (int cell = 0; cell < 81; ++cell) {
+            for (int digit = 1; digit <= 9; ++digit) {
+                int count = counts[cell][digit];
+                if (count == 0 || count == numberOfSolutions) {
+                    continue;
+                }
+                Position p = new Position(1 + cell / 9, 1 + cell % 9);
+                ambiguousCells.add(p);
+                // The digit that appears in the fewest of the solutions rules out the most
+                // of them if it is added as a given.
+                if (count < fewestSolutions) {
+                    fewestSolutions = count;
+                    suggestedGiven = new Given(p, Value.of(digit));
+                }
+            }
+        }
+        return new SolutionDiagnostics(numberOfSolutions, limitReached, ambiguousCells.build(), suggestedGiven);
+    }
+
+    public boolean hasSolution() {
+        return numberOfSolutions > 0;
+    }
+
+    /**
+     * Checks if the puzzle has exactly one solution. This is {@code false} if the limit was
+     * reached, since then there are more solutions than the ones that were found.
+     */
+    public boolean hasUniqueSolution() {
+        return numberOfSolutions == 1 && !limitReached;
+    }
+
+    /**
+     * Returns the number of solutions that were found. If {@link #isLimitReached()} is
+     * {@code true} the puzzle has more solutions than this.
+     */
+    public int getNumberOfSolutions() {
+        return numberOfSolutions;
+    }
+
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    /**
+     * Returns the cells that do not have the same digit in all the solutions that were found.
+     */
+    public ImmutableSet<Position> getAmbiguousCells() {
+        return ambiguousCells;
+    }
+
+    /**
+     * Returns a given that, if added to the puzzle, rules out as many as possible of the
+     * solutions that were found. Empty if the puzzle has a unique solution, or no solution.
+     */
+    public Optional<Given> getSuggestedGiven() {
+        return Optional.ofNullable(suggestedGiven);
+    }
+
+
+    public static final class Given {
+        private final Position position;
+        private final Value value;
+
+        public Given(Position position, Value value) {
+            this.position = requireNonNull(position);
+            this.value = requireNonNull(value);
+        }
+
+        public Position getPosition() {
+            return position;
+        }
+
+        public Value getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s in %s", value, position);
+        }
+    }
+}
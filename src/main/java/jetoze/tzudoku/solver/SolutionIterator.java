@@ -0,0 +1,110 @@
+package jetoze.tzudoku.solver;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+/**
+ * Enumerates the solutions of a puzzle lazily, one at a time, using the same backtracking
+ * search as the {@link CompleteSolver}.
+ * <p>
+ * Rather than recursing, the search keeps an explicit stack with one frame per branching
+ * point, so that it can be suspended when a solution is found and resumed where it left off
+ * on the next call to {@link #next()}. The stack is never deeper than the number of cells,
+ * so the memory footprint is the same no matter how many solutions there are.
+ * <p>
+ * The solutions are returned as the digit of each cell, row by row.
+ */
+final class SolutionIterator implements Iterator<int[]> {
+
+    private final Predicate<SearchState> propagator;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    @Nullable
+    private int[] nextSolution;
+    
+    /**
+     * @param initialState
+     *            the state with the given digits assigned, or {@code null} if the givens
+     *            are contradictory.
+     * @param propagator
+     *            narrows down the candidates of a state, returning {@code false} if the
+     *            state leads to a contradiction.
+     */
+    SolutionIterator(@Nullable SearchState initialState, Predicate<SearchState> propagator) {
+        this.propagator = propagator;
+        if (initialState != null) {
+            push(initialState);
+        }
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (nextSolution == null) {
+            nextSolution = findNextSolution();
+        }
+        return nextSolution != null;
+    }
+
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int[] solution = nextSolution;
+        nextSolution = null;
+        return solution;
+    }
+    
+    @Nullable
+    private int[] findNextSolution() {
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.isSolution()) {
+                stack.pop();
+                return frame.state.getValues();
+            }
+            if (frame.candidates == 0) {
+                stack.pop();
+                continue;
+            }
+            int digit = Digits.lowest(frame.candidates);
+            frame.candidates &= ~Digits.bit(digit);
+            SearchState next = frame.state.copy();
+            if (next.assign(frame.cell, digit)) {
+                push(next);
+            }
+        }
+        return null;
+    }
+    
+    private void push(SearchState state) {
+        if (propagator.test(state)) {
+            stack.push(new Frame(state));
+        }
+    }
+    
+    
+    /**
+     * A branching point in the search: a propagated state, the cell we branch on, and the
+     * candidates of that cell that have not been tried yet.
+     */
+    private static class Frame {
+        private final SearchState state;
+        private final int cell;
+        private int candidates;
+        
+        public Frame(SearchState state) {
+            this.state = state;
+            this.cell = state.selectCell();
+            this.candidates = (cell < 0) ? 0 : state.candidates(cell);
+        }
+        
+        public boolean isSolution() {
+            return cell < 0;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package jetoze.tzudoku.solver;
+
+/**
+ * Propagator for a thermometer. Lower bounds are pushed from the bulb towards the tip, 
+ * and upper bounds from the tip towards the bulb.
+ */
+final class ThermometerPropagator implements Propagator {
+
+    /**
+     * The cells of the thermometer, ordered from the bulb to the tip.
+     */
+    private final int[] cells;
+    
+    ThermometerPropagator(int[] cells) {
+        this.cells = cells;
+    }
+
+    @Override
+    public boolean propagate(SearchState state) {
+        int previous = 0;
+        for (int cell : cells) {
+            if (!state.restrict(cell, Digits.above(previous))) {
+                return false;
+            }
+            previous = Digits.lowest(state.candidates(cell));
+        }
+        int next = 10;
+        for (int n = cells.length - 1; n >= 0; --n) {
+            int cell = cells[n];
+            if (!state.restrict(cell, Digits.below(next))) {
+                return false;
+            }
+            next = Digits.highest(state.candidates(cell));
+        }
+        return true;
+    }
+
+}
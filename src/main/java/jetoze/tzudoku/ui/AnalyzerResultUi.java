@@ -17,6 +17,7 @@ import jetoze.gunga.widget.TableWidget;
 import jetoze.gunga.widget.Widget;
 import jetoze.tzudoku.hint.Hint;
 import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.model.DifficultyRating;
 import jetoze.tzudoku.model.GridSolver;
 
 public class AnalyzerResultUi implements Widget {
@@ -61,7 +62,10 @@ public class AnalyzerResultUi implements Widget {
 
     private JComponent layoutUi(GridSolver.Result result) {
         // TODO: List of individual steps.
-        JLabel solvedLabel = new JLabel(result.isSolved() ? "Yes" : "No", UiLook.getAnalyzerResultIcon(result), SwingConstants.LEADING);
+        String solvedText = result.isSolved()
+                ? "Yes"
+                : (result.isInterrupted() ? "No (gave up)" : "No");
+        JLabel solvedLabel = new JLabel(solvedText, UiLook.getAnalyzerResultIcon(result), SwingConstants.LEADING);
         CheckBoxWidget showTechniquesCheckBox = new CheckBoxWidget();
         showTechniquesCheckBox.addChangeListener(this::setShowTechniques);
         JPanel stats = Layouts.form()
@@ -69,6 +73,7 @@ public class AnalyzerResultUi implements Widget {
                 .addRow("Time:", result.getDuration().toMillis() + " ms")
                 .addRow("Number of Steps:", Integer.toString(result.getHintsApplied().size()))
                 .addRow("Number of Techniques:", Long.toString(result.getNumberOfTechniquesUsed()))
+                .addRow("Difficulty:", DifficultyRating.of(result).toString())
                 .addRow("Show Techniques:", showTechniquesCheckBox)
                 .build();
         return Layouts.border(0, 5)
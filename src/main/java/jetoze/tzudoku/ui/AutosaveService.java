@@ -0,0 +1,136 @@
+package jetoze.tzudoku.ui;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import jetoze.gunga.UiThread;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Puzzle;
+
+/**
+ * Saves the progress of the current puzzle in the background, as the user is solving it.
+ * <p>
+ * Edits are coalesced, so that the puzzle is written at most once per interval regardless
+ * of how quickly the user is making changes. The state of the puzzle is copied on the UI
+ * thread, which is cheap, and the copy is written to disk on a background thread, so that
+ * the UI thread never waits for disk I/O. Loading another puzzle saves any unsaved changes
+ * to the previous one right away.
+ * <p>
+ * Call {@link #shutdown()} before the application exits, to write any pending changes.
+ */
+public class AutosaveService {
+
+    /**
+     * The maximum time we wait for pending writes when shutting down.
+     */
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5L);
+
+    private final PuzzleUiModel model;
+    private final StatusPanel statusPanel;
+    private final Duration interval;
+    private final ScheduledThreadPoolExecutor executor = createExecutor();
+    /**
+     * The puzzle that has been edited since it was last saved.
+     */
+    @Nullable
+    private Puzzle dirtyPuzzle;
+    private boolean saveScheduled;
+
+    public AutosaveService(PuzzleUiModel model, StatusPanel statusPanel, Duration interval) {
+        this.model = requireNonNull(model);
+        this.statusPanel = requireNonNull(statusPanel);
+        checkArgument(!interval.isNegative() && !interval.isZero(), "The interval must be positive");
+        this.interval = interval;
+        model.getGridModel().addListener(new GridUiModelListener() {
+
+            @Override
+            public void onNewPuzzleLoaded() {
+                // The previous puzzle will not be edited anymore, so there is no point
+                // in waiting with saving it.
+                saveNow();
+            }
+
+            @Override
+            public void onCellStateChanged() {
+                markAsDirty();
+            }
+        });
+    }
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setNameFormat("autosave-%d")
+                .setDaemon(true)
+                .build());
+        // Scheduled saves are dropped on shutdown, since shutdown() saves any pending 
+        // changes itself.
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+
+    private void markAsDirty() {
+        UiThread.throwIfNotUiThread();
+        dirtyPuzzle = model.getPuzzle();
+        if (!saveScheduled) {
+            saveScheduled = true;
+            executor.schedule(() -> UiThread.runLater(() -> {
+                saveScheduled = false;
+                saveNow();
+            }), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void saveNow() {
+        UiThread.throwIfNotUiThread();
+        Puzzle puzzle = dirtyPuzzle;
+        dirtyPuzzle = null;
+        if (puzzle == null || puzzle.isEmpty()) {
+            return;
+        }
+        Puzzle snapshot = copyOf(puzzle);
+        executor.execute(() -> write(snapshot));
+    }
+
+    private static Puzzle copyOf(Puzzle puzzle) {
+        // The constraints are immutable, so only the grid needs to be copied.
+        return new Puzzle(puzzle.getName(),
+                Grid.copyOf(puzzle.getGrid()),
+                puzzle.getSandwiches(),
+                puzzle.getKillerCages(),
+                puzzle.getChessConstraints(),
+                puzzle.getThermometers());
+    }
+
+    private void write(Puzzle puzzle) {
+        try {
+            model.getInventory().saveProgress(puzzle);
+        } catch (IOException e) {
+            // TODO: Log the exception somewhere.
+            e.printStackTrace();
+            UiThread.runLater(() -> statusPanel.setStatus("Failed to save the puzzle: " + e.getMessage(), 10));
+        }
+    }
+
+    /**
+     * Writes any unsaved changes, and waits for the writes to complete. Must be called on
+     * the UI thread.
+     */
+    public void shutdown() {
+        saveNow();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -143,10 +143,10 @@ public class GridUi implements Widget {
         @Override
         protected void paintChildren(Graphics g) {
             // When we paint the individual Cells we fill their backgrounds -->
-            // we must paint the Cells before we draw the killer cage boundaries.
-            // TODO: The same thing applies once we have Thermos - they must be 
-            // painted here as well.
+            // we must paint the Cells before we draw the thermometers and the
+            // killer cage boundaries.
             super.paintChildren(g);
+            UiLook.drawThermometers((Graphics2D) g, model.getThermometers(), model.getSize());
             UiLook.drawKillerCages((Graphics2D) g, model.getKillerCages(), model.getSize());
         }
 
@@ -12,7 +12,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -30,9 +29,11 @@ import jetoze.attribut.Properties;
 import jetoze.attribut.Property;
 import jetoze.tzudoku.constraint.KillerCages;
 import jetoze.tzudoku.constraint.Sandwiches;
+import jetoze.tzudoku.constraint.Thermometers;
 import jetoze.tzudoku.model.Cell;
 import jetoze.tzudoku.model.CellColor;
 import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.GridDelta;
 import jetoze.tzudoku.model.PencilMarks;
 import jetoze.tzudoku.model.Position;
 import jetoze.tzudoku.model.Puzzle;
@@ -53,17 +54,23 @@ public class GridUiModel {
     // XXX: Does the Sandwiches really belong here?
     private final Property<Sandwiches> sandwiches;
     private final Property<KillerCages> killerCages;
+    private final Property<Thermometers> thermometers;
     private final UndoRedoState undoRedoState = new UndoRedoState();
     private final List<GridUiModelListener> listeners = new ArrayList<>();
     
     public GridUiModel(Puzzle puzzle, BoardSize size) {
-        this(puzzle.getGrid(), puzzle.getSandwiches(), puzzle.getKillerCages(), size);
+        this(puzzle.getGrid(), puzzle.getSandwiches(), puzzle.getKillerCages(), puzzle.getThermometers(), size);
     }
     
     public GridUiModel(Grid grid, Sandwiches sandwiches, KillerCages killerCages, BoardSize size) {
+        this(grid, sandwiches, killerCages, Thermometers.EMPTY, size);
+    }
+    
+    public GridUiModel(Grid grid, Sandwiches sandwiches, KillerCages killerCages, Thermometers thermometers, BoardSize size) {
         this.grid = requireNonNull(grid);
         this.sandwiches = Properties.newProperty("sandwiches", requireNonNull(sandwiches));
         this.killerCages = Properties.newProperty("KillerCages", requireNonNull(killerCages));
+        this.thermometers = Properties.newProperty("thermometers", requireNonNull(thermometers));
         this.size = requireNonNull(size);
         this.cellUis = grid.getCells().entrySet().stream()
                 .collect(ImmutableMap.toImmutableMap(Entry::getKey, 
@@ -75,6 +82,7 @@ public class GridUiModel {
         this.grid = puzzle.getGrid();
         this.sandwiches.set(puzzle.getSandwiches());
         this.killerCages.set(puzzle.getKillerCages());
+        this.thermometers.set(puzzle.getThermometers());
         cellUis.keySet().forEach(p -> {
             CellUi cellUi = cellUis.get(p);
             Cell cell = grid.cellAt(p);
@@ -114,6 +122,16 @@ public class GridUiModel {
         // HACK: This is just to get up and running.
         notifyListeners(GridUiModelListener::onNewPuzzleLoaded);
     }
+    
+    public Thermometers getThermometers() {
+        return thermometers.get();
+    }
+    
+    public void setThermometers(Thermometers thermometers) {
+        this.thermometers.set(requireNonNull(thermometers));
+        // HACK: This is just to get up and running.
+        notifyListeners(GridUiModelListener::onNewPuzzleLoaded);
+    }
 
     public BoardSize getSize() {
         return size;
@@ -332,14 +350,13 @@ public class GridUiModel {
         // TODO: Ideally, the work to collect the candidates should be performed in
         // a background thread. That shouldn't be the responsibility of the model,
         // however, and it's also not immediately clear how to get undo/redo work.
-        List<Cell> emptyCells = cellUis.values().stream()
+        boolean hasEmptyCells = cellUis.values().stream()
                 .map(CellUi::getCell)
-                .filter(c -> !c.hasValue() && c.getCenterMarks().isEmpty())
-                .collect(toImmutableList());
-        if (emptyCells.isEmpty()) {
+                .anyMatch(c -> !c.hasValue() && c.getCenterMarks().isEmpty());
+        if (!hasEmptyCells) {
             return;
         }
-        UndoableAction action = new ShowRemainingCandidatesAction(emptyCells);
+        UndoableAction action = new ShowRemainingCandidatesAction();
         undoRedoState.add(action);
         action.perform();
     }
@@ -428,7 +445,7 @@ public class GridUiModel {
         private final Value value;
         private final ImmutableSet<Position> selectedPositions;
         private final ImmutableSet<Cell> selectedCells;
-        private ImmutableMap<Cell, PreviousCellState> previousStates;
+        private GridDelta delta = GridDelta.EMPTY;
 
         public SetValueAction(Value value, Stream<Position> positions) {
             this.value = requireNonNull(value);
@@ -447,34 +464,30 @@ public class GridUiModel {
 
         @Override
         public void perform() {
-            // We must check the eliminateCandidates flag and rebuild the previous state here 
+            // We must check the eliminateCandidates flag and record the delta here 
             // rather than in the constructor, since the user may change the eliminateCandidates 
             // flag between undos and redos of this action.
-            ImmutableMap.Builder<Cell, PreviousCellState> previousStatesBuilder = ImmutableMap.builder();
-            selectedCells.forEach(cell -> {
-                previousStatesBuilder.put(cell, new PreviousCellState(cell));
-                cell.setValue(value);
+            delta = GridDelta.record(grid, () -> {
+                selectedCells.forEach(cell -> cell.setValue(value));
+                if (eliminateCandidates.get()) {
+                    selectedPositions.stream()
+                        .flatMap(Position::seenBy)
+                        .map(grid::cellAt)
+                        .filter(Predicate.not(Cell::isGiven))
+                        .filter(Predicate.not(this.selectedCells::contains))
+                        .distinct()
+                        .forEach(cell -> {
+                            cell.getCornerMarks().remove(value);
+                            cell.getCenterMarks().remove(value);
+                        });
+                }
             });
-            if (eliminateCandidates.get()) {
-                selectedPositions.stream()
-                    .flatMap(Position::seenBy)
-                    .map(grid::cellAt)
-                    .filter(Predicate.not(Cell::isGiven))
-                    .filter(Predicate.not(this.selectedCells::contains))
-                    .distinct()
-                    .forEach(cell -> {
-                        previousStatesBuilder.put(cell, new PreviousCellState(cell));
-                        cell.getCornerMarks().remove(value);
-                        cell.getCenterMarks().remove(value);
-                    });
-            }
-            previousStates = previousStatesBuilder.build();
             onCellValuesChanged();
         }
 
         @Override
         public void undo() {
-            previousStates.forEach((c, s) -> s.restore(c));
+            delta.revert(grid);
             onCellValuesChanged();
         }
     }
@@ -580,13 +593,13 @@ public class GridUiModel {
     
 
     private class ClearCellsAction implements UndoableAction {
-        private final ImmutableMap<Cell, PreviousCellState> cellsAndTheirPreviousState;
+        private final ImmutableList<Cell> cells;
         private final boolean atLeastOneCellHasDigit;
         private final boolean reset;
+        private GridDelta delta = GridDelta.EMPTY;
 
         public ClearCellsAction(List<Cell> cells, boolean reset) {
-            this.cellsAndTheirPreviousState = cells.stream()
-                    .collect(toImmutableMap(Function.identity(), PreviousCellState::new));
+            this.cells = ImmutableList.copyOf(cells);
             this.atLeastOneCellHasDigit = cells.stream()
                     .anyMatch(Cell::hasValue);
             this.reset = reset;
@@ -594,19 +607,19 @@ public class GridUiModel {
         
         @Override
         public boolean isNoOp() {
-            return cellsAndTheirPreviousState.keySet().stream()
+            return cells.stream()
                     .allMatch(Cell::isEmpty);
         }
 
         @Override
         public void perform() {
-            cellsAndTheirPreviousState.keySet().forEach(c -> {
+            delta = GridDelta.record(grid, () -> cells.forEach(c -> {
                 if (reset) {
                     c.reset();
                 } else {
                     c.clearContent();
                 }
-            });
+            }));
             if (atLeastOneCellHasDigit) {
                 onCellValuesChanged();
             }
@@ -614,7 +627,7 @@ public class GridUiModel {
 
         @Override
         public void undo() {
-            cellsAndTheirPreviousState.forEach((c, s) -> s.restore(c));
+            delta.revert(grid);
             if (atLeastOneCellHasDigit) {
                 onCellValuesChanged();
             }
@@ -623,23 +636,17 @@ public class GridUiModel {
     
     
     private class ShowRemainingCandidatesAction implements UndoableAction {
-        private final ImmutableMap<Cell, ? extends Set<Value>> emptyCellsAndTheirPreviousState;
-
-        public ShowRemainingCandidatesAction(List<Cell> emptyCells) {
-            assert !emptyCells.isEmpty();
-            emptyCellsAndTheirPreviousState = emptyCells.stream().collect(toImmutableMap(
-                    c -> c, c -> c.getCenterMarks().getValues()));
-        }
+        private GridDelta delta = GridDelta.EMPTY;
 
         @Override
         public void perform() {
-            grid.showRemainingCandidates();
+            delta = GridDelta.record(grid, grid::showRemainingCandidates);
             notifyListeners(GridUiModelListener::onCellStateChanged);
         }
         
         @Override
         public void undo() {
-            emptyCellsAndTheirPreviousState.forEach((c, s) -> c.getCenterMarks().setValues(s));
+            delta.revert(grid);
             notifyListeners(GridUiModelListener::onCellStateChanged);
         }
 
@@ -650,30 +657,6 @@ public class GridUiModel {
     }
 
     
-    private static class PreviousCellState {
-        private final Optional<Value> value;
-        private final ImmutableSet<Value> cornerMarks;
-        private final ImmutableSet<Value> centerMarks;
-        private final CellColor color;
-        
-        public PreviousCellState(Cell cell) {
-            this.value = cell.getValue();
-            this.cornerMarks = cell.getCornerMarks().getValues();
-            this.centerMarks = cell.getCenterMarks().getValues();
-            this.color = cell.getColor();
-        }
-        
-        public void restore(Cell cell) {
-            if (!cell.isGiven()) {
-                value.ifPresentOrElse(cell::setValue, cell::clearContent);
-                cell.getCornerMarks().setValues(cornerMarks);
-                cell.getCenterMarks().setValues(centerMarks);
-            }
-            cell.setColor(color);
-        }
-    }
-
-    
     public static class HighlightedCells {
         private final ImmutableSet<Position> positions;
         private final CellColor color;
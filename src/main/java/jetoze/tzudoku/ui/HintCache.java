@@ -0,0 +1,161 @@
+package jetoze.tzudoku.ui;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+import javax.annotation.Nullable;
+
+import jetoze.gunga.UiThread;
+import jetoze.tzudoku.constraint.Thermometers;
+import jetoze.tzudoku.hint.Hint;
+import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.GridSnapshot;
+import jetoze.tzudoku.model.ZobristHash;
+
+/**
+ * Remembers the outcome of applying each solving technique to the grid of a GridUiModel,
+ * so that asking for a hint again, without changing the grid in between, does not run the
+ * techniques again.
+ * <p>
+ * The techniques never look at the grid of the model directly, since the user may keep
+ * editing it while we look for a hint in the background. Instead a {@link GridState} is
+ * {@link #capture() captured} on the UI thread, and the techniques are applied to a copy
+ * of the grid rebuilt from it.
+ * <p>
+ * The cached results are tied to a {@link ZobristHash fingerprint} of the values and candidates
+ * of the captured grid. A change that leaves the values and candidates intact, such as the
+ * cell highlighting used when displaying a hint, therefore keeps the cached results. Every
+ * change of the cells bumps a generation counter. Only a state that is still current moves
+ * the cache on to its fingerprint, and the result of a technique is only stored if the
+ * cells have not changed while the technique was running. Loading a new puzzle clears the
+ * cache.
+ * <p>
+ * The cache is used both from the UI thread and from the background threads that look
+ * for hints, so access is synchronized.
+ */
+final class HintCache {
+
+    private final GridUiModel model;
+    private final Map<SolvingTechnique, Optional<? extends Hint>> results = new EnumMap<>(SolvingTechnique.class);
+    /**
+     * The fingerprint of the grid state the cached results belong to.
+     */
+    private long fingerprint;
+    /**
+     * Incremented whenever the cells change or the cache is cleared.
+     */
+    private long generation;
+
+    public HintCache(GridUiModel model) {
+        this.model = requireNonNull(model);
+        model.addListener(new GridUiModelListener() {
+
+            @Override
+            public void onNewPuzzleLoaded() {
+                clear();
+            }
+
+            @Override
+            public void onCellStateChanged() {
+                markAsStale();
+            }
+        });
+    }
+
+    /**
+     * Captures the current state of the grid, for the techniques to look at. Must be called
+     * on the UI thread, since that is where the grid is edited.
+     */
+    public synchronized GridState capture() {
+        UiThread.throwIfNotUiThread();
+        return new GridState(GridSnapshot.of(model.getGrid()), model.getThermometers(), generation);
+    }
+
+    /**
+     * Returns the result of applying the given technique to the given state of the grid,
+     * running the analyzer only if the result is not already known.
+     */
+    public Optional<? extends Hint> get(GridState state, SolvingTechnique technique,
+            BiFunction<Grid, Thermometers, Optional<? extends Hint>> analyzer) {
+        long stateFingerprint = state.getFingerprint();
+        long startGeneration;
+        synchronized (this) {
+            if (stateFingerprint == fingerprint) {
+                Optional<? extends Hint> result = results.get(technique);
+                if (result != null) {
+                    return result;
+                }
+            } else if (state.generation == generation) {
+                // The state is the current state of the grid, so the cached results are outdated.
+                results.clear();
+                fingerprint = stateFingerprint;
+            }
+            startGeneration = generation;
+        }
+        // Run the analyzer outside the lock, so that a long running technique does not
+        // block the UI thread from marking the cache as stale.
+        Optional<? extends Hint> result = analyzer.apply(state.getGrid(), state.thermometers);
+        synchronized (this) {
+            // Only store the result if the cells have not changed while the analyzer was
+            // running, so that a slow analyzer never writes into a cache that another thread
+            // has revalidated in the meantime.
+            if (generation == startGeneration && fingerprint == stateFingerprint) {
+                results.put(technique, result);
+            }
+        }
+        return result;
+    }
+
+    private synchronized void clear() {
+        results.clear();
+        ++generation;
+    }
+
+    private synchronized void markAsStale() {
+        ++generation;
+    }
+
+
+    /**
+     * The state of the grid at the time a hint was asked for.
+     */
+    static final class GridState {
+        private final GridSnapshot snapshot;
+        private final Thermometers thermometers;
+        /**
+         * The generation of the cache when the state was captured.
+         */
+        private final long generation;
+        /**
+         * The grid rebuilt from the snapshot, which is created by the thread that looks
+         * for the hint rather than on the UI thread.
+         */
+        @Nullable
+        private Grid grid;
+        private long fingerprint;
+
+        private GridState(GridSnapshot snapshot, Thermometers thermometers, long generation) {
+            this.snapshot = snapshot;
+            this.thermometers = thermometers;
+            this.generation = generation;
+        }
+
+        private synchronized Grid getGrid() {
+            if (grid == null) {
+                grid = snapshot.toGrid();
+                fingerprint = ZobristHash.of(grid);
+            }
+            return grid;
+        }
+
+        private synchronized long getFingerprint() {
+            getGrid();
+            return fingerprint;
+        }
+    }
+}
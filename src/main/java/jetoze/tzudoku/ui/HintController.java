@@ -5,8 +5,10 @@ import static java.util.Objects.requireNonNull;
 import java.awt.event.KeyEvent;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import javax.swing.JFrame;
@@ -21,8 +23,10 @@ import jetoze.gunga.KeyStrokes;
 import jetoze.gunga.UiThread;
 import jetoze.tzudoku.hint.Hint;
 import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.hint.TechniqueScheduler;
 import jetoze.tzudoku.model.Grid;
 import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.SolverConfig;
 import jetoze.tzudoku.ui.hint.HintCellDecorator;
 import jetoze.tzudoku.ui.hint.HintUi;
 import jetoze.tzudoku.ui.hint.HintUiFactory;
@@ -32,12 +36,33 @@ public class HintController { // TODO: Or "HintEngine"?
     private final JFrame appFrame;
     private final GridUiModel model;
     private final HintUiFactory hintUiFactory;
+    /**
+     * The hints are shown to the user, so we look for them in the order a human solver
+     * would use.
+     */
+    private final TechniqueScheduler hintOrder = TechniqueScheduler.pedagogical();
+    private final Supplier<SolverConfig> solverConfig;
+    private final HintCache hintCache;
     private boolean userHasGreenlightedHintCheckWithoutAllCandidates;
 
     public HintController(JFrame appFrame, GridUiModel model, HintUiFactory hintUiFactory) {
+        this(appFrame, model, hintUiFactory, () -> SolverConfig.DEFAULT);
+    }
+
+    /**
+     * Creates a HintController that only looks for hints using the techniques that are
+     * enabled in the current solver config.
+     */
+    public HintController(JFrame appFrame, GridUiModel model, HintUiFactory hintUiFactory, 
+            Supplier<SolverConfig> solverConfig) {
         this.appFrame = requireNonNull(appFrame);
         this.model = requireNonNull(model);
         this.hintUiFactory = requireNonNull(hintUiFactory);
+        this.solverConfig = requireNonNull(solverConfig);
+        this.hintCache = new HintCache(model);
+        // The prefetcher fills the hint cache in the background after each edit, so
+        // that the hint is usually known by the time the user asks for it.
+        new HintPrefetcher(model, this::prefetchHint);
     }
     
     /**
@@ -54,19 +79,44 @@ public class HintController { // TODO: Or "HintEngine"?
                 allCellsHaveCandidates = true;
             }
         }
-        Predicate<SolvingTechnique> filter = allCellsHaveCandidates
-                ? t -> true
-                : Predicate.not(SolvingTechnique::requiresCandidatesInAllCells);
-        Callable<Optional<? extends Hint>> producer = () -> {
-            return Stream.of(SolvingTechnique.values())
-                    .filter(filter)
-                    .map(t -> t.analyze(model.getGrid()))
-                    .flatMap(Optional::stream)
-                    .findFirst();
-        };
+        Predicate<SolvingTechnique> filter = getTechniqueFilter(allCellsHaveCandidates);
+        HintCache.GridState state = hintCache.capture();
+        Callable<Optional<? extends Hint>> producer = () -> findHint(state, filter, () -> false);
         runHintCheck(producer, "Sorry, I have no hint for you. You are on your own :(");
     }
     
+    private Predicate<SolvingTechnique> getTechniqueFilter(boolean allCellsHaveCandidates) {
+        SolverConfig config = solverConfig.get();
+        return allCellsHaveCandidates
+                ? config::isEnabled
+                : Predicate.not(SolvingTechnique::requiresCandidatesInAllCells).and(config::isEnabled);
+    }
+    
+    /**
+     * Goes through the techniques that pass the filter in order, until one of them produces
+     * a hint or the cancellation token returns {@code true}.
+     */
+    private Optional<? extends Hint> findHint(HintCache.GridState state, Predicate<SolvingTechnique> filter, 
+            BooleanSupplier cancellationToken) {
+        return hintOrder.getOrder(0.0).stream()
+                .filter(filter)
+                .takeWhile(t -> !cancellationToken.getAsBoolean())
+                .map(t -> analyze(state, t))
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+    
+    /**
+     * Called by the prefetcher, on the UI thread, after the grid has been edited. Returns
+     * the work to run in the background. The work looks at the state of the grid right
+     * after the edit, since the user may be editing the grid again by the time it runs.
+     */
+    private Consumer<BooleanSupplier> prefetchHint() {
+        Predicate<SolvingTechnique> filter = getTechniqueFilter(allCellsHaveCandidates());
+        HintCache.GridState state = hintCache.capture();
+        return cancellationToken -> findHint(state, filter, cancellationToken);
+    }
+    
     /**
      * Look for a specific hint.
      * 
@@ -85,7 +135,12 @@ public class HintController { // TODO: Or "HintEngine"?
                 assert !technique.requiresCandidatesInAllCells();
             }
         }
-        runHintCheck(() -> technique.analyze(model.getGrid()), "No " + technique.getName() + " found :(");
+        HintCache.GridState state = hintCache.capture();
+        runHintCheck(() -> analyze(state, technique), "No " + technique.getName() + " found :(");
+    }
+    
+    private Optional<? extends Hint> analyze(HintCache.GridState state, SolvingTechnique technique) {
+        return hintCache.get(state, technique, technique::analyze);
     }
     
     /**
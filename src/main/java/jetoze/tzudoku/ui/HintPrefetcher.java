@@ -0,0 +1,93 @@
+package jetoze.tzudoku.ui;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import jetoze.gunga.UiThread;
+
+/**
+ * Looks for the next hint in the background after each edit of the grid, so that the
+ * answer is already known when the user asks for a hint.
+ * <p>
+ * The prefetching runs on its own low priority thread, separate from the threads used by
+ * {@link UiThread#offload}, so that it never delays work the user is waiting for. The work
+ * is started only when the grid has been left alone for a short while, and every edit bumps
+ * a version counter that the work checks, so that work on an outdated grid state is stopped
+ * as soon as possible.
+ */
+final class HintPrefetcher {
+
+    /**
+     * How long the grid must be left unchanged before we start looking for a hint.
+     */
+    private static final Duration DEBOUNCE_DELAY = Duration.ofMillis(300L);
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("hint-prefetcher-%d")
+                .setDaemon(true)
+                .setPriority(Thread.MIN_PRIORITY)
+                .build());
+
+    private final Supplier<Consumer<BooleanSupplier>> workFactory;
+    /**
+     * Incremented on every edit. Read by the prefetching thread.
+     */
+    private final AtomicLong gridVersion = new AtomicLong();
+    @Nullable
+    private ScheduledFuture<?> pendingWork;
+
+    /**
+     * @param model
+     *            the model to listen to
+     * @param workFactory
+     *            called on the UI thread after each edit, to create the work that looks for
+     *            the hint. The work runs on the prefetching thread, so it must not look at
+     *            the grid of the model, but at a copy captured when the work was created.
+     *            It is given a cancellation token that returns {@code true} once the grid
+     *            has been edited again.
+     */
+    public HintPrefetcher(GridUiModel model, Supplier<Consumer<BooleanSupplier>> workFactory) {
+        this.workFactory = requireNonNull(workFactory);
+        model.addListener(new GridUiModelListener() {
+
+            @Override
+            public void onNewPuzzleLoaded() {
+                schedule();
+            }
+
+            @Override
+            public void onCellStateChanged() {
+                schedule();
+            }
+        });
+    }
+
+    private void schedule() {
+        UiThread.throwIfNotUiThread();
+        long version = gridVersion.incrementAndGet();
+        if (pendingWork != null) {
+            pendingWork.cancel(false);
+        }
+        Consumer<BooleanSupplier> work = workFactory.get();
+        BooleanSupplier cancellationToken = () -> gridVersion.get() != version;
+        pendingWork = EXECUTOR.schedule(() -> {
+            if (!cancellationToken.getAsBoolean()) {
+                work.accept(cancellationToken);
+            }
+        }, DEBOUNCE_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -12,7 +12,6 @@ import javax.swing.DefaultListCellRenderer;
 import javax.swing.JComponent;
 import javax.swing.JList;
 
-import jetoze.gunga.binding.Binding;
 import jetoze.gunga.binding.BooleanBinding;
 import jetoze.gunga.binding.ListBinding;
 import jetoze.gunga.layout.Layouts;
@@ -24,7 +23,7 @@ import jetoze.gunga.widget.Widget;
 import jetoze.tzudoku.model.PuzzleInfo;
 
 public final class InventoryUi implements Widget {
-    // TODO: Add name search field
+    // TODO: Add name search field, bound to the name prefix of the model.
     // TODO: Add status panel, that displays name and lastUpdated date of the selected puzzle.
     // TODO: Is there any change the model will outlive this UI? IOW, is it necessary to
     //       dispose the bindings we install? I don't think so, but I'm not sure.
@@ -34,6 +33,7 @@ public final class InventoryUi implements Widget {
     private final InventoryUiModel model;
     private final ListWidget<PuzzleInfo> list;
     private final CheckBoxWidget showCompletedPuzzlesCheckBox = new CheckBoxWidget("Show completed puzzles");
+    private final CheckBoxWidget sortByDifficultyCheckBox = new CheckBoxWidget("Sort by difficulty");
     
     public InventoryUi(InventoryUiModel model) {
         this.model = requireNonNull(model);
@@ -47,7 +47,9 @@ public final class InventoryUi implements Widget {
                     boolean cellHasFocus) {
                 super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
                 PuzzleInfo puzzleInfo = (PuzzleInfo) value;
-                setText(puzzleInfo.getName());
+                setText(puzzleInfo.getRating()
+                        .map(r -> String.format("%s (%s)", puzzleInfo.getName(), r))
+                        .orElse(puzzleInfo.getName()));
                 setIcon(UiLook.getPuzzleStateIcon(puzzleInfo.getState()));
                 setToolTipText(buildTooltip(puzzleInfo));
                 return this;
@@ -59,13 +61,19 @@ public final class InventoryUi implements Widget {
                 String lastUpdated = puzzleInfo.lastUpdated()
                         .map(fmt::format)
                         .orElse("");
-                return String.format("<html><b>Name:</b> %s<br><b>State:</b> %s<br><b>Last Updated: </b>%s</html>", 
-                        puzzleInfo.getName(), puzzleInfo.getState(), lastUpdated);
+                String difficulty = puzzleInfo.getRating()
+                        .map(r -> r.getHardestTechnique()
+                                .map(t -> String.format("%s (%s)", r, t.getName()))
+                                .orElse(r.toString()))
+                        .orElse("Not rated");
+                return String.format("<html><b>Name:</b> %s<br><b>State:</b> %s<br><b>Last Updated: </b>%s" +
+                        "<br><b>Difficulty: </b>%s</html>", 
+                        puzzleInfo.getName(), puzzleInfo.getState(), lastUpdated, difficulty);
             }
         });
         ListBinding.bind(model.getListItems(), list);
         BooleanBinding.bind(model.getShowCompletedPuzzles(), showCompletedPuzzlesCheckBox);
-        Binding.oneWayBinding(model.getListFilter(), list::setFilter).syncUi();
+        BooleanBinding.bind(model.getSortByDifficulty(), sortByDifficultyCheckBox);
         list.addSelectionListener(selection -> {
             if (selection.isEmpty()) {
                 model.setSelectedPuzzle(null);
@@ -94,7 +102,10 @@ public final class InventoryUi implements Widget {
     public JComponent getUi() {
         return Layouts.border(0, 8)
                 .center(list)
-                .south(showCompletedPuzzlesCheckBox)
+                .south(Layouts.oneColumnGrid()
+                        .add(showCompletedPuzzlesCheckBox)
+                        .add(sortByDifficultyCheckBox)
+                        .build())
                 .build();
     }
 
@@ -106,5 +117,6 @@ public final class InventoryUi implements Widget {
     public void setEnabled(boolean enabled) {
         list.setEnabled(enabled);
         showCompletedPuzzlesCheckBox.setEnabled(enabled);
+        sortByDifficultyCheckBox.setEnabled(enabled);
     }
 }
@@ -1,50 +1,32 @@
 package jetoze.tzudoku.ui;
 
+import static java.util.Objects.requireNonNull;
+
+import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 
 import javax.annotation.Nullable;
 
-import com.google.common.collect.Comparators;
-
 import jetoze.attribut.ListProperty;
 import jetoze.attribut.Properties;
 import jetoze.attribut.Property;
+import jetoze.tzudoku.InventoryQuery;
+import jetoze.tzudoku.InventoryQuery.SortOrder;
 import jetoze.tzudoku.PuzzleInventory;
 import jetoze.tzudoku.model.PuzzleInfo;
-import jetoze.tzudoku.model.PuzzleState;
 
 public class InventoryUiModel {
     
-    public static enum SortOrder {
-        ALPHABETICAL(Comparator.comparing(PuzzleInfo::getName)),
-        LAST_UPDATED(Comparator.comparing(PuzzleInfo::lastUpdated,
-                Comparators.emptiesLast(Comparator.reverseOrder())));
-        
-        private final Comparator<PuzzleInfo> comparator;
-        
-        private SortOrder(Comparator<PuzzleInfo> comparator) {
-            this.comparator = comparator;
-        }
-        
-        private void sort(List<PuzzleInfo> puzzles) {
-            puzzles.sort(comparator);
-        }
-        
-        private void sort(ListProperty<PuzzleInfo> puzzles) {
-            puzzles.sort(comparator);
-        }
-    }
-    
-    private static final Predicate<PuzzleInfo> UNSOLVED_PUZZLES = p -> p.getState() != PuzzleState.SOLVED;
-    
     private final PropertyChangeSupport changeSupport = new PropertyChangeSupport(this);
     
+    private final PuzzleInventory inventory;
+    
+    /**
+     * The puzzles that match the current criteria, in the current sort order. 
+     */
     private final ListProperty<PuzzleInfo> puzzleInfos;
     private final Property<PuzzleInfo> selectedPuzzle = Properties.newNullableProperty("selectedPuzzleInfo");
     
@@ -54,42 +36,69 @@ public class InventoryUiModel {
     private final Property<SortOrder> sortOrder = Properties.newProperty(
             "sortOrder", SortOrder.LAST_UPDATED, changeSupport);
     
-    private final Property<Predicate<PuzzleInfo>> listFilter =
-            Properties.newProperty("listFilter", UNSOLVED_PUZZLES, changeSupport);
+    private final Property<Boolean> sortByDifficulty = Properties.newProperty(
+            "sortByDifficulty", Boolean.FALSE, changeSupport);
+    
+    /**
+     * The maximum difficulty of the puzzles to show. Puzzles that have not been rated
+     * yet are always shown.
+     */
+    private final Property<Double> maxDifficulty = Properties.newProperty(
+            "maxDifficulty", Double.MAX_VALUE, changeSupport);
+    
+    /**
+     * Only the puzzles whose names start with this prefix are shown.
+     */
+    private final Property<String> namePrefix = Properties.newProperty(
+            "namePrefix", "", changeSupport);
     
     public InventoryUiModel(PuzzleInventory inventory) {
-        List<PuzzleInfo> sortedList = new ArrayList<>(inventory.listPuzzles());
-        SortOrder.LAST_UPDATED.sort(sortedList);
-        this.puzzleInfos = Properties.newListProperty("puzzles", sortedList, changeSupport);
+        this.inventory = requireNonNull(inventory);
+        this.puzzleInfos = Properties.newListProperty("puzzles", new ArrayList<>(inventory.query(createQuery())), 
+                changeSupport);
         installInternalListeners();
     }
 
     private void installInternalListeners() {
-        this.sortOrder.addListener(e -> {
-            SortOrder sortOrder = (SortOrder) e.getNewValue();
-            sortOrder.sort(puzzleInfos);
-        });
-        this.showCompletedPuzzles.addListener(e -> {
-            boolean show = (Boolean) e.getNewValue();
-            Predicate<PuzzleInfo> predicate = show
-                    ? p -> true
-                    : UNSOLVED_PUZZLES;
-            listFilter.set(predicate);
+        this.sortByDifficulty.addListener(e -> {
+            boolean byDifficulty = (Boolean) e.getNewValue();
+            sortOrder.set(byDifficulty
+                    ? SortOrder.DIFFICULTY
+                    : SortOrder.LAST_UPDATED);
         });
+        PropertyChangeListener queryListener = e -> updateListItems();
+        this.sortOrder.addListener(queryListener);
+        this.showCompletedPuzzles.addListener(queryListener);
+        this.maxDifficulty.addListener(queryListener);
+        this.namePrefix.addListener(queryListener);
+    }
+    
+    private InventoryQuery createQuery() {
+        InventoryQuery.Builder builder = InventoryQuery.builder()
+                .namePrefix(namePrefix.get())
+                .maxDifficulty(maxDifficulty.get())
+                .sortOrder(sortOrder.get());
+        if (!showCompletedPuzzles.get()) {
+            builder.unsolved();
+        }
+        return builder.build();
+    }
+    
+    private void updateListItems() {
+        // The inventory keeps its puzzles indexed and sorted, so we run a new query rather 
+        // than filtering and sorting the list ourselves. This also picks up any ratings 
+        // that have been computed in the background since the last query.
+        puzzleInfos.set(new ArrayList<>(inventory.query(createQuery())));
     }
     
     public boolean isEmpty() {
-        return puzzleInfos.isEmpty();
+        return inventory.isEmpty();
     }
     
     public ListProperty<PuzzleInfo> getListItems() {
         return puzzleInfos;
     }
     
-    public Property<Predicate<PuzzleInfo>> getListFilter() {
-        return listFilter;
-    }
-    
     public Property<Boolean> getShowCompletedPuzzles() {
         return showCompletedPuzzles;
     }
@@ -97,6 +106,18 @@ public class InventoryUiModel {
     public Property<SortOrder> getSortOrder() {
         return sortOrder;
     }
+    
+    public Property<Boolean> getSortByDifficulty() {
+        return sortByDifficulty;
+    }
+    
+    public Property<Double> getMaxDifficulty() {
+        return maxDifficulty;
+    }
+    
+    public Property<String> getNamePrefix() {
+        return namePrefix;
+    }
 
     public Optional<PuzzleInfo> getSelectedPuzzle() {
         return Optional.ofNullable(selectedPuzzle.get());
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
@@ -28,13 +29,23 @@ import jetoze.tzudoku.constraint.KillerCageSums;
 import jetoze.tzudoku.constraint.KillerCages;
 import jetoze.tzudoku.constraint.Sandwiches;
 import jetoze.tzudoku.model.Cell;
+import jetoze.tzudoku.model.CellColor;
 import jetoze.tzudoku.model.Grid;
 import jetoze.tzudoku.model.Position;
 import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.PuzzleInfo;
+import jetoze.tzudoku.solver.SolutionDiagnostics;
+import jetoze.tzudoku.ui.GridUiModel.HighlightedCells;
 
 public class PuzzleBuilderController {
     // TODO: Edit Killer Cage action. To begin with at least allow changing the cage sum.
     //       Ultimately we obviously also want to allow changing the shape of the cell.
+    /**
+     * The number of solutions we look at when diagnosing a puzzle that does not have a
+     * unique solution.
+     */
+    private static final int DIAGNOSTICS_SOLUTION_LIMIT = 100;
+    
     private final JFrame appFrame;
     private final PuzzleBuilderModel model;
     private final AddKillerCageAction addKillerCageAction = new AddKillerCageAction();
@@ -95,7 +106,19 @@ public class PuzzleBuilderController {
             return;
         }
         // TODO: Wait indication.
-        UiThread.offload(() -> createPuzzleFromTemplate(name), consumer, invalidPuzzleHandler);
+        model.getGridModel().clearHighlightColors();
+        UiThread.offload(() -> createPuzzleFromTemplate(name), consumer, e -> {
+            if (e instanceof PuzzleBuilderException) {
+                highlightInvalidCells(((PuzzleBuilderException) e).getInvalidCells());
+            }
+            invalidPuzzleHandler.accept(e);
+        });
+    }
+    
+    private void highlightInvalidCells(ImmutableSet<Position> cells) {
+        if (!cells.isEmpty()) {
+            model.getGridModel().highlightCells(new HighlightedCells(cells, CellColor.RED));
+        }
     }
     
     @Nullable
@@ -118,6 +141,11 @@ public class PuzzleBuilderController {
         });
         Grid grid = new Grid(cells);
         Puzzle puzzle = new Puzzle(name, grid, model.getSandwiches(), model.getKillerCages(), model.getChessConstraints());
+        checkSolutions(puzzle);
+        Optional<PuzzleInfo> equivalentPuzzle = model.getInventory().findEquivalentPuzzle(puzzle);
+        if (equivalentPuzzle.isPresent()) {
+            throw new PuzzleBuilderException("An equivalent puzzle already exists: " + equivalentPuzzle.get().getName());
+        }
         try {
             model.getInventory().addNewPuzzle(puzzle);
             return puzzle;
@@ -127,6 +155,24 @@ public class PuzzleBuilderController {
         }
     }
     
+    private static void checkSolutions(Puzzle puzzle) throws PuzzleBuilderException {
+        SolutionDiagnostics diagnostics = SolutionDiagnostics.of(puzzle, DIAGNOSTICS_SOLUTION_LIMIT);
+        if (!diagnostics.hasSolution()) {
+            throw new PuzzleBuilderException("The puzzle has no solution.");
+        }
+        if (!diagnostics.hasUniqueSolution()) {
+            String numberOfSolutions = diagnostics.isLimitReached()
+                    ? "more than " + diagnostics.getNumberOfSolutions()
+                    : Integer.toString(diagnostics.getNumberOfSolutions());
+            String suggestion = diagnostics.getSuggestedGiven()
+                    .map(g -> " Consider adding a " + g + ".")
+                    .orElse("");
+            throw new PuzzleBuilderException("The puzzle has " + numberOfSolutions + 
+                    " solutions. The highlighted cells differ between the solutions." + suggestion, 
+                    diagnostics.getAmbiguousCells());
+        }
+    }
+    
     private void showErrorMessage(String message) {
         JOptionPane.showMessageDialog(
                 appFrame, 
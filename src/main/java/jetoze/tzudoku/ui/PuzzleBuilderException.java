@@ -2,14 +2,34 @@ package jetoze.tzudoku.ui;
 
 import static java.util.Objects.*;
 
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.model.Position;
+
 public class PuzzleBuilderException extends Exception {
 
+    private final ImmutableSet<Position> invalidCells;
+    
     public PuzzleBuilderException(String message) {
-        super(requireNonNull(message));
+        this(message, ImmutableSet.of());
     }
 
     public PuzzleBuilderException(String message, Throwable cause) {
         super(requireNonNull(message), cause);
+        this.invalidCells = ImmutableSet.of();
+    }
+    
+    /**
+     * Creates an exception that points out the cells that make the puzzle invalid, so
+     * that they can be highlighted in the builder.
+     */
+    public PuzzleBuilderException(String message, ImmutableSet<Position> invalidCells) {
+        super(requireNonNull(message));
+        this.invalidCells = requireNonNull(invalidCells);
+    }
+    
+    public ImmutableSet<Position> getInvalidCells() {
+        return invalidCells;
     }
 
 }
@@ -101,7 +101,7 @@ public class PuzzleBuilderModel {
     
     public boolean isValid() {
         return !isEmpty() &&
-                (!puzzleNameProperty.get().isBlank() && !inventory.containsPuzzle(puzzleNameProperty.get())) &&
+                (Puzzle.isValidName(puzzleNameProperty.get()) && !inventory.containsPuzzle(puzzleNameProperty.get())) &&
                 gridModel.getGrid().getCellsWithDuplicateValues().isEmpty();
     }
     
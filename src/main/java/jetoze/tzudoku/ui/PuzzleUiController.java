@@ -2,29 +2,74 @@ package jetoze.tzudoku.ui;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 import jetoze.gunga.InputDialog;
 import jetoze.gunga.InputDialog.InputOptions;
 import jetoze.gunga.InputDialog.Option;
 import jetoze.gunga.UiThread;
-import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.PuzzleImporter;
+import jetoze.tzudoku.PuzzleInventory;
+import jetoze.tzudoku.constraint.Thermometers;
+import jetoze.tzudoku.model.GridSnapshot;
 import jetoze.tzudoku.model.GridSolver;
 import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.PuzzleBank;
 import jetoze.tzudoku.model.PuzzleInfo;
+import jetoze.tzudoku.model.SolverConfig;
+import jetoze.tzudoku.model.TranspositionCache;
 import jetoze.tzudoku.model.ValidationResult;
+import jetoze.tzudoku.model.ZobristHash;
+import jetoze.tzudoku.solver.PuzzleGenerator;
+import jetoze.tzudoku.solver.PuzzleGenerator.Symmetry;
 import jetoze.tzudoku.ui.hint.HintUiFactory;
 
 public class PuzzleUiController {
     // TODO: Wait-indication (hour-glass on frame) when background work is in progress.
     
+    /**
+     * The maximum time we let the analyzer run before we give up. The analyzer runs
+     * without a progress dialog, so there is no other way of stopping it.
+     */
+    private static final Duration ANALYZER_TIME_LIMIT = Duration.ofSeconds(30L);
+    
+    /**
+     * The maximum number of analyzer results we keep around.
+     */
+    private static final int ANALYZER_CACHE_SIZE = 32;
+    
+    /**
+     * The number of puzzles we generate each time the user asks for new puzzles.
+     */
+    private static final int NUMBER_OF_GENERATED_PUZZLES = 5;
+    
+    /**
+     * The number of threads that parse and solve the puzzles of an imported collection.
+     */
+    private static final int IMPORT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    
     private final JFrame appFrame;
     private final PuzzleUiModel puzzleModel;
     private final StatusPanel statusPanel;
+    /**
+     * Results of previous runs of the analyzer, so that analyzing the same grid state 
+     * again is answered immediately.
+     */
+    private final TranspositionCache<GridSolver.Result> analyzerResults = new TranspositionCache<>(ANALYZER_CACHE_SIZE);
     
     public PuzzleUiController(JFrame appFrame, PuzzleUiModel model, StatusPanel statusPanel) {
         this.appFrame = requireNonNull(appFrame);
@@ -67,19 +112,117 @@ public class PuzzleUiController {
         UiThread.offload(work,  whenDone, exceptionHandler);
     }
 
+    public void generatePuzzles() {
+        // TODO: Let the user pick the symmetry and difficulty.
+        PuzzleGenerator generator = PuzzleGenerator.builder()
+                .symmetry(Symmetry.ROTATIONAL)
+                .build();
+        PuzzleInventory inventory = puzzleModel.getInventory();
+        AtomicInteger numberOfPuzzles = new AtomicInteger();
+        AtomicInteger numberOfDuplicates = new AtomicInteger();
+        statusPanel.setStatus("Generating puzzles...");
+        generator.generate(NUMBER_OF_GENERATED_PUZZLES, grid -> {
+            try {
+                boolean added = inventory.addNewPuzzleUnlessDuplicate("Generated", grid).isPresent();
+                (added ? numberOfPuzzles : numberOfDuplicates).incrementAndGet();
+            } catch (IOException e) {
+                // TODO: Log the exception somewhere.
+                e.printStackTrace();
+            }
+        }).whenComplete((v, e) -> UiThread.runLater(() -> {
+            String status = (e == null)
+                    ? String.format("%d new puzzles were added to the inventory, %d duplicates were skipped.", 
+                            numberOfPuzzles.get(), numberOfDuplicates.get())
+                    : "Failed to generate puzzles: " + e.getMessage();
+            statusPanel.setStatus(status, 10);
+        }));
+    }
+
+    /**
+     * Lets the user pick a puzzle bank file, and a puzzle from that bank to load.
+     */
+    public void openPuzzleBank() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Puzzle Banks", 
+                PuzzleBank.FILE_EXTENSION.substring(1)));
+        if (fileChooser.showOpenDialog(appFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = fileChooser.getSelectedFile().toPath();
+        UiThread.offload(() -> PuzzleBank.open(file), this::selectPuzzleFromBank, e -> {
+            // TODO: Log the exception somewhere.
+            statusPanel.setStatus("Failed to open the puzzle bank: " + e.getMessage(), 10);
+        });
+    }
+    
+    private void selectPuzzleFromBank(PuzzleBank bank) {
+        if (bank.size() == 0) {
+            statusPanel.setStatus("The puzzle bank is empty.", 10);
+            return;
+        }
+        JSpinner numberSpinner = new JSpinner(new SpinnerNumberModel(1, 1, bank.size(), 1));
+        int option = JOptionPane.showConfirmDialog(
+                appFrame, 
+                numberSpinner, 
+                String.format("Select a Puzzle (1-%d)", bank.size()), 
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+        if (option == JOptionPane.OK_OPTION) {
+            int index = ((Number) numberSpinner.getValue()).intValue() - 1;
+            loadPuzzle(bank.getPuzzle(index));
+        }
+    }
+
+    public void importPuzzles() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Puzzle Collections", "txt", "sdm", "csv"));
+        if (fileChooser.showOpenDialog(appFrame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = fileChooser.getSelectedFile().toPath();
+        PuzzleImporter importer = new PuzzleImporter(puzzleModel.getInventory(), IMPORT_THREADS)
+                .setProgressListener(r -> UiThread.runLater(() -> statusPanel.setStatus("Importing puzzles: " + r)));
+        statusPanel.setStatus("Importing puzzles...");
+        UiThread.offload(() -> importer.importPuzzles(file), 
+                r -> statusPanel.setStatus("Import completed: " + r, 30), 
+                e -> {
+                    // TODO: Log the exception somewhere.
+                    statusPanel.setStatus("Failed to import the puzzles: " + e.getMessage(), 10);
+                });
+    }
+
     // TODO: Move me to the HintController?
     public void startAutoSolver() {
-        UiAutoSolver autoSolver = new UiAutoSolver(appFrame, puzzleModel.getGridModel(), new HintUiFactory());
+        UiAutoSolver autoSolver = new UiAutoSolver(appFrame, puzzleModel.getGridModel(), new HintUiFactory(), 
+                puzzleModel.getSolverConfig());
         autoSolver.start();
     }
     
     public void analyze() {
         // TODO: Hour-glass while the solver is running.
         // TODO: Give an error message if not a classic sudoku puzzle?
+        // Take the snapshot here, on the UI thread, so that the analyzer does not
+        // read the grid while the user is modifying it.
+        GridSnapshot snapshot = GridSnapshot.of(puzzleModel.getGridModel().getGrid());
+        Thermometers thermometers = puzzleModel.getGridModel().getThermometers();
+        SolverConfig config = puzzleModel.getSolverConfig();
+        long key = TranspositionCache.key(ZobristHash.of(snapshot), List.of(thermometers, config));
+        Optional<GridSolver.Result> cachedResult = analyzerResults.get(key);
+        if (cachedResult.isPresent()) {
+            showAnalyzerResult(cachedResult.get());
+            return;
+        }
         Callable<GridSolver.Result> analyzer = () -> {
-            Grid copyOfGrid = Grid.copyOf(puzzleModel.getGridModel().getGrid());
-            GridSolver solver = new GridSolver(copyOfGrid);
-            return solver.solve();
+            GridSolver solver = new GridSolver(snapshot.toGrid(), thermometers)
+                    .setTimeLimit(ANALYZER_TIME_LIMIT)
+                    .setConfig(config);
+            GridSolver.Result result = solver.solve();
+            if (!result.isInterrupted()) {
+                // An interrupted result says nothing about the grid state itself, so we 
+                // don't want to keep it around.
+                analyzerResults.put(key, result);
+            }
+            return result;
         };
         UiThread.offload(analyzer, this::showAnalyzerResult);
     }
@@ -89,6 +232,19 @@ public class PuzzleUiController {
         JOptionPane.showMessageDialog(appFrame, ui.getUi(), "Analyzer Result", JOptionPane.INFORMATION_MESSAGE);
     }
     
+    public void editSolverSettings() {
+        SolverConfigUi ui = new SolverConfigUi(puzzleModel.getSolverConfig());
+        int option = JOptionPane.showConfirmDialog(
+                appFrame, 
+                ui.getUi(), 
+                "Solver Settings", 
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+        if (option == JOptionPane.OK_OPTION) {
+            puzzleModel.setSolverConfig(ui.getSolverConfig());
+        }
+    }
+    
     public void checkSolution() {
         UiThread.offload(this::validatePuzzle, this::displayResult);
     }
@@ -96,7 +252,12 @@ public class PuzzleUiController {
     private ValidationResult validatePuzzle() {
         ValidationResult result = puzzleModel.validate();
         if (result.isSolved()) {
-            puzzleModel.getInventory().markAsCompleted(puzzleModel.getPuzzle());
+            try {
+                puzzleModel.getInventory().markAsCompleted(puzzleModel.getPuzzle());
+            } catch (IOException e) {
+                // TODO: Log the exception somewhere.
+                e.printStackTrace();
+            }
         }
         return result;
     }
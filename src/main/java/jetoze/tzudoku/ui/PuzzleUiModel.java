@@ -1,15 +1,29 @@
 package jetoze.tzudoku.ui;
 
 import static java.util.Objects.*;
+import static java.util.stream.Collectors.toSet;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.prefs.Preferences;
 
 import jetoze.tzudoku.PuzzleInventory;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
 import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.SolverConfig;
 import jetoze.tzudoku.model.ValidationResult;
 
 public class PuzzleUiModel {
+    /**
+     * Where we store the solver configuration between sessions.
+     */
+    private static final Preferences SOLVER_PREFERENCES = Preferences.userNodeForPackage(PuzzleUiModel.class).node("solver");
+    
     private final PuzzleInventory inventory;
     private Puzzle puzzle;
     private final GridUiModel gridModel;
+    private SolverConfig solverConfig = SolverConfig.load(SOLVER_PREFERENCES);
     
     public PuzzleUiModel(PuzzleInventory inventory) {
         this.inventory = requireNonNull(inventory);
@@ -30,8 +44,46 @@ public class PuzzleUiModel {
         this.gridModel.setPuzzle(puzzle);
     }
     
+    public SolverConfig getSolverConfig() {
+        return solverConfig;
+    }
+    
+    /**
+     * Sets the solver configuration, and stores it in the user preferences.
+     */
+    public void setSolverConfig(SolverConfig solverConfig) {
+        this.solverConfig = requireNonNull(solverConfig);
+        solverConfig.save(SOLVER_PREFERENCES);
+    }
+    
     public ValidationResult validate() {
-        return gridModel.getGrid().validate();
+        Grid grid = gridModel.getGrid();
+        Optional<Grid> solution = inventory.getStoredSolution(puzzle.getName())
+                .filter(s -> agreesWithGivens(grid, s));
+        if (solution.isPresent()) {
+            // A cell by cell comparison, which also covers the killer cages and sandwiches.
+            return validate(grid, solution.get());
+        }
+        ValidationResult result = grid.validate();
+        if (gridModel.getThermometers().isEmpty()) {
+            return result;
+        }
+        return result.plus(gridModel.getThermometers().validate(gridModel.getGrid()));
+    }
+    
+    private static boolean agreesWithGivens(Grid grid, Grid solution) {
+        // Protects against a puzzle that happens to have the same name as a puzzle in
+        // the inventory, e.g. a puzzle opened from a puzzle bank.
+        return Position.all()
+                .filter(p -> grid.cellAt(p).isGiven())
+                .allMatch(p -> grid.cellAt(p).getValue().equals(solution.cellAt(p).getValue()));
+    }
+    
+    private static ValidationResult validate(Grid grid, Grid solution) {
+        Set<Position> invalidPositions = Position.all()
+                .filter(p -> !grid.cellAt(p).getValue().equals(solution.cellAt(p).getValue()))
+                .collect(toSet());
+        return new ValidationResult(invalidPositions);
     }
     
     public GridUiModel getGridModel() {
@@ -0,0 +1,105 @@
+package jetoze.tzudoku.ui;
+
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.border.TitledBorder;
+
+import jetoze.gunga.layout.Layouts;
+import jetoze.gunga.widget.Widget;
+import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.model.SolverConfig;
+
+/**
+ * UI for editing the {@link SolverConfig}: which techniques the solver may use, the time
+ * budget of each technique, and the overall deadline. A time of 0 means no limit.
+ */
+public class SolverConfigUi implements Widget {
+
+    private final Map<SolvingTechnique, JCheckBox> enabledCheckBoxes = new EnumMap<>(SolvingTechnique.class);
+    private final Map<SolvingTechnique, JSpinner> budgetSpinners = new EnumMap<>(SolvingTechnique.class);
+    private final JSpinner deadlineSpinner;
+    private final JComponent ui;
+
+    public SolverConfigUi(SolverConfig config) {
+        for (SolvingTechnique t : SolvingTechnique.values()) {
+            enabledCheckBoxes.put(t, new JCheckBox(t.getName(), config.isEnabled(t)));
+            long budget = config.getBudget(t).map(Duration::toMillis).orElse(0L);
+            budgetSpinners.put(t, createSpinner(budget, 10_000L, 10L));
+        }
+        long deadline = config.getDeadline().map(Duration::getSeconds).orElse(0L);
+        deadlineSpinner = createSpinner(deadline, 3_600L, 1L);
+        ui = layoutUi();
+    }
+
+    private static JSpinner createSpinner(long value, long max, long step) {
+        return new JSpinner(new SpinnerNumberModel(Long.valueOf(value), Long.valueOf(0L), Long.valueOf(max), Long.valueOf(step)));
+    }
+
+    private JComponent layoutUi() {
+        JPanel techniques = new JPanel(new GridBagLayout());
+        techniques.setBorder(new TitledBorder("Techniques"));
+        GridBagConstraints c = new GridBagConstraints();
+        c.ipadx = 5;
+        c.anchor = GridBagConstraints.WEST;
+        c.gridy = 0;
+        c.gridx = 1;
+        techniques.add(new JLabel("Budget (ms)"), c);
+        for (SolvingTechnique t : SolvingTechnique.values()) {
+            ++c.gridy;
+            c.gridx = 0;
+            c.weightx = 1.0;
+            techniques.add(enabledCheckBoxes.get(t), c);
+            c.gridx = 1;
+            c.weightx = 0.0;
+            techniques.add(budgetSpinners.get(t), c);
+        }
+        JPanel deadline = Layouts.form()
+                .addRow("Time limit (s):", deadlineSpinner)
+                .build();
+        return Layouts.border(0, 8)
+                .center(techniques)
+                .south(deadline)
+                .build();
+    }
+
+    /**
+     * Returns the SolverConfig defined by this UI.
+     */
+    public SolverConfig getSolverConfig() {
+        SolverConfig.Builder builder = SolverConfig.builder();
+        for (SolvingTechnique t : SolvingTechnique.values()) {
+            if (!enabledCheckBoxes.get(t).isSelected()) {
+                builder.disable(t);
+            }
+            long budget = ((Number) budgetSpinners.get(t).getValue()).longValue();
+            if (budget > 0L) {
+                builder.budget(t, Duration.ofMillis(budget));
+            }
+        }
+        long deadline = ((Number) deadlineSpinner.getValue()).longValue();
+        if (deadline > 0L) {
+            builder.deadline(Duration.ofSeconds(deadline));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public JComponent getUi() {
+        return ui;
+    }
+
+    @Override
+    public void requestFocus() {
+        enabledCheckBoxes.get(SolvingTechnique.NAKED_SINGLE).requestFocusInWindow();
+    }
+}
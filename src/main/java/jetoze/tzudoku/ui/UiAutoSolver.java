@@ -6,6 +6,9 @@ import java.awt.Point;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -19,9 +22,11 @@ import javax.swing.border.EmptyBorder;
 import jetoze.gunga.UiThread;
 import jetoze.gunga.layout.Layouts;
 import jetoze.tzudoku.hint.Hint;
-import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.model.GridSnapshot;
 import jetoze.tzudoku.model.GridSolver;
 import jetoze.tzudoku.model.GridSolver.Result;
+import jetoze.tzudoku.model.SolverConfig;
 import jetoze.tzudoku.ui.hint.HintCellDecorator;
 import jetoze.tzudoku.ui.hint.HintUi;
 import jetoze.tzudoku.ui.hint.HintUiFactory;
@@ -33,33 +38,50 @@ import jetoze.tzudoku.ui.hint.HintUiFactory;
  */
 public class UiAutoSolver {
     
-    // TODO: Have a preferences page somewhere that allows the user to control
-    // which techniques should be used by the auto-solver. For example, by disabling
-    // the more advanced techniques you can then solve a puzzle up to the point where
-    // an advanced technique is necessary, which could be good practice.
-    
     /**
      * The delay between updating the UI with the next completed hint.
      */
     private static final Duration HINT_DELAY = Duration.ofMillis(750L);
     
+    /**
+     * The delay between updating the UI with the next completed hint, once the solver
+     * is done and only Naked and Hidden Singles remain to be replayed.
+     */
+    private static final Duration SINGLES_DELAY = Duration.ofMillis(150L);
+    
+    /**
+     * The maximum time we let the solver run before we give up.
+     */
+    private static final Duration SOLVER_TIME_LIMIT = Duration.ofMinutes(1L);
+    
     private final JFrame appFrame;
     private final GridUiModel gridModel;
     private final HintUiFactory hintUiFactory;
+    private final SolverConfig config;
     
     public UiAutoSolver(JFrame appFrame, GridUiModel gridModel, HintUiFactory hintUiFactory) {
+        this(appFrame, gridModel, hintUiFactory, SolverConfig.DEFAULT);
+    }
+    
+    /**
+     * Creates an auto-solver that only uses the techniques enabled in the given config. 
+     * By disabling the more advanced techniques you can solve a puzzle up to the point 
+     * where an advanced technique is necessary, which can be good practice.
+     */
+    public UiAutoSolver(JFrame appFrame, GridUiModel gridModel, HintUiFactory hintUiFactory, SolverConfig config) {
         this.appFrame = requireNonNull(appFrame);
         this.gridModel = requireNonNull(gridModel);
         this.hintUiFactory = requireNonNull(hintUiFactory);
+        this.config = requireNonNull(config);
     }
 
     public void start() {
-        Controller controller = new Controller(appFrame, gridModel, hintUiFactory);
+        Controller controller = new Controller(appFrame, gridModel, hintUiFactory, config);
         controller.start();
     }
     
     
-    // XXX: What purpose does the controller class serve now? Perhaps lift out [Timer, Result, hintIndex] to
+    // XXX: What purpose does the controller class serve now? Perhaps lift out [Timer, Result, hints] to
     // separate class called something like HintDisplayer, and the lift everything out to the UiAutoSolver
     // class itself.
     private static class Controller {
@@ -67,37 +89,62 @@ public class UiAutoSolver {
         private final JFrame appFrame;
         private final GridUiModel model;
         private final HintUiFactory hintUiFactory;
+        private final SolverConfig config;
         private ProgressDialog progressDialog;
         private Timer timer;
+        /**
+         * The hints found by the solver that have not been replayed yet. The solver 
+         * publishes hints to this queue from the background thread while the timer
+         * replays them on the UI thread.
+         */
+        private final Queue<Hint> hints = new ConcurrentLinkedQueue<>();
+        /**
+         * The result of the solver. This is null until the solver is done.
+         */
         private Result result;
-        private int hintIndex;
-        private boolean cancelRequested;
+        /**
+         * Set when the user stops the auto-solver. This is read by the solver on the 
+         * background thread, hence the AtomicBoolean.
+         */
+        private final AtomicBoolean cancelRequested = new AtomicBoolean();
         
-        public Controller(JFrame appFrame, GridUiModel model, HintUiFactory hintUiFactory) {
+        public Controller(JFrame appFrame, GridUiModel model, HintUiFactory hintUiFactory, SolverConfig config) {
             this.appFrame = appFrame;
             this.model = model;
             this.hintUiFactory = hintUiFactory;
+            this.config = config;
         }
         
         public void start() {
-            cancelRequested = false;
+            cancelRequested.set(false);
             // Offload the start of the solver so that we can open the modal progress dialog.
             UiThread.runLater(() -> {
                 setStatus("Filling in candidates");
                 // TODO: Reset the eliminateCandidatesProperty to its original value
                 // when we are done?
                 model.getEliminateCandidatesProperty().set(true);
-                UiThread.offload(this::solveGrid, this::replayResult);
+                model.showRemainingCandidates();
+                GridSnapshot snapshot = GridSnapshot.of(model.getGrid());
+                UiThread.offload(() -> solveGrid(snapshot), this::onSolverDone);
+                // Start replaying the hints right away, while the solver is still working.
+                timer = new Timer((int) HINT_DELAY.toMillis(), e -> applyNextHint());
+                timer.start();
             });
             progressDialog = new ProgressDialog(() -> {
-                cancelRequested = true;
+                cancelRequested.set(true);
                 model.clearHighlightColors();
             });
             progressDialog.open(appFrame);
         }
         
-        private Result solveGrid() {
-            GridSolver solver = new GridSolver(Grid.copyOf(model.getGrid()));
+        private Result solveGrid(GridSnapshot snapshot) {
+            GridSolver solver = new GridSolver(snapshot.toGrid(), model.getThermometers())
+                    .setTimeLimit(SOLVER_TIME_LIMIT)
+                    .setConfig(config)
+                    .setCancellationToken(cancelRequested::get)
+                    .setHintConsumer(hints::add)
+                    .setProgressListener((steps, filledCells) -> UiThread.runLater(() -> 
+                        progressDialog.setProgress(String.format("Solver: %d steps, %d cells filled", steps, filledCells))));
             return solver.solve();
         }
         
@@ -106,38 +153,48 @@ public class UiAutoSolver {
             progressDialog.setStatus(text);
         }
 
-        private void replayResult(Result result) {
-            // TODO: If we reach a point where only Naked and Hidden singles 
-            // remain in the replay list, speed up the timer.
-            if (cancelRequested) {
-                return;
-            }
+        private void onSolverDone(Result result) {
             this.result = result;
-            this.hintIndex = 0;
-            model.showRemainingCandidates();
-            timer = new Timer((int) HINT_DELAY.toMillis(), e -> applyNextHint());
-            timer.start();
         }
         
         private void applyNextHint() {
-            if (cancelRequested) {
+            if (cancelRequested.get()) {
+                timer.stop();
                 return;
             }
-            Hint hint = result.getHintsApplied().get(hintIndex);
-            updateUi(hint);
-            ++hintIndex;
-            if (hintIndex == result.getHintsApplied().size()) {
+            Hint hint = hints.poll();
+            if (hint != null) {
+                updateUi(hint);
+                speedUpIfOnlySinglesRemain();
+            } else if (result != null) {
                 stop();
+            } else {
+                setStatus("Looking for the next step...");
+            }
+        }
+        
+        private void speedUpIfOnlySinglesRemain() {
+            if (result != null && hints.stream().map(Hint::getTechnique).allMatch(Controller::isSingle)) {
+                timer.setDelay((int) SINGLES_DELAY.toMillis());
             }
         }
         
+        private static boolean isSingle(SolvingTechnique technique) {
+            return technique == SolvingTechnique.NAKED_SINGLE || technique == SolvingTechnique.HIDDEN_SINGLE;
+        }
+        
         private void stop() {
             UiThread.throwIfNotUiThread();
-            timer.stop();
+            if (timer != null) {
+                timer.stop();
+            }
             progressDialog.close();
             model.clearHighlightColors();
             if (model.getGrid().isSolved()) {
                 showSuccessMessage();
+            } else if (result.getInterruption().orElse(null) == GridSolver.Interruption.TIMED_OUT) {
+                JOptionPane.showMessageDialog(appFrame, "I ran out of time before I could solve this puzzle :(", 
+                        "No Solution Found", JOptionPane.ERROR_MESSAGE);
             } else {
                 JOptionPane.showMessageDialog(appFrame, "This puzzle proved too difficult for me to solve :(", 
                         "No Solution Found", JOptionPane.ERROR_MESSAGE);
@@ -165,6 +222,10 @@ public class UiAutoSolver {
     
     private static class ProgressDialog {
         private final JLabel statusLabel = new JLabel(" ".repeat(60));
+        /**
+         * Shows the progress of the solver, which runs ahead of the hints being replayed.
+         */
+        private final JLabel progressLabel = new JLabel(" ");
         private final JButton cancelButton = new JButton("Stop");
         private final Runnable cancelHandler;
         private JDialog dialog;
@@ -178,9 +239,13 @@ public class UiAutoSolver {
             statusLabel.setText(text);
         }
         
+        public void setProgress(String text) {
+            progressLabel.setText(text);
+        }
+        
         public void open(JFrame appFrame) {
             dialog = new JDialog(appFrame, "Auto-solve Progress", true);
-            JPanel buttonPanel = Layouts.border().east(cancelButton).build();
+            JPanel buttonPanel = Layouts.border().west(progressLabel).east(cancelButton).build();
             dialog.setContentPane(Layouts.border(0, 10)
                     .center(statusLabel)
                     .south(buttonPanel)
@@ -12,7 +12,11 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.Stroke;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
 
 import javax.swing.AbstractButton;
 import javax.swing.Action;
@@ -32,6 +36,8 @@ import jetoze.tzudoku.constraint.KillerCage;
 import jetoze.tzudoku.constraint.KillerCages;
 import jetoze.tzudoku.constraint.Sandwich;
 import jetoze.tzudoku.constraint.Sandwiches;
+import jetoze.tzudoku.constraint.Thermometer;
+import jetoze.tzudoku.constraint.Thermometers;
 import jetoze.tzudoku.constraint.KillerCage.InnerCorner;
 import jetoze.tzudoku.model.CellColor;
 import jetoze.tzudoku.model.GridSolver.Result;
@@ -54,6 +60,12 @@ public final class UiLook {
 
     private static final Color BORDER_COLOR = Color.BLACK;
         
+    /**
+     * Thermometers are drawn on top of the cells, so the color must be transparent
+     * enough for the cell values and pencil marks to shine through.
+     */
+    private static final Color THERMOMETER_COLOR = new Color(0x80, 0x80, 0x80, 0x70);
+    
     private static final Color ICON_BORDER_COLOR = new Color(0x30, 0x30, 0x30);
 
     private static final int LARGE_BUTTON_FONT_SIZE = 20;
@@ -271,6 +283,37 @@ public final class UiLook {
         g.setColor(originalColor);
     }
     
+    static void drawThermometers(Graphics2D g, Thermometers thermometers, BoardSize boardSize) {
+        if (thermometers.isEmpty()) {
+            return;
+        }
+        Color originalColor = g.getColor();
+        Object originalAntialiasing = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+        
+        g.setColor(THERMOMETER_COLOR);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        for (Thermometer thermo : thermometers.getThermometers()) {
+            // We fill the outline of the bulb and the tube as a single shape, otherwise
+            // the overlapping parts would be painted twice and appear darker.
+            Rectangle bulb = boardSize.getCellBounds(thermo.getBulb());
+            double bulbSize = 0.7 * bulb.width;
+            Area area = new Area(new Ellipse2D.Double(bulb.getCenterX() - bulbSize / 2, 
+                    bulb.getCenterY() - bulbSize / 2, bulbSize, bulbSize));
+            Path2D tube = new Path2D.Double();
+            tube.moveTo(bulb.getCenterX(), bulb.getCenterY());
+            for (Position p : thermo.getPositions().subList(1, thermo.size())) {
+                Rectangle r = boardSize.getCellBounds(p);
+                tube.lineTo(r.getCenterX(), r.getCenterY());
+            }
+            Stroke tubeStroke = new BasicStroke(0.3f * bulb.width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+            area.add(new Area(tubeStroke.createStrokedShape(tube)));
+            g.fill(area);
+        }
+        
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, originalAntialiasing);
+        g.setColor(originalColor);
+    }
+    
     static void fillCellBackground(Graphics2D g, 
                                    int cellSize, 
                                    CellColor cellColor, 
@@ -10,6 +10,7 @@ import jetoze.tzudoku.hint.PointingPair;
 import jetoze.tzudoku.hint.SimpleColoring;
 import jetoze.tzudoku.hint.Single;
 import jetoze.tzudoku.hint.Swordfish;
+import jetoze.tzudoku.hint.ThermometerBounds;
 import jetoze.tzudoku.hint.XWing;
 import jetoze.tzudoku.hint.XyzWing;
 import jetoze.tzudoku.hint.YWing;
@@ -62,6 +63,8 @@ public class HintUiFactory {
             return new SimpleColoringUi((SimpleColoring) hint);
         } else if (hint instanceof Swordfish) {
             return new SwordfishUi((Swordfish) hint);
+        } else if (hint instanceof ThermometerBounds) {
+            return new ThermometerBoundsUi((ThermometerBounds) hint);
         }
         throw new UnsupportedOperationException("Not supported in the UI: " + hint.getTechnique());
     }
@@ -0,0 +1,39 @@
+package jetoze.tzudoku.ui.hint;
+
+import static java.util.stream.Collectors.joining;
+import static jetoze.tzudoku.ui.hint.HintUiUtils.valuesInOrder;
+
+import java.util.Map;
+
+import org.apache.commons.text.StringSubstitutor;
+
+import com.google.common.collect.ImmutableMap;
+
+import jetoze.tzudoku.hint.ThermometerBounds;
+
+class ThermometerBoundsUi extends AbstractEliminatingHintUi<ThermometerBounds> {
+
+    public ThermometerBoundsUi(ThermometerBounds hint) {
+        super(hint);
+    }
+
+    @Override
+    protected String createHtml(ThermometerBounds hint) {
+        String template = "<html>Found a Thermometer restriction:<br><br>" +
+                "Given the other cells on the thermometer ${thermometer}, ${target} must be a digit " +
+                "in the range ${lower}-${upper}.<br>" +
+                "${values} can therefore be eliminated from ${target}.</html>";
+        // The positions are listed from the bulb to the tip.
+        String thermometer = hint.getThermometer().getPositions().stream()
+                .map(Object::toString)
+                .collect(joining(" "));
+        Map<String, Object> args = ImmutableMap.of(
+                "thermometer", thermometer,
+                "target", hint.getTarget(),
+                "lower", hint.getLowerBound(),
+                "upper", hint.getUpperBound(),
+                "values", valuesInOrder(hint.getValues()));
+        return new StringSubstitutor(args).replace(template);
+    }
+
+}
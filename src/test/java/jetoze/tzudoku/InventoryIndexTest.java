@@ -0,0 +1,152 @@
+package jetoze.tzudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.model.CanonicalForm;
+import jetoze.tzudoku.model.DifficultyRating;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.PuzzleInfo;
+import jetoze.tzudoku.model.PuzzleState;
+
+public class InventoryIndexTest {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2020, 11, 5, 12, 30, 0, 0, ZoneId.of("UTC"));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void changesAreAppendedAndReadBack() {
+        // Arrange
+        Path file = tempDir.resolve(InventoryIndex.FILE_NAME);
+        InventoryIndex index = InventoryIndex.load(file);
+        CanonicalForm canonicalForm = CanonicalForm.of(Grid.exampleOfUnsolvedGrid());
+        DifficultyRating rating = DifficultyRating.fromStorageString(SolvingTechnique.X_WING.name());
+
+        // Act
+        index.put(InventoryIndex.Entry.of("First", "First", PuzzleState.NEW, NOW, null, "First.json")
+                .withCanonicalForm(Optional.of(canonicalForm)));
+        index.put(InventoryIndex.Entry.of("Second_Puzzle", "Second Puzzle", PuzzleState.NEW, null, null,
+                "Second_Puzzle.tzb"));
+        index.update("First", e -> e.withState(PuzzleState.PROGRESS, NOW.plusDays(1)));
+        index.update("First", e -> e.withRating(rating));
+        index.remove("Second_Puzzle");
+        InventoryIndex reloaded = InventoryIndex.load(file);
+
+        // Assert
+        assertEquals(5, index.getNumberOfRecords());
+        assertEquals(1, reloaded.getEntries().size());
+        InventoryIndex.Entry entry = reloaded.get("First").orElseThrow();
+        PuzzleInfo info = entry.toPuzzleInfo();
+        assertEquals("First", info.getName());
+        assertEquals(PuzzleState.PROGRESS, info.getState());
+        assertEquals(Optional.of(NOW.plusDays(1)), info.lastUpdated());
+        assertEquals(Optional.of(rating), info.getRating());
+        assertEquals(Optional.of(canonicalForm), entry.getCanonicalForm());
+        assertEquals("First.json", entry.getFileName());
+    }
+
+    @Test
+    public void compactionKeepsOneRecordPerEntry() {
+        // Arrange
+        Path file = tempDir.resolve(InventoryIndex.FILE_NAME);
+        InventoryIndex index = InventoryIndex.load(file);
+        index.put(InventoryIndex.Entry.of("Puzzle", "Puzzle", PuzzleState.NEW, NOW, null, "Puzzle.json"));
+        for (int n = 1; n <= 10; ++n) {
+            ZonedDateTime lastUpdated = NOW.plusMinutes(n);
+            index.update("Puzzle", e -> e.withState(PuzzleState.PROGRESS, lastUpdated));
+        }
+
+        // Act
+        index.compact();
+        InventoryIndex reloaded = InventoryIndex.load(file);
+
+        // Assert
+        assertEquals(1, index.getNumberOfRecords());
+        assertEquals(1, reloaded.getNumberOfRecords());
+        assertEquals(Optional.of(NOW.plusMinutes(10)), reloaded.get("Puzzle").orElseThrow().toPuzzleInfo().lastUpdated());
+    }
+
+    @Test
+    public void solutionsAreStoredWithTheEntry() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve(InventoryIndex.FILE_NAME);
+        // A record written before solutions were stored.
+        Files.writeString(file, "+\tOld\tOld\tNEW\t\t\t?\tOld.json\n");
+        InventoryIndex index = InventoryIndex.load(file);
+
+        // Act
+        index.put(InventoryIndex.Entry.of("Solved", "Solved", PuzzleState.NEW, NOW, null, "Solved.json")
+                .withSolution(Optional.of(Grid.exampleOfSolvedGrid())));
+        index.put(InventoryIndex.Entry.of("Ambiguous", "Ambiguous", PuzzleState.NEW, NOW, null, "Ambiguous.json")
+                .withSolution(Optional.empty()));
+        InventoryIndex reloaded = InventoryIndex.load(file);
+
+        // Assert
+        InventoryIndex.Entry old = reloaded.get("Old").orElseThrow();
+        assertFalse(old.hasComputedSolution());
+        InventoryIndex.Entry solved = reloaded.get("Solved").orElseThrow();
+        assertTrue(solved.hasComputedSolution());
+        assertTrue(Grid.exampleOfSolvedGrid().isEquivalent(solved.getSolution().orElseThrow()));
+        InventoryIndex.Entry ambiguous = reloaded.get("Ambiguous").orElseThrow();
+        assertTrue(ambiguous.hasComputedSolution());
+        assertTrue(ambiguous.getSolution().isEmpty());
+    }
+
+    @Test
+    public void damagedRecordsAreIgnored() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve(InventoryIndex.FILE_NAME);
+        InventoryIndex index = InventoryIndex.load(file);
+        index.put(InventoryIndex.Entry.of("Puzzle", "Puzzle", PuzzleState.NEW, NOW, null, "Puzzle.json"));
+        // A record that was cut short by a crash.
+        Files.writeString(file, "+\tOther\tOth", StandardOpenOption.APPEND);
+
+        // Act
+        InventoryIndex reloaded = InventoryIndex.load(file);
+        reloaded.put(InventoryIndex.Entry.of("Third", "Third", PuzzleState.NEW, NOW, null, "Third.json"));
+        InventoryIndex reloadedAgain = InventoryIndex.load(file);
+
+        // Assert
+        assertTrue(reloadedAgain.get("Puzzle").isPresent());
+        assertTrue(reloadedAgain.get("Third").isPresent());
+        assertFalse(reloadedAgain.get("Other").isPresent());
+    }
+
+    @Test
+    public void aRecordWithoutALineTerminatorIsDamaged() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve(InventoryIndex.FILE_NAME);
+        InventoryIndex index = InventoryIndex.load(file);
+        index.put(InventoryIndex.Entry.of("Puzzle", "Puzzle", PuzzleState.NEW, NOW, null, "Puzzle.json"));
+        // A record in the format without solutions, cut short in the file name. The fields
+        // by themselves make up a valid record.
+        Files.writeString(file, "+\tOther\tOther\tNEW\t\t\t?\tOth", StandardOpenOption.APPEND);
+
+        // Act
+        InventoryIndex reloaded = InventoryIndex.load(file);
+        reloaded.put(InventoryIndex.Entry.of("Third", "Third", PuzzleState.NEW, NOW, null, "Third.json"));
+        InventoryIndex reloadedAgain = InventoryIndex.load(file);
+
+        // Assert
+        assertFalse(reloaded.get("Other").isPresent());
+        assertEquals(2, reloadedAgain.getNumberOfRecords());
+        assertTrue(reloadedAgain.get("Puzzle").isPresent());
+        assertEquals("Third.json", reloadedAgain.get("Third").orElseThrow().getFileName());
+        assertFalse(reloadedAgain.get("Other").isPresent());
+    }
+}
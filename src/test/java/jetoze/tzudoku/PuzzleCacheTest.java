@@ -0,0 +1,96 @@
+package jetoze.tzudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.Value;
+
+public class PuzzleCacheTest {
+
+    private static final File FILE = new File("Test.json");
+    private static final Duration TIME_LIMIT = Duration.ofMinutes(1L);
+
+    @Test
+    public void puzzlesAreLoadedOnceUntilInvalidated() throws IOException {
+        // Arrange
+        PuzzleCache cache = new PuzzleCache(1024L);
+        AtomicInteger loads = new AtomicInteger();
+        Callable<Puzzle> loader = () -> {
+            loads.incrementAndGet();
+            return new Puzzle("Test", Grid.exampleOfUnsolvedGrid());
+        };
+
+        // Act
+        Puzzle first = cache.getPuzzle(FILE, "Test", loader);
+        // Puzzles handed out by the cache must not share state with the cache.
+        first.getGrid().getCells().values().stream()
+            .filter(c -> !c.isGiven())
+            .findFirst()
+            .orElseThrow()
+            .setValue(Value.ONE);
+        Puzzle second = cache.getPuzzle(FILE, "Other Name", loader);
+        cache.invalidate(FILE);
+        cache.getPuzzle(FILE, "Test", loader);
+
+        // Assert
+        assertEquals(2, loads.get());
+        assertEquals("Other Name", second.getName());
+        assertTrue(Grid.exampleOfUnsolvedGrid().isEquivalent(second.getGrid()));
+        assertEquals(1L, cache.getStats().hitCount());
+        assertEquals(2L, cache.getStats().missCount());
+    }
+
+    @Test
+    public void solutionsAreComputedOnce() throws Exception {
+        // Arrange
+        PuzzleCache cache = new PuzzleCache(1024L);
+        Callable<Puzzle> loader = () -> new Puzzle("Test", Grid.exampleOfUnsolvedGrid());
+
+        // Act
+        Grid solution = cache.getSolution(FILE, "Test", loader, TIME_LIMIT).orElseThrow();
+        Grid again = cache.getSolution(FILE, "Test", loader, TIME_LIMIT).orElseThrow();
+
+        // Assert
+        assertTrue(solution.isSolved());
+        assertTrue(solution.isEquivalent(again));
+        assertFalse(solution == again);
+        Position given = new Position(1, 1);
+        assertEquals(Grid.exampleOfUnsolvedGrid().cellAt(given).isGiven(), solution.cellAt(given).isGiven());
+        assertEquals(1L, cache.getStats().hitCount());
+    }
+
+    @Test
+    public void solutionsThatRunOutOfTimeAreNotCached() throws Exception {
+        // Arrange
+        PuzzleCache cache = new PuzzleCache(1024L);
+        Callable<Puzzle> loader = () -> new Puzzle("Test", Grid.exampleOfUnsolvedGrid());
+
+        // Act/Assert
+        assertThrows(TimeoutException.class, () -> cache.getSolution(FILE, "Test", loader, Duration.ofNanos(1L)));
+        assertTrue(cache.getSolution(FILE, "Test", loader, TIME_LIMIT).orElseThrow().isSolved());
+    }
+
+    @Test
+    public void loadingErrorsArePassedOn() {
+        PuzzleCache cache = new PuzzleCache(1024L);
+
+        assertThrows(IOException.class, () -> cache.getPuzzle(FILE, "Test", () -> {
+            throw new IOException("Missing file");
+        }));
+        assertEquals(0L, cache.getStats().hitCount());
+    }
+}
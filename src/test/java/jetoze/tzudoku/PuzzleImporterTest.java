@@ -0,0 +1,85 @@
+package jetoze.tzudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.PuzzleInfo;
+
+public class PuzzleImporterTest {
+
+    private static final String EXAMPLE = toLine(Grid.exampleOfUnsolvedGrid());
+    private static final String OTHER = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void importsValidUniquePuzzles() throws IOException {
+        // Arrange
+        PuzzleInventory inventory = new PuzzleInventory(tempDir.toFile());
+        String input = String.join("\n",
+                "# A comment",
+                "quizzes,solutions",
+                EXAMPLE + "," + toLine(Grid.exampleOfSolvedGrid()),
+                // The example with the digits 1 and 2 swapped, i.e. an equivalent puzzle.
+                EXAMPLE.replace('1', 'x').replace('2', '1').replace('x', '2'),
+                OTHER + "  rated 9.1",
+                ".".repeat(81),
+                "",
+                "not a puzzle");
+        List<PuzzleImporter.Report> progress = new ArrayList<>();
+
+        // Act
+        PuzzleImporter.Report report = new PuzzleImporter(inventory, 2)
+                .setProgressListener(progress::add)
+                .importPuzzles(new StringReader(input), "test");
+
+        // Assert
+        assertEquals(8, report.getLinesRead());
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getDuplicates());
+        assertEquals(2, report.getInvalid());
+        assertEquals(1, report.getUnsolvable());
+        assertFalse(progress.isEmpty());
+        Set<String> names = inventory.listPuzzles().stream()
+                .map(PuzzleInfo::getName)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("test (3)", "test (5)"), names);
+        assertTrue(inventory.getStoredSolution("test (5)").map(Grid::isSolved).orElse(false));
+    }
+
+    @Test
+    public void puzzlesInTheInventoryAreNotImportedAgain() throws IOException {
+        // Arrange
+        PuzzleInventory inventory = new PuzzleInventory(tempDir.toFile());
+        new PuzzleImporter(inventory, 1).importPuzzles(new StringReader(EXAMPLE), "first");
+
+        // Act
+        PuzzleImporter.Report report = new PuzzleImporter(inventory, 1)
+                .importPuzzles(new StringReader(EXAMPLE + "\n" + OTHER), "second");
+
+        // Assert
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getDuplicates());
+        assertEquals(2, inventory.listPuzzles().size());
+    }
+
+    private static String toLine(Grid grid) {
+        return grid.toString()
+                .replace(System.getProperty("line.separator"), "")
+                .replace('x', '.');
+    }
+}
@@ -0,0 +1,115 @@
+package jetoze.tzudoku;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.model.DifficultyRating;
+import jetoze.tzudoku.model.PuzzleInfo;
+import jetoze.tzudoku.model.PuzzleState;
+
+public class PuzzleInfoIndexTest {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2020, 11, 5, 12, 30, 0, 0, ZoneId.of("UTC"));
+
+    @Test
+    public void queriesReturnTheSameResultAsFilteringAndSorting() {
+        // Arrange
+        List<PuzzleInfo> puzzles = createPuzzles(2000);
+        PuzzleInfoIndex index = new PuzzleInfoIndex();
+        puzzles.forEach(index::put);
+        List<InventoryQuery> queries = new ArrayList<>();
+        for (InventoryQuery.SortOrder sortOrder : InventoryQuery.SortOrder.values()) {
+            InventoryQuery base = InventoryQuery.builder().sortOrder(sortOrder).build();
+            queries.add(base);
+            queries.add(base.toBuilder().unsolved().build());
+            queries.add(base.toBuilder().states(PuzzleState.PROGRESS).build());
+            queries.add(base.toBuilder().namePrefix("Puzzle 1").build());
+            queries.add(base.toBuilder().namePrefix("Puzzle 12").unsolved().build());
+            queries.add(base.toBuilder().maxDifficulty(2.5).build());
+            queries.add(base.toBuilder().maxDifficulty(0.0).build());
+            queries.add(base.toBuilder().techniques(SolvingTechnique.X_WING, SolvingTechnique.NAKED_PAIR).build());
+            queries.add(base.toBuilder().unsolved().maxDifficulty(3.0).limit(25).build());
+            queries.add(base.toBuilder().namePrefix("No such puzzle").build());
+        }
+
+        for (InventoryQuery query : queries) {
+            // Act
+            List<PuzzleInfo> result = index.query(query);
+
+            // Assert
+            List<PuzzleInfo> expected = puzzles.stream()
+                    .filter(query.asPredicate())
+                    .sorted(query.getSortOrder().getComparator())
+                    .limit(query.getLimit())
+                    .collect(toList());
+            assertEquals(expected, result, query.toString());
+        }
+    }
+
+    @Test
+    public void theIndexesFollowAlongWhenAPuzzleIsUpdated() {
+        // Arrange
+        PuzzleInfoIndex index = new PuzzleInfoIndex();
+        index.put(new PuzzleInfo("First", PuzzleState.NEW, NOW));
+        index.put(new PuzzleInfo("Second", PuzzleState.NEW, NOW.plusMinutes(1)));
+        DifficultyRating rating = DifficultyRating.fromStorageString(SolvingTechnique.X_WING.name());
+        InventoryQuery newPuzzles = InventoryQuery.builder().states(PuzzleState.NEW).build();
+        InventoryQuery xWings = InventoryQuery.builder().techniques(SolvingTechnique.X_WING).build();
+
+        // Act
+        index.compute("First", i -> new PuzzleInfo(i.getName(), PuzzleState.PROGRESS, NOW.plusMinutes(2)));
+        index.computeIfPresent("Second", i -> i.withRating(rating));
+        index.computeIfPresent("Third", i -> i.withRating(rating));
+
+        // Assert
+        assertEquals(List.of("First", "Second"), names(index.query(InventoryQuery.ALL)));
+        assertEquals(List.of("Second"), names(index.query(newPuzzles)));
+        assertEquals(List.of("Second"), names(index.query(xWings)));
+        assertFalse(index.contains("Third"));
+
+        // Act
+        index.remove("Second");
+
+        // Assert
+        assertTrue(index.query(newPuzzles).isEmpty());
+        assertTrue(index.query(xWings).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    private static List<PuzzleInfo> createPuzzles(int count) {
+        Random random = new Random(42L);
+        SolvingTechnique[] techniques = SolvingTechnique.values();
+        List<PuzzleInfo> puzzles = new ArrayList<>();
+        for (int n = 0; n < count; ++n) {
+            PuzzleState state = PuzzleState.values()[random.nextInt(PuzzleState.values().length)];
+            ZonedDateTime lastUpdated = (random.nextInt(10) == 0)
+                    ? null
+                    : NOW.minusMinutes(random.nextInt(5000));
+            PuzzleInfo info = new PuzzleInfo("Puzzle " + n, state, lastUpdated);
+            if (random.nextInt(4) > 0) {
+                SolvingTechnique technique = techniques[random.nextInt(techniques.length)];
+                String rating = technique.name() + (random.nextBoolean() ? "" : "+");
+                info = info.withRating(DifficultyRating.fromStorageString(rating));
+            }
+            puzzles.add(info);
+        }
+        return puzzles;
+    }
+
+    private static List<String> names(List<PuzzleInfo> puzzles) {
+        return puzzles.stream()
+                .map(PuzzleInfo::getName)
+                .collect(toList());
+    }
+}
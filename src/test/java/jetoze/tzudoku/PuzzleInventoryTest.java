@@ -0,0 +1,119 @@
+package jetoze.tzudoku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.model.PuzzleBank;
+import jetoze.tzudoku.model.PuzzleInfo;
+import jetoze.tzudoku.model.PuzzleState;
+import jetoze.tzudoku.model.Value;
+
+public class PuzzleInventoryTest {
+
+    private static final Grid BANK_GRID = new Grid(
+            "800000000",
+            "003600000",
+            "070090200",
+            "050007000",
+            "000045700",
+            "000100030",
+            "001000068",
+            "008500010",
+            "090000400");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void savingAPuzzleFromABankAddsItToTheInventory() throws IOException {
+        // Arrange
+        File inventoryFolder = Files.createDirectory(tempDir.resolve("inventory")).toFile();
+        PuzzleInventory inventory = new PuzzleInventory(inventoryFolder);
+        inventory.addNewPuzzle(new Puzzle("top95 (1)", Grid.exampleOfUnsolvedGrid()));
+        Path bankFile = tempDir.resolve("top95" + PuzzleBank.FILE_EXTENSION);
+        PuzzleBank.write(bankFile, List.of(BANK_GRID));
+        Puzzle bankPuzzle = PuzzleBank.open(bankFile).getPuzzle(0);
+        bankPuzzle.getGrid().cellAt(new Position(1, 2)).setValue(Value.ONE);
+
+        // Act
+        inventory.saveProgress(bankPuzzle);
+
+        // Assert
+        PuzzleInventory reopened = new PuzzleInventory(inventoryFolder);
+        PuzzleInfo imported = getInfo(reopened, "top95 (1)");
+        assertEquals(PuzzleState.NEW, imported.getState());
+        PuzzleInfo saved = getInfo(reopened, bankPuzzle.getName());
+        assertEquals(PuzzleState.PROGRESS, saved.getState());
+        Puzzle loaded = reopened.loadPuzzle(saved);
+        assertEquals(Value.ONE, loaded.getGrid().cellAt(new Position(1, 2)).getValue().orElseThrow());
+        Puzzle original = reopened.loadPuzzle(new PuzzleInfo(saved.getName(), PuzzleState.NEW, null));
+        assertTrue(original.getGrid().cellAt(new Position(1, 2)).isEmpty());
+        assertTrue(reopened.findEquivalentPuzzle(new Puzzle("Copy", BANK_GRID)).isPresent());
+
+        // Act
+        reopened.archive(saved);
+
+        // Assert
+        assertFalse(reopened.containsPuzzle(bankPuzzle.getName()));
+        assertTrue(reopened.containsPuzzle("top95 (1)"));
+    }
+
+    @Test
+    public void bankPuzzlesDoNotCollideWithOtherPuzzles() throws IOException {
+        // Arrange
+        PuzzleInventory inventory = new PuzzleInventory(tempDir.toFile());
+        inventory.addNewPuzzle(new Puzzle("top95 - 1", Grid.exampleOfUnsolvedGrid()));
+        Path bankFile = tempDir.resolve("top95" + PuzzleBank.FILE_EXTENSION);
+        PuzzleBank.write(bankFile, List.of(BANK_GRID));
+        Puzzle bankPuzzle = PuzzleBank.open(bankFile).getPuzzle(0);
+        bankPuzzle.getGrid().cellAt(new Position(1, 2)).setValue(Value.ONE);
+
+        // Act
+        inventory.saveProgress(bankPuzzle);
+
+        // Assert
+        PuzzleInventory reopened = new PuzzleInventory(tempDir.toFile());
+        assertEquals(2, reopened.listPuzzles().size());
+        assertEquals(PuzzleState.NEW, getInfo(reopened, "top95 - 1").getState());
+        assertEquals(PuzzleState.PROGRESS, getInfo(reopened, bankPuzzle.getName()).getState());
+        assertTrue(reopened.loadPuzzle(getInfo(reopened, "top95 - 1")).getGrid().isEquivalent(Grid.exampleOfUnsolvedGrid()));
+    }
+
+    @Test
+    public void duplicatesAreSkippedWhenAddingUnlessDuplicate() throws IOException {
+        // Arrange
+        PuzzleInventory inventory = new PuzzleInventory(tempDir.toFile());
+        inventory.addNewPuzzle(new Puzzle("Generated", Grid.exampleOfUnsolvedGrid()));
+
+        // Act
+        Optional<String> duplicate = inventory.addNewPuzzleUnlessDuplicate("Generated", Grid.exampleOfUnsolvedGrid());
+        Optional<String> added = inventory.addNewPuzzleUnlessDuplicate("Generated", BANK_GRID);
+
+        // Assert
+        assertTrue(duplicate.isEmpty());
+        assertEquals(Optional.of("Generated (1)"), added);
+        assertTrue(inventory.getStoredSolution("Generated (1)").isPresent());
+        assertEquals(2, inventory.listPuzzles().size());
+    }
+
+    private static PuzzleInfo getInfo(PuzzleInventory inventory, String name) {
+        return inventory.listPuzzles().stream()
+                .filter(i -> i.getName().equals(name))
+                .findAny()
+                .orElseThrow();
+    }
+}
@@ -53,6 +53,19 @@ public class SandwichTest {
                 "A cell in an incomplete sandwich should be marked invalid if its digit is >= the sandwich sum");
     }
     
+    @Test
+    public void cellsOutsideTheSandwichAreIgnored() {
+        Sandwich sandwich = new Sandwich(House.row(1), 7);
+        Grid grid = Grid.emptyGrid();
+        grid.cellAt(new Position(1, 1)).setValue(Value.EIGHT);
+        grid.cellAt(new Position(1, 2)).setValue(Value.ONE);
+        grid.cellAt(new Position(1, 3)).setValue(Value.SEVEN);
+        grid.cellAt(new Position(1, 4)).setValue(Value.NINE);
+        grid.cellAt(new Position(1, 5)).setValue(Value.SIX);
+        
+        assertTrue(sandwich.validate(grid).isEmpty());
+    }
+    
     @Test
     public void testValidationOfZeroSumSandwich() {
         Sandwich sandwich = new Sandwich(House.row(1), 0);
@@ -0,0 +1,98 @@
+package jetoze.tzudoku.constraint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Value;
+
+public class ThermometerTest {
+
+    @Test
+    public void requiresAtLeastTwoCells() {
+        assertThrows(IllegalArgumentException.class, () -> thermometer(new Position(1, 1)));
+    }
+    
+    @Test
+    public void positionsMustBeConnected() {
+        // Diagonal steps are fine
+        thermometer(new Position(1, 1), new Position(2, 2), new Position(2, 3));
+        assertThrows(IllegalArgumentException.class, 
+                () -> thermometer(new Position(1, 1), new Position(1, 3)));
+    }
+    
+    @Test
+    public void mustNotCrossItself() {
+        assertThrows(IllegalArgumentException.class, 
+                () -> thermometer(new Position(1, 1), new Position(1, 2), new Position(2, 2), new Position(1, 1)));
+    }
+    
+    @Test
+    public void testMinimumAndMaximumValues() {
+        Thermometer thermo = thermometer(new Position(1, 1), new Position(1, 2), new Position(1, 3), new Position(1, 4));
+        
+        assertEquals(1, thermo.getMinimumValue(0));
+        assertEquals(6, thermo.getMaximumValue(0));
+        assertEquals(4, thermo.getMinimumValue(3));
+        assertEquals(9, thermo.getMaximumValue(3));
+    }
+    
+    @Test
+    public void testValidation() {
+        Position p1 = new Position(1, 1);
+        Position p2 = new Position(1, 2);
+        Position p3 = new Position(1, 3);
+        Position p4 = new Position(1, 4);
+        Thermometer thermo = thermometer(p1, p2, p3, p4);
+        Grid grid = Grid.emptyGrid();
+        
+        assertTrue(thermo.validate(grid).isEmpty());
+        
+        grid.cellAt(p1).setValue(Value.TWO);
+        grid.cellAt(p3).setValue(Value.FIVE);
+        assertTrue(thermo.validate(grid).isEmpty());
+        
+        grid.cellAt(p3).setValue(Value.FOUR);
+        assertTrue(thermo.validate(grid).isEmpty());
+
+        grid.cellAt(p3).setValue(Value.TWO);
+        assertEquals(ImmutableSet.of(p1, p3), thermo.validate(grid), 
+                "Digits that do not increase along the thermometer should be marked as invalid");
+        
+        grid.cellAt(p1).clearContent();
+        grid.cellAt(p3).clearContent();
+        grid.cellAt(p2).setValue(Value.FOUR);
+        grid.cellAt(p4).setValue(Value.FIVE);
+        assertEquals(ImmutableSet.of(p2, p4), thermo.validate(grid), 
+                "Digits that leave no room for the cells between them should be marked as invalid");
+        
+        grid.cellAt(p2).clearContent();
+        grid.cellAt(p4).setValue(Value.THREE);
+        assertEquals(ImmutableSet.of(p4), thermo.validate(grid), 
+                "A digit that is too small for its position on the thermometer should be marked as invalid");
+    }
+    
+    @Test
+    public void storedInOrderFromBulbToTip() {
+        Position p1 = new Position(5, 5);
+        Position p2 = new Position(4, 4);
+        Thermometer thermo = thermometer(p1, p2);
+        
+        assertEquals(p1, thermo.getBulb());
+        assertEquals(p2, thermo.getTip());
+        assertTrue(!thermo.equals(thermometer(p2, p1)), "The direction of a thermometer is significant");
+    }
+    
+    private static Thermometer thermometer(Position... positions) {
+        return new Thermometer(Arrays.asList(positions));
+    }
+
+}
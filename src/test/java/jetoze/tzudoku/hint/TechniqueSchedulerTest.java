@@ -0,0 +1,88 @@
+package jetoze.tzudoku.hint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.GridSolver;
+
+public class TechniqueSchedulerTest {
+
+    @Test
+    public void pedagogicalSchedulerKeepsTheDeclaredOrder() {
+        // Arrange
+        TechniqueScheduler scheduler = TechniqueScheduler.pedagogical();
+        scheduler.record(SolvingTechnique.SWORDFISH, 1L, true);
+        
+        // Act
+        List<SolvingTechnique> order = scheduler.getOrder(10.0);
+        
+        // Assert
+        assertEquals(Arrays.asList(SolvingTechnique.values()), order);
+    }
+    
+    @Test
+    public void easiestFirstSchedulerSortsByDifficulty() {
+        // Act
+        List<SolvingTechnique> order = TechniqueScheduler.easiestFirst().getOrder(0.0);
+        
+        // Assert
+        assertEquals(SolvingTechnique.values().length, order.size());
+        for (int n = 1; n < order.size(); ++n) {
+            assertTrue(order.get(n - 1).getDifficulty() <= order.get(n).getDifficulty());
+        }
+    }
+    
+    @Test
+    public void adaptiveSchedulerPutsCheapHighYieldTechniquesFirst() {
+        // Arrange
+        TechniqueScheduler scheduler = TechniqueScheduler.adaptive();
+        for (int n = 0; n < 10; ++n) {
+            scheduler.record(SolvingTechnique.NAKED_SINGLE, 1_000_000L, false);
+            scheduler.record(SolvingTechnique.HIDDEN_SINGLE, 1_000L, true);
+        }
+        
+        // Act
+        List<SolvingTechnique> order = scheduler.getOrder(SolvingTechnique.NAKED_SINGLE.getDifficulty());
+        
+        // Assert
+        assertTrue(order.indexOf(SolvingTechnique.HIDDEN_SINGLE) < order.indexOf(SolvingTechnique.NAKED_SINGLE));
+    }
+    
+    @Test
+    public void adaptiveSchedulerDoesNotMoveHarderTechniquesAboveTheCeiling() {
+        // Arrange
+        TechniqueScheduler scheduler = TechniqueScheduler.adaptive();
+        for (int n = 0; n < 10; ++n) {
+            scheduler.record(SolvingTechnique.X_WING, 1L, true);
+        }
+        
+        // Act
+        List<SolvingTechnique> order = scheduler.getOrder(SolvingTechnique.HIDDEN_SINGLE.getDifficulty());
+        
+        // Assert
+        assertEquals(SolvingTechnique.HIDDEN_SINGLE, order.get(0));
+        assertEquals(SolvingTechnique.values().length, order.size());
+        for (int n = 1; n < order.size(); ++n) {
+            assertTrue(order.get(n - 1).getDifficulty() <= order.get(n).getDifficulty());
+        }
+    }
+    
+    @Test
+    public void adaptiveSolverSolvesTheGrid() {
+        // Arrange
+        GridSolver solver = new GridSolver(Grid.exampleOfUnsolvedGrid())
+                .setScheduler(TechniqueScheduler.adaptive());
+        
+        // Act
+        GridSolver.Result result = solver.solve();
+        
+        // Assert
+        assertTrue(result.isSolved());
+    }
+}
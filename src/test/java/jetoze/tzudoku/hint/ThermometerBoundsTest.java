@@ -0,0 +1,82 @@
+package jetoze.tzudoku.hint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.constraint.Thermometer;
+import jetoze.tzudoku.constraint.Thermometers;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Value;
+
+public class ThermometerBoundsTest {
+
+    @Test
+    public void lowerBoundIsPushedFromTheBulb() {
+        // The bulb is [46] --> r1c2 must be at least 5.
+        Grid grid = GridBuilder.builder()
+                .row(1, "[46][2345789][123456789] [123456789][123456789][123456789] [123456789][123456789][123456789]")
+                .build();
+        Thermometers thermos = thermometers(new Position(1, 1), new Position(1, 2));
+        
+        Optional<ThermometerBounds> opt = ThermometerBounds.analyze(grid, thermos);
+        
+        assertTrue(opt.isPresent());
+        ThermometerBounds hint = opt.get();
+        assertEquals(new Position(1, 2), hint.getTarget());
+        assertEquals(ImmutableSet.of(Value.TWO, Value.THREE, Value.FOUR), hint.getValues());
+        assertSame(Value.FIVE, hint.getLowerBound());
+        assertSame(Value.NINE, hint.getUpperBound());
+    }
+    
+    @Test
+    public void upperBoundIsPushedFromTheTip() {
+        // The tip is a given 5, and there are two cells before it --> the bulb can be at most 3.
+        Grid grid = GridBuilder.builder()
+                .row(1, "[1234][123456789]5 [123456789][123456789][123456789] [123456789][123456789][123456789]")
+                .build();
+        Thermometers thermos = thermometers(new Position(1, 1), new Position(1, 2), new Position(1, 3));
+        
+        Optional<ThermometerBounds> opt = ThermometerBounds.analyze(grid, thermos);
+        
+        assertTrue(opt.isPresent());
+        ThermometerBounds hint = opt.get();
+        assertEquals(new Position(1, 1), hint.getTarget());
+        assertEquals(ImmutableSet.of(Value.FOUR), hint.getValues());
+        assertSame(Value.THREE, hint.getUpperBound());
+    }
+    
+    @Test
+    public void cellsWithoutCandidatesAreNotTargets() {
+        Grid grid = Grid.emptyGrid();
+        Thermometers thermos = thermometers(new Position(1, 1), new Position(1, 2), new Position(1, 3));
+        
+        assertFalse(ThermometerBounds.analyze(grid, thermos).isPresent());
+    }
+    
+    @Test
+    public void solvingTechniqueUsesTheThermometers() {
+        Grid grid = GridBuilder.builder()
+                .row(1, "[46][2345789][123456789] [123456789][123456789][123456789] [123456789][123456789][123456789]")
+                .build();
+        Thermometers thermos = thermometers(new Position(1, 1), new Position(1, 2));
+        
+        assertFalse(SolvingTechnique.THERMOMETER.analyze(grid).isPresent());
+        assertTrue(SolvingTechnique.THERMOMETER.analyze(grid, thermos).isPresent());
+    }
+    
+    private static Thermometers thermometers(Position... positions) {
+        return new Thermometers(ImmutableList.of(new Thermometer(Arrays.asList(positions))));
+    }
+
+}
@@ -0,0 +1,83 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class CanonicalFormTest {
+
+    private static final String[] PUZZLE = {
+            "605004002",
+            "000600901",
+            "000050300",
+            "001000000",
+            "300587006",
+            "000000400",
+            "004030000",
+            "503008000",
+            "800100207"
+    };
+
+    @Test
+    public void transposedPuzzleHasSameCanonicalForm() {
+        // Arrange
+        String[] transposed = new String[9];
+        for (int c = 0; c < 9; ++c) {
+            StringBuilder sb = new StringBuilder();
+            for (int r = 0; r < 9; ++r) {
+                sb.append(PUZZLE[r].charAt(c));
+            }
+            transposed[c] = sb.toString();
+        }
+
+        // Act/Assert
+        assertEquals(CanonicalForm.of(new Grid(PUZZLE)), CanonicalForm.of(new Grid(transposed)));
+    }
+
+    @Test
+    public void permutedAndRelabeledPuzzleHasSameCanonicalForm() {
+        // Arrange
+        // Swap the first and last bands, swap the first two rows of the middle band,
+        // and swap the second and third columns of the last stack.
+        int[] rowOrder = {6, 7, 8, 4, 3, 5, 0, 1, 2};
+        int[] columnOrder = {0, 1, 2, 3, 4, 5, 6, 8, 7};
+        // Relabel the digits: d -> 10 - d
+        String[] transformed = new String[9];
+        for (int r = 0; r < 9; ++r) {
+            StringBuilder sb = new StringBuilder();
+            for (int c = 0; c < 9; ++c) {
+                int digit = PUZZLE[rowOrder[r]].charAt(columnOrder[c]) - '0';
+                sb.append(digit == 0 ? 0 : 10 - digit);
+            }
+            transformed[r] = sb.toString();
+        }
+
+        // Act/Assert
+        assertEquals(CanonicalForm.of(new Grid(PUZZLE)), CanonicalForm.of(new Grid(transformed)));
+    }
+
+    @Test
+    public void differentPuzzlesHaveDifferentCanonicalForms() {
+        // Arrange
+        String[] other = PUZZLE.clone();
+        other[8] = "800100200";
+
+        // Act/Assert
+        assertNotEquals(CanonicalForm.of(new Grid(PUZZLE)), CanonicalForm.of(new Grid(other)));
+    }
+
+    @Test
+    public void canonicalFormIsTheSmallestEquivalentGrid() {
+        // Arrange
+        CanonicalForm form = CanonicalForm.of(new Grid(PUZZLE));
+        String[] rows = new String[9];
+        for (int r = 0; r < 9; ++r) {
+            rows[r] = form.toString().substring(9 * r, 9 * r + 9);
+        }
+
+        // Act/Assert
+        assertEquals(form, CanonicalForm.of(new Grid(rows)));
+        assertEquals(form, CanonicalForm.fromString(form.toString()));
+    }
+}
@@ -0,0 +1,94 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import jetoze.tzudoku.hint.SolvingTechnique;
+import jetoze.tzudoku.hint.TechniqueScheduler;
+
+public class DifficultyRatingTest {
+
+    @Test
+    public void ratingIsGivenByTheHardestTechnique() {
+        // Arrange
+        DifficultyRater rater = new DifficultyRater(Duration.ofSeconds(30L));
+        Puzzle puzzle = new Puzzle("Test", Grid.exampleOfUnsolvedGrid());
+
+        // Act
+        DifficultyRating rating = rater.rate(puzzle);
+
+        // Assert
+        assertTrue(rating.isComplete());
+        SolvingTechnique hardest = rating.getHardestTechnique().get();
+        assertEquals(hardest.getDifficulty(), rating.getValue());
+    }
+
+    @Test
+    public void techniquesAreTriedInOrderOfIncreasingDifficulty() {
+        // Arrange
+        // This puzzle needs a Pointing Pair, but not a Naked Pair. Naked Pair is declared
+        // before Pointing Pair, so rating in the declared order would rate it as a Naked Pair.
+        Puzzle puzzle = new Puzzle("Test", new Grid(
+                "000700000",
+                "003054600",
+                "007000310",
+                "000000040",
+                "534900000",
+                "000031200",
+                "920000800",
+                "000800060",
+                "400067020"));
+        DifficultyRater rater = new DifficultyRater(Duration.ofSeconds(30L));
+        DifficultyRater declaredOrderRater = new DifficultyRater(Duration.ofSeconds(30L), 
+                TechniqueScheduler.pedagogical());
+
+        // Act
+        DifficultyRating rating = rater.rate(puzzle);
+        DifficultyRating declaredOrderRating = declaredOrderRater.rate(puzzle);
+
+        // Assert
+        assertTrue(rating.isComplete());
+        assertEquals(SolvingTechnique.POINTING_PAIR, rating.getHardestTechnique().orElseThrow());
+        assertTrue(declaredOrderRating.compareTo(rating) > 0);
+    }
+
+    @Test
+    public void solvedGridIsTrivial() {
+        // Arrange
+        DifficultyRater rater = new DifficultyRater(Duration.ofSeconds(30L));
+        Puzzle puzzle = new Puzzle("Test", Grid.exampleOfSolvedGrid());
+
+        // Act
+        DifficultyRating rating = rater.rate(puzzle);
+
+        // Assert
+        assertEquals(DifficultyRating.TRIVIAL, rating);
+    }
+
+    @Test
+    public void storageRoundTrip() {
+        for (String s : new String[] {"NONE", "X_WING", "SWORDFISH+"}) {
+            // Act
+            DifficultyRating rating = DifficultyRating.fromStorageString(s);
+
+            // Assert
+            assertEquals(s, rating.toStorageString());
+        }
+    }
+
+    @Test
+    public void incompleteRatingIsHarderThanCompleteRatingOfSameValue() {
+        // Arrange
+        DifficultyRating complete = DifficultyRating.fromStorageString("X_WING");
+        DifficultyRating incomplete = DifficultyRating.fromStorageString("X_WING+");
+        DifficultyRating harder = DifficultyRating.fromStorageString("SWORDFISH");
+
+        // Act/Assert
+        assertTrue(complete.compareTo(incomplete) < 0);
+        assertTrue(incomplete.compareTo(harder) < 0);
+    }
+}
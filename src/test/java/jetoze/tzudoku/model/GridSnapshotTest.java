@@ -0,0 +1,113 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class GridSnapshotTest {
+
+    @Test
+    public void toGridCreatesAnEquivalentButIndependentGrid() {
+        // Arrange
+        Grid grid = createGridWithPencilMarksAndColors();
+        GridSnapshot snapshot = GridSnapshot.of(grid);
+
+        // Act
+        Grid copy = snapshot.toGrid();
+
+        // Assert
+        assertEquals(snapshot, GridSnapshot.of(copy));
+        Position p = new Position(1, 2);
+        assertNotSame(grid.cellAt(p), copy.cellAt(p));
+        copy.cellAt(p).setValue(Value.FIVE);
+        assertEquals(snapshot, GridSnapshot.of(grid));
+    }
+
+    @Test
+    public void restoreReturnsTheGridToTheSnapshotState() {
+        // Arrange
+        Grid grid = createGridWithPencilMarksAndColors();
+        GridSnapshot snapshot = GridSnapshot.of(grid);
+        grid.cellAt(new Position(1, 2)).setValue(Value.SEVEN);
+        grid.cellAt(new Position(1, 4)).setValue(Value.EIGHT);
+        grid.cellAt(new Position(1, 1)).setColor(CellColor.RED);
+        grid.cellAt(new Position(2, 1)).getCornerMarks().clear();
+
+        // Act
+        snapshot.restore(grid);
+
+        // Assert
+        assertEquals(snapshot, GridSnapshot.of(grid));
+        assertTrue(grid.cellAt(new Position(1, 4)).getValue().isEmpty());
+        assertEquals(ImmutableSet.of(Value.ONE, Value.NINE), grid.cellAt(new Position(1, 4)).getCenterMarks().getValues());
+    }
+
+    @Test
+    public void restoreRejectsGridWithDifferentGivens() {
+        // Arrange
+        GridSnapshot snapshot = GridSnapshot.of(createGridWithPencilMarksAndColors());
+
+        // Act/Assert
+        assertThrows(IllegalArgumentException.class, () -> snapshot.restore(Grid.emptyGrid()));
+    }
+
+    @Test
+    public void deltaOnlyContainsTheChangedCells() {
+        // Arrange
+        Grid grid = createGridWithPencilMarksAndColors();
+
+        // Act
+        GridDelta delta = GridDelta.record(grid, () -> {
+            grid.cellAt(new Position(1, 4)).setValue(Value.NINE);
+            grid.cellAt(new Position(5, 5)).setColor(CellColor.GREEN);
+        });
+
+        // Assert
+        assertEquals(ImmutableSet.of(new Position(1, 4), new Position(5, 5)), delta.getPositions());
+    }
+
+    @Test
+    public void deltaCanBeRevertedAndReapplied() {
+        // Arrange
+        Grid grid = createGridWithPencilMarksAndColors();
+        GridSnapshot before = GridSnapshot.of(grid);
+        GridDelta delta = GridDelta.record(grid, () -> {
+            grid.cellAt(new Position(1, 4)).setValue(Value.NINE);
+            grid.cellAt(new Position(2, 1)).getCornerMarks().toggle(Value.FOUR);
+        });
+        GridSnapshot after = GridSnapshot.of(grid);
+
+        // Act/Assert
+        delta.revert(grid);
+        assertEquals(before, GridSnapshot.of(grid));
+        delta.apply(grid);
+        assertEquals(after, GridSnapshot.of(grid));
+    }
+
+    @Test
+    public void noChangesGivesAnEmptyDelta() {
+        // Arrange
+        Grid grid = createGridWithPencilMarksAndColors();
+
+        // Act
+        GridDelta delta = GridDelta.record(grid, () -> {});
+
+        // Assert
+        assertTrue(delta.isEmpty());
+    }
+
+    private static Grid createGridWithPencilMarksAndColors() {
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        grid.cellAt(new Position(1, 4)).getCenterMarks().setValues(EnumSet.of(Value.ONE, Value.NINE));
+        grid.cellAt(new Position(2, 1)).getCornerMarks().setValues(EnumSet.of(Value.TWO, Value.THREE));
+        grid.cellAt(new Position(1, 1)).setColor(CellColor.YELLOW);
+        return grid;
+    }
+}
@@ -0,0 +1,66 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import jetoze.tzudoku.hint.Hint;
+
+public class GridSolverTest {
+
+    @Test
+    public void solvesExampleGrid() {
+        GridSolver.Result result = new GridSolver(Grid.exampleOfUnsolvedGrid()).solve();
+        
+        assertTrue(result.isSolved());
+        assertFalse(result.isInterrupted());
+    }
+    
+    @Test
+    public void cancelledSolverReturnsPartialResult() {
+        // Arrange: cancel the solver after it has taken three steps.
+        List<Integer> steps = new ArrayList<>();
+        GridSolver solver = new GridSolver(Grid.exampleOfUnsolvedGrid())
+                .setProgressListener((s, filledCells) -> steps.add(s))
+                .setCancellationToken(() -> steps.size() >= 3);
+        
+        // Act
+        GridSolver.Result result = solver.solve();
+        
+        // Assert
+        assertFalse(result.isSolved());
+        assertTrue(result.isInterrupted());
+        assertEquals(Optional.of(GridSolver.Interruption.CANCELLED), result.getInterruption());
+        assertEquals(3, result.getHintsApplied().size());
+    }
+    
+    @Test
+    public void progressListenerReportsFilledCells() {
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        List<Integer> filledCells = new ArrayList<>();
+        
+        new GridSolver(grid)
+            .setProgressListener((steps, cells) -> filledCells.add(cells))
+            .solve();
+        
+        assertEquals(81, filledCells.get(filledCells.size() - 1));
+    }
+
+    @Test
+    public void hintsArePublishedAsTheyAreApplied() {
+        List<Hint> published = new ArrayList<>();
+        
+        GridSolver.Result result = new GridSolver(Grid.exampleOfUnsolvedGrid())
+                .setHintConsumer(published::add)
+                .solve();
+        
+        assertEquals(result.getHintsApplied(), published);
+    }
+
+}
@@ -0,0 +1,118 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.hint.Hint;
+import jetoze.tzudoku.hint.Single;
+import jetoze.tzudoku.hint.SolvingTechnique;
+
+public class PersistentGridTest {
+
+    @Test
+    public void branchesDoNotAffectTheOriginal() {
+        // Arrange
+        PersistentGrid original = PersistentGrid.of(Grid.exampleOfUnsolvedGrid());
+        Position p = new Position(1, 2);
+
+        // Act
+        PersistentGrid branch = original.withValue(p, Value.SEVEN);
+
+        // Assert
+        assertEquals(Optional.of(Value.SEVEN), branch.getValue(p));
+        assertFalse(original.hasValue(p));
+    }
+
+    @Test
+    public void removingCandidates() {
+        // Arrange
+        Position p = new Position(1, 2);
+        PersistentGrid grid = PersistentGrid.of(Grid.exampleOfUnsolvedGrid())
+                .withCandidates(p, EnumSet.of(Value.ONE, Value.SEVEN, Value.EIGHT));
+
+        // Act
+        PersistentGrid branch = grid.withoutCandidate(p, Value.SEVEN);
+
+        // Assert
+        assertEquals(ImmutableSet.of(Value.ONE, Value.EIGHT), branch.getCandidates(p));
+        assertEquals(ImmutableSet.of(Value.ONE, Value.SEVEN, Value.EIGHT), grid.getCandidates(p));
+        assertSame(branch, branch.withoutCandidate(p, Value.SEVEN));
+    }
+
+    @Test
+    public void givenCellsCannotBeModified() {
+        // Arrange
+        PersistentGrid grid = PersistentGrid.of(Grid.exampleOfUnsolvedGrid());
+
+        // Act/Assert
+        assertThrows(IllegalArgumentException.class, () -> grid.withValue(new Position(1, 1), Value.ONE));
+    }
+
+    @Test
+    public void toGridRoundTrip() {
+        // Arrange
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        grid.cellAt(new Position(1, 2)).getCenterMarks().setValues(EnumSet.of(Value.ONE, Value.SEVEN));
+        grid.cellAt(new Position(1, 4)).getCornerMarks().setValues(EnumSet.of(Value.TWO));
+        grid.cellAt(new Position(1, 1)).setColor(CellColor.BLUE);
+
+        // Act
+        Grid roundTrip = PersistentGrid.of(grid).toGrid();
+
+        // Assert
+        assertEquals(GridSnapshot.of(grid), GridSnapshot.of(roundTrip));
+    }
+
+    @Test
+    public void solvingTechniquesRunOnTheAdaptedGrid() {
+        // Arrange
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        grid.showRemainingCandidates();
+        PersistentGrid original = PersistentGrid.of(grid);
+        Single single = Single.findNextNaked(original.toGrid()).orElseThrow();
+        Position p = single.getPosition();
+
+        // Act
+        PersistentGrid branch = original.withValue(p, single.getValue()).withCandidates(p, ImmutableSet.of());
+        Optional<? extends Hint> hintInBranch = SolvingTechnique.NAKED_SINGLE.analyze(branch.toGrid());
+        Optional<? extends Hint> hintInOriginal = SolvingTechnique.NAKED_SINGLE.analyze(original.toGrid());
+
+        // Assert
+        assertTrue(hintInBranch.map(h -> ((Single) h).getPosition()).filter(p::equals).isEmpty());
+        assertEquals(p, ((Single) hintInOriginal.orElseThrow()).getPosition());
+    }
+
+    @Test
+    public void theAdapterSwitchesBetweenGridsAndCapturesChanges() {
+        // Arrange
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        grid.showRemainingCandidates();
+        PersistentGrid original = PersistentGrid.of(grid);
+        PersistentGridAdapter adapter = new PersistentGridAdapter(original);
+        Single single = Single.findNextNaked(adapter.getGrid()).orElseThrow();
+        Position p = single.getPosition();
+
+        // Act
+        single.apply();
+        PersistentGrid branch = adapter.capture();
+        adapter.load(original);
+        Grid restored = Grid.copyOf(adapter.getGrid());
+        adapter.load(branch);
+
+        // Assert
+        assertEquals(GridSnapshot.of(grid), GridSnapshot.of(restored));
+        assertEquals(GridSnapshot.of(branch.toGrid()), GridSnapshot.of(adapter.getGrid()));
+        assertEquals(single.getValue(), branch.getValue(p).orElseThrow());
+        assertFalse(original.hasValue(p));
+    }
+}
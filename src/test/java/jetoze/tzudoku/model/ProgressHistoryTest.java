@@ -0,0 +1,125 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.collect.ImmutableList;
+
+public class ProgressHistoryTest {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2020, 11, 5, 12, 30, 0, 0, ZoneId.of("UTC"));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void everySaveCanBeRestored() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("test" + ProgressHistory.FILE_EXTENSION);
+        List<Grid> saves = createSaves(7);
+
+        // Act
+        ProgressHistory history = ProgressHistory.open(file, 3);
+        for (int n = 0; n < saves.size(); ++n) {
+            history.append(new Puzzle("Test", saves.get(n)), NOW.plusMinutes(n));
+        }
+        ProgressHistory reopened = ProgressHistory.open(file, 3);
+
+        // Assert
+        ImmutableList<ProgressHistory.Entry> entries = reopened.getEntries();
+        assertEquals(saves.size(), entries.size());
+        for (int n = 0; n < saves.size(); ++n) {
+            ProgressHistory.Entry entry = entries.get(n);
+            assertEquals(n % 3 == 0, entry.isSnapshot(), "Wrong kind of record at index " + n);
+            assertEquals(NOW.plusMinutes(n), entry.getSavedAt());
+            Puzzle restored = reopened.restore(n, "Test");
+            assertTrue(saves.get(n).isEquivalent(restored.getGrid()), "Wrong grid at index " + n);
+        }
+    }
+
+    @Test
+    public void deltasAreSmallerThanSnapshots() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("test" + ProgressHistory.FILE_EXTENSION);
+        List<Grid> saves = createSaves(2);
+        ProgressHistory history = ProgressHistory.open(file);
+        history.append(new Puzzle("Test", saves.get(0)), NOW);
+        long snapshotSize = Files.size(file);
+
+        // Act
+        history.append(new Puzzle("Test", saves.get(1)), NOW);
+
+        // Assert
+        assertFalse(history.getEntries().get(1).isSnapshot());
+        assertTrue(Files.size(file) - snapshotSize < snapshotSize / 2);
+    }
+
+    @Test
+    public void aDamagedLastRecordIsOverwritten() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("test" + ProgressHistory.FILE_EXTENSION);
+        List<Grid> saves = createSaves(3);
+        ProgressHistory history = ProgressHistory.open(file);
+        history.append(new Puzzle("Test", saves.get(0)), NOW);
+        history.append(new Puzzle("Test", saves.get(1)), NOW);
+        // A record that was cut short by a crash.
+        Files.write(file, new byte[] { 1, 0, 0, 0 }, StandardOpenOption.APPEND);
+
+        // Act
+        ProgressHistory reopened = ProgressHistory.open(file);
+        int sizeAfterCrash = reopened.size();
+        reopened.append(new Puzzle("Test", saves.get(2)), NOW);
+        ProgressHistory reopenedAgain = ProgressHistory.open(file);
+
+        // Assert
+        assertEquals(2, sizeAfterCrash);
+        assertEquals(3, reopenedAgain.size());
+        assertTrue(saves.get(2).isEquivalent(reopenedAgain.restore(2, "Test").getGrid()));
+    }
+
+    /**
+     * Simulates a user solving a puzzle, by entering a value, a pencil mark or a color in
+     * one more cell for each save.
+     */
+    private static List<Grid> createSaves(int count) {
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        Grid solution = Grid.exampleOfSolvedGrid();
+        List<Position> emptyCells = new ArrayList<>();
+        grid.getCells().forEach((p, c) -> {
+            if (!c.hasValue()) {
+                emptyCells.add(p);
+            }
+        });
+        List<Grid> saves = new ArrayList<>();
+        for (int n = 0; n < count; ++n) {
+            Position p = emptyCells.get(n);
+            Cell cell = grid.cellAt(p);
+            Value value = solution.cellAt(p).getValue().orElseThrow();
+            switch (n % 3) {
+            case 0:
+                cell.setValue(value);
+                break;
+            case 1:
+                cell.getCenterMarks().toggle(value);
+                break;
+            default:
+                cell.setColor(CellColor.values()[1]);
+            }
+            saves.add(Grid.copyOf(grid));
+        }
+        return saves;
+    }
+}
@@ -0,0 +1,75 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PuzzleBankTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void randomAccessByIndex() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("test" + PuzzleBank.FILE_EXTENSION);
+        List<Grid> grids = List.of(Grid.exampleOfUnsolvedGrid(), Grid.exampleOfSolvedGrid(), Grid.emptyGrid());
+
+        // Act
+        int count = PuzzleBank.write(file, grids);
+        PuzzleBank bank = PuzzleBank.open(file);
+
+        // Assert
+        assertEquals(3, count);
+        assertEquals(3, bank.size());
+        for (int n = 0; n < grids.size(); ++n) {
+            assertTrue(grids.get(n).isEquivalent(bank.getGrid(n)), "Wrong grid at index " + n);
+        }
+        assertEquals("test #2", bank.getPuzzle(1).getName());
+        assertFalse(Puzzle.isValidName(bank.getPuzzle(1).getName()));
+        assertThrows(IndexOutOfBoundsException.class, () -> bank.getGrid(3));
+    }
+
+    @Test
+    public void parallelIterationVisitsAllGridsInOrder() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("large" + PuzzleBank.FILE_EXTENSION);
+        List<Grid> grids = new ArrayList<>();
+        for (int n = 0; n < 5000; ++n) {
+            grids.add((n % 2 == 0) ? Grid.exampleOfUnsolvedGrid() : Grid.exampleOfSolvedGrid());
+        }
+        PuzzleBank.write(file, grids);
+        PuzzleBank bank = PuzzleBank.open(file);
+
+        // Act
+        List<Boolean> solved = bank.grids()
+                .parallel()
+                .map(Grid::isSolved)
+                .collect(Collectors.toList());
+
+        // Assert
+        assertEquals(grids.size(), solved.size());
+        for (int n = 0; n < grids.size(); ++n) {
+            assertEquals(n % 2 != 0, solved.get(n), "Wrong grid at index " + n);
+        }
+    }
+
+    @Test
+    public void otherFilesAreRejected() throws IOException {
+        Path file = tempDir.resolve("other" + PuzzleBank.FILE_EXTENSION);
+        Files.writeString(file, "This is not a puzzle bank");
+
+        assertThrows(IOException.class, () -> PuzzleBank.open(file));
+    }
+}
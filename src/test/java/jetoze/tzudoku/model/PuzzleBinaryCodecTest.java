@@ -0,0 +1,86 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import jetoze.tzudoku.constraint.ChessConstraint;
+import jetoze.tzudoku.constraint.KillerCage;
+import jetoze.tzudoku.constraint.KillerCages;
+import jetoze.tzudoku.constraint.Sandwiches;
+import jetoze.tzudoku.constraint.Thermometer;
+import jetoze.tzudoku.constraint.Thermometers;
+
+public class PuzzleBinaryCodecTest {
+
+    @Test
+    public void roundTripsExactlyWithTheJsonRepresentation() {
+        // Arrange
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        Cell cell = grid.cellAt(new Position(1, 2));
+        cell.getCornerMarks().toggle(Value.ONE).toggle(Value.NINE);
+        cell.getCenterMarks().toggle(Value.FOUR);
+        cell.setColor(CellColor.BLUE);
+        grid.cellAt(new Position(2, 1)).setValue(Value.SEVEN);
+        grid.cellAt(new Position(9, 9)).setColor(CellColor.ORANGE);
+        Sandwiches sandwiches = Sandwiches.builder()
+                .row(1, 12)
+                .row(6, 0)
+                .column(5, 19)
+                .build();
+        KillerCages killerCages = KillerCages.builder()
+                .add(new KillerCage(ImmutableSet.of(new Position(2, 2), new Position(2, 3), new Position(2, 4))))
+                .add(new KillerCage(ImmutableSet.of(new Position(4, 5), new Position(4, 6), new Position(5, 5)), 17))
+                .build();
+        Thermometers thermometers = Thermometers.builder()
+                .add(new Thermometer(Arrays.asList(new Position(9, 1), new Position(8, 2), new Position(8, 3))))
+                .build();
+        Puzzle puzzle = new Puzzle("Binary", grid, sandwiches, killerCages,
+                Sets.immutableEnumSet(ChessConstraint.KNIGHTS_MOVE), thermometers);
+
+        // Act
+        byte[] bytes = PuzzleBinaryCodec.toBytes(puzzle);
+        Puzzle restored = PuzzleBinaryCodec.fromBytes(bytes, "Binary");
+
+        // Assert
+        assertEquals(PuzzleJsonCodec.toJson(puzzle), PuzzleJsonCodec.toJson(restored));
+        assertTrue(bytes.length < 200, "Unexpectedly large: " + bytes.length + " bytes");
+    }
+
+    @Test
+    public void readsInPlaceFromAByteBuffer() {
+        // Arrange
+        Puzzle p1 = new Puzzle("First", Grid.exampleOfUnsolvedGrid());
+        Puzzle p2 = new Puzzle("Second", Grid.exampleOfSolvedGrid());
+        byte[] b1 = PuzzleBinaryCodec.toBytes(p1);
+        byte[] b2 = PuzzleBinaryCodec.toBytes(p2);
+        ByteBuffer buffer = ByteBuffer.allocate(b1.length + b2.length);
+        buffer.put(b1).put(b2).flip();
+
+        // Act
+        Puzzle r1 = PuzzleBinaryCodec.read(buffer, "First");
+        Puzzle r2 = PuzzleBinaryCodec.read(buffer, "Second");
+
+        // Assert
+        assertTrue(p1.getGrid().isEquivalent(r1.getGrid()), "Wrong first grid");
+        assertTrue(p2.getGrid().isEquivalent(r2.getGrid()), "Wrong second grid");
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void invalidInputIsRejected() {
+        byte[] bytes = PuzzleBinaryCodec.toBytes(new Puzzle("Test", Grid.exampleOfUnsolvedGrid()));
+
+        assertThrows(IllegalArgumentException.class, () -> PuzzleBinaryCodec.fromBytes(Arrays.copyOf(bytes, 30), "Test"));
+        bytes[0] = 'X';
+        assertThrows(IllegalArgumentException.class, () -> PuzzleBinaryCodec.fromBytes(bytes, "Test"));
+    }
+}
@@ -0,0 +1,94 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonSyntaxException;
+
+import jetoze.tzudoku.constraint.ChessConstraint;
+import jetoze.tzudoku.constraint.KillerCages;
+import jetoze.tzudoku.constraint.Sandwiches;
+
+public class PuzzleJsonCodecTest {
+
+    @Test
+    public void writeAndReadMultiplePuzzlesFromOneStream() throws IOException {
+        // Arrange
+        Puzzle p1 = new Puzzle("First", Grid.exampleOfUnsolvedGrid());
+        Puzzle p2 = new Puzzle("Second", Grid.exampleOfSolvedGrid(), Sandwiches.builder().row(3, 15).build(),
+                KillerCages.EMPTY, ImmutableSet.of(ChessConstraint.KINGS_MOVE));
+        StringWriter writer = new StringWriter();
+
+        // Act
+        PuzzleJsonCodec.writeAll(List.of(p1, p2), writer);
+        List<Puzzle> restored = new ArrayList<>();
+        int count = PuzzleJsonCodec.readAll(new StringReader(writer.toString()), restored::add);
+
+        // Assert
+        assertEquals(2, count);
+        assertEquals("First", restored.get(0).getName());
+        assertTrue(p1.getGrid().isEquivalent(restored.get(0).getGrid()), "Wrong grid of first puzzle");
+        assertEquals("Second", restored.get(1).getName());
+        assertTrue(p2.getGrid().isEquivalent(restored.get(1).getGrid()), "Wrong grid of second puzzle");
+        assertEquals(p2.getSandwiches(), restored.get(1).getSandwiches());
+        assertEquals(p2.getChessConstraints(), restored.get(1).getChessConstraints());
+    }
+
+    @Test
+    public void optionalFieldsCanBeLeftOut() {
+        // Arrange
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        StringBuilder json = new StringBuilder("{\"given\": [");
+        for (int r = 1; r <= 9; ++r) {
+            if (r > 1) {
+                json.append(", ");
+            }
+            json.append('"');
+            for (int c = 1; c <= 9; ++c) {
+                Cell cell = grid.cellAt(new Position(r, c));
+                json.append(cell.isGiven() ? cell.getValue().get().toString() : "x");
+            }
+            json.append('"');
+        }
+        json.append("], \"unknownField\": {\"a\": [1, 2]}}");
+
+        // Act
+        Puzzle puzzle = PuzzleJsonCodec.fromJson(json.toString(), "Minimal");
+
+        // Assert
+        assertEquals("Minimal", puzzle.getName());
+        assertTrue(grid.isEquivalent(puzzle.getGrid()), "Wrong grid");
+        assertTrue(puzzle.isClassic(), "Expected a classic puzzle");
+    }
+
+    @Test
+    public void chessConstraintsUseTheirSerializedNames() {
+        // Arrange
+        Puzzle puzzle = new Puzzle("Chess", Grid.exampleOfUnsolvedGrid(), Sandwiches.EMPTY, KillerCages.EMPTY,
+                ImmutableSet.of(ChessConstraint.KINGS_MOVE, ChessConstraint.KNIGHTS_MOVE));
+
+        // Act
+        String json = PuzzleJsonCodec.toJson(puzzle);
+        Puzzle restored = PuzzleJsonCodec.fromJson(json, "Chess");
+
+        // Assert
+        assertTrue(json.contains("\"ki\""), "Expected the serialized name of KINGS_MOVE");
+        assertTrue(json.contains("\"kn\""), "Expected the serialized name of KNIGHTS_MOVE");
+        assertEquals(puzzle.getChessConstraints(), restored.getChessConstraints());
+    }
+
+    @Test
+    public void missingGivensAreRejected() {
+        assertThrows(JsonSyntaxException.class, () -> PuzzleJsonCodec.fromJson("{\"entered\": []}", "Invalid"));
+    }
+}
@@ -3,6 +3,7 @@ package jetoze.tzudoku.model;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -16,6 +17,8 @@ import jetoze.tzudoku.constraint.ChessConstraint;
 import jetoze.tzudoku.constraint.KillerCage;
 import jetoze.tzudoku.constraint.KillerCages;
 import jetoze.tzudoku.constraint.Sandwiches;
+import jetoze.tzudoku.constraint.Thermometer;
+import jetoze.tzudoku.constraint.Thermometers;
 
 public class PuzzleStorageRepresentationTest {
 
@@ -37,7 +40,11 @@ public class PuzzleStorageRepresentationTest {
                 .build();
         ImmutableSet<ChessConstraint> chessConstraints = Sets.immutableEnumSet(
                 ChessConstraint.KINGS_MOVE, ChessConstraint.KNIGHTS_MOVE);
-        Puzzle p1 = new Puzzle(puzzleName, grid, sandwiches, killerCages, chessConstraints);
+        Thermometers thermometers = Thermometers.builder()
+                .add(new Thermometer(Arrays.asList(new Position(9, 1), new Position(8, 2), new Position(8, 3))))
+                .add(new Thermometer(Arrays.asList(new Position(9, 1), new Position(9, 2))))
+                .build();
+        Puzzle p1 = new Puzzle(puzzleName, grid, sandwiches, killerCages, chessConstraints, thermometers);
 
         // Act
         String json = new PuzzleStorageRepresentation(p1).toJson();
@@ -49,6 +56,7 @@ public class PuzzleStorageRepresentationTest {
         assertEquals(sandwiches, p2.getSandwiches(), "Wrong sandwiches");
         assertEquals(killerCages, p2.getKillerCages(), "Wrong killer cages");
         assertEquals(chessConstraints, p2.getChessConstraints(), "Wrong chess constraints");
+        assertEquals(thermometers, p2.getThermometers(), "Wrong thermometers");
     }
 
     @Test
@@ -66,6 +74,7 @@ public class PuzzleStorageRepresentationTest {
         assertEquals(puzzleName, p2.getName(), "Wrong name");
         assertTrue(grid.isEquivalent(p2.getGrid()), "Wrong grid");
         assertEquals(Sandwiches.EMPTY, p2.getSandwiches(), "Wrong sandwiches");
+        assertEquals(Thermometers.EMPTY, p2.getThermometers(), "Wrong thermometers");
     }
     
     @Test
@@ -0,0 +1,70 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.Duration;
+import java.util.prefs.Preferences;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jetoze.tzudoku.hint.Hint;
+import jetoze.tzudoku.hint.SolvingTechnique;
+
+public class SolverConfigTest {
+    
+    private Preferences preferences;
+    
+    @BeforeEach
+    public void createPreferences() {
+        preferences = Preferences.userNodeForPackage(SolverConfigTest.class).node("test-" + System.nanoTime());
+    }
+    
+    @AfterEach
+    public void removePreferences() throws Exception {
+        preferences.removeNode();
+    }
+
+    @Test
+    public void storeAndLoad() {
+        // Arrange
+        SolverConfig config = SolverConfig.builder()
+                .disable(SolvingTechnique.SWORDFISH, SolvingTechnique.SIMPLE_COLORING)
+                .budget(SolvingTechnique.XYZ_WING, Duration.ofMillis(250L))
+                .deadline(Duration.ofSeconds(5L))
+                .build();
+        
+        // Act
+        config.save(preferences);
+        SolverConfig loaded = SolverConfig.load(preferences);
+        
+        // Assert
+        assertEquals(config, loaded);
+    }
+    
+    @Test
+    public void missingPreferencesGiveTheDefaultConfig() {
+        assertEquals(SolverConfig.DEFAULT, SolverConfig.load(preferences));
+    }
+    
+    @Test
+    public void solverOnlyUsesEnabledTechniques() {
+        // Arrange
+        SolverConfig config = SolverConfig.builder()
+                .disable(SolvingTechnique.NAKED_SINGLE)
+                .build();
+        GridSolver solver = new GridSolver(Grid.exampleOfUnsolvedGrid())
+                .setConfig(config);
+        
+        // Act
+        GridSolver.Result result = solver.solve();
+        
+        // Assert
+        assertFalse(result.getHintsApplied().isEmpty());
+        assertFalse(result.getHintsApplied().stream()
+                .map(Hint::getTechnique)
+                .anyMatch(t -> t == SolvingTechnique.NAKED_SINGLE));
+    }
+}
@@ -0,0 +1,59 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import jetoze.tzudoku.constraint.Thermometers;
+import jetoze.tzudoku.solver.CompleteSolver;
+
+public class TrialAndErrorSolverTest {
+
+    @Test
+    public void solvesAPuzzleThatTheTechniquesCannotSolve() {
+        // Arrange
+        Grid grid = new Grid(
+                "800000000",
+                "003600000",
+                "070090200",
+                "050007000",
+                "000045700",
+                "000100030",
+                "001000068",
+                "008500010",
+                "090000400");
+        assertFalse(new GridSolver(Grid.copyOf(grid), Thermometers.EMPTY).solve().isSolved());
+        TrialAndErrorSolver solver = new TrialAndErrorSolver(grid, Thermometers.EMPTY);
+
+        // Act
+        Optional<Grid> solution = solver.solve();
+
+        // Assert
+        Grid expected = new CompleteSolver(new Puzzle("Test", grid)).solve().orElseThrow();
+        assertTrue(solution.orElseThrow().isSolved());
+        Position.all().forEach(p -> assertEquals(expected.cellAt(p).getValue(), solution.get().cellAt(p).getValue()));
+        assertTrue(solver.getNumberOfGuesses() > 0);
+        assertFalse(grid.cellAt(new Position(1, 2)).hasValue());
+    }
+
+    @Test
+    public void returnsEmptyForAGridWithoutSolution() {
+        // Two 8s in the first box, but not in the same row or column.
+        Grid grid = new Grid(
+                "800000000",
+                "080000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000");
+
+        assertTrue(new TrialAndErrorSolver(grid, Thermometers.EMPTY).solve().isEmpty());
+    }
+}
@@ -0,0 +1,90 @@
+package jetoze.tzudoku.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumSet;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class ZobristHashTest {
+
+    @Test
+    public void sameStateGivesSameHash() {
+        // Arrange
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        grid.showRemainingCandidates();
+        Grid copy = Grid.copyOf(grid);
+        // Colors and corner marks do not take part in the hash
+        copy.cellAt(new Position(1, 1)).setColor(CellColor.RED);
+        copy.cellAt(new Position(1, 2)).getCornerMarks().toggle(Value.ONE);
+
+        // Act/Assert
+        assertEquals(ZobristHash.of(grid), ZobristHash.of(copy));
+    }
+
+    @Test
+    public void changingACandidateChangesTheHash() {
+        // Arrange
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        grid.showRemainingCandidates();
+        long before = ZobristHash.of(grid);
+
+        // Act
+        grid.cellAt(new Position(1, 2)).getCenterMarks().toggle(Value.ONE);
+
+        // Assert
+        assertNotEquals(before, ZobristHash.of(grid));
+    }
+
+    @Test
+    public void persistentGridMaintainsTheHashIncrementally() {
+        // Arrange
+        Grid grid = Grid.exampleOfUnsolvedGrid();
+        grid.showRemainingCandidates();
+        PersistentGrid persistentGrid = PersistentGrid.of(grid);
+        Position p = new Position(1, 2);
+
+        // Act
+        PersistentGrid branch = persistentGrid.withValue(p, Value.SEVEN)
+                .withCandidates(p, EnumSet.noneOf(Value.class))
+                .withoutCandidate(new Position(1, 4), Value.SEVEN);
+
+        // Assert
+        assertEquals(ZobristHash.of(grid), persistentGrid.getZobristHash());
+        assertEquals(ZobristHash.of(branch.toGrid()), branch.getZobristHash());
+        assertNotEquals(persistentGrid.getZobristHash(), branch.getZobristHash());
+    }
+
+    @Test
+    public void transpositionCacheComputesMissingResults() {
+        // Arrange
+        TranspositionCache<String> cache = new TranspositionCache<>(10);
+        long key = ZobristHash.of(Grid.exampleOfUnsolvedGrid());
+
+        // Act
+        String first = cache.get(key, () -> "first");
+        String second = cache.get(key, () -> "second");
+
+        // Assert
+        assertEquals("first", first);
+        assertEquals("first", second);
+        assertEquals(Optional.of("first"), cache.get(key));
+    }
+
+    @Test
+    public void transpositionCacheIsBounded() {
+        // Arrange
+        TranspositionCache<Integer> cache = new TranspositionCache<>(2);
+
+        // Act
+        for (int i = 0; i < 10; ++i) {
+            cache.put(i, i);
+        }
+
+        // Assert
+        assertTrue(cache.size() <= 2);
+    }
+}
@@ -0,0 +1,172 @@
+package jetoze.tzudoku.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.constraint.ChessConstraint;
+import jetoze.tzudoku.constraint.KillerCage;
+import jetoze.tzudoku.constraint.KillerCages;
+import jetoze.tzudoku.constraint.Sandwiches;
+import jetoze.tzudoku.constraint.Thermometer;
+import jetoze.tzudoku.constraint.Thermometers;
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Puzzle;
+
+public class CompleteSolverTest {
+
+    @Test
+    public void solvesClassicPuzzle() {
+        // Arrange
+        Puzzle puzzle = new Puzzle("Test", Grid.exampleOfUnsolvedGrid());
+        CompleteSolver solver = new CompleteSolver(puzzle);
+        
+        // Act
+        Optional<Grid> solution = solver.solve();
+        
+        // Assert
+        assertTrue(solution.isPresent());
+        assertTrue(solution.get().isSolved());
+        assertTrue(solver.hasUniqueSolution());
+        Position.all()
+            .filter(p -> puzzle.getGrid().cellAt(p).isGiven())
+            .forEach(p -> assertEquals(puzzle.getGrid().cellAt(p).getValue(), solution.get().cellAt(p).getValue()));
+    }
+    
+    @Test
+    public void countsSolutionsUpToTheLimit() {
+        CompleteSolver solver = new CompleteSolver(new Puzzle("Test", Grid.emptyGrid()));
+        
+        assertEquals(3, solver.countSolutions(3));
+        assertFalse(solver.hasUniqueSolution());
+    }
+    
+    @Test
+    public void puzzleWithConflictingGivensHasNoSolution() {
+        Puzzle puzzle = new Puzzle("Test", new Grid(
+                "110000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000"));
+        
+        assertFalse(new CompleteSolver(puzzle).solve().isPresent());
+    }
+    
+    @Test
+    public void solutionSatisfiesTheVariantConstraints() {
+        // Arrange
+        KillerCages killerCages = KillerCages.builder()
+                .add(new KillerCage(ImmutableSet.of(new Position(1, 1), new Position(1, 2)), 3))
+                .add(new KillerCage(ImmutableSet.of(new Position(5, 5), new Position(5, 6), new Position(6, 5)), 23))
+                .build();
+        Sandwiches sandwiches = Sandwiches.builder()
+                .row(9, 0)
+                .column(9, 35)
+                .build();
+        Thermometers thermometers = Thermometers.builder()
+                .add(new Thermometer(Arrays.asList(new Position(3, 3), new Position(4, 4), new Position(5, 4), 
+                        new Position(6, 4), new Position(7, 3))))
+                .build();
+        Puzzle puzzle = new Puzzle("Test", Grid.emptyGrid(), sandwiches, killerCages, 
+                ImmutableSet.of(ChessConstraint.KINGS_MOVE), thermometers);
+        
+        // Act
+        Optional<Grid> solution = new CompleteSolver(puzzle).solve();
+        
+        // Assert
+        assertTrue(solution.isPresent());
+        Grid grid = solution.get();
+        assertTrue(grid.isSolved());
+        assertTrue(killerCages.validate(grid).isEmpty(), "Killer cages violated");
+        assertTrue(sandwiches.validate(grid).isEmpty(), "Sandwiches violated");
+        assertTrue(thermometers.validate(grid).isEmpty(), "Thermometers violated");
+        assertTrue(ChessConstraint.KINGS_MOVE.validate(grid).isEmpty(), "King's move violated");
+    }
+    
+    @Test
+    public void impossibleThermometerHasNoSolution() {
+        // A 2 in the middle of a three cell thermometer requires a 1 in the bulb, but the 
+        // bulb is in the same row as a given 1.
+        Thermometers thermometers = Thermometers.builder()
+                .add(new Thermometer(Arrays.asList(new Position(1, 1), new Position(1, 2), new Position(1, 3))))
+                .build();
+        Puzzle puzzle = new Puzzle("Test", new Grid(
+                "020000001",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000",
+                "000000000"), Sandwiches.EMPTY, KillerCages.EMPTY, ImmutableSet.of(), thermometers);
+        
+        assertFalse(new CompleteSolver(puzzle).solve().isPresent());
+    }
+
+    @Test
+    public void enumeratesSolutionsLazily() {
+        // Arrange
+        CompleteSolver solver = new CompleteSolver(new Puzzle("Test", Grid.emptyGrid()));
+        
+        // Act
+        List<Grid> solutions = solver.solutions()
+                .limit(1000)
+                .collect(Collectors.toList());
+        
+        // Assert
+        assertEquals(1000, solutions.size());
+        // Grid does not implement value equality, so compare the values of the grids.
+        Set<String> distinctSolutions = solutions.stream()
+                .map(Grid::toString)
+                .collect(Collectors.toSet());
+        assertEquals(1000, distinctSolutions.size());
+        assertTrue(solutions.stream().allMatch(Grid::isSolved));
+    }
+    
+    @Test
+    public void solutionStreamOfUniquePuzzleHasOneElement() {
+        CompleteSolver solver = new CompleteSolver(new Puzzle("Test", Grid.exampleOfUnsolvedGrid()));
+        
+        assertEquals(1L, solver.solutions().count());
+    }
+    
+    @Test
+    public void onlyUniqueSolutionsAreReturnedBySolveUniquely() {
+        CompleteSolver unique = new CompleteSolver(new Puzzle("Test", Grid.exampleOfUnsolvedGrid()));
+        CompleteSolver ambiguous = new CompleteSolver(new Puzzle("Test", Grid.emptyGrid()));
+        
+        assertTrue(unique.solveUniquely().map(Grid::isSolved).orElse(false));
+        assertTrue(ambiguous.solveUniquely().isEmpty());
+    }
+    
+    @Test
+    public void solvingWithATimeLimitGivesUpWhenTheTimeRunsOut() throws TimeoutException {
+        CompleteSolver unique = new CompleteSolver(new Puzzle("Test", Grid.exampleOfUnsolvedGrid()));
+        CompleteSolver empty = new CompleteSolver(new Puzzle("Test", Grid.emptyGrid()));
+        
+        Optional<Grid> solution = unique.solveUniquely(Duration.ofSeconds(10L));
+        
+        assertEquals(unique.solveUniquely().map(Grid::toString), solution.map(Grid::toString));
+        assertThrows(TimeoutException.class, () -> empty.solveUniquely(Duration.ofNanos(1L)));
+    }
+}
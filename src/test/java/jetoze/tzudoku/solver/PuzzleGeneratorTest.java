@@ -0,0 +1,84 @@
+package jetoze.tzudoku.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.solver.PuzzleGenerator.Symmetry;
+
+public class PuzzleGeneratorTest {
+
+    @Test
+    public void generatedPuzzleHasUniqueSolutionAndSymmetricGivens() {
+        // Arrange
+        PuzzleGenerator generator = PuzzleGenerator.builder()
+                .symmetry(Symmetry.ROTATIONAL)
+                .build();
+
+        // Act
+        Optional<Grid> grid = generator.generate(new Random(1L));
+
+        // Assert
+        assertTrue(grid.isPresent());
+        assertTrue(new CompleteSolver(new Puzzle("Test", grid.get())).hasUniqueSolution());
+        Position.all().forEach(p -> {
+            Position mirror = new Position(10 - p.getRow(), 10 - p.getColumn());
+            assertEquals(grid.get().cellAt(p).isGiven(), grid.get().cellAt(mirror).isGiven());
+        });
+    }
+
+    @Test
+    public void generatesTheRequestedNumberOfPuzzlesInParallel() throws Exception {
+        // Arrange
+        PuzzleGenerator generator = PuzzleGenerator.builder()
+                .parallelism(2)
+                .build();
+        List<Grid> grids = new CopyOnWriteArrayList<>();
+
+        // Act
+        generator.generate(4, grids::add).get(1, TimeUnit.MINUTES);
+
+        // Assert
+        assertEquals(4, grids.size());
+    }
+
+    @Test
+    public void thePuzzlesAreConsumedOnASingleThread() throws Exception {
+        // Arrange
+        PuzzleGenerator generator = PuzzleGenerator.builder()
+                .parallelism(2)
+                .build();
+        Set<Thread> consumerThreads = ConcurrentHashMap.newKeySet();
+        AtomicInteger count = new AtomicInteger();
+
+        // Act
+        CompletableFuture<Void> future = generator.generate(4, grid -> {
+            consumerThreads.add(Thread.currentThread());
+            if (count.incrementAndGet() == 1) {
+                throw new IllegalStateException("The consumer failed");
+            }
+        });
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.MINUTES));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertEquals(4, count.get());
+        assertEquals(1, consumerThreads.size());
+    }
+}
@@ -0,0 +1,78 @@
+package jetoze.tzudoku.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import jetoze.tzudoku.model.Grid;
+import jetoze.tzudoku.model.Position;
+import jetoze.tzudoku.model.Puzzle;
+import jetoze.tzudoku.solver.SolutionDiagnostics.Given;
+
+public class SolutionDiagnosticsTest {
+
+    @Test
+    public void puzzleWithUniqueSolution() {
+        // Act
+        SolutionDiagnostics diagnostics = SolutionDiagnostics.of(new Puzzle("Test", Grid.exampleOfUnsolvedGrid()), 10);
+        
+        // Assert
+        assertTrue(diagnostics.hasUniqueSolution());
+        assertTrue(diagnostics.getAmbiguousCells().isEmpty());
+        assertFalse(diagnostics.getSuggestedGiven().isPresent());
+    }
+    
+    @Test
+    public void puzzleWithTwoSolutions() {
+        // Arrange
+        // A solved grid with four cells removed. The cells r1c4, r1c7, r2c4 and r2c7 hold 
+        // 1-3-3-1, which can be swapped to 3-1-1-3, so the puzzle has two solutions.
+        Puzzle puzzle = new Puzzle("Test", new Grid(
+                "827054096",
+                "965027048",
+                "341689752",
+                "593468271",
+                "472513689",
+                "618972435",
+                "786235914",
+                "154796823",
+                "239841567"));
+        ImmutableSet<Position> rectangle = ImmutableSet.of(new Position(1, 4), new Position(1, 7), 
+                new Position(2, 4), new Position(2, 7));
+        
+        // Act
+        SolutionDiagnostics diagnostics = SolutionDiagnostics.of(puzzle, 10);
+        
+        // Assert
+        assertEquals(2, diagnostics.getNumberOfSolutions());
+        assertFalse(diagnostics.isLimitReached());
+        assertEquals(rectangle, diagnostics.getAmbiguousCells());
+        Given suggestion = diagnostics.getSuggestedGiven().get();
+        assertTrue(rectangle.contains(suggestion.getPosition()));
+    }
+    
+    @Test
+    public void limitIsRespected() {
+        // Act
+        SolutionDiagnostics diagnostics = SolutionDiagnostics.of(new Puzzle("Test", Grid.emptyGrid()), 5);
+        
+        // Assert
+        assertEquals(5, diagnostics.getNumberOfSolutions());
+        assertTrue(diagnostics.isLimitReached());
+    }
+    
+    @Test
+    public void aSingleSolutionIsNotUniqueIfTheLimitIsReached() {
+        // Act
+        SolutionDiagnostics diagnostics = SolutionDiagnostics.of(new Puzzle("Test", Grid.emptyGrid()), 1);
+        
+        // Assert
+        assertEquals(1, diagnostics.getNumberOfSolutions());
+        assertTrue(diagnostics.isLimitReached());
+        assertFalse(diagnostics.hasUniqueSolution());
+    }
+}